@@ -0,0 +1,229 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.benchmark;
+
+import com.atlassian.jira.rest.client.api.ExpandableProperty;
+import com.atlassian.jira.rest.client.api.domain.BasicComponent;
+import com.atlassian.jira.rest.client.api.domain.BasicPriority;
+import com.atlassian.jira.rest.client.api.domain.BasicProject;
+import com.atlassian.jira.rest.client.api.domain.BasicVotes;
+import com.atlassian.jira.rest.client.api.domain.BasicWatchers;
+import com.atlassian.jira.rest.client.api.domain.ChangelogGroup;
+import com.atlassian.jira.rest.client.api.domain.ChangelogItem;
+import com.atlassian.jira.rest.client.api.domain.Comment;
+import com.atlassian.jira.rest.client.api.domain.FieldType;
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import com.atlassian.jira.rest.client.api.domain.IssueField;
+import com.atlassian.jira.rest.client.api.domain.IssueLink;
+import com.atlassian.jira.rest.client.api.domain.IssueType;
+import com.atlassian.jira.rest.client.api.domain.OperationGroup;
+import com.atlassian.jira.rest.client.api.domain.Operations;
+import com.atlassian.jira.rest.client.api.domain.Resolution;
+import com.atlassian.jira.rest.client.api.domain.Status;
+import com.atlassian.jira.rest.client.api.domain.Subtask;
+import com.atlassian.jira.rest.client.api.domain.TimeTracking;
+import com.atlassian.jira.rest.client.api.domain.User;
+import com.atlassian.jira.rest.client.api.domain.Version;
+import com.atlassian.jira.rest.client.api.domain.Worklog;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+/**
+ * Synthetic issues for the benchmarks. The issues look like issues of a
+ * typical JIRA search result with changelog and some custom fields.
+ */
+public final class IssueFixtures {
+
+    /** Changelog fields exported by the benchmarks. */
+    public static final String[] HISTORY_FIELDS = {"status", "assignee", "priority"};
+
+    /** Changelog fields not exported by the benchmarks. */
+    static final String[] OTHER_CHANGELOG_FIELDS = {"description", "labels", "Sprint", "Rank"};
+
+    static final String[] STATUS_NAMES = {"Open", "In Progress", "Review", "Resolved", "Reopened", "Closed"};
+
+    /** Custom field with a nested JSON object. Path: <tt>deep::level1::level2::level3::value</tt>. */
+    public static final String DEEP_FIELD_ID = "customfield_10100";
+    public static final String DEEP_FIELD_NAME = "deep";
+    public static final String DEEP_FIELD_PATH = DEEP_FIELD_NAME + "::level1::level2::level3::value";
+
+    /** Custom field with a JSON array of objects. Path: <tt>components list::name</tt>. */
+    public static final String ARRAY_FIELD_ID = "customfield_10200";
+    public static final String ARRAY_FIELD_NAME = "components list";
+    public static final String ARRAY_FIELD_PATH = ARRAY_FIELD_NAME + "::name";
+
+    /** Count of custom fields with a simple value of an issue. */
+    static final int SIMPLE_FIELD_COUNT = 40;
+    static final int ITEMS_PER_CHANGELOG_GROUP = 3;
+    static final int NOISE_KEYS_PER_LEVEL = 8;
+    static final long HOUR_MILLIS = 60 * 60 * 1000;
+    static final long CREATED_MILLIS = 1_480_000_000_000L;
+
+    private static final DateTimeZone ZONE = DateTimeZone.forOffsetMillis(60 * 60 * 1000);
+    private static final URI BASE_URI = URI.create("http://example.com/jira/rest/api/2/");
+
+    private IssueFixtures() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Creates an issue with the given count of changelog items. The items
+     * are grouped into changelog groups of up to three items. Every second
+     * item changes a field of {@link #HISTORY_FIELDS}.
+     * @param key the key of the issue.
+     * @param changelogItems the count of changelog items.
+     * @return a new issue.
+     */
+    public static Issue createIssue(final String key, final int changelogItems) {
+        final User user = createUser("jan");
+        return new Issue(
+                "Summary of " + key,
+                BASE_URI.resolve("issue/" + key),
+                key,
+                10_000L,
+                new BasicProject(BASE_URI.resolve("project/TEST"), "TEST", 100L, "Test Project"),
+                new IssueType(BASE_URI.resolve("issuetype/1"), 1L, "Bug", false, "A bug", BASE_URI.resolve("issuetype/1/icon")),
+                new Status(BASE_URI.resolve("status/6"), 6L, "Closed", "Closed issue", BASE_URI.resolve("status/6/icon")),
+                "Description of " + key,
+                new BasicPriority(BASE_URI.resolve("priority/3"), 3L, "Major"),
+                new Resolution(BASE_URI.resolve("resolution/1"), 1L, "Fixed", "Issue is fixed"),
+                Collections.emptyList(),
+                user,
+                user,
+                new DateTime(CREATED_MILLIS, ZONE),
+                new DateTime(CREATED_MILLIS + changelogItems * HOUR_MILLIS, ZONE),
+                null,
+                new ArrayList<Version>(),
+                new ArrayList<Version>(),
+                new HashSet<BasicComponent>(),
+                new TimeTracking(60, 30, 30),
+                createFields(),
+                new HashSet<Comment>(),
+                BASE_URI.resolve("issue/" + key + "/transitions"),
+                new HashSet<IssueLink>(),
+                new BasicVotes(BASE_URI.resolve("issue/" + key + "/votes"), 0, false),
+                new ArrayList<Worklog>(),
+                new BasicWatchers(BASE_URI.resolve("issue/" + key + "/watchers"), false, 1),
+                new HashSet<String>(),
+                new HashSet<Subtask>(),
+                createChangelog(changelogItems, user),
+                new Operations(new HashSet<OperationGroup>()),
+                new HashSet<String>());
+    }
+
+    /**
+     * @param index the index of the changelog item.
+     * @return the date time of the changelog item with the given index. One hour after the previous item.
+     */
+    public static DateTime changeDateTime(final int index) {
+        return new DateTime(CREATED_MILLIS + (index + 1) * HOUR_MILLIS, ZONE);
+    }
+
+    public static DateTime createdDateTime() {
+        return new DateTime(CREATED_MILLIS, ZONE);
+    }
+
+    public static String statusName(final int index) {
+        return STATUS_NAMES[index % STATUS_NAMES.length];
+    }
+
+    static List<ChangelogGroup> createChangelog(final int changelogItems, final User user) {
+        final List<ChangelogGroup> changelog = new ArrayList<>();
+        List<ChangelogItem> items = new ArrayList<>();
+        for (int idx = 0; idx < changelogItems; idx++) {
+            items.add(createChangelogItem(idx));
+            if (items.size() == ITEMS_PER_CHANGELOG_GROUP || idx == changelogItems - 1) {
+                changelog.add(new ChangelogGroup(user, changeDateTime(idx), items));
+                items = new ArrayList<>();
+            }
+        }
+        return changelog;
+    }
+
+    static ChangelogItem createChangelogItem(final int index) {
+        if (index % 2 == 0) {
+            final String field = HISTORY_FIELDS[(index / 2) % HISTORY_FIELDS.length];
+            final String from = statusName(index);
+            final String to = statusName(index + 1);
+            return new ChangelogItem(FieldType.JIRA, field, String.valueOf(index), from, String.valueOf(index + 1), to);
+        }
+        final String field = OTHER_CHANGELOG_FIELDS[(index / 2) % OTHER_CHANGELOG_FIELDS.length];
+        return new ChangelogItem(FieldType.CUSTOM, field, null, "old value " + index, null, "new value " + index);
+    }
+
+    static List<IssueField> createFields() {
+        final List<IssueField> fields = new ArrayList<>();
+        for (int idx = 0; idx < SIMPLE_FIELD_COUNT; idx++) {
+            fields.add(new IssueField("customfield_" + (10_300 + idx), "simple " + idx, null, "value " + idx));
+        }
+        try {
+            fields.add(new IssueField(DEEP_FIELD_ID, DEEP_FIELD_NAME, null, createDeepJson()));
+            fields.add(new IssueField(ARRAY_FIELD_ID, ARRAY_FIELD_NAME, null, createArrayJson()));
+        } catch (final JSONException e) {
+            throw new IllegalStateException(e);
+        }
+        return fields;
+    }
+
+    static JSONObject createDeepJson() throws JSONException {
+        final JSONObject level3 = createNoiseJson();
+        level3.put("value", "deep value");
+        final JSONObject level2 = createNoiseJson();
+        level2.put("level3", level3);
+        final JSONObject level1 = createNoiseJson();
+        level1.put("level2", level2);
+        final JSONObject root = createNoiseJson();
+        root.put("level1", level1);
+        return root;
+    }
+
+    static JSONArray createArrayJson() throws JSONException {
+        final JSONArray array = new JSONArray();
+        for (int idx = 0; idx < 5; idx++) {
+            final JSONObject component = createNoiseJson();
+            component.put("name", "component " + idx);
+            array.put(component);
+        }
+        return array;
+    }
+
+    static JSONObject createNoiseJson() throws JSONException {
+        final JSONObject json = new JSONObject();
+        for (int idx = 0; idx < NOISE_KEYS_PER_LEVEL; idx++) {
+            json.put("noise" + idx, "noise value " + idx);
+        }
+        return json;
+    }
+
+    static User createUser(final String name) {
+        final Map<String, URI> avatarUris = new HashMap<>();
+        avatarUris.put(User.S16_16, BASE_URI.resolve("avatar/16"));
+        avatarUris.put(User.S48_48, BASE_URI.resolve("avatar/48"));
+        return new User(BASE_URI.resolve("user/" + name), name, name, name + "@example.com", new ExpandableProperty(0), avatarUris, "UTC");
+    }
+}
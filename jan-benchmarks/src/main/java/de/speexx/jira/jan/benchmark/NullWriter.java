@@ -0,0 +1,42 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.benchmark;
+
+import java.io.Writer;
+
+/**
+ * Writer which discards all characters. Keeps I/O out of the output benchmarks.
+ */
+public final class NullWriter extends Writer {
+
+    @Override
+    public void write(final char[] cbuf, final int off, final int len) {
+    }
+
+    @Override
+    public void write(final String str, final int off, final int len) {
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
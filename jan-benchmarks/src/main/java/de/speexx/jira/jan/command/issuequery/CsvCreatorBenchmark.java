@@ -0,0 +1,102 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.command.issuequery;
+
+import de.speexx.jira.jan.benchmark.IssueFixtures;
+import de.speexx.jira.jan.benchmark.NullWriter;
+import de.speexx.jira.jan.service.issue.FieldName;
+import de.speexx.jira.jan.service.issue.FieldNamePath;
+import de.speexx.jira.jan.service.issue.FieldNameService;
+import de.speexx.jira.jan.service.issue.IssueData;
+import de.speexx.jira.jan.service.time.TimeConverterService;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CSV output of an issue with changelog. The CSV is written to a writer
+ * discarding all characters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CsvCreatorBenchmark {
+
+    @Param({"10", "100", "1000", "5000"})
+    public int changelogItems;
+
+    @Param({"DURATION", "BOTH"})
+    public TemporalChangeOutput temporalOutput;
+
+    private final AtomicBoolean header = new AtomicBoolean(false);
+    private CsvCreator csvCreator;
+    private IssueData issueData;
+    private List<FieldName> historyFieldNames;
+    private List<FieldNamePath> currentFieldNames;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        final FieldNameService fieldNameService = new FieldNameService();
+        final TimeConverterService timeConverter = new TimeConverterService();
+
+        this.historyFieldNames = Arrays.asList(Arrays.stream(IssueFixtures.HISTORY_FIELDS)
+                                                     .map(fieldNameService::createFieldName)
+                                                     .toArray(FieldName[]::new));
+        final FieldNamePath key = fieldNameService.createFieldNamePath(fieldNameService.createFieldName("issuekey"));
+        final FieldNamePath created = fieldNameService.createFieldNamePath(fieldNameService.createFieldName("createddate"));
+        final FieldNamePath summary = fieldNameService.createFieldNamePath(fieldNameService.createFieldName("summary"));
+        this.currentFieldNames = Arrays.asList(key, created, summary);
+
+        this.issueData = new IssueData();
+        this.issueData.addCurrentFieldData(key, "TEST-1");
+        this.issueData.addCurrentFieldData(created, timeConverter.jodaDateTimeToJava8LocalDateTime(IssueFixtures.createdDateTime()));
+        this.issueData.addCurrentFieldData(summary, "Summary of TEST-1");
+        for (int idx = 0; idx < this.changelogItems; idx++) {
+            final FieldName fieldName = this.historyFieldNames.get(idx % this.historyFieldNames.size());
+            this.issueData.addHistoricalDataEntry(fieldName, new IssueData.HistoricalDataEntry(
+                    IssueFixtures.statusName(idx),
+                    timeConverter.jodaDateTimeToJava8LocalDateTime(IssueFixtures.changeDateTime(idx)),
+                    IssueFixtures.statusName(idx + 1)));
+        }
+
+        this.csvCreator = new CsvCreator();
+        this.csvCreator.open(new NullWriter(), 0);
+    }
+
+    @Benchmark
+    public void printIssueData() {
+        this.csvCreator.printIssueData(this.issueData, this.historyFieldNames, this.currentFieldNames, this.temporalOutput, this.header);
+    }
+}
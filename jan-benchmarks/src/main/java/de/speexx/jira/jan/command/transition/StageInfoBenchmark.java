@@ -0,0 +1,73 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.command.transition;
+
+import de.speexx.jira.jan.benchmark.IssueFixtures;
+import de.speexx.jira.jan.service.time.TimeConverterService;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Calculation of the stage durations of the transitions export. The stage
+ * infos are given in reversed order to include the sorting.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StageInfoBenchmark {
+
+    @Param({"10", "100", "1000", "5000"})
+    public int stages;
+
+    private IssueTransitionFetcher.IssueInfo issueInfo;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final TimeConverterService timeConverter = new TimeConverterService();
+        this.issueInfo = new IssueTransitionFetcher.IssueInfo();
+        this.issueInfo.key = "TEST-1";
+        this.issueInfo.created = timeConverter.jodaDateTimeToJava8LocalDateTime(IssueFixtures.createdDateTime());
+        for (int idx = this.stages - 1; idx >= 0; idx--) {
+            final IssueTransitionFetcher.StageInfo stageInfo = new IssueTransitionFetcher.StageInfo();
+            stageInfo.stageStart = timeConverter.jodaDateTimeToJava8LocalDateTime(IssueFixtures.changeDateTime(idx));
+            stageInfo.fromStageName = IssueFixtures.statusName(idx);
+            stageInfo.stageName = IssueFixtures.statusName(idx + 1);
+            this.issueInfo.stageInfos.add(stageInfo);
+        }
+    }
+
+    @Benchmark
+    public List<IssueTransitionFetcher.StageDuration> stageInfoAsDuration() {
+        return this.issueInfo.stageInfoAsDuration();
+    }
+}
@@ -0,0 +1,102 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.issue;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import de.speexx.jira.jan.benchmark.IssueFixtures;
+import de.speexx.jira.jan.service.time.TimeConverterService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.enterprise.inject.se.SeContainer;
+import javax.enterprise.inject.se.SeContainerInitializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Extraction of the changelog and the current field values of an issue.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IssueFieldServiceBenchmark {
+
+    @Param({"10", "100", "1000", "5000"})
+    public int changelogItems;
+
+    private SeContainer seContainer;
+    private IssueFieldService issueFieldService;
+    private Issue issue;
+    private List<FieldName> historyFieldNames;
+    private List<FieldNamePath> currentFieldNames;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.seContainer = SeContainerInitializer.newInstance()
+                                                 .disableDiscovery()
+                                                 .addBeanClasses(IssueFieldService.class,
+                                                                 FieldNameService.class,
+                                                                 TimeConverterService.class,
+                                                                 IssueCoreFieldConfigLoader.class)
+                                                 .initialize();
+        this.issueFieldService = this.seContainer.select(IssueFieldService.class).get();
+        final FieldNameService fieldNameService = this.seContainer.select(FieldNameService.class).get();
+
+        this.issue = IssueFixtures.createIssue("TEST-1", this.changelogItems);
+        this.historyFieldNames = new ArrayList<>();
+        Arrays.stream(IssueFixtures.HISTORY_FIELDS).map(fieldNameService::createFieldName).forEach(this.historyFieldNames::add);
+
+        this.currentFieldNames = new ArrayList<>();
+        for (final String path : Arrays.asList("simple 1", "simple 20", IssueFixtures.DEEP_FIELD_PATH, IssueFixtures.ARRAY_FIELD_PATH)) {
+            final FieldName[] elements = Arrays.stream(path.split(FieldNamePath.DELIMITER))
+                                               .map(fieldNameService::createFieldName)
+                                               .toArray(FieldName[]::new);
+            this.currentFieldNames.add(fieldNameService.createFieldNamePath(elements));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.seContainer.close();
+    }
+
+    @Benchmark
+    public IssueData fetchHistoricalIssueData() {
+        return this.issueFieldService.fetchHistoricalIssueData(this.issue, new IssueData(), this.historyFieldNames);
+    }
+
+    @Benchmark
+    public IssueData fetchCurrentDataFromIssueFields() {
+        return this.issueFieldService.fetchCurrentDataFromIssueFields(this.issue, new IssueData(), this.currentFieldNames);
+    }
+}
@@ -17,11 +17,17 @@
  */
 package de.speexx.jira.jan;
 
-import com.atlassian.jira.rest.client.api.JiraRestClient;
-import com.atlassian.jira.rest.client.api.JiraRestClientFactory;
-import com.atlassian.jira.rest.client.internal.async.AsynchronousJiraRestClientFactory;
+import com.atlassian.jira.rest.client.auth.BasicHttpAuthenticationHandler;
+import com.atlassian.jira.rest.client.internal.async.DisposableHttpClient;
 import com.beust.jcommander.Parameter;
 import de.speexx.jira.jan.app.Application;
+import de.speexx.jira.jan.service.fetch.ExtendedJiraRestClient;
+import de.speexx.jira.jan.service.fetch.RequestGovernor;
+import de.speexx.jira.jan.service.fetch.RetryPolicy;
+import de.speexx.jira.jan.service.fetch.SharedHttpClientFactory;
+import de.speexx.jira.jan.service.stats.RunStatistics;
+import de.speexx.jira.jan.service.symbol.SymbolTable;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import org.slf4j.Logger;
@@ -31,6 +37,8 @@ public class ExecutionContext {
     
     private final static String MAIN_CONFIG_FILENAME = Application.APPLICATION_NAME + ".config";
     private static final Logger LOG = LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME);
+    static final int MIN_CONNECTIONS = 20;
+    static final long RETRY_BASE_DELAY_MILLIS = 500;
     
     @Parameter(names = {"-p", "--password"}, description = "JIRA connection password.")
     private String password;
@@ -50,6 +58,48 @@ public class ExecutionContext {
     @Parameter(names = {"-c", "--config"}, hidden = true, description = "Name of the main configuration file.")
     private String mainConfigFilename = MAIN_CONFIG_FILENAME;
 
+    @Parameter(names = {"--max-connections"},
+               description = "Maximum count of open connections to JIRA. "
+                           + "Sized to the concurrent requests of the command if not given.")
+    private int maxConnections = 0;
+
+    @Parameter(names = {"--connect-timeout"}, description = "Timeout in seconds for connecting to JIRA.")
+    private int connectTimeout = 10;
+
+    @Parameter(names = {"--socket-timeout"}, description = "Timeout in seconds for waiting on response data from JIRA.")
+    private int socketTimeout = 60;
+
+    @Parameter(names = {"--connection-ttl"},
+               description = "Total lifetime in seconds of a pooled connection to JIRA, busy or idle. "
+                           + "A connection is closed and replaced after this time. Must be greater than 0.")
+    private int connectionTtl = 900;
+
+    @Parameter(names = {"--compression"},
+               description = "Requests GZIP compressed search responses from JIRA. Reduces the transferred "
+                           + "bytes of searches with expanded changelogs.")
+    private boolean compression = false;
+
+    @Parameter(names = {"--max-rate"},
+               description = "Maximum count of requests per second against JIRA. 0 for no limit. "
+                           + "The count of concurrent requests adapts to the response times "
+                           + "and the throttling of JIRA independent of this limit.")
+    private double maxRate = 0;
+
+    @Parameter(names = {"--retries"},
+               description = "Maximum count of retries of a JIRA request failed with a transient failure "
+                           + "like a throttled request, a gateway failure or a broken connection. 0 disables retries.")
+    private int retries = 5;
+
+    @Parameter(names = {"--stats"},
+               description = "Prints a latency summary of the JIRA requests, the data extraction "
+                           + "and the output to stderr at the end of the command.")
+    private boolean stats = false;
+
+    private final RunStatistics statistics = new RunStatistics();
+    private final SymbolTable symbols = new SymbolTable();
+    private ExtendedJiraRestClient jiraClient;
+    private int jiraClientConnections;
+
     String getPassword() {
         return this.password;
     }
@@ -82,15 +132,78 @@ public class ExecutionContext {
         this.jiraUri = jiraUri;
     }
     
-    public JiraRestClient newJiraClient() {
+    /**
+     * Returns the JIRA client shared by all commands of the run. The client
+     * is created on the first call. The caller must not close the client.
+     * @param concurrency the maximum count of concurrent requests of the
+     *                    command. Sizes the connection pool of a new client
+     *                    if no maximum count of connections is given.
+     * @return the shared client. Never {@code null}.
+     */
+    public synchronized ExtendedJiraRestClient getJiraClient(final int concurrency) {
+        if (this.jiraClient == null) {
+            this.jiraClientConnections = calculateMaxConnections(concurrency);
+            this.jiraClient = createJiraClient(this.jiraClientConnections, concurrency);
+        } else if (concurrency > this.jiraClientConnections) {
+            log("Shared JIRA client has only {} connections for {} concurrent requests", this.jiraClientConnections, concurrency);
+        }
+        return this.jiraClient;
+    }
+
+    public ExtendedJiraRestClient getJiraClient() {
+        return getJiraClient(1);
+    }
+
+    /**
+     * Closes the shared JIRA client if created. A later call of
+     * {@link #getJiraClient(int)} creates a new client.
+     */
+    public synchronized void closeJiraClient() {
+        if (this.jiraClient != null) {
+            try {
+                this.jiraClient.close();
+            } catch (final IOException e) {
+                throw new JiraAnalyzeException(e);
+            } finally {
+                this.jiraClient = null;
+            }
+        }
+    }
+
+    int calculateMaxConnections(final int concurrency) {
+        return this.maxConnections > 0 ? this.maxConnections : Math.max(MIN_CONNECTIONS, concurrency);
+    }
+
+    ExtendedJiraRestClient createJiraClient(final int connections, final int concurrency) {
         try {
-            final JiraRestClientFactory factory = new AsynchronousJiraRestClientFactory();
-            return factory.createWithBasicHttpAuthentication(new URI(getJiraUri()), getUser(), getPassword());
+            final URI serverUri = new URI(getJiraUri());
+            log("Connecting to {} with maximum {} connections", serverUri, connections);
+            final DisposableHttpClient httpClient = new SharedHttpClientFactory().createClient(
+                    serverUri, 
+                    new BasicHttpAuthenticationHandler(getUser(), getPassword()),
+                    SharedHttpClientFactory.createOptions(connections, this.connectTimeout, this.socketTimeout, this.connectionTtl));
+            final RequestGovernor governor = new RequestGovernor(connections, concurrency, this.maxRate, this.statistics);
+            final RetryPolicy retryPolicy = new RetryPolicy(this.retries, RETRY_BASE_DELAY_MILLIS, this.statistics);
+            return new ExtendedJiraRestClient(serverUri, httpClient, this.statistics, governor, retryPolicy, this.compression);
         } catch (final URISyntaxException ex) {
             throw new JiraAnalyzeException(ex);
         }
     }
     
+    public boolean isStats() {
+        return this.stats;
+    }
+
+    /** @return the statistics of the run. Never {@code null}. */
+    public RunStatistics getStatistics() {
+        return this.statistics;
+    }
+
+    /** @return the symbol table of the run. Never {@code null}. */
+    public SymbolTable getSymbolTable() {
+        return this.symbols;
+    }
+
     public boolean isVerbose() {
         return this.verbose;
     }
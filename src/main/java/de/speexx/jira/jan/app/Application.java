@@ -79,7 +79,34 @@ public class Application {
         }
 
         final Optional<Command> cmd = findCommand(jc);
-        cmd.orElse(new HelpCommand(jc)).execute();
+        Throwable failure = null;
+        try {
+            cmd.orElse(new HelpCommand(jc)).execute();
+        } catch (final RuntimeException | Error e) {
+            failure = e;
+            throw e;
+        } finally {
+            final RuntimeException closeFailure = closeJiraClient();
+            if (context().isStats()) {
+                context().getStatistics().printSummary(System.err);
+            }
+            if (closeFailure != null) {
+                if (failure == null) {
+                    throw closeFailure;
+                }
+                failure.addSuppressed(closeFailure);
+            }
+        }
+    }
+
+    /** @return the failure of closing the JIRA client or {@code null} if closed. */
+    RuntimeException closeJiraClient() {
+        try {
+            context().closeJiraClient();
+            return null;
+        } catch (final RuntimeException e) {
+            return e;
+        }
     }
     
     Optional<Command> findCommand(final JCommander jc) {
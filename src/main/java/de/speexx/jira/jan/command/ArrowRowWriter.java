@@ -0,0 +1,349 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.command;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.TimeStampMilliVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.dictionary.Dictionary;
+import org.apache.arrow.vector.dictionary.DictionaryProvider;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.apache.arrow.vector.types.TimeUnit;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.DictionaryEncoding;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+/**
+ * Writes rows as <a href="https://arrow.apache.org/docs/format/Columnar.html">Arrow IPC stream</a>
+ * with typed columns. The rows are collected in a record batch of a fixed
+ * count of rows. A full batch is written and the vectors are reused for
+ * the next batch. So the memory is bounded by the batch size independent of
+ * the count of rows.
+ * <p>Timestamps are milliseconds since the epoch without time zone. The
+ * wall clock time of a {@link LocalDateTime} is kept like in the CSV output.
+ * Values of {@link ColumnType#DICTIONARY dictionary} columns are encoded as
+ * index into a dictionary per column. A dictionary grows with new values and
+ * is written again before the next batch if changed.</p>
+ * <p>The cells of a row are appended in the order of the columns and the row
+ * is finished with {@link #endRow()}. An instance is not thread-safe.</p>
+ */
+public final class ArrowRowWriter implements Closeable, Flushable {
+
+    /** Default count of rows of a record batch. */
+    public static final int DEFAULT_BATCH_SIZE = 8 * 1024;
+
+    static final int DICTIONARY_INDEX_BITS = 32;
+
+    /** Type of the values of a column. */
+    public enum ColumnType {
+        /** UTF-8 string. */
+        STRING,
+        /** UTF-8 string encoded with a dictionary. For columns with few distinct values like a status. */
+        DICTIONARY,
+        /** Milliseconds since the epoch without time zone. */
+        TIMESTAMP,
+        /** 64 bit signed integer. */
+        INT64;
+    }
+
+    /** Name and type of a column. */
+    public static final class Column {
+        private final String name;
+        private final ColumnType type;
+
+        public Column(final String name, final ColumnType type) {
+            this.name = Objects.requireNonNull(name, "name is null");
+            this.type = Objects.requireNonNull(type, "type is null");
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public ColumnType getType() {
+            return this.type;
+        }
+
+        @Override
+        public String toString() {
+            return "Column{" + "name=" + name + ", type=" + type + '}';
+        }
+    }
+
+    private final BufferAllocator allocator;
+    private final VectorSchemaRoot root;
+    private final ArrowStreamWriter writer;
+    private final OutputStream out;
+    private final ColumnType[] types;
+    private final FieldVector[] vectors;
+    private final VarCharVector[] dictionaries;
+    private final List<Map<String, Integer>> dictionaryIndices;
+    private final int batchSize;
+    private int rowCount;
+    private int column;
+
+    /**
+     * Creates the writer and writes the schema to the stream.
+     * @param columns the columns of the rows. Must not be {@code null} or empty.
+     * @param out the stream to write to. Closed with {@link #close()}.
+     * @param batchSize the count of rows of a record batch. Must be positive.
+     * @throws IOException if and only if the schema can't be written.
+     */
+    public ArrowRowWriter(final List<Column> columns, final OutputStream out, final int batchSize) throws IOException {
+        Objects.requireNonNull(columns, "columns is null");
+        Objects.requireNonNull(out, "out is null");
+        if (columns.isEmpty()) {
+            throw new IllegalArgumentException("No columns given");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.batchSize = batchSize;
+        this.out = out;
+        this.allocator = new RootAllocator(Long.MAX_VALUE);
+
+        final int size = columns.size();
+        this.types = new ColumnType[size];
+        this.vectors = new FieldVector[size];
+        this.dictionaries = new VarCharVector[size];
+        this.dictionaryIndices = new ArrayList<>(size);
+        final DictionaryProvider.MapDictionaryProvider provider = new DictionaryProvider.MapDictionaryProvider();
+        final List<Field> fields = new ArrayList<>(size);
+        for (int idx = 0; idx < size; idx++) {
+            final Column c = columns.get(idx);
+            this.types[idx] = c.getType();
+            if (c.getType() == ColumnType.DICTIONARY) {
+                final DictionaryEncoding encoding = new DictionaryEncoding(idx, false, new ArrowType.Int(DICTIONARY_INDEX_BITS, true));
+                final VarCharVector dictionary = new VarCharVector(c.getName(), this.allocator);
+                dictionary.allocateNew();
+                provider.put(new Dictionary(dictionary, encoding));
+                this.dictionaries[idx] = dictionary;
+                this.dictionaryIndices.add(new HashMap<>());
+                fields.add(new Field(c.getName(), new FieldType(true, new ArrowType.Int(DICTIONARY_INDEX_BITS, true), encoding), null));
+            } else {
+                this.dictionaryIndices.add(null);
+                fields.add(Field.nullable(c.getName(), arrowType(c.getType())));
+            }
+        }
+
+        this.root = VectorSchemaRoot.create(new Schema(fields), this.allocator);
+        this.root.allocateNew();
+        for (int idx = 0; idx < size; idx++) {
+            this.vectors[idx] = this.root.getVector(idx);
+        }
+        this.writer = new ArrowStreamWriter(this.root, provider, out);
+        this.writer.start();
+    }
+
+    static ArrowType arrowType(final ColumnType type) {
+        switch (type) {
+            case STRING:
+                return ArrowType.Utf8.INSTANCE;
+            case TIMESTAMP:
+                return new ArrowType.Timestamp(TimeUnit.MILLISECOND, null);
+            case INT64:
+                return new ArrowType.Int(Long.SIZE, true);
+            default:
+                throw new IllegalArgumentException("No plain Arrow type for " + type);
+        }
+    }
+
+    /**
+     * Appends a string cell to a {@link ColumnType#STRING} or {@link ColumnType#DICTIONARY} column.
+     * @param value the value of the cell. {@code null} is a null cell.
+     * @return this writer.
+     */
+    public ArrowRowWriter append(final CharSequence value) {
+        final int idx = nextColumn(ColumnType.STRING, ColumnType.DICTIONARY);
+        if (value == null) {
+            setNull(idx);
+        } else if (this.types[idx] == ColumnType.DICTIONARY) {
+            ((IntVector) this.vectors[idx]).setSafe(this.rowCount, dictionaryIndex(idx, value.toString()));
+        } else {
+            ((VarCharVector) this.vectors[idx]).setSafe(this.rowCount, value.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return this;
+    }
+
+    /**
+     * Appends a cell to a {@link ColumnType#INT64} column.
+     * @param value the value of the cell.
+     * @return this writer.
+     */
+    public ArrowRowWriter append(final long value) {
+        final int idx = nextColumn(ColumnType.INT64, ColumnType.INT64);
+        ((BigIntVector) this.vectors[idx]).setSafe(this.rowCount, value);
+        return this;
+    }
+
+    /**
+     * Appends a cell to a {@link ColumnType#TIMESTAMP} column.
+     * @param value the value of the cell. {@code null} is a null cell.
+     * @return this writer.
+     */
+    public ArrowRowWriter append(final LocalDateTime value) {
+        final int idx = nextColumn(ColumnType.TIMESTAMP, ColumnType.TIMESTAMP);
+        if (value == null) {
+            setNull(idx);
+        } else {
+            ((TimeStampMilliVector) this.vectors[idx]).setSafe(this.rowCount, toEpochMillis(value));
+        }
+        return this;
+    }
+
+    /**
+     * Appends a null cell to a column of any type.
+     * @return this writer.
+     */
+    public ArrowRowWriter appendNull() {
+        if (this.column >= this.types.length) {
+            throw new IllegalStateException("Row has only " + this.types.length + " columns");
+        }
+        setNull(this.column++);
+        return this;
+    }
+
+    /**
+     * Finishes the current row. Writes the batch if the batch is full.
+     * @throws IOException if and only if the batch can't be written.
+     */
+    public void endRow() throws IOException {
+        if (this.column != this.types.length) {
+            throw new IllegalStateException("Row has " + this.column + " of " + this.types.length + " cells");
+        }
+        this.column = 0;
+        this.rowCount++;
+        if (this.rowCount == this.batchSize) {
+            writeBatch();
+        }
+    }
+
+    /**
+     * Writes the rows of the current batch also if the batch isn't full and
+     * flushes the stream.
+     * @throws IOException if and only if the batch can't be written.
+     */
+    @Override
+    public void flush() throws IOException {
+        writeBatch();
+        this.out.flush();
+    }
+
+    /**
+     * Writes the remaining rows, the end of the stream and closes the stream.
+     * @throws IOException if and only if the rows can't be written.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            writeBatch();
+            this.writer.end();
+        } finally {
+            this.writer.close();
+            this.root.close();
+            for (final VarCharVector dictionary : this.dictionaries) {
+                if (dictionary != null) {
+                    dictionary.close();
+                }
+            }
+            this.allocator.close();
+        }
+    }
+
+    void writeBatch() throws IOException {
+        if (this.rowCount == 0) {
+            return;
+        }
+        this.root.setRowCount(this.rowCount);
+        this.writer.writeBatch();
+        for (final FieldVector vector : this.vectors) {
+            vector.reset();
+        }
+        this.rowCount = 0;
+    }
+
+    int nextColumn(final ColumnType type, final ColumnType alternative) {
+        if (this.column >= this.types.length) {
+            throw new IllegalStateException("Row has only " + this.types.length + " columns");
+        }
+        final ColumnType expected = this.types[this.column];
+        if (expected != type && expected != alternative) {
+            throw new IllegalStateException("Column " + this.column + " is of type " + expected + " not " + type);
+        }
+        return this.column++;
+    }
+
+    int dictionaryIndex(final int idx, final String value) {
+        final Map<String, Integer> indices = this.dictionaryIndices.get(idx);
+        final Integer known = indices.get(value);
+        if (known != null) {
+            return known;
+        }
+        final int index = indices.size();
+        final VarCharVector dictionary = this.dictionaries[idx];
+        dictionary.setSafe(index, value.getBytes(StandardCharsets.UTF_8));
+        dictionary.setValueCount(index + 1);
+        indices.put(value, index);
+        return index;
+    }
+
+    void setNull(final int idx) {
+        final FieldVector vector = this.vectors[idx];
+        switch (this.types[idx]) {
+            case STRING:
+                ((VarCharVector) vector).setNull(this.rowCount);
+                break;
+            case DICTIONARY:
+                ((IntVector) vector).setNull(this.rowCount);
+                break;
+            case TIMESTAMP:
+                ((TimeStampMilliVector) vector).setNull(this.rowCount);
+                break;
+            default:
+                ((BigIntVector) vector).setNull(this.rowCount);
+        }
+    }
+
+    static long toEpochMillis(final LocalDateTime value) {
+        return value.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    /** @return the count of rows of the current batch. */
+    int getRowCount() {
+        return this.rowCount;
+    }
+}
@@ -0,0 +1,52 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.command;
+
+import com.beust.jcommander.Parameter;
+import de.speexx.jira.jan.service.fetch.IssueCache;
+import java.io.File;
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Cache parameters shared by all commands fetching the full issues of a
+ * JQL search. Use it as {@link com.beust.jcommander.ParametersDelegate}.
+ */
+public final class CacheParameters {
+
+    @Parameter(names = {"--cache"},
+               description = "Directory of a local issue cache. Issues not updated since "
+                           + "the last run are read from the cache instead of JIRA.")
+    private File cacheDirectory;
+
+    /**
+     * Opens the issue cache.
+     * @return the cache or an empty Optional if no cache directory is given.
+     * @throws IOException if and only if the cache directory can't be created.
+     */
+    public Optional<IssueCache> openCache() throws IOException {
+        if (this.cacheDirectory == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new IssueCache(this.cacheDirectory.toPath()));
+    }
+
+    public Optional<File> getCacheDirectory() {
+        return Optional.ofNullable(this.cacheDirectory);
+    }
+}
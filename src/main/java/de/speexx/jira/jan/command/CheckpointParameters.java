@@ -0,0 +1,115 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.command;
+
+import com.beust.jcommander.Parameter;
+import de.speexx.jira.jan.JiraAnalyzeException;
+import de.speexx.jira.jan.service.fetch.Checkpoint;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Checkpoint parameters shared by the exporting commands. The checkpoint
+ * is written after each completely written search result page and deleted
+ * after a successful run. Use it as {@link com.beust.jcommander.ParametersDelegate}.
+ */
+public final class CheckpointParameters {
+
+    @Parameter(names = {"--checkpoint"},
+               description = "Checkpoint file of the export. Records the progress after each "
+                           + "search result page. Requires an output file.")
+    private File checkpointFile;
+
+    @Parameter(names = {"--resume"},
+               description = "Resumes an interrupted export from the checkpoint file. The output "
+                           + "is truncated to the last consistent record and appended.")
+    private boolean resume = false;
+
+    public boolean isCheckpointing() {
+        return this.checkpointFile != null;
+    }
+
+    /**
+     * Checks the parameters against the output of the command.
+     * @param output the output of the command. Must not be {@code null}.
+     * @throws JiraAnalyzeException if and only if a checkpoint is given
+     *                              without an output file or a resume without a checkpoint.
+     */
+    public void validate(final OutputParameters output) {
+        Objects.requireNonNull(output, "output is null");
+        if (this.resume && !isCheckpointing()) {
+            throw new JiraAnalyzeException("Resume requires a checkpoint file");
+        }
+        if (isCheckpointing() && !output.getOutput().isPresent()) {
+            throw new JiraAnalyzeException("Checkpoint requires an output file");
+        }
+    }
+
+    /**
+     * Reads the checkpoint to resume from.
+     * @param jql the query given by the user. Must not be {@code null}.
+     * @return the checkpoint or an empty Optional if no resume is requested
+     *         or no checkpoint exists.
+     * @throws IOException if and only if the checkpoint file can't be read.
+     * @throws JiraAnalyzeException if and only if the checkpoint belongs to another query.
+     */
+    public Optional<Checkpoint> readForResume(final String jql) throws IOException {
+        Objects.requireNonNull(jql, "jql is null");
+        if (!this.resume || !isCheckpointing()) {
+            return Optional.empty();
+        }
+        final Optional<Checkpoint> checkpoint = Checkpoint.read(this.checkpointFile.toPath());
+        if (checkpoint.isPresent() && !jql.equals(checkpoint.get().getJql())) {
+            throw new JiraAnalyzeException("Checkpoint " + this.checkpointFile + " belongs to another query: " + checkpoint.get().getJql());
+        }
+        return checkpoint;
+    }
+
+    /**
+     * Stores the checkpoint. Does nothing if no checkpoint file is given.
+     * @param checkpoint the checkpoint. Must not be {@code null}.
+     * @throws IOException if and only if the checkpoint file can't be written.
+     */
+    public void write(final Checkpoint checkpoint) throws IOException {
+        Objects.requireNonNull(checkpoint, "checkpoint is null");
+        if (isCheckpointing()) {
+            checkpoint.write(this.checkpointFile.toPath());
+        }
+    }
+
+    /**
+     * Deletes the checkpoint after a successful run.
+     * @throws IOException if and only if the checkpoint file can't be deleted.
+     */
+    public void delete() throws IOException {
+        if (isCheckpointing()) {
+            Files.deleteIfExists(this.checkpointFile.toPath());
+        }
+    }
+
+    public boolean isResume() {
+        return this.resume;
+    }
+
+    public Optional<File> getCheckpointFile() {
+        return Optional.ofNullable(this.checkpointFile);
+    }
+}
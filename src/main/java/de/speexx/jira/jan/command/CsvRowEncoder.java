@@ -0,0 +1,258 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.command;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+
+/**
+ * Encodes the cells of a CSV row into a reusable character buffer. A row is
+ * written with {@link #writeRow(Writer)} and the buffer is reused for the
+ * next row. Encoding a cell doesn't create objects.
+ * <p>Cells are escaped as defined by RFC 4180: a cell containing a comma, a
+ * quotation mark, a carriage return or a line feed is enclosed in quotation
+ * marks and contained quotation marks are doubled. Rows end with CRLF.
+ * A row of a single empty cell is written as {@code ""}.</p>
+ * <p>Cells repeated in several rows, e.g. the current fields of an issue,
+ * can be encoded once into an own encoder and added to each row with
+ * {@link #appendCells(CsvRowEncoder)}.</p>
+ * <p>An instance is not thread-safe.</p>
+ */
+public final class CsvRowEncoder {
+
+    static final char DELIMITER = ',';
+    static final char QUOTE = '"';
+    static final char[] RECORD_SEPARATOR = {'\r', '\n'};
+    static final int INITIAL_CAPACITY = 256;
+
+    private char[] buffer = new char[INITIAL_CAPACITY];
+    private int length;
+    private int cellCount;
+
+    /**
+     * Appends a cell.
+     * @param value the value of the cell. {@code null} is an empty cell.
+     * @return this encoder.
+     */
+    public CsvRowEncoder append(final CharSequence value) {
+        startCell();
+        if (value == null) {
+            return this;
+        }
+        final int valueLength = value.length();
+        if (!requiresQuotes(value)) {
+            ensureCapacity(valueLength);
+            for (int idx = 0; idx < valueLength; idx++) {
+                this.buffer[this.length++] = value.charAt(idx);
+            }
+            return this;
+        }
+        ensureCapacity(valueLength * 2 + 2);
+        this.buffer[this.length++] = QUOTE;
+        for (int idx = 0; idx < valueLength; idx++) {
+            final char c = value.charAt(idx);
+            if (c == QUOTE) {
+                this.buffer[this.length++] = QUOTE;
+            }
+            this.buffer[this.length++] = c;
+        }
+        this.buffer[this.length++] = QUOTE;
+        return this;
+    }
+
+    /**
+     * Appends a cell with the decimal representation of the given value.
+     * @param value the value of the cell.
+     * @return this encoder.
+     */
+    public CsvRowEncoder append(final long value) {
+        startCell();
+        if (value == Long.MIN_VALUE) {
+            return appendRaw(Long.toString(value));
+        }
+        ensureCapacity(20);
+        long remaining = value;
+        if (remaining < 0) {
+            this.buffer[this.length++] = '-';
+            remaining = -remaining;
+        }
+        final int start = this.length;
+        do {
+            this.buffer[this.length++] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining != 0);
+        reverse(start, this.length - 1);
+        return this;
+    }
+
+    /**
+     * Appends a cell with the date time formatted as {@link DateTimeFormatter#ISO_DATE_TIME}.
+     * @param value the value of the cell. {@code null} is an empty cell.
+     * @return this encoder.
+     */
+    public CsvRowEncoder append(final LocalDateTime value) {
+        if (value == null) {
+            return append((CharSequence) null);
+        }
+        final int year = value.getYear();
+        if (year < 0 || year > 9999) {
+            return append(DateTimeFormatter.ISO_DATE_TIME.format(value));
+        }
+        startCell();
+        ensureCapacity(29);
+        appendDigits(year, 4);
+        this.buffer[this.length++] = '-';
+        appendDigits(value.getMonthValue(), 2);
+        this.buffer[this.length++] = '-';
+        appendDigits(value.getDayOfMonth(), 2);
+        this.buffer[this.length++] = 'T';
+        appendDigits(value.getHour(), 2);
+        this.buffer[this.length++] = ':';
+        appendDigits(value.getMinute(), 2);
+        this.buffer[this.length++] = ':';
+        appendDigits(value.getSecond(), 2);
+        int nano = value.getNano();
+        if (nano != 0) {
+            int digits = 9;
+            while (nano % 10 == 0) {
+                nano /= 10;
+                digits--;
+            }
+            this.buffer[this.length++] = '.';
+            appendDigits(nano, digits);
+        }
+        return this;
+    }
+
+    /**
+     * Appends empty cells.
+     * @param count the count of empty cells.
+     * @return this encoder.
+     */
+    public CsvRowEncoder appendEmpty(final int count) {
+        assert count >= 0;
+        ensureCapacity(count);
+        for (int idx = 0; idx < count; idx++) {
+            startCell();
+        }
+        return this;
+    }
+
+    /**
+     * Appends the encoded cells of the given encoder.
+     * @param cells the encoder of the cells. Must not be {@code null}.
+     * @return this encoder.
+     */
+    public CsvRowEncoder appendCells(final CsvRowEncoder cells) {
+        assert cells != null;
+        if (cells.cellCount == 0) {
+            return this;
+        }
+        startCell();
+        ensureCapacity(cells.length);
+        System.arraycopy(cells.buffer, 0, this.buffer, this.length, cells.length);
+        this.length += cells.length;
+        this.cellCount += cells.cellCount - 1;
+        return this;
+    }
+
+    /**
+     * Writes the encoded row with the record separator and resets the encoder.
+     * @param out the writer. Must not be {@code null}.
+     * @throws IOException if and only if writing fails.
+     */
+    public void writeRow(final Writer out) throws IOException {
+        assert out != null;
+        if (this.cellCount == 1 && this.length == 0) {
+            out.write(QUOTE);
+            out.write(QUOTE);
+        } else {
+            out.write(this.buffer, 0, this.length);
+        }
+        out.write(RECORD_SEPARATOR);
+        reset();
+    }
+
+    /** Removes all cells. */
+    public void reset() {
+        this.length = 0;
+        this.cellCount = 0;
+    }
+
+    /** @return the count of the cells of the row. */
+    public int getCellCount() {
+        return this.cellCount;
+    }
+
+    static boolean requiresQuotes(final CharSequence value) {
+        final int valueLength = value.length();
+        for (int idx = 0; idx < valueLength; idx++) {
+            final char c = value.charAt(idx);
+            if (c == DELIMITER || c == QUOTE || c == '\r' || c == '\n') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void startCell() {
+        if (this.cellCount++ > 0) {
+            ensureCapacity(1);
+            this.buffer[this.length++] = DELIMITER;
+        }
+    }
+
+    private CsvRowEncoder appendRaw(final String value) {
+        ensureCapacity(value.length());
+        value.getChars(0, value.length(), this.buffer, this.length);
+        this.length += value.length();
+        return this;
+    }
+
+    private void appendDigits(final int value, final int digits) {
+        int remaining = value;
+        for (int idx = this.length + digits - 1; idx >= this.length; idx--) {
+            this.buffer[idx] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+        this.length += digits;
+    }
+
+    private void reverse(final int from, final int to) {
+        for (int left = from, right = to; left < right; left++, right--) {
+            final char c = this.buffer[left];
+            this.buffer[left] = this.buffer[right];
+            this.buffer[right] = c;
+        }
+    }
+
+    private void ensureCapacity(final int additional) {
+        final int required = this.length + additional;
+        if (required > this.buffer.length) {
+            this.buffer = Arrays.copyOf(this.buffer, Math.max(required, this.buffer.length * 2));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new String(this.buffer, 0, this.length);
+    }
+}
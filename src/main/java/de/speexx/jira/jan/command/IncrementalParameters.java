@@ -0,0 +1,70 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.command;
+
+import com.beust.jcommander.Parameter;
+import de.speexx.jira.jan.service.fetch.HighWaterMark;
+import java.io.File;
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Parameters for incremental exports shared by the exporting commands.
+ * Use it as {@link com.beust.jcommander.ParametersDelegate}.
+ */
+public final class IncrementalParameters {
+
+    @Parameter(names = {"--since"},
+               description = "State file of an incremental export. Only issues and changes newer than "
+                           + "the last successful run are exported and appended to the output. "
+                           + "The state file is updated after a successful run.")
+    private File stateFile;
+
+    public boolean isIncremental() {
+        return this.stateFile != null;
+    }
+
+    /**
+     * Reads the high-water mark of the last successful run.
+     * @return the mark or an empty Optional if the export isn't incremental
+     *         or no run was successful yet.
+     * @throws IOException if and only if the state file can't be read.
+     */
+    public Optional<HighWaterMark> readMark() throws IOException {
+        if (!isIncremental()) {
+            return Optional.empty();
+        }
+        return HighWaterMark.read(this.stateFile.toPath());
+    }
+
+    /**
+     * Stores the high-water mark of a successful run. Does nothing if the
+     * export isn't incremental.
+     * @param mark the mark to store. Must not be {@code null}.
+     * @throws IOException if and only if the state file can't be written.
+     */
+    public void writeMark(final HighWaterMark mark) throws IOException {
+        if (isIncremental()) {
+            mark.write(this.stateFile.toPath());
+        }
+    }
+
+    public Optional<File> getStateFile() {
+        return Optional.ofNullable(this.stateFile);
+    }
+}
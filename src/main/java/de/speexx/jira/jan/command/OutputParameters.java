@@ -0,0 +1,238 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.command;
+
+import com.beust.jcommander.Parameter;
+import de.speexx.jira.jan.JiraAnalyzeException;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Output parameters shared by all commands writing large exports.
+ * Use it as {@link com.beust.jcommander.ParametersDelegate}.
+ */
+public final class OutputParameters {
+
+    /** Size of the character buffer of the output writer. */
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    static final String FORMAT_PARAMETER_NAME = "--format";
+    static final String FORMAT_VALUE_CSV = "csv";
+    static final String FORMAT_VALUE_ARROW = "arrow";
+
+    @Parameter(names = {"-o", "--output"},
+               description = "File to write the output to. The output is written to standard out if not given.")
+    private File output;
+
+    @Parameter(names = {"--flush-interval"},
+               description = "Count of issues after which the output is flushed. "
+                           + "0 flushes the output only at the end.")
+    private int flushInterval = 0;
+
+    @Parameter(names = {FORMAT_PARAMETER_NAME},
+               validateWith = FormatParameterValidator.class,
+               converter = FormatParameterValidator.class,
+               description = "Format of the output. '" + FORMAT_VALUE_CSV + "' for CSV or '" + FORMAT_VALUE_ARROW + "' "
+                           + "for an Arrow IPC stream with typed columns.")
+    private OutputFormat format = OutputFormat.CSV;
+
+    /**
+     * Creates a buffered UTF-8 writer for the output. Closing a writer for
+     * standard out only flushes the writer. Standard out stays open.
+     * @return a new writer. The caller is responsible for closing the writer.
+     * @throws IOException if and only if the output file can't be opened.
+     */
+    public Writer newWriter() throws IOException {
+        return newWriter(false);
+    }
+
+    /**
+     * Creates a buffered UTF-8 writer for the output. Closing a writer for
+     * standard out only flushes the writer. Standard out stays open.
+     * @param append {@code true} to append to an existing output file.
+     * @return a new writer. The caller is responsible for closing the writer.
+     * @throws IOException if and only if the output file can't be opened.
+     */
+    public Writer newWriter(final boolean append) throws IOException {
+        return this.output == null ? newStandardOutWriter() : newWriter(this.output, append);
+    }
+
+    /**
+     * Creates a buffered UTF-8 writer for standard out. Closing the writer
+     * only flushes the writer. Standard out stays open.
+     * @return a new writer. The caller is responsible for closing the writer.
+     */
+    public static Writer newStandardOutWriter() {
+        return newWriter(new StandardOutStream());
+    }
+
+    /**
+     * Creates a buffered UTF-8 writer for an additional output file.
+     * @param file the output file. Must not be {@code null}.
+     * @param append {@code true} to append to an existing file.
+     * @return a new writer. The caller is responsible for closing the writer.
+     * @throws IOException if and only if the file can't be opened.
+     */
+    public static Writer newWriter(final File file, final boolean append) throws IOException {
+        return newWriter(new FileOutputStream(file, append));
+    }
+
+    static Writer newWriter(final OutputStream out) {
+        assert out != null;
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a buffered stream for a binary output. Closing a stream for
+     * standard out only flushes the stream. Standard out stays open.
+     * @return a new stream. The caller is responsible for closing the stream.
+     * @throws IOException if and only if the output file can't be opened.
+     */
+    public OutputStream newOutputStream() throws IOException {
+        return this.output == null
+                   ? new BufferedOutputStream(new StandardOutStream(), BUFFER_SIZE)
+                   : newOutputStream(this.output);
+    }
+
+    /**
+     * Creates a buffered stream for an additional binary output file.
+     * @param file the output file. Must not be {@code null}.
+     * @return a new stream. The caller is responsible for closing the stream.
+     * @throws IOException if and only if the file can't be opened.
+     */
+    public static OutputStream newOutputStream(final File file) throws IOException {
+        return new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+    }
+
+    /**
+     * Closes the given outputs after a failure to set them up. A failure
+     * while closing is added as suppressed exception to <em>failure</em>.
+     * @param failure the failure of the set up. Must not be {@code null}.
+     * @param outputs the opened outputs. {@code null} elements are skipped.
+     */
+    public static void closeOnFailure(final Throwable failure, final Closeable... outputs) {
+        Objects.requireNonNull(failure, "failure is null");
+        for (final Closeable output : outputs) {
+            if (output != null) {
+                try {
+                    output.close();
+                } catch (final IOException | RuntimeException e) {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks that the format of the output supports appending.
+     * @param appending {@code true} if the command might append to the output.
+     * @throws JiraAnalyzeException if the output is appended but the format
+     *                              doesn't support appending.
+     */
+    public void validateFormat(final boolean appending) {
+        if (appending && this.format == OutputFormat.ARROW) {
+            throw new JiraAnalyzeException("Output format " + FORMAT_VALUE_ARROW
+                                           + " can't be combined with --since or --checkpoint");
+        }
+    }
+
+    /** @return {@code true} if the output is a file with content. */
+    public boolean hasContent() {
+        return this.output != null && this.output.length() > 0;
+    }
+
+    /** @return the size of the output file in bytes or 0 if the output isn't a file. */
+    public long size() {
+        return this.output == null ? 0 : this.output.length();
+    }
+
+    /**
+     * Truncates the output file to the given size. Does nothing if the
+     * output isn't a file or if the file doesn't exist and <em>size</em> is 0.
+     * @param size the new size in bytes. Must not be negative.
+     * @throws IOException if and only if the output file can't be truncated,
+     *                     is missing or is smaller than <em>size</em>.
+     */
+    public void truncate(final long size) throws IOException {
+        if (size < 0) {
+            throw new IllegalArgumentException("Size must not be negative: " + size);
+        }
+        if (this.output == null) {
+            return;
+        }
+        if (!this.output.exists()) {
+            if (size > 0) {
+                throw new IOException("Output " + this.output + " doesn't exist but must have " + size + " bytes");
+            }
+            return;
+        }
+        try (final FileChannel channel = FileChannel.open(this.output.toPath(), StandardOpenOption.WRITE)) {
+            if (channel.size() < size) {
+                throw new IOException("Output " + this.output + " is smaller than " + size + " bytes");
+            }
+            channel.truncate(size);
+        }
+    }
+
+    public Optional<File> getOutput() {
+        return Optional.ofNullable(this.output);
+    }
+
+    public OutputFormat getFormat() {
+        return this.format;
+    }
+
+    public int getFlushInterval() {
+        return this.flushInterval;
+    }
+
+    /**
+     * Writes directly to the file descriptor of standard out. Unlike
+     * {@code System.out} the stream doesn't flush on every write.
+     */
+    static final class StandardOutStream extends FilterOutputStream {
+
+        StandardOutStream() {
+            super(new FileOutputStream(FileDescriptor.out));
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            this.out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.command;
+
+import com.beust.jcommander.Parameter;
+import de.speexx.jira.jan.service.fetch.ExtendedJiraRestClient;
+import de.speexx.jira.jan.service.fetch.SearchPageIterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Paging parameters shared by all commands iterating over the pages of a
+ * JQL search. Use it as {@link com.beust.jcommander.ParametersDelegate}.
+ */
+public final class SearchPagingParameters {
+
+    @Parameter(names = {"-l", "--limit"}, hidden = true, description = "Fetch size limit.")
+    private int fetchLimit = 100;
+
+    @Parameter(names = {"--prefetch"},
+               description = "Count of search result pages requested ahead while "
+                           + "the current page is processed. 0 disables prefetching.")
+    private int prefetchDepth = 2;
+
+    /**
+     * Creates an iterator over the search result pages of the given query.
+     * The request for the first page is started immediately.
+     * @param restClient the client to search with. Must not be {@code null}.
+     * @param jql the query. Must not be {@code null}.
+     * @param fields the fields to fetch. Must not be {@code null}.
+     * @param expand the entities to expand. Must not be {@code null}.
+     * @return the page iterator.
+     */
+    public SearchPageIterator pages(final ExtendedJiraRestClient restClient,
+                                    final String jql,
+                                    final Set<String> fields,
+                                    final Set<String> expand) {
+        return pages(restClient, jql, fields, expand, 0);
+    }
+
+    /**
+     * Creates an iterator over the search result pages of the given query
+     * starting at the given issue index. The request for the first page is
+     * started immediately. Failed page requests are repeated according to
+     * the retry policy of the client.
+     * @param restClient the client to search with. Must not be {@code null}.
+     * @param jql the query. Must not be {@code null}.
+     * @param fields the fields to fetch. Must not be {@code null}.
+     * @param expand the entities to expand. Must not be {@code null}.
+     * @param startAt the index of the first issue. Must not be negative.
+     * @return the page iterator.
+     */
+    public SearchPageIterator pages(final ExtendedJiraRestClient restClient,
+                                    final String jql,
+                                    final Set<String> fields,
+                                    final Set<String> expand,
+                                    final int startAt) {
+        Objects.requireNonNull(restClient, "restClient is null");
+        Objects.requireNonNull(jql, "jql is null");
+        Objects.requireNonNull(fields, "fields is null");
+        Objects.requireNonNull(expand, "expand is null");
+        return new SearchPageIterator((first, maxResults) -> restClient.getExpandingSearchClient().searchJql(jql, maxResults, first, fields, expand),
+                                      getFetchLimit(),
+                                      getPrefetchDepth(),
+                                      startAt,
+                                      restClient.getRetryPolicy());
+    }
+
+    public int getFetchLimit() {
+        return this.fetchLimit;
+    }
+
+    public int getPrefetchDepth() {
+        return this.prefetchDepth;
+    }
+
+    /**
+     * Joins the parts of a query given on the command line.
+     * @param query the query parts. May be {@code null}.
+     * @return the query or an empty Optional if no query parts are given.
+     */
+    public static Optional<String> joinQuery(final List<String> query) {
+        if (query == null || query.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(query.stream().collect(joining(" ")));
+    }
+}
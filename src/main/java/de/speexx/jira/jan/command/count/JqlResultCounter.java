@@ -17,21 +17,19 @@
  */
 package de.speexx.jira.jan.command.count;
 
-import com.atlassian.jira.rest.client.api.JiraRestClient;
 import com.atlassian.jira.rest.client.api.SearchRestClient;
 import com.atlassian.jira.rest.client.api.domain.SearchResult;
-import com.atlassian.util.concurrent.Promise;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
 import de.speexx.jira.jan.Command;
 import de.speexx.jira.jan.Config;
 import de.speexx.jira.jan.ExecutionContext;
 import de.speexx.jira.jan.JiraAnalyzeException;
-import java.io.IOException;
+import de.speexx.jira.jan.command.SearchPagingParameters;
+import de.speexx.jira.jan.service.fetch.ExtendedJiraRestClient;
+import de.speexx.jira.jan.service.stats.RunStatistics.Phase;
 import java.util.List;
-import java.util.Optional;
 import javax.inject.Inject;
-import static java.util.stream.Collectors.joining;
 
 
 @Parameters(commandNames = {"count"}, commandDescription = "Prints the count of the given JQL query.")
@@ -45,22 +43,12 @@ public class JqlResultCounter implements Command {
 
     @Override
     public void execute() {
-        try (final JiraRestClient restClient = this.execCtx.newJiraClient()) {
-            final SearchRestClient searchClient = restClient.getSearchClient();
-            final String q = getQuery().orElseThrow(() -> new JiraAnalyzeException("No query given for fetching transitions"));
-            final Promise<SearchResult> results = searchClient.searchJql(q);
-            final SearchResult result = results.claim();
-            final int total = result.getTotal();
-            System.out.println(total);
-        } catch (final IOException e) {
-            throw new JiraAnalyzeException(e);
-        }
-    }
-
-    Optional<String> getQuery() {
-        if (this.query == null || this.query.isEmpty()) {
-            return Optional.empty();
-        }
-        return Optional.of(this.query.stream().collect(joining(" ")));
+        final ExtendedJiraRestClient restClient = this.execCtx.getJiraClient();
+        final SearchRestClient searchClient = restClient.getSearchClient();
+        final String q = SearchPagingParameters.joinQuery(this.query).orElseThrow(() -> new JiraAnalyzeException("No query given for fetching transitions"));
+        final SearchResult result = restClient.getRetryPolicy().call(() -> restClient.getGovernor().submit(
+                () -> this.execCtx.getStatistics().request(Phase.SEARCH, searchClient.searchJql(q))));
+        final int total = result.getTotal();
+        System.out.println(total);
     }
 }
@@ -0,0 +1,58 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.command.issuefieldanalyzer;
+
+import com.beust.jcommander.IParameterValidator;
+import com.beust.jcommander.IStringConverter;
+import com.beust.jcommander.ParameterException;
+import static de.speexx.jira.jan.command.issuefieldanalyzer.IssueFieldAnalyzer.FORMAT_PARAMETER_NAME;
+import static de.speexx.jira.jan.command.issuefieldanalyzer.IssueFieldAnalyzer.FORMAT_VALUE_JSONL;
+import static de.speexx.jira.jan.command.issuefieldanalyzer.IssueFieldAnalyzer.FORMAT_VALUE_PRETTY;
+
+/**
+ * Converter and validator for the format parameter of the field analysis.
+ */
+public final class AnalyzeFormatParameterValidator implements IParameterValidator, IStringConverter<AnalyzeFormat> {
+
+    /**
+     * Check if the given value for <tt>--format</tt> is a known format.
+     * @param parameter must be <tt>--format</tt>
+     * @param value must be <tt>pretty</tt> or <tt>jsonl</tt>.
+     * @throws ParameterException if <em>value</em> is not a known format.
+     */
+    @Override
+    public void validate(final String parameter, final String value) throws ParameterException {
+        if (FORMAT_PARAMETER_NAME.equals(parameter)
+                && !FORMAT_VALUE_PRETTY.equalsIgnoreCase(value)
+                && !FORMAT_VALUE_JSONL.equalsIgnoreCase(value)) {
+            throw new ParameterException("Illegal format parameter value: " + value);
+        }
+    }
+
+    /**
+     * Transforms the format parameter value into a type safe <tt>enum</tt>.
+     * If value doesn't match, the default format ({@link AnalyzeFormat#PRETTY})
+     * will be returned.
+     * @param value the value to convert.
+     * @return a type safe <tt>enum</tt>.
+     */
+    @Override
+    public AnalyzeFormat convert(final String value) {
+        return FORMAT_VALUE_JSONL.equalsIgnoreCase(value) ? AnalyzeFormat.JSONL : AnalyzeFormat.PRETTY;
+    }
+}
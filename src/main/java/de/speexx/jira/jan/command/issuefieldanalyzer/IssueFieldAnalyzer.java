@@ -17,29 +17,37 @@
  */
 package de.speexx.jira.jan.command.issuefieldanalyzer;
 
-import com.atlassian.jira.rest.client.api.IssueRestClient;
-import com.atlassian.jira.rest.client.api.JiraRestClient;
-import com.atlassian.jira.rest.client.api.SearchRestClient;
 import com.atlassian.jira.rest.client.api.domain.Issue;
 import com.atlassian.jira.rest.client.api.domain.IssueField;
-import com.atlassian.jira.rest.client.api.domain.SearchResult;
-import com.atlassian.util.concurrent.Promise;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
+import com.beust.jcommander.ParametersDelegate;
 import de.speexx.jira.jan.Command;
 import de.speexx.jira.jan.Config;
 import de.speexx.jira.jan.ExecutionContext;
 import de.speexx.jira.jan.JiraAnalyzeException;
+import de.speexx.jira.jan.command.OutputParameters;
+import de.speexx.jira.jan.command.SearchPagingParameters;
+import de.speexx.jira.jan.service.fetch.ExpandedSearchResult;
+import de.speexx.jira.jan.service.fetch.ExtendedJiraRestClient;
+import de.speexx.jira.jan.service.fetch.SearchPageIterator;
+import de.speexx.jira.jan.service.stats.RunStatistics;
+import de.speexx.jira.jan.service.stats.RunStatistics.Phase;
+import static de.speexx.jira.jan.service.fetch.ExpandingSearchRestClient.EXPAND_NAMES;
+import static de.speexx.jira.jan.service.fetch.ExpandingSearchRestClient.EXPAND_SCHEMA;
+import static de.speexx.jira.jan.service.fetch.ExpandingSearchRestClient.FIELDS_ALL;
 import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Optional;
 import java.util.Set;
 import javax.inject.Inject;
 import org.codehaus.jettison.json.JSONArray;
 import org.codehaus.jettison.json.JSONException;
 import org.codehaus.jettison.json.JSONObject;
-import static java.util.stream.Collectors.joining;
 
 @Parameters(commandNames = {"issueanalyze"}, commandDescription = "Prints a human readable structure of all fields of the issues fetched for the given JQL query.")
 public final class IssueFieldAnalyzer implements Command {
@@ -56,11 +64,33 @@ public final class IssueFieldAnalyzer implements Command {
     static final String JSON_KEY_PROJECT = "project";
     static final String JSON_KEY_NAME = "name";
 
+    static final String FORMAT_PARAMETER_NAME = "--format";
+    static final String FORMAT_VALUE_PRETTY = "pretty";
+    static final String FORMAT_VALUE_JSONL = "jsonl";
+
+    static final Set<String> SEARCH_FIELDS = Collections.singleton(FIELDS_ALL);
+    static final Set<String> SEARCH_EXPAND = 
+            Collections.unmodifiableSet(new HashSet<>(Arrays.asList(EXPAND_NAMES, EXPAND_SCHEMA)));
+
     @Inject @Config
     private ExecutionContext execCtx;
     
-    @Parameter(names = {"-l", "--limit"}, hidden = true, description = "Fetch size limit.")
-    private int fetchLimit = 100;
+    @ParametersDelegate
+    private final SearchPagingParameters paging = new SearchPagingParameters();
+
+    @Parameter(names = {FORMAT_PARAMETER_NAME},
+               validateWith = AnalyzeFormatParameterValidator.class,
+               converter = AnalyzeFormatParameterValidator.class,
+               description = "Format of the output. '" + FORMAT_VALUE_PRETTY + "' prints indented JSON objects "
+                           + "per search result page. '" + FORMAT_VALUE_JSONL + "' prints one compact JSON object "
+                           + "per issue and line (JSON Lines).")
+    private AnalyzeFormat format = AnalyzeFormat.PRETTY;
+
+    @Parameter(names = {"--aggregate"},
+               description = "Prints the union of the field structures of all issues as one JSON line "
+                           + "per project and issue type with occurrence counts, observed value types "
+                           + "and nullability instead of the structure of each issue.")
+    private boolean aggregate = false;
 
     @Parameter(description = "The query for the issues to get the issue field information for. "
                            + "The query should be surrounded with quotation marks or apostrophs. "
@@ -70,36 +100,159 @@ public final class IssueFieldAnalyzer implements Command {
 
     @Override
     public void execute() {
+        final String q = SearchPagingParameters.joinQuery(this.query).orElseThrow(() -> new JiraAnalyzeException("No query given for fetching transitions"));
         int count = 0;
-        int startIndex = 0;
-        int total = -1;
         
-        try (final JiraRestClient restClient = this.execCtx.newJiraClient()) {
-            do {
-                final String q = getQuery().orElseThrow(() -> new JiraAnalyzeException("No query given for fetching transitions"));
-                final SearchResult searchResult = fetchIssues(restClient, q, startIndex);
-                total = total == -1 ? searchResult.getTotal() : total;
-                startIndex += getFetchLimit();
-
-                System.out.format("{[%n");
-                count += handleIssueSearchResult(searchResult, restClient);
-                System.out.format("]}%n");
-                this.execCtx.log("total: {} - count: {}", total, count);
-            } while (total != count);
+        final ExtendedJiraRestClient restClient = this.execCtx.getJiraClient(this.paging.getPrefetchDepth() + 1);
+        final SearchPageIterator pages = this.paging.pages(restClient, q, SEARCH_FIELDS, SEARCH_EXPAND);
+        if (this.aggregate) {
+            writeAggregated(pages);
+            return;
+        }
+        if (this.format == AnalyzeFormat.JSONL) {
+            writeJsonLines(pages);
+            return;
+        }
+        while (pages.hasNext()) {
+            final ExpandedSearchResult searchResult = pages.next();
+
+            System.out.format("{[%n");
+            count += handleIssueSearchResult(searchResult);
+            System.out.format("]}%n");
+            this.execCtx.log("total: {} - count: {}", pages.getTotal(), count);
+        }
+    }
+
+    void writeJsonLines(final SearchPageIterator pages) {
+        int count = 0;
+        try (final Writer out = OutputParameters.newStandardOutWriter()) {
+            final JsonLineEncoder encoder = new JsonLineEncoder();
+            while (pages.hasNext()) {
+                count += writeIssueLines(out, encoder, pages.next());
+                out.flush();
+                this.execCtx.log("total: {} - count: {}", pages.getTotal(), count);
+            }
         } catch (final IOException e) {
             throw new JiraAnalyzeException(e);
         }
     }
 
-    int handleIssueSearchResult(final SearchResult searchResult, final JiraRestClient restClient) {
+    void writeAggregated(final SearchPageIterator pages) {
+        final RunStatistics statistics = this.execCtx.getStatistics();
+        final SchemaAggregator aggregator = new SchemaAggregator();
+        int count = 0;
+        while (pages.hasNext()) {
+            for (final Issue issue : pages.next().getIssues()) {
+                count++;
+                final long start = System.nanoTime();
+                try {
+                    aggregator.add(issue);
+                } catch (final JsonRuntimeException | JSONException e) {
+                    this.execCtx.log("Failure in JSON handling of issue {}: {}", issue.getKey(), e.getMessage());
+                }
+                statistics.record(Phase.EXTRACT, start);
+            }
+            this.execCtx.log("total: {} - count: {}", pages.getTotal(), count);
+        }
+
+        try (final Writer out = OutputParameters.newStandardOutWriter()) {
+            final long writeStart = System.nanoTime();
+            aggregator.write(out, new JsonLineEncoder());
+            statistics.record(Phase.WRITE, writeStart);
+        } catch (final IOException e) {
+            throw new JiraAnalyzeException(e);
+        }
+    }
+
+    /**
+     * Writes one line per issue of the search result. Issues failing in the
+     * JSON handling are logged and skipped.
+     * @return the count of issues of the search result.
+     */
+    int writeIssueLines(final Writer out, final JsonLineEncoder encoder, final ExpandedSearchResult searchResult) throws IOException {
+        final RunStatistics statistics = this.execCtx.getStatistics();
+        int count = 0;
+        for (final Issue issue : searchResult.getIssues()) {
+            count++;
+
+            final long start = System.nanoTime();
+            try {
+                encodeIssue(encoder, issue);
+            } catch (final JsonRuntimeException | JSONException e) {
+                encoder.reset();
+                this.execCtx.log("Failure in JSON handling of issue {}: {}", issue.getKey(), e.getMessage());
+                continue;
+            }
+            statistics.record(Phase.EXTRACT, start);
+
+            final long writeStart = System.nanoTime();
+            encoder.writeLine(out);
+            statistics.record(Phase.WRITE, writeStart);
+        }
+        return count;
+    }
+
+    /** Encodes the issue with the structure of {@link #handleIssue(Issue)}. */
+    void encodeIssue(final JsonLineEncoder encoder, final Issue issue) throws JSONException {
+        encoder.beginObject()
+               .name(JSON_KEY_PROJECT).value(issue.getProject().getName())
+               .name(JSON_KEY_TYPE).value(issue.getIssueType().getName())
+               .name(JSON_KEY_FIELDS).beginArray();
+        for (final IssueField field : issue.getFields()) {
+            encoder.beginObject()
+                   .name(JSON_KEY_ID).value(field.getId())
+                   .name(JSON_KEY_NAME).value(field.getName());
+            encodeFieldValue(encoder, field.getValue());
+            encoder.endObject();
+        }
+        encoder.endArray().endObject();
+    }
+
+    void encodeFieldValue(final JsonLineEncoder encoder, final Object value) throws JSONException {
+        if (value instanceof JSONObject) {
+            final JSONObject json = (JSONObject) value;
+            encoder.name(JSON_KEY_VALUE_TYPE).value(JSONObject.class.getCanonicalName())
+                   .name(JSON_KEY_FIELDS).beginArray();
+            final Iterator<?> keys = json.keys();
+            while (keys.hasNext()) {
+                final String name = (String) keys.next();
+                encoder.beginObject().name(JSON_KEY_NAME).value(name);
+                encodeFieldValue(encoder, json.get(name));
+                encoder.endObject();
+            }
+            encoder.endArray();
+        } else if (value instanceof JSONArray) {
+            final JSONArray json = (JSONArray) value;
+            encoder.name(JSON_KEY_VALUE_TYPE).value(JSONArray.class.getCanonicalName())
+                   .name(JSON_KEY_FIELDS).beginArray();
+            final int length = json.length();
+            for (int idx = 0; idx < length; idx++) {
+                encoder.beginObject();
+                encodeFieldValue(encoder, json.get(idx));
+                encoder.endObject();
+            }
+            encoder.endArray();
+        } else if (value != null) {
+            encoder.name(JSON_KEY_VALUE_TYPE).value(value.getClass().getCanonicalName());
+        } else {
+            encoder.name(JSON_KEY_VALUE_TYPE).value(JSON_VALUETYPE_UNKNOWN);
+        }
+    }
+
+    int handleIssueSearchResult(final ExpandedSearchResult searchResult) {
+        final RunStatistics statistics = this.execCtx.getStatistics();
         int count = 0;
-        for (final Issue searchResultIssue : searchResult.getIssues()) {
+        for (final Issue issue : searchResult.getIssues()) {
             count++;
-            final Issue issue = fetchIssueForSearchResult(restClient, searchResultIssue);
-            
+
             try {
+                final long start = System.nanoTime();
                 final JSONObject issueDescription = handleIssue(issue);
+                statistics.record(Phase.EXTRACT, start);
+
+                final long writeStart = System.nanoTime();
                 System.out.format("%s,%n", issueDescription.toString(JSON_PRINT_INDENT));
+                statistics.record(Phase.WRITE, writeStart);
             } catch (final JsonRuntimeException | JSONException e) {
                 this.execCtx.log("Failure in JSON handling of issue {}: {}", issue.getKey(), e.getMessage());
             }
@@ -190,32 +343,4 @@ public final class IssueFieldAnalyzer implements Command {
 
         return fieldDescriptions;
     }
-
-    Issue fetchIssueForSearchResult(final JiraRestClient restClient, final Issue searchResultIssue) {
-        final Set<IssueRestClient.Expandos> expandos = new HashSet<>();
-        expandos.add(IssueRestClient.Expandos.NAMES);
-        expandos.add(IssueRestClient.Expandos.SCHEMA);
-
-        final IssueRestClient issueClient = restClient.getIssueClient();
-        final Promise<Issue> issueResult = issueClient.getIssue(searchResultIssue.getKey(), expandos);
-
-        return issueResult.claim();
-    }
-
-    SearchResult fetchIssues(final JiraRestClient restClient, String q, int startIndex) {
-        final SearchRestClient searchClient = restClient.getSearchClient();
-        final Promise<SearchResult> results = searchClient.searchJql(q, getFetchLimit(), startIndex, null);
-        return results.claim();
-    }
-    
-    Optional<String> getQuery() {
-        if (this.query == null || this.query.isEmpty()) {
-            return Optional.empty();
-        }
-        return Optional.of(this.query.stream().collect(joining(" ")));
-    }
-
-    int getFetchLimit() {
-        return this.fetchLimit;
-    }
 }
@@ -0,0 +1,232 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.command.issuefieldanalyzer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Encodes a JSON value compact into a reusable character buffer without an
+ * intermediate object tree. The value is written as one line of
+ * <a href="http://jsonlines.org/">JSON Lines</a> with {@link #writeLine(Writer)}
+ * and the buffer is reused for the next value. Commas between members and
+ * elements are added by the encoder.
+ * <p>An instance is not thread-safe. Concurrent producers use an encoder each
+ * and share the writer. {@link #writeLine(Writer)} writes a line atomically.</p>
+ */
+final class JsonLineEncoder {
+
+    static final int INITIAL_CAPACITY = 1024;
+    static final char[] HEX = "0123456789abcdef".toCharArray();
+    static final char[] NULL = "null".toCharArray();
+
+    private char[] buffer = new char[INITIAL_CAPACITY];
+    private int length;
+    private int depth;
+    private boolean first = true;
+    private boolean afterName;
+
+    JsonLineEncoder beginObject() {
+        startValue();
+        append('{');
+        this.depth++;
+        this.first = true;
+        return this;
+    }
+
+    JsonLineEncoder endObject() {
+        return end('}');
+    }
+
+    JsonLineEncoder beginArray() {
+        startValue();
+        append('[');
+        this.depth++;
+        this.first = true;
+        return this;
+    }
+
+    JsonLineEncoder endArray() {
+        return end(']');
+    }
+
+    /**
+     * Appends the name of the next member of an object.
+     * @param name the name. Must not be {@code null}.
+     * @return this encoder.
+     */
+    JsonLineEncoder name(final String name) {
+        assert name != null;
+        startValue();
+        appendString(name);
+        append(':');
+        this.afterName = true;
+        return this;
+    }
+
+    /**
+     * Appends a string value.
+     * @param value the value. {@code null} is appended as JSON <tt>null</tt>.
+     * @return this encoder.
+     */
+    JsonLineEncoder value(final String value) {
+        startValue();
+        if (value == null) {
+            appendNull();
+        } else {
+            appendString(value);
+        }
+        this.first = false;
+        return this;
+    }
+
+    JsonLineEncoder value(final long value) {
+        startValue();
+        final String s = Long.toString(value);
+        ensureCapacity(s.length());
+        s.getChars(0, s.length(), this.buffer, this.length);
+        this.length += s.length();
+        this.first = false;
+        return this;
+    }
+
+    JsonLineEncoder value(final boolean value) {
+        startValue();
+        final String s = Boolean.toString(value);
+        ensureCapacity(s.length());
+        s.getChars(0, s.length(), this.buffer, this.length);
+        this.length += s.length();
+        this.first = false;
+        return this;
+    }
+
+    /**
+     * Writes the encoded value followed by a line feed and resets the encoder.
+     * @param out the writer to write to. Shared writers are locked for the line.
+     * @throws IOException if and only if the line can't be written.
+     * @throws IllegalStateException if no complete value is encoded.
+     */
+    void writeLine(final Writer out) throws IOException {
+        assert out != null;
+        if (this.depth != 0 || this.length == 0) {
+            throw new IllegalStateException("No complete JSON value encoded");
+        }
+        append('\n');
+        synchronized (out) {
+            out.write(this.buffer, 0, this.length);
+        }
+        reset();
+    }
+
+    /** Discards the encoded characters, e.g. after a failure during encoding. */
+    void reset() {
+        this.length = 0;
+        this.depth = 0;
+        this.first = true;
+        this.afterName = false;
+    }
+
+    @Override
+    public String toString() {
+        return new String(this.buffer, 0, this.length);
+    }
+
+    JsonLineEncoder end(final char c) {
+        if (this.depth == 0) {
+            throw new IllegalStateException("No open JSON object or array");
+        }
+        append(c);
+        this.depth--;
+        this.first = false;
+        this.afterName = false;
+        return this;
+    }
+
+    void startValue() {
+        if (!this.first && !this.afterName) {
+            append(',');
+        }
+        this.afterName = false;
+    }
+
+    void appendNull() {
+        ensureCapacity(NULL.length);
+        System.arraycopy(NULL, 0, this.buffer, this.length, NULL.length);
+        this.length += NULL.length;
+    }
+
+    void appendString(final String value) {
+        final int valueLength = value.length();
+        ensureCapacity(valueLength + 2);
+        this.buffer[this.length++] = '"';
+        for (int idx = 0; idx < valueLength; idx++) {
+            final char c = value.charAt(idx);
+            if (c == '"' || c == '\\') {
+                ensureCapacity(2 + valueLength - idx);
+                this.buffer[this.length++] = '\\';
+                this.buffer[this.length++] = c;
+            } else if (c < 0x20) {
+                ensureCapacity(6 + valueLength - idx);
+                appendControl(c);
+            } else {
+                this.buffer[this.length++] = c;
+            }
+        }
+        this.buffer[this.length++] = '"';
+    }
+
+    void appendControl(final char c) {
+        this.buffer[this.length++] = '\\';
+        switch (c) {
+            case '\b':
+                this.buffer[this.length++] = 'b';
+                break;
+            case '\f':
+                this.buffer[this.length++] = 'f';
+                break;
+            case '\n':
+                this.buffer[this.length++] = 'n';
+                break;
+            case '\r':
+                this.buffer[this.length++] = 'r';
+                break;
+            case '\t':
+                this.buffer[this.length++] = 't';
+                break;
+            default:
+                this.buffer[this.length++] = 'u';
+                this.buffer[this.length++] = '0';
+                this.buffer[this.length++] = '0';
+                this.buffer[this.length++] = HEX[c >> 4];
+                this.buffer[this.length++] = HEX[c & 0xf];
+        }
+    }
+
+    void append(final char c) {
+        ensureCapacity(1);
+        this.buffer[this.length++] = c;
+    }
+
+    void ensureCapacity(final int additional) {
+        final int required = this.length + additional;
+        if (required > this.buffer.length) {
+            this.buffer = Arrays.copyOf(this.buffer, Math.max(required, this.buffer.length * 2));
+        }
+    }
+}
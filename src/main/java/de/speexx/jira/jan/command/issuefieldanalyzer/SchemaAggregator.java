@@ -0,0 +1,247 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.command.issuefieldanalyzer;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import com.atlassian.jira.rest.client.api.domain.IssueField;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+import static de.speexx.jira.jan.command.issuefieldanalyzer.IssueFieldAnalyzer.JSON_KEY_FIELDS;
+import static de.speexx.jira.jan.command.issuefieldanalyzer.IssueFieldAnalyzer.JSON_KEY_ID;
+import static de.speexx.jira.jan.command.issuefieldanalyzer.IssueFieldAnalyzer.JSON_KEY_NAME;
+import static de.speexx.jira.jan.command.issuefieldanalyzer.IssueFieldAnalyzer.JSON_KEY_PROJECT;
+import static de.speexx.jira.jan.command.issuefieldanalyzer.IssueFieldAnalyzer.JSON_KEY_TYPE;
+import static de.speexx.jira.jan.command.issuefieldanalyzer.IssueFieldAnalyzer.JSON_KEY_VALUE_TYPE;
+
+/**
+ * Merges the field structures of issues into one schema tree per project and
+ * issue type. A node of the tree counts the occurrences of the field, the
+ * observed value types and the {@code null} values. The elements of an array
+ * are merged into one <tt>items</tt> node. So the memory is proportional to
+ * the count of distinct fields and not to the count of issues.
+ * <p>An instance is not thread-safe.</p>
+ */
+final class SchemaAggregator {
+
+    static final String JSON_KEY_ISSUES = "issues";
+    static final String JSON_KEY_COUNT = "count";
+    static final String JSON_KEY_NULLS = "nulls";
+    static final String JSON_KEY_NULLABLE = "nullable";
+    static final String JSON_KEY_ITEMS = "items";
+
+    private final Map<String, Map<String, Node>> schemas = new LinkedHashMap<>();
+
+    /**
+     * Merges the fields of the issue into the schema of the project and type of the issue.
+     * All field values are read before the first counter changes. So an issue
+     * with an unreadable value leaves the schema unchanged.
+     * @param issue the issue. Must not be {@code null}.
+     * @throws JSONException if and only if a field value can't be read.
+     */
+    void add(final Issue issue) throws JSONException {
+        Objects.requireNonNull(issue, "issue is null");
+        for (final IssueField field : issue.getFields()) {
+            check(field.getValue());
+        }
+        final Node root = schemas.computeIfAbsent(issue.getProject().getName(), project -> new LinkedHashMap<>())
+                                 .computeIfAbsent(issue.getIssueType().getName(), type -> new Node(null, null));
+        root.count++;
+        for (final IssueField field : issue.getFields()) {
+            root.field(field.getId(), field.getName()).observe(field.getValue());
+        }
+    }
+
+    /**
+     * Reads all nested values of the given value without observing them.
+     * @throws JSONException if and only if a nested value can't be read.
+     */
+    static void check(final Object value) throws JSONException {
+        if (value instanceof JSONObject) {
+            final JSONObject json = (JSONObject) value;
+            final Iterator<?> keys = json.keys();
+            while (keys.hasNext()) {
+                check(json.get((String) keys.next()));
+            }
+        } else if (value instanceof JSONArray) {
+            final JSONArray json = (JSONArray) value;
+            final int length = json.length();
+            for (int idx = 0; idx < length; idx++) {
+                check(json.get(idx));
+            }
+        }
+    }
+
+    /**
+     * Writes one JSON line per project and issue type.
+     * @throws IOException if and only if a line can't be written.
+     */
+    void write(final Writer out, final JsonLineEncoder encoder) throws IOException {
+        for (final Map.Entry<String, Map<String, Node>> project : this.schemas.entrySet()) {
+            for (final Map.Entry<String, Node> type : project.getValue().entrySet()) {
+                final Node root = type.getValue();
+                encoder.beginObject()
+                       .name(JSON_KEY_PROJECT).value(project.getKey())
+                       .name(JSON_KEY_TYPE).value(type.getKey())
+                       .name(JSON_KEY_ISSUES).value(root.count);
+                root.encodeChildren(encoder);
+                encoder.endObject();
+                encoder.writeLine(out);
+            }
+        }
+    }
+
+    /** @return the count of schema nodes of all projects and issue types. */
+    int getNodeCount() {
+        int count = 0;
+        for (final Map<String, Node> types : this.schemas.values()) {
+            for (final Node root : types.values()) {
+                count += root.size();
+            }
+        }
+        return count;
+    }
+
+    static final class Node {
+        private final String id;
+        private final String name;
+        private long count;
+        private long nulls;
+        private final Map<String, Counter> valueTypes = new LinkedHashMap<>();
+        private Map<String, Node> children;
+        private Node items;
+
+        Node(final String id, final String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        /** @return the child for the issue field with the given id. Created on the first call. */
+        Node field(final String fieldId, final String fieldName) {
+            return children().computeIfAbsent(fieldId, key -> new Node(fieldId, fieldName));
+        }
+
+        /** @return the child for the object member with the given name. Created on the first call. */
+        Node member(final String memberName) {
+            return children().computeIfAbsent(memberName, key -> new Node(null, memberName));
+        }
+
+        Map<String, Node> children() {
+            if (this.children == null) {
+                this.children = new LinkedHashMap<>();
+            }
+            return this.children;
+        }
+
+        void observe(final Object value) throws JSONException {
+            this.count++;
+            if (value == null || JSONObject.NULL.equals(value)) {
+                this.nulls++;
+                return;
+            }
+            if (value instanceof JSONObject) {
+                countValueType(JSONObject.class.getCanonicalName());
+                final JSONObject json = (JSONObject) value;
+                final Iterator<?> keys = json.keys();
+                while (keys.hasNext()) {
+                    final String key = (String) keys.next();
+                    member(key).observe(json.get(key));
+                }
+            } else if (value instanceof JSONArray) {
+                countValueType(JSONArray.class.getCanonicalName());
+                final JSONArray json = (JSONArray) value;
+                final int length = json.length();
+                for (int idx = 0; idx < length; idx++) {
+                    items().observe(json.get(idx));
+                }
+            } else {
+                countValueType(value.getClass().getCanonicalName());
+            }
+        }
+
+        void countValueType(final String valueType) {
+            final Counter counter = this.valueTypes.get(valueType);
+            if (counter == null) {
+                this.valueTypes.put(valueType, new Counter());
+            } else {
+                counter.value++;
+            }
+        }
+
+        Node items() {
+            if (this.items == null) {
+                this.items = new Node(null, null);
+            }
+            return this.items;
+        }
+
+        void encode(final JsonLineEncoder encoder) {
+            encoder.name(JSON_KEY_COUNT).value(this.count)
+                   .name(JSON_KEY_NULLS).value(this.nulls)
+                   .name(JSON_KEY_NULLABLE).value(this.nulls > 0)
+                   .name(JSON_KEY_VALUE_TYPE).beginObject();
+            for (final Map.Entry<String, Counter> valueType : this.valueTypes.entrySet()) {
+                encoder.name(String.valueOf(valueType.getKey())).value(valueType.getValue().value);
+            }
+            encoder.endObject();
+            encodeChildren(encoder);
+            if (this.items != null) {
+                encoder.name(JSON_KEY_ITEMS).beginObject();
+                this.items.encode(encoder);
+                encoder.endObject();
+            }
+        }
+
+        void encodeChildren(final JsonLineEncoder encoder) {
+            if (this.children == null) {
+                return;
+            }
+            encoder.name(JSON_KEY_FIELDS).beginArray();
+            for (final Node child : this.children.values()) {
+                encoder.beginObject();
+                if (child.id != null) {
+                    encoder.name(JSON_KEY_ID).value(child.id);
+                }
+                encoder.name(JSON_KEY_NAME).value(child.name);
+                child.encode(encoder);
+                encoder.endObject();
+            }
+            encoder.endArray();
+        }
+
+        int size() {
+            int size = 1;
+            if (this.children != null) {
+                for (final Node child : this.children.values()) {
+                    size += child.size();
+                }
+            }
+            return this.items == null ? size : size + this.items.size();
+        }
+    }
+
+    static final class Counter {
+        long value = 1;
+    }
+}
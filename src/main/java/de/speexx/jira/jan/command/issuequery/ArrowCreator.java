@@ -0,0 +1,215 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.command.issuequery;
+
+import de.speexx.jira.jan.JiraAnalyzeException;
+import de.speexx.jira.jan.command.ArrowRowWriter;
+import de.speexx.jira.jan.command.ArrowRowWriter.Column;
+import de.speexx.jira.jan.command.ArrowRowWriter.ColumnType;
+import de.speexx.jira.jan.command.OutputParameters;
+import de.speexx.jira.jan.service.issue.FieldName;
+import de.speexx.jira.jan.service.issue.FieldNamePath;
+import de.speexx.jira.jan.service.issue.IssueData;
+import de.speexx.jira.jan.service.issue.IssueData.HistoricalDataEntry;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import static de.speexx.jira.jan.command.issuequery.CsvCreator.NARROW_HEADER;
+import static de.speexx.jira.jan.command.issuequery.CsvCreator.currentFieldHeaderName;
+
+/**
+ * Writes the issue data in the {@link OutputLayout#NARROW narrow} layout as
+ * Arrow IPC stream. The field names are dictionary encoded. The values of the
+ * changes are dictionary encoded if all history fields have only a few distinct
+ * values like the status. The current fields of the issues are written to an
+ * optional second stream with one row per issue.
+ */
+final class ArrowCreator implements IssueDataSink {
+
+    /** Names of the history fields with only a few distinct values. */
+    static final Set<String> DICTIONARY_FIELDS = Collections.unmodifiableSet(new HashSet<>(
+            Arrays.asList("status", "issuetype", "priority", "resolution")));
+
+    private final ArrowRowWriter changes;
+    private final ArrowRowWriter attributes;
+    private final ColumnType[] attributeTypes;
+    private final FieldNamePath keyPath;
+    private final int flushInterval;
+    private int issuesSinceFlush;
+
+    /**
+     * Creates the creator and writes the schemas.
+     * @param out the stream for the changes. Closed with {@link #close()}.
+     * @param keyPath the path of the issue key of the change rows.
+     * @param createdPath the path of the created date. Written as timestamp to the attributes.
+     * @param currentFieldNames the current fields written to the attributes.
+     * @param historyFieldNames the history fields of the changes.
+     * @param attributes the stream for the current fields or {@code null}
+     *                   to not write the current fields. Closed with {@link #close()}.
+     * @param flushInterval the count of issues after which the output is flushed.
+     *                      0 or less flushes only on explicit {@link #flush()}.
+     * @param batchSize the count of rows of a record batch.
+     * @throws IOException if and only if a schema can't be written.
+     */
+    ArrowCreator(final OutputStream out,
+                 final FieldNamePath keyPath,
+                 final FieldNamePath createdPath,
+                 final List<FieldNamePath> currentFieldNames,
+                 final List<FieldName> historyFieldNames,
+                 final OutputStream attributes,
+                 final int flushInterval,
+                 final int batchSize) throws IOException {
+        this.keyPath = Objects.requireNonNull(keyPath, "keyPath is null");
+        Objects.requireNonNull(createdPath, "createdPath is null");
+        Objects.requireNonNull(currentFieldNames, "currentFieldNames is null");
+        Objects.requireNonNull(historyFieldNames, "historyFieldNames is null");
+        this.flushInterval = flushInterval;
+        final List<Column> attributeColumns = attributeColumns(currentFieldNames, createdPath);
+        this.attributeTypes = attributeColumns.stream().map(Column::getType).toArray(ColumnType[]::new);
+        this.changes = new ArrowRowWriter(changeColumns(historyFieldNames), out, batchSize);
+        try {
+            this.attributes = attributes == null ? null : new ArrowRowWriter(attributeColumns, attributes, batchSize);
+        } catch (final IOException | RuntimeException e) {
+            OutputParameters.closeOnFailure(e, this.changes);
+            throw e;
+        }
+    }
+
+    static List<Column> changeColumns(final List<FieldName> historyFieldNames) {
+        final ColumnType valueType = historyFieldNames.stream().map(FieldName::asString).allMatch(DICTIONARY_FIELDS::contains)
+                                         ? ColumnType.DICTIONARY
+                                         : ColumnType.STRING;
+        return Arrays.asList(new Column(NARROW_HEADER[0], ColumnType.STRING),
+                             new Column(NARROW_HEADER[1], ColumnType.DICTIONARY),
+                             new Column(NARROW_HEADER[2], valueType),
+                             new Column(NARROW_HEADER[3], valueType),
+                             new Column(NARROW_HEADER[4], ColumnType.TIMESTAMP),
+                             new Column(NARROW_HEADER[5], ColumnType.INT64));
+    }
+
+    static List<Column> attributeColumns(final List<FieldNamePath> currentFieldNames, final FieldNamePath createdPath) {
+        final List<Column> columns = new ArrayList<>(currentFieldNames.size());
+        currentFieldNames.forEach(path -> columns.add(new Column(currentFieldHeaderName(path),
+                                                                 createdPath.equals(path) ? ColumnType.TIMESTAMP : ColumnType.STRING)));
+        return columns;
+    }
+
+    /**
+     * Prints the changes of the history fields and the current fields of the issue.
+     * @param changedAfter only changes after this date are printed. All changes
+     *                     are printed if {@code null}.
+     */
+    @Override
+    public void printIssueData(final IssueData issueData,
+                               final List<FieldName> historyFieldNames,
+                               final List<FieldNamePath> currentFieldNames,
+                               final LocalDateTime changedAfter) {
+        Objects.requireNonNull(issueData, "issueData is null");
+        Objects.requireNonNull(historyFieldNames, "historyFieldNames is null");
+        Objects.requireNonNull(currentFieldNames, "currentFieldNames is null");
+
+        try {
+            printAttributes(issueData, currentFieldNames);
+            printChanges(issueData, historyFieldNames, changedAfter);
+            if (this.flushInterval > 0 && ++this.issuesSinceFlush >= this.flushInterval) {
+                flush();
+            }
+        } catch (final IOException e) {
+            throw new JiraAnalyzeException(e);
+        }
+    }
+
+    void printChanges(final IssueData issueData,
+                      final List<FieldName> historyFieldNames,
+                      final LocalDateTime changedAfter) throws IOException {
+        if (issueData.getHistoricalCount() == 0) {
+            return;
+        }
+        final Object key = issueData.getCurrentIssueData(this.keyPath);
+        final String keyValue = key == null ? null : String.valueOf(key);
+        final int historyFieldNamesSize = historyFieldNames.size();
+        for (int idx = 0; idx < historyFieldNamesSize; idx++) {
+            final FieldName fieldName = historyFieldNames.get(idx);
+            LocalDateTime lastChangeDate =
+                    issueData.getCreatedDate().orElseThrow(() -> new IllegalStateException("No createdDate available"));
+
+            for (final HistoricalDataEntry entry : issueData.getHistoricalIssueData(fieldName)) {
+                final LocalDateTime changeDate = entry.getChangeDate();
+                if (CsvCreator.isAfter(changeDate, changedAfter)) {
+                    this.changes.append(keyValue)
+                                .append(fieldName.asString())
+                                .append(entry.getFrom())
+                                .append(entry.getTo())
+                                .append(changeDate)
+                                .append(Duration.between(lastChangeDate, changeDate).toMillis());
+                    this.changes.endRow();
+                }
+                lastChangeDate = changeDate;
+            }
+        }
+    }
+
+    void printAttributes(final IssueData issueData, final List<FieldNamePath> currentFieldNames) throws IOException {
+        if (this.attributes == null) {
+            return;
+        }
+        final int size = currentFieldNames.size();
+        for (int idx = 0; idx < size; idx++) {
+            final Object value = issueData.getCurrentIssueData(currentFieldNames.get(idx));
+            if (value == null || (this.attributeTypes[idx] == ColumnType.TIMESTAMP && !(value instanceof LocalDateTime))) {
+                this.attributes.appendNull();
+            } else if (value instanceof LocalDateTime && this.attributeTypes[idx] == ColumnType.TIMESTAMP) {
+                this.attributes.append((LocalDateTime) value);
+            } else if (value instanceof LocalDateTime) {
+                this.attributes.append(DateTimeFormatter.ISO_DATE_TIME.format((LocalDateTime) value));
+            } else {
+                this.attributes.append(String.valueOf(value));
+            }
+        }
+        this.attributes.endRow();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        this.changes.flush();
+        if (this.attributes != null) {
+            this.attributes.flush();
+        }
+        this.issuesSinceFlush = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            this.changes.close();
+        } finally {
+            if (this.attributes != null) {
+                this.attributes.close();
+            }
+        }
+    }
+}
@@ -19,37 +19,66 @@ package de.speexx.jira.jan.command.issuequery;
 
 import de.speexx.jira.jan.service.issue.FieldConfig;
 import com.atlassian.jira.rest.client.api.IssueRestClient;
-import com.atlassian.jira.rest.client.api.JiraRestClient;
-import com.atlassian.jira.rest.client.api.SearchRestClient;
 import com.atlassian.jira.rest.client.api.domain.Issue;
-import com.atlassian.jira.rest.client.api.domain.SearchResult;
 import com.atlassian.util.concurrent.Promise;
+import com.atlassian.util.concurrent.Promises;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
+import com.beust.jcommander.ParametersDelegate;
 import de.speexx.jira.jan.Command;
 import de.speexx.jira.jan.Config;
 import de.speexx.jira.jan.ExecutionContext;
 import de.speexx.jira.jan.JiraAnalyzeException;
+import de.speexx.jira.jan.command.ArrowRowWriter;
+import de.speexx.jira.jan.command.CacheParameters;
+import de.speexx.jira.jan.command.CheckpointParameters;
+import de.speexx.jira.jan.command.IncrementalParameters;
+import de.speexx.jira.jan.command.OutputFormat;
+import de.speexx.jira.jan.command.OutputParameters;
+import de.speexx.jira.jan.command.SearchPagingParameters;
 import de.speexx.jira.jan.service.issue.FieldName;
 import de.speexx.jira.jan.service.issue.FieldNamePath;
 import de.speexx.jira.jan.service.issue.FieldNameService;
 import de.speexx.jira.jan.service.issue.IssueData;
 import de.speexx.jira.jan.service.issue.IssueCoreFieldConfig;
+import de.speexx.jira.jan.service.issue.IssueFieldProjectionService;
 import de.speexx.jira.jan.service.issue.IssueFieldService;
+import de.speexx.jira.jan.service.fetch.CachingPageResolver;
+import de.speexx.jira.jan.service.fetch.Checkpoint;
+import de.speexx.jira.jan.service.fetch.ConcurrentIssueFetcher;
+import de.speexx.jira.jan.service.fetch.ExpandedSearchResult;
+import de.speexx.jira.jan.service.fetch.ExtendedJiraRestClient;
+import de.speexx.jira.jan.service.fetch.HighWaterMark;
+import de.speexx.jira.jan.service.fetch.SearchPageIterator;
+import de.speexx.jira.jan.service.stats.RunStatistics;
+import de.speexx.jira.jan.service.stats.RunStatistics.Phase;
+import de.speexx.jira.jan.service.time.TimeConverterService;
+import static de.speexx.jira.jan.service.fetch.ExpandingSearchRestClient.EXPAND_CHANGELOG;
+import static de.speexx.jira.jan.service.fetch.ExpandingSearchRestClient.EXPAND_NAMES;
+import static de.speexx.jira.jan.service.fetch.ExpandingSearchRestClient.FIELDS_ALL;
+import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicBoolean;
 import javax.inject.Inject;
-import static java.util.stream.Collectors.joining;
 
 @Parameters(commandNames = {"issuequery"}, commandDescription = "Fetch the changelog for the required fields. The fields KEY and CreateDate are always fetched.")
 public final class ChangelogFieldFetcher implements Command {
 
+    static final Set<String> SEARCH_FIELDS_ALL = Collections.singleton(FIELDS_ALL);
+    static final Set<String> SEARCH_EXPAND_HISTORY = 
+            Collections.unmodifiableSet(new HashSet<>(Arrays.asList(EXPAND_CHANGELOG, EXPAND_NAMES)));
+    static final Set<String> SEARCH_EXPAND_CURRENT = Collections.singleton(EXPAND_NAMES);
+
     private FieldName issueKeyFieldName;
     private FieldName createdDateFieldName;
 
@@ -61,6 +90,9 @@ public final class ChangelogFieldFetcher implements Command {
 
     @Inject
     private IssueFieldService issueFieldService;
+
+    @Inject
+    private IssueFieldProjectionService fieldProjectionService;
     
     @Inject
     private FieldNameService fieldNameService;
@@ -70,9 +102,29 @@ public final class ChangelogFieldFetcher implements Command {
     
     @Inject
     private CsvCreator csvCreator;
+
+    @Inject
+    private TimeConverterService timeConverter;
     
-    @Parameter(names = {"-l", "--limit"}, hidden = true, description = "Fetch size limit.")
-    private int fetchLimit = 100;
+    @ParametersDelegate
+    private final SearchPagingParameters paging = new SearchPagingParameters();
+
+    @ParametersDelegate
+    private final OutputParameters output = new OutputParameters();
+
+    @ParametersDelegate
+    private final CacheParameters cacheParameters = new CacheParameters();
+
+    @ParametersDelegate
+    private final IncrementalParameters incremental = new IncrementalParameters();
+
+    @ParametersDelegate
+    private final CheckpointParameters checkpointParameters = new CheckpointParameters();
+
+    @Parameter(names = {"--parallelism"},
+               description = "Maximum count of concurrent issue requests against JIRA. "
+                           + "The output order is independent of the parallelism.")
+    private int parallelism = 8;
 
     @Parameter(names = {"-q", "--query"},
                required = true,
@@ -126,6 +178,23 @@ public final class ChangelogFieldFetcher implements Command {
                            + "'" + TEMPORAL_VALUE_TIME_LONG + "'.")
     private TemporalChangeOutput temporalOutput = TemporalChangeOutput.DURATION;
 
+    static final String LAYOUT_PARAMETER_NAME_LONG = "--layout";
+    static final String LAYOUT_VALUE_WIDE = "wide";
+    static final String LAYOUT_VALUE_NARROW = "narrow";
+
+    @Parameter(names = {LAYOUT_PARAMETER_NAME_LONG},
+               validateWith = LayoutParameterValidator.class,
+               converter = LayoutParameterValidator.class,
+               description = "Layout of the output. '" + LAYOUT_VALUE_WIDE + "' prints one row per "
+                           + "combination of the changes of the history fields. '" + LAYOUT_VALUE_NARROW + "' "
+                           + "prints one row per change with the columns key, field, from, to, at and duration.")
+    private OutputLayout layout = OutputLayout.WIDE;
+
+    @Parameter(names = {"--attributes"},
+               description = "File to write the current fields of the issues to. One row per issue. "
+                           + "Only used with the '" + LAYOUT_VALUE_NARROW + "' layout.")
+    private File attributes;
+
     @Parameter(names = {"-n", "--noheader"}, description = "Noheader output if given.")
     private boolean noHeader = false;
 
@@ -134,65 +203,202 @@ public final class ChangelogFieldFetcher implements Command {
         createFieldNames();
         correctFields();
         
+        final String fullQuery = SearchPagingParameters.joinQuery(this.query).orElseThrow(() -> new JiraAnalyzeException("No query given for fetching transitions"));
         int count = 0;
-        int startIndex = 0;
-        int total = -1;
-        
-        final AtomicBoolean header = new AtomicBoolean(!this.noHeader);
-        try (final JiraRestClient restClient = this.execCtx.newJiraClient()) {
-            do {
-                final String q = getQuery().orElseThrow(() -> new JiraAnalyzeException("No query given for fetching transitions"));
-                final SearchResult searchResult = fetchIssues(restClient, q, startIndex);
-                total = total == -1 ? searchResult.getTotal() : total;
-                startIndex += getFetchLimit();
-
-                for (final Issue searchResultIssue : searchResult.getIssues()) {
-                    count++;
-                    final Issue issue = fetchIssueForSearchResult(restClient, searchResultIssue);
-
-                    final IssueData issueData = new IssueData();
-                    final IssueData currentIssueData
-                            = this.issueFieldService.fetchCurrentIssueData(issue, issueData, this.currentFieldNames);
-                    final IssueData withHistoricalIssueData
-                            = this.issueFieldService.fetchHistoricalIssueData(issue, currentIssueData, this.historyFieldNames);
-                    
-                    this.csvCreator.printIssueData(withHistoricalIssueData, this.historyFieldNames, this.currentFieldNames, this.temporalOutput, header);
+
+        this.checkpointParameters.validate(this.output);
+        this.output.validateFormat(this.incremental.isIncremental() || this.checkpointParameters.isCheckpointing());
+        validateLayout();
+        final ExtendedJiraRestClient restClient = this.execCtx.getJiraClient(getParallelism() + this.paging.getPrefetchDepth() + 1);
+        final RunStatistics statistics = this.execCtx.getStatistics();
+        try {
+            final Optional<Checkpoint> resumed = this.checkpointParameters.readForResume(fullQuery);
+            if (resumed.isPresent()) {
+                this.execCtx.log("Resuming from {}", resumed.get());
+                this.output.truncate(resumed.get().getOffset());
+                count = resumed.get().getCount();
+            }
+            final boolean append = this.incremental.isIncremental() || resumed.isPresent();
+            try (final IssueDataSink sink = newSink(append)) {
+                final Optional<HighWaterMark> since = this.incremental.readMark().filter(mark -> !mark.isEmpty());
+                final HighWaterMark seen = resumed.map(Checkpoint::getSeen)
+                                                  .orElseGet(() -> since.map(HighWaterMark::new).orElseGet(HighWaterMark::new));
+                final HighWaterMark restriction = resumed.map(Checkpoint::getSince).orElseGet(() -> since.orElseGet(HighWaterMark::new));
+                final String q = restriction.restrictQuery(fullQuery, System.currentTimeMillis());
+                since.ifPresent(mark -> this.execCtx.log("Incremental query since {}: {}", mark, q));
+
+                final Set<String> searchFields = createSearchFields(restClient);
+                final Set<String> searchExpand = createSearchExpand();
+                this.execCtx.log("Search fields: {} - expand: {}", searchFields, searchExpand);
+
+                final Optional<CachingPageResolver> cachingResolver = this.cacheParameters.openCache().map(
+                        cache -> CachingPageResolver.create(cache, restClient, searchFields, searchExpand));
+                final int startAt = resumed.map(Checkpoint::getResumeStartAt).orElse(0);
+                final SearchPageIterator pages = cachingResolver.isPresent()
+                        ? this.paging.pages(restClient, q, CachingPageResolver.PAGE_FIELDS, CachingPageResolver.PAGE_EXPAND, startAt)
+                        : this.paging.pages(restClient, q, searchFields, searchExpand, startAt);
+                boolean firstPage = true;
+                while (pages.hasNext()) {
+                    final ExpandedSearchResult page = pages.next();
+                    final ExpandedSearchResult searchResult = cachingResolver.isPresent() ? cachingResolver.get().resolve(page) : page;
+                    final Iterable<Issue> issues = firstPage && resumed.isPresent()
+                            ? resumed.get().skipProcessed(searchResult.getIssues())
+                            : searchResult.getIssues();
+                    firstPage = false;
+
+                    final ConcurrentIssueFetcher issueFetcher = new ConcurrentIssueFetcher(
+                            searchResultIssue -> fetchIssueForSearchResult(restClient, searchResult, searchResultIssue),
+                            getParallelism(),
+                            restClient.getRetryPolicy());
+                    count += issueFetcher.fetch(issues, issue -> {
+                        if (since.isPresent() && !since.get().isNewer(issue.getUpdateDate())) {
+                            return;
+                        }
+                        seen.observe(issue);
+                        final IssueData withHistoricalIssueData = statistics.call(Phase.EXTRACT, () -> {
+                            final IssueData issueData = new IssueData();
+                            final IssueData currentIssueData
+                                    = this.issueFieldService.fetchCurrentIssueData(issue, issueData, this.currentFieldNames);
+                            return this.issueFieldService.fetchHistoricalIssueData(issue, currentIssueData, this.historyFieldNames);
+                        });
+
+                        final LocalDateTime changedAfter = since.map(mark -> changedAfter(mark, issue)).orElse(null);
+                        statistics.run(Phase.WRITE, () -> sink.printIssueData(
+                                withHistoricalIssueData, this.historyFieldNames, this.currentFieldNames, changedAfter));
+                    });
+                    if (this.checkpointParameters.isCheckpointing()) {
+                        sink.flush();
+                        this.checkpointParameters.write(Checkpoint.afterPage(fullQuery, restriction, page, this.output.size(), count, seen));
+                    }
+                    this.execCtx.log("total: {} - count: {}", pages.getTotal(), count);
                 }
-                this.execCtx.log("total: {} - count: {}", total, count);
-            } while (total != count);
+                sink.flush();
+                this.incremental.writeMark(seen);
+                cachingResolver.ifPresent(resolver -> {
+                    statistics.addCacheUsage(resolver.getCache().getHits(), resolver.getCache().getMisses());
+                    this.execCtx.log("Cache: {}", resolver.getCache());
+                });
+            }
+            this.checkpointParameters.delete();
         } catch (final IOException e) {
             throw new JiraAnalyzeException(e);
         }
     }
 
-    Issue fetchIssueForSearchResult(final JiraRestClient restClient, final Issue searchResultIssue) {
+    void validateLayout() {
+        if (this.output.getFormat() == OutputFormat.ARROW && this.layout != OutputLayout.NARROW) {
+            throw new JiraAnalyzeException("Output format arrow requires the layout '" + LAYOUT_VALUE_NARROW + "'");
+        }
+        if (this.attributes == null) {
+            return;
+        }
+        if (this.layout != OutputLayout.NARROW) {
+            throw new JiraAnalyzeException("--attributes requires the layout '" + LAYOUT_VALUE_NARROW + "'");
+        }
+        if (this.checkpointParameters.isCheckpointing()) {
+            throw new JiraAnalyzeException("--attributes can't be combined with --checkpoint");
+        }
+    }
+
+    /**
+     * Creates the sink of the output format. A CSV sink is the opened
+     * {@link CsvCreator} of the command.
+     * @param append {@code true} to append to existing output.
+     * @return the sink. The caller is responsible for closing the sink.
+     */
+    IssueDataSink newSink(final boolean append) throws IOException {
+        if (this.output.getFormat() == OutputFormat.ARROW) {
+            return newArrowCreator();
+        }
+        final boolean header = !this.noHeader && !(append && this.output.hasContent());
+        final Writer out = this.output.newWriter(append);
+        try {
+            if (this.layout == OutputLayout.NARROW) {
+                this.csvCreator.openNarrow(out, this.fieldNameService.createFieldNamePath(this.issueKeyFieldName),
+                                           newAttributesWriter(append), isAttributesHeaderRequired(append), this.output.getFlushInterval());
+            } else {
+                this.csvCreator.open(out, this.output.getFlushInterval());
+            }
+        } catch (final IOException | RuntimeException e) {
+            OutputParameters.closeOnFailure(e, out);
+            throw e;
+        }
+        this.csvCreator.setOutputOptions(this.temporalOutput, header);
+        return this.csvCreator;
+    }
+
+    /** @return {@code true} if a header must be printed to the attributes file. */
+    boolean isAttributesHeaderRequired(final boolean append) {
+        return !this.noHeader && !(append && this.attributes != null && this.attributes.length() > 0);
+    }
+
+    /** @return a writer for the attributes file or {@code null} if no attributes are required. */
+    Writer newAttributesWriter(final boolean append) throws IOException {
+        if (this.layout != OutputLayout.NARROW || this.attributes == null) {
+            return null;
+        }
+        return OutputParameters.newWriter(this.attributes, append);
+    }
+
+    ArrowCreator newArrowCreator() throws IOException {
+        final OutputStream out = this.output.newOutputStream();
+        OutputStream attributesOut = null;
+        try {
+            attributesOut = this.attributes == null ? null : OutputParameters.newOutputStream(this.attributes);
+            return new ArrowCreator(out,
+                                    this.fieldNameService.createFieldNamePath(this.issueKeyFieldName),
+                                    this.fieldNameService.createFieldNamePath(this.createdDateFieldName),
+                                    this.currentFieldNames,
+                                    this.historyFieldNames,
+                                    attributesOut,
+                                    this.output.getFlushInterval(),
+                                    ArrowRowWriter.DEFAULT_BATCH_SIZE);
+        } catch (final IOException | RuntimeException e) {
+            OutputParameters.closeOnFailure(e, out, attributesOut);
+            throw e;
+        }
+    }
+
+    Promise<Issue> fetchIssueForSearchResult(final ExtendedJiraRestClient restClient,
+                                             final ExpandedSearchResult searchResult,
+                                             final Issue searchResultIssue) {
+        if (!searchResult.isChangelogTruncated(searchResultIssue)) {
+            return Promises.promise(searchResultIssue);
+        }
+        this.execCtx.log("Changelog of issue {} truncated in search result", searchResultIssue.getKey());
+
         final Set<IssueRestClient.Expandos> expandos = new HashSet<>();
         expandos.add(IssueRestClient.Expandos.NAMES);
         expandos.add(IssueRestClient.Expandos.CHANGELOG);
-        expandos.add(IssueRestClient.Expandos.OPERATIONS);
-        expandos.add(IssueRestClient.Expandos.SCHEMA);
-        expandos.add(IssueRestClient.Expandos.TRANSITIONS);
 
         final IssueRestClient issueClient = restClient.getIssueClient();
-        final Promise<Issue> issueResult = issueClient.getIssue(searchResultIssue.getKey(), expandos);
-        return issueResult.claim();
+        return restClient.getGovernor().submit(
+                () -> this.execCtx.getStatistics().request(Phase.ISSUE, issueClient.getIssue(searchResultIssue.getKey(), expandos)));
     }
 
-   SearchResult fetchIssues(final JiraRestClient restClient, String q, int startIndex) {
-        final SearchRestClient searchClient = restClient.getSearchClient();
-        final Promise<SearchResult> results = searchClient.searchJql(q, getFetchLimit(), startIndex, null);
-        return results.claim();
+    /** @return the mark as local date time in the zone of the issue dates. */
+    LocalDateTime changedAfter(final HighWaterMark mark, final Issue issue) {
+        assert mark != null;
+        assert issue != null;
+        return this.timeConverter.jodaDateTimeToJava8LocalDateTime(mark.toDateTime(issue.getUpdateDate().getZone()));
     }
-    
-    Optional<String> getQuery() {
-        if (this.query == null || this.query.isEmpty()) {
-            return Optional.empty();
+
+    Set<String> createSearchFields(final ExtendedJiraRestClient restClient) {
+        assert restClient != null;
+        final Optional<Set<String>> fieldIds = this.fieldProjectionService.resolveFieldIds(
+                this.currentFieldNames, () -> restClient.getRetryPolicy().call(() -> restClient.getGovernor().submit(() -> restClient.getMetadataClient().getFields())));
+        if (!fieldIds.isPresent()) {
+            this.execCtx.log("Not all current fields are known by JIRA. Fetching all fields.");
         }
-        return Optional.of(this.query.stream().collect(joining(" ")));
+        return fieldIds.orElse(SEARCH_FIELDS_ALL);
+    }
+
+    Set<String> createSearchExpand() {
+        return this.historyFieldNames.isEmpty() ? SEARCH_EXPAND_CURRENT : SEARCH_EXPAND_HISTORY;
     }
 
-    int getFetchLimit() {
-        return this.fetchLimit;
+    int getParallelism() {
+        return this.parallelism;
     }
     
     final void correctFields() {
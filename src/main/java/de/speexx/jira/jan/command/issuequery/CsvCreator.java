@@ -18,6 +18,7 @@
 package de.speexx.jira.jan.command.issuequery;
 
 import de.speexx.jira.jan.JiraAnalyzeException;
+import de.speexx.jira.jan.command.CsvRowEncoder;
 import de.speexx.jira.jan.service.issue.FieldName;
 import de.speexx.jira.jan.service.issue.FieldNamePath;
 import de.speexx.jira.jan.service.issue.IssueData;
@@ -31,17 +32,19 @@ import static de.speexx.jira.jan.command.issuequery.TemporalChangeOutput.NONE;
 import static de.speexx.jira.jan.command.issuequery.TemporalChangeOutput.TIME;
 import static de.speexx.jira.jan.command.issuequery.TemporalChangeOutput.DURATION;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.nio.charset.StandardCharsets;
+import java.io.Writer;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.Collections;
-import static org.apache.commons.csv.CSVFormat.RFC4180;
-import org.apache.commons.csv.CSVPrinter;
 
 
-class CsvCreator {
+/**
+ * Writes the issue data as CSV. The instance reuses its row encoders for the
+ * whole run. The creator must be {@link #open(Writer, int) opened} before the
+ * first issue is printed. The current fields of an issue are encoded once for
+ * all rows of the issue.
+ */
+class CsvCreator implements IssueDataSink {
     
     static final String EMPTY = "";
     static final String HOSTORICAL_TO_PREFIX = "to_";
@@ -50,20 +53,162 @@ class CsvCreator {
     static final String HOSTORICAL_DURATION_PREFIX = "duration_";
     static final String FIELDNAMEPATH_DELIMITER_REPALCEMENT = "_";
     static final int MILLIS = 1000;
+    static final String[] NARROW_HEADER = {"key", "field", "from", "to", "at", "duration"};
+
+    private final CsvRowEncoder row = new CsvRowEncoder();
+    private final CsvRowEncoder currentFields = new CsvRowEncoder();
+    private Writer out;
+    private int flushInterval;
+    private int issuesSinceFlush;
+    private OutputLayout layout = OutputLayout.WIDE;
+    private FieldNamePath keyPath;
+    private Writer attributesOut;
+    private boolean attributesHeader;
+    private TemporalChangeOutput temporalOutput = DURATION;
+    private final AtomicBoolean header = new AtomicBoolean(false);
+
+    /**
+     * Opens the creator for the given writer. The writer is closed with
+     * {@link #close()}.
+     * @param out the writer to print the CSV to. Must not be {@code null}.
+     * @param flushInterval the count of issues after which the output is flushed.
+     *                      0 or less flushes only on explicit {@link #flush()}.
+     * @throws IOException if and only if the printer can't be created.
+     */
+    public void open(final Writer out, final int flushInterval) throws IOException {
+        this.out = Objects.requireNonNull(out, "out is null");
+        this.flushInterval = flushInterval;
+        this.issuesSinceFlush = 0;
+        this.layout = OutputLayout.WIDE;
+        this.keyPath = null;
+        this.attributesOut = null;
+    }
+
+    /**
+     * Opens the creator for the {@link OutputLayout#NARROW narrow} layout.
+     * The writers are closed with {@link #close()}.
+     * @param out the writer to print the changes to. Must not be {@code null}.
+     * @param keyPath the path of the issue key of the change rows. Must not be {@code null}.
+     * @param attributes the writer to print the current fields of the issues
+     *                   to or {@code null} to not print the current fields.
+     * @param attributesHeader {@code true} to print the header of the current
+     *                         fields before the first issue.
+     * @param flushInterval the count of issues after which the output is flushed.
+     *                      0 or less flushes only on explicit {@link #flush()}.
+     * @throws IOException if and only if the printer can't be created.
+     */
+    public void openNarrow(final Writer out,
+                           final FieldNamePath keyPath,
+                           final Writer attributes,
+                           final boolean attributesHeader,
+                           final int flushInterval) throws IOException {
+        open(out, flushInterval);
+        this.layout = OutputLayout.NARROW;
+        this.keyPath = Objects.requireNonNull(keyPath, "keyPath is null");
+        this.attributesOut = attributes;
+        this.attributesHeader = attributesHeader;
+    }
+
+    /**
+     * Sets the options of {@link #printIssueData(IssueData, List, List, LocalDateTime)}.
+     * @param temporalOutput the temporal columns of the changes. Must not be {@code null}.
+     * @param header {@code true} to print the header before the first issue.
+     */
+    public void setOutputOptions(final TemporalChangeOutput temporalOutput, final boolean header) {
+        this.temporalOutput = Objects.requireNonNull(temporalOutput, "temporalOutput is null");
+        this.header.set(header);
+    }
+
+    @Override
+    public void printIssueData(final IssueData issueData,
+                               final List<FieldName> historyFieldNames,
+                               final List<FieldNamePath> currentFieldNames,
+                               final LocalDateTime changedAfter) {
+        printIssueData(issueData, historyFieldNames, currentFieldNames, this.temporalOutput, this.header, changedAfter);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        getWriter().flush();
+        if (this.attributesOut != null) {
+            this.attributesOut.flush();
+        }
+        this.issuesSinceFlush = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        final Writer writer = this.out;
+        final Writer attributes = this.attributesOut;
+        this.out = null;
+        this.attributesOut = null;
+        try {
+            if (writer != null) {
+                writer.close();
+            }
+        } finally {
+            if (attributes != null) {
+                attributes.close();
+            }
+        }
+    }
 
     public void printIssueData(final IssueData issueData,
                                final List<FieldName> historyFieldNames,
                                final List<FieldNamePath> currentFieldNames,
                                final TemporalChangeOutput temporalOutput,
                                final AtomicBoolean header) {
+        printIssueData(issueData, historyFieldNames, currentFieldNames, temporalOutput, header, null);
+    }
+
+    /**
+     * Prints only the changes after the given date time. Issues without
+     * changes are printed only if created after the date time. The duration
+     * of the first printed change is still the duration since the previous
+     * change.
+     * @param changedAfter the date time of the last export or {@code null}
+     *                     to print all changes.
+     */
+    public void printIssueData(final IssueData issueData,
+                               final List<FieldName> historyFieldNames,
+                               final List<FieldNamePath> currentFieldNames,
+                               final TemporalChangeOutput temporalOutput,
+                               final AtomicBoolean header,
+                               final LocalDateTime changedAfter) {
         checkParameter(issueData, historyFieldNames, currentFieldNames, temporalOutput, header);
 
-        if (header.get()) {
-            printHeader(currentFieldNames, historyFieldNames, temporalOutput);
-            header.set(false);
+        if (this.layout == OutputLayout.NARROW) {
+            if (header.get()) {
+                printNarrowHeader();
+                header.set(false);
+            }
+            printAttributes(issueData, currentFieldNames);
+            printNarrowIssueData(issueData, historyFieldNames, changedAfter);
+        } else {
+            if (header.get()) {
+                printHeader(currentFieldNames, historyFieldNames, temporalOutput);
+                header.set(false);
+            }
+            printIssueData(issueData, currentFieldNames, historyFieldNames, temporalOutput, changedAfter);
         }
-        
-        printIssueData(issueData, currentFieldNames, historyFieldNames, temporalOutput);
+        flushOnInterval();
+    }
+
+    void flushOnInterval() {
+        if (this.flushInterval > 0 && ++this.issuesSinceFlush >= this.flushInterval) {
+            try {
+                flush();
+            } catch (final IOException e) {
+                throw new JiraAnalyzeException(e);
+            }
+        }
+    }
+
+    Writer getWriter() {
+        if (this.out == null) {
+            throw new IllegalStateException("CsvCreator not opened");
+        }
+        return this.out;
     }
 
     void checkParameter(final IssueData issueData,
@@ -92,23 +237,24 @@ class CsvCreator {
     void printIssueData(final IssueData issueData,
                         final List<FieldNamePath> currentFieldNames,
                         final List<FieldName> historyFieldNames,
-                        final TemporalChangeOutput temporalOutput) {
+                        final TemporalChangeOutput temporalOutput,
+                        final LocalDateTime changedAfter) {
         assert !Objects.isNull(issueData);
         assert !Objects.isNull(currentFieldNames);
         assert !Objects.isNull(historyFieldNames);
         assert !Objects.isNull(temporalOutput);
         
-        final List<String> currentFieldEntries = fetchCurrentFieldEntries(issueData, currentFieldNames);
-
         try {
-            final CSVPrinter csvPrinter = new CSVPrinter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), RFC4180);
+            final Writer writer = getWriter();
+            final CsvRowEncoder prefix = encodeCurrentFields(issueData, currentFieldNames);
 
             if (issueData.getHistoricalCount() == 0) {
+                if (!isAfter(issueData.getCreatedDate().orElse(null), changedAfter)) {
+                    return;
+                }
                 final int fieldsPerChangeEntry = calculateHistoricalFieldSize(temporalOutput);
-                final int max = historyFieldNames.size() * fieldsPerChangeEntry;
-                final List<String> out = new ArrayList(currentFieldEntries);
-                addEmptyChangeData(out, max);
-                csvPrinter.printRecord(out);
+                this.row.appendCells(prefix).appendEmpty(historyFieldNames.size() * fieldsPerChangeEntry);
+                this.row.writeRow(writer);
                 
             } else {
                 final int fieldsPerChangeEntry = calculateHistoricalFieldSize(temporalOutput);
@@ -122,61 +268,133 @@ class CsvCreator {
                             issueData.getCreatedDate().orElseThrow(() -> new IllegalStateException("No createdDate available"));
 
                     for (final HistoricalDataEntry entry : historicalData) {
-                        final List<String> out = new ArrayList();
-                        for (int i = 0; i < historyFieldNamesSize; i++) {
-                            if (i != idx) {
-                                addEmptyChangeData(out, fieldsPerChangeEntry);
-                            } else {
-                                lastChangeDate = addChangeData(out, entry, temporalOutput, lastChangeDate);
-                            }
+                        if (!isAfter(entry.getChangeDate(), changedAfter)) {
+                            lastChangeDate = entry.getChangeDate();
+                            continue;
                         }
-                        final List<String> outList = new ArrayList<>(currentFieldEntries);
-                        outList.addAll(out);
-                        csvPrinter.printRecord(outList.toArray());
+                        this.row.appendCells(prefix);
+                        this.row.appendEmpty(idx * fieldsPerChangeEntry);
+                        lastChangeDate = addChangeData(this.row, entry, temporalOutput, lastChangeDate);
+                        this.row.appendEmpty((historyFieldNamesSize - idx - 1) * fieldsPerChangeEntry);
+                        this.row.writeRow(writer);
+                    }
+                }
+            }
+        } catch (final IOException e) {
+            throw new JiraAnalyzeException(e);
+        }
+    }
+
+    /**
+     * Prints one row per change with the issue key, the field name, the
+     * values and the change date and duration.
+     */
+    void printNarrowIssueData(final IssueData issueData,
+                              final List<FieldName> historyFieldNames,
+                              final LocalDateTime changedAfter) {
+        assert !Objects.isNull(issueData);
+        assert !Objects.isNull(historyFieldNames);
+        assert !Objects.isNull(this.keyPath);
+
+        if (issueData.getHistoricalCount() == 0) {
+            return;
+        }
+        try {
+            final Writer writer = getWriter();
+            final String key = objectToString(issueData.getCurrentIssueData(this.keyPath));
+            final int historyFieldNamesSize = historyFieldNames.size();
+            for (int idx = 0; idx < historyFieldNamesSize; idx++) {
+                final FieldName fieldName = historyFieldNames.get(idx);
+                LocalDateTime lastChangeDate =
+                        issueData.getCreatedDate().orElseThrow(() -> new IllegalStateException("No createdDate available"));
+
+                for (final HistoricalDataEntry entry : issueData.getHistoricalIssueData(fieldName)) {
+                    final LocalDateTime changeDate = entry.getChangeDate();
+                    if (isAfter(changeDate, changedAfter)) {
+                        this.row.append(key)
+                                .append(fieldName.asString())
+                                .append(entry.getFrom())
+                                .append(entry.getTo())
+                                .append(changeDate)
+                                .append(Duration.between(lastChangeDate, changeDate).toMillis());
+                        this.row.writeRow(writer);
                     }
+                    lastChangeDate = changeDate;
                 }
             }
+        } catch (final IOException e) {
+            throw new JiraAnalyzeException(e);
+        }
+    }
+
+    void printNarrowHeader() {
+        try {
+            for (final String name : NARROW_HEADER) {
+                this.row.append(name);
+            }
+            this.row.writeRow(getWriter());
+        } catch (final IOException e) {
+            throw new JiraAnalyzeException(e);
+        }
+    }
 
-            csvPrinter.flush();
+    /** Prints the current fields of the issue to the attributes writer if available. */
+    void printAttributes(final IssueData issueData, final List<FieldNamePath> currentFieldNames) {
+        assert !Objects.isNull(issueData);
+        assert !Objects.isNull(currentFieldNames);
+
+        if (this.attributesOut == null) {
+            return;
+        }
+        try {
+            if (this.attributesHeader) {
+                appendCurrentFieldHeader(this.row, currentFieldNames);
+                this.row.writeRow(this.attributesOut);
+                this.attributesHeader = false;
+            }
+            this.row.appendCells(encodeCurrentFields(issueData, currentFieldNames));
+            this.row.writeRow(this.attributesOut);
         } catch (final IOException e) {
             throw new JiraAnalyzeException(e);
         }
     }
 
-    LocalDateTime addChangeData(final List<String> out, final HistoricalDataEntry entry, final TemporalChangeOutput temporalOutput, final LocalDateTime lastChangeDate) {
-        out.add(entry.getFrom());
+    static boolean isAfter(final LocalDateTime dateTime, final LocalDateTime changedAfter) {
+        return changedAfter == null || (dateTime != null && dateTime.isAfter(changedAfter));
+    }
+
+    LocalDateTime addChangeData(final CsvRowEncoder out, final HistoricalDataEntry entry, final TemporalChangeOutput temporalOutput, final LocalDateTime lastChangeDate) {
+        out.append(entry.getFrom());
         final LocalDateTime changeDate = entry.getChangeDate();
         if (temporalOutput == TIME || temporalOutput == BOTH) {
-            out.add(localDateTimeToString(entry.getChangeDate()));
+            out.append(changeDate);
         }
         if (temporalOutput == DURATION || temporalOutput == BOTH) {
-            final Duration duration = Duration.between(lastChangeDate, changeDate);
-            final String dur = String.valueOf(duration.toMillis() /*/ MILLIS*/);
-            out.add(dur);
+            out.append(Duration.between(lastChangeDate, changeDate).toMillis());
         }
-        out.add(entry.getTo());
+        out.append(entry.getTo());
         return changeDate;
     }
 
-    void addEmptyChangeData(final List<String> out, final int fieldsPerChangeEntry) {
-        assert fieldsPerChangeEntry >= 0;
-        assert out != null;
-        for (int c = 0; c < fieldsPerChangeEntry; c++) {
-            out.add(EMPTY);
-        }
-    }
-    
-    List<String> fetchCurrentFieldEntries(final IssueData issueData, final List<FieldNamePath> currentFieldNames) {
+    /**
+     * Encodes the current field values of the issue once for all rows of the issue.
+     * @return the encoded cells. Valid until the next call.
+     */
+    CsvRowEncoder encodeCurrentFields(final IssueData issueData, final List<FieldNamePath> currentFieldNames) {
         assert !Objects.isNull(issueData);
         assert !Objects.isNull(currentFieldNames);
-        
-        final List<String> retval = new ArrayList<>();
-        
-        currentFieldNames.stream().map(path -> issueData.getCurrentIssueData(path)).forEach(value -> {
-            retval.add(objectToString(value));
-        });
-        
-        return Collections.unmodifiableList(retval);
+
+        this.currentFields.reset();
+        final int size = currentFieldNames.size();
+        for (int idx = 0; idx < size; idx++) {
+            final Object value = issueData.getCurrentIssueData(currentFieldNames.get(idx));
+            if (value instanceof LocalDateTime) {
+                this.currentFields.append((LocalDateTime) value);
+            } else {
+                this.currentFields.append(objectToString(value));
+            }
+        }
+        return this.currentFields;
     }
 
     String objectToString(final Object o) {
@@ -203,8 +421,7 @@ class CsvCreator {
         assert !Objects.isNull(temporalOutput);
         
         final List<String> headerNames = new ArrayList<>();
-        currentFieldNames.stream().map(FieldNamePath::asString)
-                                  .map(name -> name.replaceAll(FieldNamePath.DELIMITER, FIELDNAMEPATH_DELIMITER_REPALCEMENT))
+        currentFieldNames.stream().map(CsvCreator::currentFieldHeaderName)
                                   .forEach(name -> headerNames.add(name));
         historyFieldNames.stream().map(FieldName::asString)
                                   .forEach(name -> {
@@ -220,11 +437,18 @@ class CsvCreator {
                                       headerNames.add(HOSTORICAL_TO_PREFIX + name);
                                   });
         try {
-            final CSVPrinter csvPrinter = new CSVPrinter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), RFC4180);
-            csvPrinter.printRecord(headerNames.toArray());
-            csvPrinter.flush();
+            headerNames.forEach(this.row::append);
+            this.row.writeRow(getWriter());
         } catch (final IOException e) {
             throw new JiraAnalyzeException(e);
         }
     }
+
+    static void appendCurrentFieldHeader(final CsvRowEncoder encoder, final List<FieldNamePath> currentFieldNames) {
+        currentFieldNames.forEach(path -> encoder.append(currentFieldHeaderName(path)));
+    }
+
+    static String currentFieldHeaderName(final FieldNamePath path) {
+        return path.asString().replaceAll(FieldNamePath.DELIMITER, FIELDNAMEPATH_DELIMITER_REPALCEMENT);
+    }
 }
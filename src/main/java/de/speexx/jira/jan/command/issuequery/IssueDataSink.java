@@ -0,0 +1,47 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.command.issuequery;
+
+import de.speexx.jira.jan.service.issue.FieldName;
+import de.speexx.jira.jan.service.issue.FieldNamePath;
+import de.speexx.jira.jan.service.issue.IssueData;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Destination of the issue data of an <tt>issuequery</tt> run. The sink is
+ * chosen once per run by the output format. Closing the sink closes its
+ * outputs.
+ */
+interface IssueDataSink extends Closeable, Flushable {
+
+    /**
+     * Prints the changes of the history fields and the current fields of the issue.
+     * @param issueData the data of the issue. Must not be {@code null}.
+     * @param historyFieldNames the history fields to print. Must not be {@code null}.
+     * @param currentFieldNames the current fields to print. Must not be {@code null}.
+     * @param changedAfter only changes after this date are printed. All changes
+     *                     are printed if {@code null}.
+     */
+    void printIssueData(IssueData issueData,
+                        List<FieldName> historyFieldNames,
+                        List<FieldNamePath> currentFieldNames,
+                        LocalDateTime changedAfter);
+}
@@ -0,0 +1,58 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.command.issuequery;
+
+import com.beust.jcommander.IParameterValidator;
+import com.beust.jcommander.IStringConverter;
+import com.beust.jcommander.ParameterException;
+import static de.speexx.jira.jan.command.issuequery.ChangelogFieldFetcher.LAYOUT_PARAMETER_NAME_LONG;
+import static de.speexx.jira.jan.command.issuequery.ChangelogFieldFetcher.LAYOUT_VALUE_NARROW;
+import static de.speexx.jira.jan.command.issuequery.ChangelogFieldFetcher.LAYOUT_VALUE_WIDE;
+
+/**
+ * Converter and validator for the layout parameter.
+ */
+public final class LayoutParameterValidator implements IParameterValidator, IStringConverter<OutputLayout> {
+
+    /**
+     * Check if the given value for <tt>--layout</tt> is a known layout.
+     * @param parameter must be <tt>--layout</tt>
+     * @param value must be <tt>wide</tt> or <tt>narrow</tt>.
+     * @throws ParameterException if <em>value</em> is not a known layout.
+     */
+    @Override
+    public void validate(final String parameter, final String value) throws ParameterException {
+        if (LAYOUT_PARAMETER_NAME_LONG.equals(parameter)
+                && !LAYOUT_VALUE_WIDE.equalsIgnoreCase(value)
+                && !LAYOUT_VALUE_NARROW.equalsIgnoreCase(value)) {
+            throw new ParameterException("Illegal layout parameter value: " + value);
+        }
+    }
+
+    /**
+     * Transforms the layout parameter value into a type safe <tt>enum</tt>.
+     * If value doesn't match, the default layout ({@link OutputLayout#WIDE})
+     * will be returned.
+     * @param value the value to convert.
+     * @return a type safe <tt>enum</tt>.
+     */
+    @Override
+    public OutputLayout convert(final String value) {
+        return LAYOUT_VALUE_NARROW.equalsIgnoreCase(value) ? OutputLayout.NARROW : OutputLayout.WIDE;
+    }
+}
@@ -0,0 +1,36 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.command.issuequery;
+
+/**
+ * Defines the layout of the changelog information in the CSV output.
+ */
+enum OutputLayout {
+
+    /** With <tt>WIDE</tt> each change is one row with the current fields and
+     * a column group for each history field. Only the group of the changed
+     * field is filled.
+     */
+    WIDE,
+    /** With <tt>NARROW</tt> each change is one row with the columns
+     * <tt>key</tt>, <tt>field</tt>, <tt>from</tt>, <tt>to</tt>, <tt>at</tt> and
+     * <tt>duration</tt>. The current fields are written once per issue to an
+     * optional attributes file.
+     */
+    NARROW;
+}
@@ -18,43 +18,61 @@
 package de.speexx.jira.jan.command.transition;
 
 import com.atlassian.jira.rest.client.api.IssueRestClient;
-import com.atlassian.jira.rest.client.api.JiraRestClient;
-import com.atlassian.jira.rest.client.api.SearchRestClient;
 import com.atlassian.jira.rest.client.api.domain.ChangelogGroup;
-import com.atlassian.jira.rest.client.api.domain.ChangelogItem;
 import com.atlassian.jira.rest.client.api.domain.Issue;
 import com.atlassian.jira.rest.client.api.domain.IssueType;
 import com.atlassian.jira.rest.client.api.domain.Resolution;
-import com.atlassian.jira.rest.client.api.domain.SearchResult;
-import com.atlassian.util.concurrent.Promise;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
+import com.beust.jcommander.ParametersDelegate;
 import de.speexx.jira.jan.Command;
 import de.speexx.jira.jan.Config;
 import de.speexx.jira.jan.ExecutionContext;
 import de.speexx.jira.jan.JiraAnalyzeException;
+import de.speexx.jira.jan.command.ArrowRowWriter;
+import de.speexx.jira.jan.command.ArrowRowWriter.ColumnType;
+import de.speexx.jira.jan.command.CacheParameters;
+import de.speexx.jira.jan.command.CheckpointParameters;
+import de.speexx.jira.jan.command.CsvRowEncoder;
+import de.speexx.jira.jan.command.IncrementalParameters;
+import de.speexx.jira.jan.command.OutputFormat;
+import de.speexx.jira.jan.command.OutputParameters;
+import de.speexx.jira.jan.command.SearchPagingParameters;
+import de.speexx.jira.jan.service.fetch.CachingPageResolver;
+import de.speexx.jira.jan.service.fetch.Checkpoint;
+import de.speexx.jira.jan.service.fetch.ExpandedSearchResult;
+import de.speexx.jira.jan.service.fetch.ExtendedJiraRestClient;
+import de.speexx.jira.jan.service.fetch.HighWaterMark;
+import de.speexx.jira.jan.service.fetch.SearchPageIterator;
+import de.speexx.jira.jan.service.issue.ChangelogIndex;
+import de.speexx.jira.jan.service.issue.FieldName;
+import de.speexx.jira.jan.service.issue.FieldNameService;
+import de.speexx.jira.jan.service.issue.IssueFieldService;
+import de.speexx.jira.jan.service.stats.RunStatistics;
+import de.speexx.jira.jan.service.stats.RunStatistics.Phase;
+import de.speexx.jira.jan.service.symbol.SymbolTable;
+import static de.speexx.jira.jan.service.fetch.ExpandingSearchRestClient.EXPAND_CHANGELOG;
+import static de.speexx.jira.jan.service.fetch.ExpandingSearchRestClient.EXPAND_NAMES;
 import de.speexx.jira.jan.service.time.TimeConverterService;
+import java.io.Closeable;
+import java.io.Flushable;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.nio.charset.StandardCharsets;
+import java.io.Writer;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicBoolean;
 import javax.inject.Inject;
 import org.joda.time.DateTime;
-import static org.apache.commons.csv.CSVFormat.RFC4180;
-import org.apache.commons.csv.CSVPrinter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import static java.util.stream.Collectors.joining;
 
 
 @Parameters(commandNames = {"transitions"}, commandDescription = "Fetch all transition changes of issues form JIRA and exports into a normalized structure.")
@@ -64,15 +82,53 @@ public class IssueTransitionFetcher implements Command {
 
     static final String CREATED_STAGE = "created";
     static final String STATUS_CHANGELOG_ENTRY = "status";
+    static final FieldName STATUS_FIELD_NAME = new FieldNameService().createFieldName(STATUS_CHANGELOG_ENTRY);
+    static final List<FieldName> STATUS_FIELD_NAMES = Collections.singletonList(STATUS_FIELD_NAME);
+
+    static final String[] CSV_HEADER = new String[] {"issue-key", "type", "issue-creation-datetime", "priority", "resolution", "from-stage", "stage", "stage-enter-datetime", "stage-duration"};
+
+    static final List<ArrowRowWriter.Column> ARROW_COLUMNS = Collections.unmodifiableList(Arrays.asList(
+            new ArrowRowWriter.Column(CSV_HEADER[0], ColumnType.STRING),
+            new ArrowRowWriter.Column(CSV_HEADER[1], ColumnType.DICTIONARY),
+            new ArrowRowWriter.Column(CSV_HEADER[2], ColumnType.TIMESTAMP),
+            new ArrowRowWriter.Column(CSV_HEADER[3], ColumnType.DICTIONARY),
+            new ArrowRowWriter.Column(CSV_HEADER[4], ColumnType.DICTIONARY),
+            new ArrowRowWriter.Column(CSV_HEADER[5], ColumnType.DICTIONARY),
+            new ArrowRowWriter.Column(CSV_HEADER[6], ColumnType.DICTIONARY),
+            new ArrowRowWriter.Column(CSV_HEADER[7], ColumnType.TIMESTAMP),
+            new ArrowRowWriter.Column(CSV_HEADER[8], ColumnType.INT64)));
+
+    static final Set<String> SEARCH_FIELDS = Collections.unmodifiableSet(new HashSet<>(
+            Arrays.asList("summary", "issuetype", "created", "updated", "project", "status", "priority", "resolution")));
+    static final Set<String> SEARCH_EXPAND = 
+            Collections.unmodifiableSet(new HashSet<>(Arrays.asList(EXPAND_CHANGELOG, EXPAND_NAMES)));
 
     @Inject @Config
     private ExecutionContext execCtx;
     
     @Inject
     private TimeConverterService timeConverter;
+
+    @Inject
+    private IssueFieldService issueFieldService;
     
-    @Parameter(names = {"-l", "--limit"}, hidden = true, description = "Fetch size limit.")
-    private int fetchLimit = 100;
+    @ParametersDelegate
+    private final SearchPagingParameters paging = new SearchPagingParameters();
+
+    private final CsvRowEncoder row = new CsvRowEncoder();
+    private final CsvRowEncoder issueCells = new CsvRowEncoder();
+
+    @ParametersDelegate
+    private final OutputParameters output = new OutputParameters();
+
+    @ParametersDelegate
+    private final CacheParameters cacheParameters = new CacheParameters();
+
+    @ParametersDelegate
+    private final IncrementalParameters incremental = new IncrementalParameters();
+
+    @ParametersDelegate
+    private final CheckpointParameters checkpointParameters = new CheckpointParameters();
 
     @Parameter(description = "The query for the transitions. "
                            + "The query should be surrounded with quotation marks or apostrophs. "
@@ -82,43 +138,92 @@ public class IssueTransitionFetcher implements Command {
 
     @Override
     public void execute() {
-        
+        final String fullQuery = SearchPagingParameters.joinQuery(this.query).orElseThrow(() -> new JiraAnalyzeException("No query given for fetching transitions"));
         int count = 0;
-        int startIndex = 0;
-        int total = -1;
         
-        final List<IssueInfo> issueInfos = new ArrayList<>();
-
-        final AtomicBoolean header = new AtomicBoolean(false);
-        try (final JiraRestClient restClient = this.execCtx.newJiraClient()) {
-            do {
-                final String q = getQuery().orElseThrow(() -> new JiraAnalyzeException("No query given for fetching transitions"));
-                final SearchResult searchResult = fetchIssues(restClient, q, startIndex);
-                total = total == -1 ? searchResult.getTotal() : total;
-                startIndex += getFetchLimit();
-
-                for (final Issue searchResultIssue : searchResult.getIssues()) {
-                    count++;
-                    final Issue issue = fetchIssueForSearchResult(restClient, searchResultIssue);
-                    final Iterable<ChangelogGroup> changeLogs = issue.getChangelog();
-
-                    final Optional<IssueInfo> issueInfo = handleChangeLog(changeLogs, issue);
-                    issueInfo.ifPresent(info -> {
-                            info.issueType = fetchIssueType(issue);
-                            info.key = issue.getKey();
-                            info.resolution = fetchResolution(issue);
-                            info.priority = fetchPriority(issue);
-                            info.created = fetchCreationDateTime(issue);
-                            issueInfos.add(info);
-                            this.execCtx.log("ISSUE INFO: {}", info);
-                    });
+        this.checkpointParameters.validate(this.output);
+        this.output.validateFormat(this.incremental.isIncremental() || this.checkpointParameters.isCheckpointing());
+        final ExtendedJiraRestClient restClient = this.execCtx.getJiraClient(this.paging.getPrefetchDepth() + 1);
+        final RunStatistics statistics = this.execCtx.getStatistics();
+        try {
+            final Optional<Checkpoint> resumed = this.checkpointParameters.readForResume(fullQuery);
+            if (resumed.isPresent()) {
+                this.execCtx.log("Resuming from {}", resumed.get());
+                this.output.truncate(resumed.get().getOffset());
+                count = resumed.get().getCount();
+            }
+            final boolean append = this.incremental.isIncremental() || resumed.isPresent();
+            try (final TransitionSink sink = newSink(append)) {
+                final Optional<HighWaterMark> since = this.incremental.readMark().filter(mark -> !mark.isEmpty());
+                final HighWaterMark seen = resumed.map(Checkpoint::getSeen)
+                                                  .orElseGet(() -> since.map(HighWaterMark::new).orElseGet(HighWaterMark::new));
+                final HighWaterMark restriction = resumed.map(Checkpoint::getSince).orElseGet(() -> since.orElseGet(HighWaterMark::new));
+                final String q = restriction.restrictQuery(fullQuery, System.currentTimeMillis());
+                since.ifPresent(mark -> this.execCtx.log("Incremental query since {}: {}", mark, q));
+
+                final Optional<CachingPageResolver> cachingResolver = this.cacheParameters.openCache().map(
+                        cache -> CachingPageResolver.create(cache, restClient, SEARCH_FIELDS, SEARCH_EXPAND));
+                final int startAt = resumed.map(Checkpoint::getResumeStartAt).orElse(0);
+                final SearchPageIterator pages = cachingResolver.isPresent()
+                        ? this.paging.pages(restClient, q, CachingPageResolver.PAGE_FIELDS, CachingPageResolver.PAGE_EXPAND, startAt)
+                        : this.paging.pages(restClient, q, SEARCH_FIELDS, SEARCH_EXPAND, startAt);
+                boolean firstPage = true;
+                while (pages.hasNext()) {
+                    final ExpandedSearchResult page = pages.next();
+                    final ExpandedSearchResult searchResult = cachingResolver.isPresent() ? cachingResolver.get().resolve(page) : page;
+                    final Iterable<Issue> issues = firstPage && resumed.isPresent()
+                            ? resumed.get().skipProcessed(searchResult.getIssues())
+                            : searchResult.getIssues();
+                    firstPage = false;
+
+                    for (final Issue searchResultIssue : issues) {
+                        count++;
+                        if (since.isPresent() && !since.get().isNewer(searchResultIssue.getUpdateDate())) {
+                            continue;
+                        }
+                        final Issue issue = searchResult.isChangelogTruncated(searchResultIssue)
+                                                ? fetchIssueForSearchResult(restClient, searchResultIssue)
+                                                : searchResultIssue;
+                        seen.observe(issue);
+                        final Iterable<ChangelogGroup> changeLogs = issue.getChangelog();
+
+                        final Optional<IssueInfo> issueInfo = statistics.call(Phase.EXTRACT, () -> {
+                            final Optional<IssueInfo> extracted = handleChangeLog(changeLogs, issue);
+                            extracted.ifPresent(info -> {
+                                info.issueType = fetchIssueType(issue);
+                                info.key = issue.getKey();
+                                info.resolution = fetchResolution(issue);
+                                info.priority = fetchPriority(issue);
+                                info.created = fetchCreationDateTime(issue);
+                            });
+                            return extracted;
+                        });
+                        issueInfo.ifPresent(info -> {
+                                this.execCtx.log("ISSUE INFO: {}", info);
+                                final LocalDateTime changedAfter = since.map(mark -> changedAfter(mark, issue)).orElse(null);
+                                statistics.run(Phase.WRITE, () -> sink.printIssueInfo(info, changedAfter));
+                        });
+                        if (isFlushRequired(count)) {
+                            sink.flush();
+                        }
+                    }
+                    if (this.checkpointParameters.isCheckpointing()) {
+                        sink.flush();
+                        this.checkpointParameters.write(Checkpoint.afterPage(fullQuery, restriction, page, this.output.size(), count, seen));
+                    }
+                    this.execCtx.log("total: {} - count: {}", pages.getTotal(), count);
                 }
-                this.execCtx.log("total: {} - count: {}", total, count);
-            } while (total != count);
+                sink.flush();
+                this.incremental.writeMark(seen);
+                cachingResolver.ifPresent(resolver -> {
+                    statistics.addCacheUsage(resolver.getCache().getHits(), resolver.getCache().getMisses());
+                    this.execCtx.log("Cache: {}", resolver.getCache());
+                });
+            }
+            this.checkpointParameters.delete();
         } catch (final IOException e) {
             throw new JiraAnalyzeException(e);
         }
-        exportAsCsv(issueInfos, header);
     }
 
     LocalDateTime fetchCreationDateTime(final Issue issue) {
@@ -128,7 +233,7 @@ public class IssueTransitionFetcher implements Command {
     
     String fetchPriority(final Issue issue) {
         assert Objects.nonNull(issue);
-        return issue.getPriority().getName();
+        return this.execCtx.getSymbolTable().canonical(issue.getPriority().getName());
     }
 
     Optional<IssueInfo> handleChangeLog(final Iterable<ChangelogGroup> changeLogs, final Issue issue) {
@@ -136,21 +241,16 @@ public class IssueTransitionFetcher implements Command {
 
         if (changeLogs != null) {
             final IssueInfo info = new IssueInfo();
-            for (final ChangelogGroup changeLog : changeLogs) {
-                for (final ChangelogItem item : changeLog.getItems()) {
-                    final String fieldName = item.getField();
-                    
-                    if (STATUS_CHANGELOG_ENTRY.equalsIgnoreCase(fieldName)) {
-                        final StageInfo si = new StageInfo();
-
-                        final String name = item.getToString();
-                        if (name != null) {
-                            si.stageName = name;
-                            si.fromStageName = item.getFromString();
-                            si.stageStart = extractChangeLogCreateDateToAsDateTime(changeLog);
-                            info.stageInfos.add(si);
-                        }
-                    }
+            final SymbolTable symbols = this.execCtx.getSymbolTable();
+            final ChangelogIndex index = this.issueFieldService.indexChangelog(changeLogs, STATUS_FIELD_NAMES);
+            for (final ChangelogIndex.Change change : index.getTimeline(STATUS_FIELD_NAME)) {
+                final String name = change.getToString();
+                if (name != null) {
+                    final StageInfo si = new StageInfo();
+                    si.stageName = symbols.canonical(name);
+                    si.fromStageName = symbols.canonical(change.getFromString());
+                    si.stageStart = change.getCreated();
+                    info.stageInfos.add(si);
                 }
             }
             return Optional.of(info);
@@ -160,80 +260,133 @@ public class IssueTransitionFetcher implements Command {
         return Optional.empty();
     }
 
-    void exportAsCsv(final List<IssueInfo> issues, final AtomicBoolean doHeader) {
+    boolean isFlushRequired(final int count) {
+        final int flushInterval = this.output.getFlushInterval();
+        return flushInterval > 0 && count % flushInterval == 0;
+    }
+
+    void printHeader(final Writer out) throws IOException {
+        assert out != null;
+        for (final String name : CSV_HEADER) {
+            this.row.append(name);
+        }
+        this.row.writeRow(out);
+    }
+
+    void printIssueInfo(final Writer out, final IssueInfo info) {
+        printIssueInfo(out, info, null);
+    }
+
+    /**
+     * Prints only the stages entered after <em>changedAfter</em>. All stages
+     * are printed if <em>changedAfter</em> is {@code null}. The issue cells
+     * are encoded once for all stages of the issue.
+     */
+    void printIssueInfo(final Writer out, final IssueInfo info, final LocalDateTime changedAfter) {
+        assert out != null;
+        assert info != null;
+
+        this.issueCells.reset();
+        this.issueCells.append(info.key)
+                       .append(info.issueType)
+                       .append(info.created)
+                       .append(info.priority)
+                       .append(resolutionAdjustment(info));
+
         try {
-            final CSVPrinter csvPrinter = new CSVPrinter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), RFC4180);
-                        
-            final String[] header = new String[] {"issue-key", "type", "issue-creation-datetime", "priority", "resolution", "from-stage", "stage", "stage-enter-datetime", "stage-duration"};
-            
-            if (!doHeader.get()) {
-                csvPrinter.printRecord((Object[]) header);
-                doHeader.set(true);
+            for (final StageDuration stageDuration : info.stageInfoAsDuration()) {
+                if (changedAfter != null && !stageDuration.stageStart.isAfter(changedAfter)) {
+                    continue;
+                }
+                this.row.appendCells(this.issueCells)
+                        .append(stageDuration.fromStageName)
+                        .append(stageDuration.stageName)
+                        .append(stageDuration.stageStart)
+                        .append(stageDuration.getDurationSeconds());
+                this.row.writeRow(out);
             }
-            
-            issues.forEach(info -> {
-                info.stageInfoAsDuration().forEach(stageDuration -> {
-
-                    final String[] values = new String[header.length];
-                    values[0] = info.key;
-                    values[1] = info.issueType;
-                    values[2] = DateTimeFormatter.ISO_DATE_TIME.format(info.created);
-                    values[3] = info.priority;
-                    values[4] = resolutionAdjustment(info);
-
-                    values[5] = stageDuration.fromStageName != null ? "" + stageDuration.fromStageName : "";
-                    values[6] = "" + stageDuration.stageName;
-                    values[7] = DateTimeFormatter.ISO_DATE_TIME.format(stageDuration.stageStart);
-                    values[8] = "" + stageDuration.getDurationSeconds();
-
-                    try {
-                        csvPrinter.printRecord((Object[]) values);
-                    } catch (final IOException e) {
-                       throw new JiraAnalyzeException(e);
-                    }
-                });
-            });
-            csvPrinter.flush();
-            
         } catch (final IOException e) {
-           throw new JiraAnalyzeException(e);
+            throw new JiraAnalyzeException(e);
+        }
+    }
+
+    /**
+     * Prints the stages like {@link #printIssueInfo(Writer, IssueInfo, LocalDateTime)}
+     * as typed Arrow rows. A missing resolution is a null cell.
+     */
+    void printIssueInfo(final ArrowRowWriter out, final IssueInfo info, final LocalDateTime changedAfter) {
+        assert out != null;
+        assert info != null;
+
+        try {
+            for (final StageDuration stageDuration : info.stageInfoAsDuration()) {
+                if (changedAfter != null && !stageDuration.stageStart.isAfter(changedAfter)) {
+                    continue;
+                }
+                out.append(info.key)
+                   .append(info.issueType)
+                   .append(info.created)
+                   .append(info.priority)
+                   .append(info.resolution)
+                   .append(stageDuration.fromStageName)
+                   .append(stageDuration.stageName)
+                   .append(stageDuration.stageStart)
+                   .append(stageDuration.getDurationSeconds());
+                out.endRow();
+            }
+        } catch (final IOException e) {
+            throw new JiraAnalyzeException(e);
+        }
+    }
+
+    ArrowRowWriter newArrowWriter() throws IOException {
+        return new ArrowRowWriter(ARROW_COLUMNS, this.output.newOutputStream(), ArrowRowWriter.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates the sink of the output format. The CSV header is printed
+     * unless existing output is appended.
+     * @param append {@code true} to append to existing output.
+     * @return the sink. The caller is responsible for closing the sink.
+     */
+    TransitionSink newSink(final boolean append) throws IOException {
+        if (this.output.getFormat() == OutputFormat.ARROW) {
+            return new ArrowTransitionSink(newArrowWriter());
+        }
+        final boolean header = !(append && this.output.hasContent());
+        final Writer out = this.output.newWriter(append);
+        try {
+            if (header) {
+                printHeader(out);
+            }
+        } catch (final IOException | RuntimeException e) {
+            OutputParameters.closeOnFailure(e, out);
+            throw e;
         }
-    } 
+        return new CsvTransitionSink(out);
+    }
 
     static String resolutionAdjustment(final IssueInfo info) {
         return info.resolution != null ? info.resolution : "";
     }
 
-    LocalDateTime extractChangeLogCreateDateToAsDateTime(final ChangelogGroup changeLog) {
-        final DateTime dt = changeLog.getCreated();
-        return createLocalDateTime(dt);
+    /** @return the mark as local date time in the zone of the issue dates. */
+    LocalDateTime changedAfter(final HighWaterMark mark, final Issue issue) {
+        assert mark != null;
+        assert issue != null;
+        return createLocalDateTime(mark.toDateTime(issue.getUpdateDate().getZone()));
     }
 
-    Issue fetchIssueForSearchResult(final JiraRestClient restClient, final Issue searchResultIssue) {
+    Issue fetchIssueForSearchResult(final ExtendedJiraRestClient restClient, final Issue searchResultIssue) {
+        this.execCtx.log("Changelog of issue {} truncated in search result", searchResultIssue.getKey());
+
         final Set<IssueRestClient.Expandos> expandos = new HashSet<>();
         expandos.add(IssueRestClient.Expandos.NAMES);
         expandos.add(IssueRestClient.Expandos.CHANGELOG);
 
         final IssueRestClient issueClient = restClient.getIssueClient();
-        final Promise<Issue> issueResult = issueClient.getIssue(searchResultIssue.getKey(), expandos);
-        return issueResult.claim();
-    }
-
-    SearchResult fetchIssues(final JiraRestClient restClient, String q, int startIndex) {
-        final SearchRestClient searchClient = restClient.getSearchClient();
-        final Promise<SearchResult> results = searchClient.searchJql(q, getFetchLimit(), startIndex, null);
-        return results.claim();
-    }
-    
-    int getFetchLimit() {
-        return this.fetchLimit;
-    }
-    
-    Optional<String> getQuery() {
-        if (this.query == null || this.query.isEmpty()) {
-            return Optional.empty();
-        }
-        return Optional.of(this.query.stream().collect(joining(" ")));
+        return restClient.getRetryPolicy().call(() -> restClient.getGovernor().submit(
+                () -> this.execCtx.getStatistics().request(Phase.ISSUE, issueClient.getIssue(searchResultIssue.getKey(), expandos))));
     }
 
     LocalDate createLocalDate(final DateTime dt) {
@@ -251,7 +404,7 @@ public class IssueTransitionFetcher implements Command {
         if (issue != null) {
             final IssueType type = issue.getIssueType();
             if (type != null) {
-                return type.getName().intern();
+                return this.execCtx.getSymbolTable().canonical(type.getName());
             }
         }
         return null;
@@ -261,12 +414,73 @@ public class IssueTransitionFetcher implements Command {
         if (issue != null) {
             final Resolution resolution = issue.getResolution();
             if (resolution != null) {
-                return resolution.getName().intern();
+                return this.execCtx.getSymbolTable().canonical(resolution.getName());
             }
         }
         return null;
     }
     
+    /** Destination of the transition rows of a run. Closing the sink closes its output. */
+    interface TransitionSink extends Closeable, Flushable {
+
+        /**
+         * Prints the stages of the issue.
+         * @param changedAfter only stages entered after this date are printed.
+         *                     All stages are printed if {@code null}.
+         */
+        void printIssueInfo(IssueInfo info, LocalDateTime changedAfter);
+    }
+
+    final class CsvTransitionSink implements TransitionSink {
+
+        private final Writer out;
+
+        CsvTransitionSink(final Writer out) {
+            assert out != null;
+            this.out = out;
+        }
+
+        @Override
+        public void printIssueInfo(final IssueInfo info, final LocalDateTime changedAfter) {
+            IssueTransitionFetcher.this.printIssueInfo(this.out, info, changedAfter);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            this.out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.out.close();
+        }
+    }
+
+    final class ArrowTransitionSink implements TransitionSink {
+
+        private final ArrowRowWriter out;
+
+        ArrowTransitionSink(final ArrowRowWriter out) {
+            assert out != null;
+            this.out = out;
+        }
+
+        @Override
+        public void printIssueInfo(final IssueInfo info, final LocalDateTime changedAfter) {
+            IssueTransitionFetcher.this.printIssueInfo(this.out, info, changedAfter);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            this.out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.out.close();
+        }
+    }
+
     static final class IssueInfo {
         String issueType;
         String key;
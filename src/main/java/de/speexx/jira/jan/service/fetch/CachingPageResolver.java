@@ -0,0 +1,195 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.fetch;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import com.atlassian.jira.rest.client.api.domain.SearchResult;
+import com.atlassian.util.concurrent.Promise;
+import de.speexx.jira.jan.service.issue.IssueFieldProjectionService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Resolves the issues of a search result page with the help of an
+ * {@link IssueCache}. The page only needs the <tt>updated</tt> value of the
+ * issues. Issues with an up to date cache entry are served from the cache.
+ * All other issues of the page are fetched with a single search by key and
+ * stored in the cache.
+ * <p>Issues with a truncated changelog are not cached. The result page
+ * reports them as truncated.</p>
+ */
+public final class CachingPageResolver {
+
+    /** Fields of the pages to resolve. Only the fields required to parse an issue. */
+    public static final Set<String> PAGE_FIELDS = IssueFieldProjectionService.REQUIRED_FIELD_IDS;
+    /** Expands of the pages to resolve. */
+    public static final Set<String> PAGE_EXPAND = Collections.emptySet();
+
+    static final String KEY_JQL_PREFIX = "key in (";
+    static final String KEY_JQL_SUFFIX = ")";
+    static final String KEY_JQL_DELIMITER = ",";
+
+    /** Searches the issues of a JQL query with the fields and expands to cache. */
+    @FunctionalInterface
+    public interface IssueSearch {
+        Promise<ExpandedSearchResult> search(String jql, int maxResults, int startAt);
+    }
+
+    private final IssueCache cache;
+    private final IssueSearch issueSearch;
+    private final Set<String> fields;
+    private final Set<String> expand;
+    private final RetryPolicy retryPolicy;
+
+    /**
+     * @param cache the cache. Must not be {@code null}.
+     * @param issueSearch searches the issues missing in the cache. Must not be {@code null}.
+     *                    The search must contain the JSON of the issues.
+     * @param fields the fields the missing issues are fetched with. Must not be {@code null}.
+     * @param expand the expands the missing issues are fetched with. Must not be {@code null}.
+     */
+    public CachingPageResolver(final IssueCache cache, final IssueSearch issueSearch, final Set<String> fields, final Set<String> expand) {
+        this(cache, issueSearch, fields, expand, RetryPolicy.none());
+    }
+
+    /**
+     * @param cache the cache. Must not be {@code null}.
+     * @param issueSearch searches the issues missing in the cache. Must not be {@code null}.
+     *                    The search must contain the JSON of the issues.
+     * @param fields the fields the missing issues are fetched with. Must not be {@code null}.
+     * @param expand the expands the missing issues are fetched with. Must not be {@code null}.
+     * @param retryPolicy repeats failed searches. Must not be {@code null}.
+     */
+    public CachingPageResolver(final IssueCache cache,
+                               final IssueSearch issueSearch,
+                               final Set<String> fields,
+                               final Set<String> expand,
+                               final RetryPolicy retryPolicy) {
+        this.cache = Objects.requireNonNull(cache, "cache is null");
+        this.issueSearch = Objects.requireNonNull(issueSearch, "issueSearch is null");
+        this.fields = Objects.requireNonNull(fields, "fields is null");
+        this.expand = Objects.requireNonNull(expand, "expand is null");
+        this.retryPolicy = Objects.requireNonNull(retryPolicy, "retryPolicy is null");
+    }
+
+    /**
+     * Creates a resolver which fetches the missing issues with the given client.
+     * @param cache the cache. Must not be {@code null}.
+     * @param restClient the client to fetch the missing issues with. Must not be {@code null}.
+     * @param fields the fields the missing issues are fetched with. Must not be {@code null}.
+     * @param expand the expands the missing issues are fetched with. Must not be {@code null}.
+     * @return a new resolver.
+     */
+    public static CachingPageResolver create(final IssueCache cache,
+                                             final ExtendedJiraRestClient restClient,
+                                             final Set<String> fields,
+                                             final Set<String> expand) {
+        Objects.requireNonNull(restClient, "restClient is null");
+        final ExpandingSearchRestClient searchClient = restClient.getExpandingSearchClient();
+        return new CachingPageResolver(cache,
+                                       (jql, maxResults, startAt) -> searchClient.searchJql(jql, maxResults, startAt, fields, expand, true),
+                                       fields,
+                                       expand,
+                                       restClient.getRetryPolicy());
+    }
+
+    /**
+     * Resolves the full issues of the given page.
+     * @param page a search result page containing at least the <tt>updated</tt>
+     *             value of the issues. Must not be {@code null}.
+     * @return a page with the full issues in the order of the given page.
+     *         Issues not found anymore are missing.
+     */
+    public ExpandedSearchResult resolve(final ExpandedSearchResult page) {
+        Objects.requireNonNull(page, "page is null");
+
+        final List<Issue> pageIssues = new ArrayList<>();
+        final Map<String, Issue> resolved = new HashMap<>();
+        final List<String> missingKeys = new ArrayList<>();
+        for (final Issue pageIssue : page.getIssues()) {
+            pageIssues.add(pageIssue);
+            final String key = pageIssue.getKey();
+            final Optional<Issue> cached = pageIssue.getUpdateDate() == null
+                                               ? Optional.empty()
+                                               : this.cache.get(key, pageIssue.getUpdateDate(), this.fields, this.expand);
+            if (cached.isPresent()) {
+                resolved.put(key, cached.get());
+            } else {
+                missingKeys.add(key);
+            }
+        }
+
+        final Set<String> truncated = new HashSet<>();
+        if (!missingKeys.isEmpty()) {
+            fetchMissing(missingKeys, resolved, truncated);
+        }
+
+        final List<Issue> issues = new ArrayList<>(pageIssues.size());
+        pageIssues.stream().map(issue -> resolved.get(issue.getKey()))
+                           .filter(Objects::nonNull)
+                           .forEach(issues::add);
+        final SearchResult searchResult = page.getSearchResult();
+        return new ExpandedSearchResult(new SearchResult(searchResult.getStartIndex(), searchResult.getMaxResults(), searchResult.getTotal(), issues), truncated);
+    }
+
+    void fetchMissing(final List<String> missingKeys, final Map<String, Issue> resolved, final Set<String> truncated) {
+        assert missingKeys != null;
+        assert resolved != null;
+        assert truncated != null;
+
+        final String jql = createKeyJql(missingKeys);
+        int count = 0;
+        int total;
+        do {
+            final int startAt = count;
+            final ExpandedSearchResult result = this.retryPolicy.call(() -> this.issueSearch.search(jql, missingKeys.size(), startAt));
+            total = result.getTotal();
+            final int before = count;
+            for (final Issue issue : result.getIssues()) {
+                count++;
+                resolved.put(issue.getKey(), issue);
+                if (result.isChangelogTruncated(issue)) {
+                    truncated.add(issue.getKey());
+                } else if (issue.getUpdateDate() != null) {
+                    result.getIssueJson(issue).ifPresent(json -> this.cache.put(issue.getKey(), issue.getUpdateDate(), this.fields, this.expand, json));
+                }
+            }
+            if (before == count) {
+                break;
+            }
+        } while (count < total);
+    }
+
+    static String createKeyJql(final List<String> keys) {
+        assert keys != null && !keys.isEmpty();
+        return keys.stream().map(key -> '"' + key.replace("\"", "\\\"") + '"')
+                            .collect(joining(KEY_JQL_DELIMITER, KEY_JQL_PREFIX, KEY_JQL_SUFFIX));
+    }
+
+    public IssueCache getCache() {
+        return this.cache;
+    }
+}
@@ -0,0 +1,260 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.fetch;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Properties;
+
+/**
+ * The progress of an export after a completely written search result page.
+ * A checkpoint records the cursor of the next page, the key of the last
+ * processed issue, the byte offset of the output after the last consistent
+ * record and the high-water mark of the exported issues. An interrupted
+ * export continues with the issue following the last processed issue and
+ * truncates the output to the recorded offset.
+ * <p>The checkpoint is resumed one issue before the cursor. If the first
+ * resumed issue is the last processed issue the search result is unchanged
+ * and the issue is {@link #skipProcessed(Iterable) skipped}.</p>
+ * <p>An incremental export records the mark its query is restricted to, not
+ * the restricted query. The relative <tt>updated</tt> clause of the query is
+ * computed again on resume, so the lower bound of the window stays the same
+ * however late the export is resumed.</p>
+ */
+public final class Checkpoint {
+
+    static final String JQL_KEY = "jql";
+    static final String SINCE_KEY = "since";
+    static final String START_AT_KEY = "startAt";
+    static final String LAST_KEY_KEY = "lastKey";
+    static final String OFFSET_KEY = "offset";
+    static final String COUNT_KEY = "count";
+
+    private final String jql;
+    private final HighWaterMark since;
+    private final int startAt;
+    private final String lastKey;
+    private final long offset;
+    private final int count;
+    private final HighWaterMark seen;
+
+    /**
+     * @param jql the query given by the user. Must not be {@code null}.
+     * @param since the mark the query is restricted to. Empty for an unrestricted query.
+     *              Must not be {@code null}.
+     * @param startAt the index of the first issue of the next page. Must not be negative.
+     * @param lastKey the key of the last processed issue. {@code null} if no issue was processed.
+     * @param offset the size of the output in bytes. Must not be negative.
+     * @param count the count of processed issues.
+     * @param seen the high-water mark of the processed issues. Must not be {@code null}.
+     */
+    public Checkpoint(final String jql,
+                      final HighWaterMark since,
+                      final int startAt,
+                      final String lastKey,
+                      final long offset,
+                      final int count,
+                      final HighWaterMark seen) {
+        this.jql = Objects.requireNonNull(jql, "jql is null");
+        this.since = new HighWaterMark(Objects.requireNonNull(since, "since is null"));
+        if (startAt < 0) {
+            throw new IllegalArgumentException("Start index must not be negative: " + startAt);
+        }
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset must not be negative: " + offset);
+        }
+        this.startAt = startAt;
+        this.lastKey = lastKey;
+        this.offset = offset;
+        this.count = count;
+        this.seen = new HighWaterMark(Objects.requireNonNull(seen, "seen is null"));
+    }
+
+    /**
+     * Creates the checkpoint after the given page is written completely.
+     * @param jql the query given by the user. Must not be {@code null}.
+     * @param since the mark the query is restricted to. Empty for an unrestricted query.
+     *              Must not be {@code null}.
+     * @param page the written page. Must not be {@code null}.
+     * @param offset the size of the output in bytes after the page.
+     * @param count the count of processed issues.
+     * @param seen the high-water mark of the processed issues. Must not be {@code null}.
+     * @return the checkpoint.
+     */
+    public static Checkpoint afterPage(final String jql,
+                                       final HighWaterMark since,
+                                       final ExpandedSearchResult page,
+                                       final long offset,
+                                       final int count,
+                                       final HighWaterMark seen) {
+        Objects.requireNonNull(page, "page is null");
+        int issues = 0;
+        String lastKey = null;
+        for (final Issue issue : page.getIssues()) {
+            issues++;
+            lastKey = issue.getKey();
+        }
+        return new Checkpoint(jql, since, page.getSearchResult().getStartIndex() + issues, lastKey, offset, count, seen);
+    }
+
+    /**
+     * Reads the checkpoint from the given file.
+     * @param checkpointFile the file. Must not be {@code null}.
+     * @return the checkpoint or an empty Optional if the file doesn't exist.
+     * @throws IOException if and only if the file can't be read or is corrupt.
+     */
+    public static Optional<Checkpoint> read(final Path checkpointFile) throws IOException {
+        Objects.requireNonNull(checkpointFile, "checkpointFile is null");
+        if (!Files.exists(checkpointFile)) {
+            return Optional.empty();
+        }
+        final Properties state = new Properties();
+        try (final InputStream in = Files.newInputStream(checkpointFile)) {
+            state.load(in);
+        }
+        try {
+            final String since = state.getProperty(SINCE_KEY);
+            return Optional.of(new Checkpoint(required(state, JQL_KEY),
+                                              since == null ? new HighWaterMark()
+                                                            : new HighWaterMark(Long.parseLong(since.trim()), HighWaterMark.NONE),
+                                              Integer.parseInt(required(state, START_AT_KEY).trim()),
+                                              state.getProperty(LAST_KEY_KEY),
+                                              Long.parseLong(required(state, OFFSET_KEY).trim()),
+                                              Integer.parseInt(required(state, COUNT_KEY).trim()),
+                                              HighWaterMark.load(state)));
+        } catch (final IllegalArgumentException e) {
+            throw new IOException("Corrupt checkpoint file " + checkpointFile + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes the checkpoint to the given file. The file is replaced only
+     * after the checkpoint is written completely.
+     * @param checkpointFile the file. Must not be {@code null}.
+     * @throws IOException if and only if the file can't be written.
+     */
+    public void write(final Path checkpointFile) throws IOException {
+        Objects.requireNonNull(checkpointFile, "checkpointFile is null");
+        final Properties state = new Properties();
+        state.setProperty(JQL_KEY, this.jql);
+        if (!this.since.isEmpty()) {
+            state.setProperty(SINCE_KEY, String.valueOf(this.since.getMillis()));
+        }
+        state.setProperty(START_AT_KEY, String.valueOf(this.startAt));
+        if (this.lastKey != null) {
+            state.setProperty(LAST_KEY_KEY, this.lastKey);
+        }
+        state.setProperty(OFFSET_KEY, String.valueOf(this.offset));
+        state.setProperty(COUNT_KEY, String.valueOf(this.count));
+        this.seen.store(state);
+        final Path temp = checkpointFile.resolveSibling(checkpointFile.getFileName() + HighWaterMark.TEMP_FILE_SUFFIX);
+        try (final OutputStream out = Files.newOutputStream(temp)) {
+            state.store(out, "jan export checkpoint");
+        }
+        IssueCache.moveReplacing(temp, checkpointFile);
+    }
+
+    /**
+     * @return the index of the first issue to resume with. One issue before
+     *         the cursor if an issue was processed to detect a changed search result.
+     */
+    public int getResumeStartAt() {
+        return this.lastKey != null && this.startAt > 0 ? this.startAt - 1 : this.startAt;
+    }
+
+    /**
+     * Removes the last processed issue from the issues of the first resumed
+     * page. The issues are kept if the first issue isn't the last processed
+     * issue. Then the search result changed since the checkpoint.
+     * @param firstPageIssues the issues of the first resumed page. Must not be {@code null}.
+     * @return the issues to process.
+     */
+    public List<Issue> skipProcessed(final Iterable<Issue> firstPageIssues) {
+        Objects.requireNonNull(firstPageIssues, "firstPageIssues is null");
+        final List<Issue> issues = new ArrayList<>();
+        firstPageIssues.forEach(issues::add);
+        final Iterator<Issue> iterator = issues.iterator();
+        if (getResumeStartAt() < this.startAt && iterator.hasNext() && this.lastKey.equals(iterator.next().getKey())) {
+            iterator.remove();
+        }
+        return issues;
+    }
+
+    static String required(final Properties state, final String key) {
+        assert state != null;
+        final String value = state.getProperty(key);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing " + key);
+        }
+        return value;
+    }
+
+    public String getJql() {
+        return this.jql;
+    }
+
+    /** @return a copy of the mark the query is restricted to. Empty for an unrestricted query. */
+    public HighWaterMark getSince() {
+        return new HighWaterMark(this.since);
+    }
+
+    /**
+     * @param nowMillis the current time.
+     * @return the query the pages are searched with, restricted to the
+     *         issues updated since the {@link #getSince() mark} relative to
+     *         <em>nowMillis</em>.
+     */
+    public String getQuery(final long nowMillis) {
+        return this.since.restrictQuery(this.jql, nowMillis);
+    }
+
+    public int getStartAt() {
+        return this.startAt;
+    }
+
+    public Optional<String> getLastKey() {
+        return Optional.ofNullable(this.lastKey);
+    }
+
+    public long getOffset() {
+        return this.offset;
+    }
+
+    public int getCount() {
+        return this.count;
+    }
+
+    /** @return a copy of the high-water mark of the processed issues. */
+    public HighWaterMark getSeen() {
+        return new HighWaterMark(this.seen);
+    }
+
+    @Override
+    public String toString() {
+        return "Checkpoint{" + "startAt=" + startAt + ", lastKey=" + lastKey + ", offset=" + offset + ", count=" + count + ", seen=" + seen + '}';
+    }
+}
@@ -0,0 +1,117 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.fetch;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import com.atlassian.util.concurrent.Promise;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Fetches the full issues for the issues of a search result with a bounded
+ * count of concurrent requests. The fetcher keeps up to <em>parallelism</em>
+ * requests in flight. The fetched issues are handed over to the consumer
+ * in the order of the search result, independent of the order the requests
+ * are finished.
+ * <p>The consumer is always called from the thread calling
+ * {@link #fetch(Iterable, Consumer)}. A request failed with a transient
+ * failure is repeated according to the {@link RetryPolicy}.</p>
+ */
+public final class ConcurrentIssueFetcher {
+
+    private final Function<Issue, Promise<Issue>> issueLoader;
+    private final int parallelism;
+    private final RetryPolicy retryPolicy;
+
+    /**
+     * @param issueLoader starts the request for the full issue of a search result issue.
+     *                    Must not be {@code null}.
+     * @param parallelism the maximum count of requests in flight. Must be greater than 0.
+     * @throws NullPointerException if and only if <em>issueLoader</em> is {@code null}.
+     * @throws IllegalArgumentException if and only if <em>parallelism</em> is less than 1.
+     */
+    public ConcurrentIssueFetcher(final Function<Issue, Promise<Issue>> issueLoader, final int parallelism) {
+        this(issueLoader, parallelism, RetryPolicy.none());
+    }
+
+    /**
+     * @param issueLoader starts the request for the full issue of a search result issue.
+     *                    Must not be {@code null}.
+     * @param parallelism the maximum count of requests in flight. Must be greater than 0.
+     * @param retryPolicy repeats failed requests. Must not be {@code null}.
+     * @throws NullPointerException if and only if <em>issueLoader</em> or <em>retryPolicy</em> is {@code null}.
+     * @throws IllegalArgumentException if and only if <em>parallelism</em> is less than 1.
+     */
+    public ConcurrentIssueFetcher(final Function<Issue, Promise<Issue>> issueLoader, final int parallelism, final RetryPolicy retryPolicy) {
+        this.issueLoader = Objects.requireNonNull(issueLoader, "issueLoader is null");
+        this.retryPolicy = Objects.requireNonNull(retryPolicy, "retryPolicy is null");
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be greater than 0: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Fetches the full issues for the given search result issues.
+     * @param searchResultIssues the issues of a search result. Must not be {@code null}.
+     * @param consumer gets the fetched issues in the order of <em>searchResultIssues</em>.
+     *                 Must not be {@code null}.
+     * @return the count of fetched issues.
+     */
+    public int fetch(final Iterable<Issue> searchResultIssues, final Consumer<Issue> consumer) {
+        Objects.requireNonNull(searchResultIssues, "searchResultIssues is null");
+        Objects.requireNonNull(consumer, "consumer is null");
+
+        final Deque<InFlight> inFlight = new ArrayDeque<>(this.parallelism);
+        int count = 0;
+        for (final Issue searchResultIssue : searchResultIssues) {
+            if (inFlight.size() == this.parallelism) {
+                consumer.accept(claim(inFlight.removeFirst()));
+                count++;
+            }
+            inFlight.addLast(new InFlight(searchResultIssue, this.issueLoader.apply(searchResultIssue)));
+        }
+        while (!inFlight.isEmpty()) {
+            consumer.accept(claim(inFlight.removeFirst()));
+            count++;
+        }
+        return count;
+    }
+
+    Issue claim(final InFlight request) {
+        assert request != null;
+        return this.retryPolicy.claim(request.result, () -> this.issueLoader.apply(request.searchResultIssue));
+    }
+
+    public int getParallelism() {
+        return this.parallelism;
+    }
+
+    static final class InFlight {
+        final Issue searchResultIssue;
+        final Promise<Issue> result;
+
+        InFlight(final Issue searchResultIssue, final Promise<Issue> result) {
+            this.searchResultIssue = searchResultIssue;
+            this.result = result;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.fetch;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import com.atlassian.jira.rest.client.api.domain.SearchResult;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import org.codehaus.jettison.json.JSONObject;
+
+/**
+ * Result of a search with expanded issue data. Additional to the search result
+ * the instance knows the issues with a truncated changelog. JIRA limits the
+ * count of changelog entries in a search result. The full changelog of such
+ * issues is only available with a request for the single issue.
+ * @see ExpandingSearchRestClient
+ */
+public final class ExpandedSearchResult {
+
+    private final SearchResult searchResult;
+    private final Set<String> truncatedChangelogKeys;
+    private final Map<String, JSONObject> issueJson;
+
+    ExpandedSearchResult(final SearchResult searchResult, final Set<String> truncatedChangelogKeys) {
+        this(searchResult, truncatedChangelogKeys, Collections.emptyMap());
+    }
+
+    ExpandedSearchResult(final SearchResult searchResult,
+                         final Set<String> truncatedChangelogKeys,
+                         final Map<String, JSONObject> issueJson) {
+        this.searchResult = Objects.requireNonNull(searchResult, "searchResult is null");
+        this.truncatedChangelogKeys = Collections.unmodifiableSet(new HashSet<>(Objects.requireNonNull(truncatedChangelogKeys, "truncatedChangelogKeys is null")));
+        this.issueJson = Objects.requireNonNull(issueJson, "issueJson is null");
+    }
+
+    public SearchResult getSearchResult() {
+        return this.searchResult;
+    }
+
+    public Iterable<Issue> getIssues() {
+        return this.searchResult.getIssues();
+    }
+
+    public int getTotal() {
+        return this.searchResult.getTotal();
+    }
+
+    /**
+     * Checks if the changelog of the given issue of the search result is not complete.
+     * @param searchResultIssue an issue of the search result. Must not be {@code null}.
+     * @return {@code true} if and only if the changelog of the issue is not complete.
+     */
+    public boolean isChangelogTruncated(final Issue searchResultIssue) {
+        Objects.requireNonNull(searchResultIssue, "searchResultIssue is null");
+        return this.truncatedChangelogKeys.contains(searchResultIssue.getKey());
+    }
+
+    /**
+     * Returns the JSON of the given issue of the search result. The JSON is only
+     * available if requested for the search.
+     * @param searchResultIssue an issue of the search result. Must not be {@code null}.
+     * @return the JSON of the issue including the <tt>names</tt> and
+     *         <tt>schema</tt> of the fields or an empty Optional.
+     * @see ExpandingSearchRestClient#searchJql(String, int, int, Set, Set, boolean)
+     */
+    public Optional<JSONObject> getIssueJson(final Issue searchResultIssue) {
+        Objects.requireNonNull(searchResultIssue, "searchResultIssue is null");
+        return Optional.ofNullable(this.issueJson.get(searchResultIssue.getKey()));
+    }
+
+    @Override
+    public String toString() {
+        return "ExpandedSearchResult{" + "searchResult=" + searchResult + ", truncatedChangelogKeys=" + truncatedChangelogKeys + '}';
+    }
+}
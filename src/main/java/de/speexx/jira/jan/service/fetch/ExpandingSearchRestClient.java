@@ -0,0 +1,409 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.fetch;
+
+import com.atlassian.httpclient.api.HttpClient;
+import com.atlassian.httpclient.api.Request;
+import com.atlassian.httpclient.api.Response;
+import com.atlassian.httpclient.api.ResponsePromise;
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import com.atlassian.jira.rest.client.api.domain.SearchResult;
+import com.atlassian.jira.rest.client.internal.async.AbstractAsynchronousRestClient;
+import com.atlassian.jira.rest.client.internal.json.SearchResultJsonParser;
+import com.atlassian.util.concurrent.Promise;
+import de.speexx.jira.jan.JiraAnalyzeException;
+import de.speexx.jira.jan.service.stats.RunStatistics;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+
+/**
+ * Search client which supports the JIRA <tt>expand</tt> parameter for the
+ * issues of the search result. The JIRA REST client only expands <tt>names</tt>
+ * and <tt>schema</tt>. With this client a search can contain the changelog
+ * of the issues. No additional request for each issue of the search result
+ * is required.
+ * <p>With compression the search requests accept a GZIP encoded response.
+ * A compressed response is decompressed while it is read.</p>
+ */
+public final class ExpandingSearchRestClient extends AbstractAsynchronousRestClient {
+
+    /** Expand value for the changelog of the issues: <tt>{@value}</tt>. */
+    public static final String EXPAND_CHANGELOG = "changelog";
+    /** Expand value for the display names of the fields: <tt>{@value}</tt>. */
+    public static final String EXPAND_NAMES = "names";
+    /** Expand value for the field schema: <tt>{@value}</tt>. */
+    public static final String EXPAND_SCHEMA = "schema";
+    /** Field value for all fields of an issue: <tt>{@value}</tt>. */
+    public static final String FIELDS_ALL = "*all";
+
+    static final String SEARCH_PATH = "/rest/api/latest/search";
+    static final String JSON_CONTENT_TYPE = "application/json";
+    static final String ACCEPT_ENCODING_HEADER = "Accept-Encoding";
+    static final String CONTENT_ENCODING_HEADER = "Content-Encoding";
+    static final String GZIP_ENCODING = "gzip";
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    static final String JQL_ATTRIBUTE = "jql";
+    static final String START_AT_ATTRIBUTE = "startAt";
+    static final String MAX_RESULTS_ATTRIBUTE = "maxResults";
+    static final String FIELDS_ATTRIBUTE = "fields";
+    static final String EXPAND_ATTRIBUTE = "expand";
+    static final String ISSUES_ATTRIBUTE = "issues";
+    static final String KEY_ATTRIBUTE = "key";
+    static final String CHANGELOG_ATTRIBUTE = "changelog";
+    static final String HISTORIES_ATTRIBUTE = "histories";
+    static final String TOTAL_ATTRIBUTE = "total";
+    static final String FIELDS_SECTION = "fields";
+    static final String NAMES_SECTION = "names";
+    static final String SCHEMA_SECTION = "schema";
+
+    private final URI searchUri;
+    private final HttpClient httpClient;
+    private final RunStatistics statistics;
+    private final RequestGovernor governor;
+    private final boolean compression;
+    private final SearchResultJsonParser searchResultParser = new SearchResultJsonParser();
+
+    /**
+     * @param serverUri the URI of the JIRA server. Must not be {@code null}.
+     * @param httpClient the client for the requests. Must not be {@code null}.
+     */
+    public ExpandingSearchRestClient(final URI serverUri, final HttpClient httpClient) {
+        this(serverUri, httpClient, new RunStatistics(), RequestGovernor.unlimited());
+    }
+
+    /**
+     * @param serverUri the URI of the JIRA server. Must not be {@code null}.
+     * @param httpClient the client for the requests. Must not be {@code null}.
+     * @param statistics records the latency and the received bytes of the
+     *                   search requests. Must not be {@code null}.
+     * @param governor admits the search requests. Must not be {@code null}.
+     */
+    public ExpandingSearchRestClient(final URI serverUri,
+                                     final HttpClient httpClient,
+                                     final RunStatistics statistics,
+                                     final RequestGovernor governor) {
+        this(serverUri, httpClient, statistics, governor, false);
+    }
+
+    /**
+     * @param serverUri the URI of the JIRA server. Must not be {@code null}.
+     * @param httpClient the client for the requests. Must not be {@code null}.
+     * @param statistics records the latency and the received bytes of the
+     *                   search requests. Must not be {@code null}.
+     * @param governor admits the search requests. Must not be {@code null}.
+     * @param compression {@code true} to accept GZIP encoded search responses.
+     */
+    public ExpandingSearchRestClient(final URI serverUri,
+                                     final HttpClient httpClient,
+                                     final RunStatistics statistics,
+                                     final RequestGovernor governor,
+                                     final boolean compression) {
+        super(Objects.requireNonNull(httpClient, "httpClient is null"));
+        this.searchUri = createSearchUri(Objects.requireNonNull(serverUri, "serverUri is null"));
+        this.httpClient = httpClient;
+        this.statistics = Objects.requireNonNull(statistics, "statistics is null");
+        this.governor = Objects.requireNonNull(governor, "governor is null");
+        this.compression = compression;
+    }
+
+    /**
+     * Performs a JQL search.
+     * @param jql the JQL query. Must not be {@code null}.
+     * @param maxResults the maximum count of issues in the result.
+     * @param startAt the index of the first issue of the query result.
+     * @param fields the fields of the issues in the result. E.g. {@link #FIELDS_ALL}.
+     *               Must not be {@code null}.
+     * @param expand the expanded data of the issues in the result. E.g. {@link #EXPAND_CHANGELOG}.
+     *               Must not be {@code null}.
+     * @return never {@code null}.
+     */
+    public Promise<ExpandedSearchResult> searchJql(final String jql,
+                                                   final int maxResults,
+                                                   final int startAt,
+                                                   final Set<String> fields,
+                                                   final Set<String> expand) {
+        return searchJql(jql, maxResults, startAt, fields, expand, false);
+    }
+
+    /**
+     * Performs a JQL search.
+     * @param jql the JQL query. Must not be {@code null}.
+     * @param maxResults the maximum count of issues in the result.
+     * @param startAt the index of the first issue of the query result.
+     * @param fields the fields of the issues in the result. Must not be {@code null}.
+     * @param expand the expanded data of the issues in the result. Must not be {@code null}.
+     * @param withIssueJson {@code true} if the result should also contain the
+     *                      JSON of each issue. See {@link ExpandedSearchResult#getIssueJson(Issue)}.
+     * @return never {@code null}.
+     */
+    public Promise<ExpandedSearchResult> searchJql(final String jql,
+                                                   final int maxResults,
+                                                   final int startAt,
+                                                   final Set<String> fields,
+                                                   final Set<String> expand,
+                                                   final boolean withIssueJson) {
+        final JSONObject searchRequest = createSearchRequest(jql, maxResults, startAt, fields, expand);
+        return this.governor.submit(() -> {
+            final long start = System.nanoTime();
+            final Request.Builder request = this.httpClient.newRequest(this.searchUri)
+                                                           .setEntity(searchRequest.toString())
+                                                           .setContentType(JSON_CONTENT_TYPE);
+            if (this.compression) {
+                request.setHeader(ACCEPT_ENCODING_HEADER, GZIP_ENCODING);
+            }
+            final ResponsePromise response = request.post();
+            response.done(this::observeThrottling);
+            return callAndParse(response, r -> parseSearchResponse(r, withIssueJson, start));
+        });
+    }
+
+    void observeThrottling(final Response response) {
+        assert response != null;
+        if (RequestGovernor.isThrottled(response.getStatusCode())) {
+            this.governor.retryAfter(response.getHeader(RequestGovernor.RETRY_AFTER_HEADER));
+        }
+    }
+
+    ExpandedSearchResult parseSearchResponse(final Response response,
+                                             final boolean withIssueJson,
+                                             final long startNanos) throws JSONException, IOException {
+        assert response != null;
+        final String entity;
+        if (isGzipEncoded(response.getHeader(CONTENT_ENCODING_HEADER))) {
+            entity = readGzipEntity(response.getEntityStream(), this.statistics);
+        } else {
+            entity = response.getEntity();
+            this.statistics.addBytesReceived(utf8Length(entity));
+        }
+        final ExpandedSearchResult result = parseSearchResult(new JSONObject(entity), withIssueJson);
+        this.statistics.record(RunStatistics.Phase.SEARCH, startNanos);
+        return result;
+    }
+
+    static boolean isGzipEncoded(final String contentEncoding) {
+        return contentEncoding != null && GZIP_ENCODING.equalsIgnoreCase(contentEncoding.trim());
+    }
+
+    /**
+     * Decompresses a GZIP encoded UTF-8 entity. The compressed bytes are
+     * recorded as received bytes.
+     * @throws IOException if and only if the entity can't be read or isn't GZIP encoded.
+     */
+    static String readGzipEntity(final InputStream entity, final RunStatistics statistics) throws IOException {
+        assert entity != null;
+        assert statistics != null;
+        final CountingInputStream counting = new CountingInputStream(entity);
+        try (final Reader reader = new InputStreamReader(new GZIPInputStream(counting, BUFFER_SIZE), StandardCharsets.UTF_8)) {
+            final StringBuilder text = new StringBuilder(BUFFER_SIZE);
+            final char[] buffer = new char[BUFFER_SIZE / 4];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                text.append(buffer, 0, read);
+            }
+            return text.toString();
+        } finally {
+            statistics.addBytesReceived(counting.count);
+        }
+    }
+
+    JSONObject createSearchRequest(final String jql,
+                                   final int maxResults,
+                                   final int startAt,
+                                   final Set<String> fields,
+                                   final Set<String> expand) {
+        Objects.requireNonNull(jql, "jql is null");
+        Objects.requireNonNull(fields, "fields is null");
+        Objects.requireNonNull(expand, "expand is null");
+        try {
+            final JSONObject searchRequest = new JSONObject();
+            searchRequest.put(JQL_ATTRIBUTE, jql);
+            searchRequest.put(START_AT_ATTRIBUTE, startAt);
+            searchRequest.put(MAX_RESULTS_ATTRIBUTE, maxResults);
+            searchRequest.put(FIELDS_ATTRIBUTE, new JSONArray(fields));
+            searchRequest.put(EXPAND_ATTRIBUTE, new JSONArray(expand));
+            return searchRequest;
+        } catch (final JSONException e) {
+            throw new JiraAnalyzeException(e);
+        }
+    }
+
+    ExpandedSearchResult parseSearchResult(final JSONObject json, final boolean withIssueJson) throws JSONException {
+        assert json != null;
+        final Set<String> truncated = findTruncatedChangelogs(json);
+        final SearchResult searchResult = this.searchResultParser.parse(json);
+        if (withIssueJson) {
+            return new ExpandedSearchResult(searchResult, truncated, collectIssueJson(json));
+        }
+        return new ExpandedSearchResult(searchResult, truncated);
+    }
+
+    /**
+     * Collects the JSON of the issues of a search result by issue key. The
+     * <tt>names</tt> and <tt>schema</tt> sections of the search result are
+     * copied into each issue for the fields of the issue. Such an issue can
+     * be parsed standalone like the result of a single issue request.
+     */
+    static Map<String, JSONObject> collectIssueJson(final JSONObject json) throws JSONException {
+        assert json != null;
+        final JSONArray issues = json.optJSONArray(ISSUES_ATTRIBUTE);
+        if (issues == null) {
+            return Collections.emptyMap();
+        }
+        final JSONObject names = json.optJSONObject(NAMES_SECTION);
+        final JSONObject schema = json.optJSONObject(SCHEMA_SECTION);
+
+        final Map<String, JSONObject> issueJson = new HashMap<>();
+        final int length = issues.length();
+        for (int idx = 0; idx < length; idx++) {
+            final JSONObject issue = issues.optJSONObject(idx);
+            if (issue != null) {
+                final JSONObject fields = issue.optJSONObject(FIELDS_SECTION);
+                if (fields != null) {
+                    issue.putOpt(NAMES_SECTION, subset(names, fields));
+                    issue.putOpt(SCHEMA_SECTION, subset(schema, fields));
+                }
+                issueJson.put(issue.optString(KEY_ATTRIBUTE), issue);
+            }
+        }
+        return issueJson;
+    }
+
+    static JSONObject subset(final JSONObject source, final JSONObject fields) throws JSONException {
+        assert fields != null;
+        if (source == null) {
+            return null;
+        }
+        final JSONObject subset = new JSONObject();
+        final Iterator<?> keys = fields.keys();
+        while (keys.hasNext()) {
+            final String key = (String) keys.next();
+            subset.putOpt(key, source.opt(key));
+        }
+        return subset;
+    }
+
+    static Set<String> findTruncatedChangelogs(final JSONObject json) {
+        assert json != null;
+        final JSONArray issues = json.optJSONArray(ISSUES_ATTRIBUTE);
+        if (issues == null) {
+            return Collections.emptySet();
+        }
+
+        final Set<String> truncated = new HashSet<>();
+        final int length = issues.length();
+        for (int idx = 0; idx < length; idx++) {
+            final JSONObject issue = issues.optJSONObject(idx);
+            if (issue != null && isChangelogTruncated(issue)) {
+                truncated.add(issue.optString(KEY_ATTRIBUTE));
+            }
+        }
+        return truncated;
+    }
+
+    static boolean isChangelogTruncated(final JSONObject issue) {
+        assert issue != null;
+        final JSONObject changelog = issue.optJSONObject(CHANGELOG_ATTRIBUTE);
+        if (changelog == null) {
+            return false;
+        }
+        final JSONArray histories = changelog.optJSONArray(HISTORIES_ATTRIBUTE);
+        final int total = changelog.optInt(TOTAL_ATTRIBUTE, -1);
+        return histories != null && total > histories.length();
+    }
+
+    /** @return the count of bytes of <em>text</em> in UTF-8 without encoding it. */
+    static long utf8Length(final String text) {
+        if (text == null) {
+            return 0;
+        }
+        long length = 0;
+        final int chars = text.length();
+        for (int idx = 0; idx < chars; idx++) {
+            final char c = text.charAt(idx);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && idx + 1 < chars && Character.isLowSurrogate(text.charAt(idx + 1))) {
+                length += 4;
+                idx++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    static final class CountingInputStream extends FilterInputStream {
+
+        long count;
+
+        CountingInputStream(final InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int value = super.read();
+            if (value != -1) {
+                this.count++;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+            final int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                this.count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            final long skipped = super.skip(n);
+            this.count += skipped;
+            return skipped;
+        }
+    }
+
+    static URI createSearchUri(final URI serverUri) {
+        assert serverUri != null;
+        final String server = serverUri.toString();
+        final String base = server.endsWith("/") ? server.substring(0, server.length() - 1) : server;
+        return URI.create(base + SEARCH_PATH);
+    }
+}
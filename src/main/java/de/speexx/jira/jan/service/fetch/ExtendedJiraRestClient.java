@@ -0,0 +1,103 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.fetch;
+
+import com.atlassian.jira.rest.client.internal.async.AsynchronousJiraRestClient;
+import com.atlassian.jira.rest.client.internal.async.DisposableHttpClient;
+import de.speexx.jira.jan.service.stats.RunStatistics;
+import java.net.URI;
+import java.util.Objects;
+
+/**
+ * JIRA REST client with additional clients for <tt>jan</tt>. All clients share
+ * the same HTTP client. Closing the client releases the HTTP client.
+ */
+public class ExtendedJiraRestClient extends AsynchronousJiraRestClient {
+
+    private final ExpandingSearchRestClient expandingSearchClient;
+    private final RequestGovernor governor;
+    private final RetryPolicy retryPolicy;
+
+    /**
+     * @param serverUri the URI of the JIRA server. Must not be {@code null}.
+     * @param httpClient the client for the requests. Must not be {@code null}.
+     */
+    public ExtendedJiraRestClient(final URI serverUri, final DisposableHttpClient httpClient) {
+        this(serverUri, httpClient, new RunStatistics(), RequestGovernor.unlimited(), RetryPolicy.none());
+    }
+
+    /**
+     * @param serverUri the URI of the JIRA server. Must not be {@code null}.
+     * @param httpClient the client for the requests. Must not be {@code null}.
+     * @param statistics records the search requests. Must not be {@code null}.
+     * @param governor admits the requests. Must not be {@code null}.
+     * @param retryPolicy repeats failed requests. Must not be {@code null}.
+     */
+    public ExtendedJiraRestClient(final URI serverUri,
+                                  final DisposableHttpClient httpClient,
+                                  final RunStatistics statistics,
+                                  final RequestGovernor governor,
+                                  final RetryPolicy retryPolicy) {
+        this(serverUri, httpClient, statistics, governor, retryPolicy, false);
+    }
+
+    /**
+     * @param serverUri the URI of the JIRA server. Must not be {@code null}.
+     * @param httpClient the client for the requests. Must not be {@code null}.
+     * @param statistics records the search requests. Must not be {@code null}.
+     * @param governor admits the requests. Must not be {@code null}.
+     * @param retryPolicy repeats failed requests. Must not be {@code null}.
+     * @param compression {@code true} to accept GZIP encoded search responses.
+     */
+    public ExtendedJiraRestClient(final URI serverUri,
+                                  final DisposableHttpClient httpClient,
+                                  final RunStatistics statistics,
+                                  final RequestGovernor governor,
+                                  final RetryPolicy retryPolicy,
+                                  final boolean compression) {
+        super(serverUri, httpClient);
+        this.governor = Objects.requireNonNull(governor, "governor is null");
+        this.retryPolicy = Objects.requireNonNull(retryPolicy, "retryPolicy is null");
+        this.expandingSearchClient = new ExpandingSearchRestClient(serverUri, httpClient, statistics, governor, compression);
+    }
+
+    /**
+     * Returns a search client which supports expanded issue data like the changelog.
+     * @return never {@code null}.
+     */
+    public ExpandingSearchRestClient getExpandingSearchClient() {
+        return this.expandingSearchClient;
+    }
+
+    /**
+     * Returns the governor for all requests of the client. Requests of the
+     * clients of the JIRA REST client must be submitted to the governor.
+     * @return never {@code null}.
+     */
+    public RequestGovernor getGovernor() {
+        return this.governor;
+    }
+
+    /**
+     * Returns the policy to repeat requests failed with a transient failure.
+     * @return never {@code null}.
+     */
+    public RetryPolicy getRetryPolicy() {
+        return this.retryPolicy;
+    }
+}
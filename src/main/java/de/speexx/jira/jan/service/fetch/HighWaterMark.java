@@ -0,0 +1,238 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.fetch;
+
+import com.atlassian.jira.rest.client.api.domain.ChangelogGroup;
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+/**
+ * The newest <tt>updated</tt> and changelog <tt>created</tt> values seen
+ * in an export. An incremental export restricts the JQL query to issues
+ * updated after the mark of the last successful run and exports only
+ * changes newer than the mark.
+ * <p>JQL supports only minute precision for dates. The restricted query
+ * fetches therefore some minutes more than required and the caller must
+ * filter with {@link #isNewer(DateTime)}.</p>
+ */
+public final class HighWaterMark {
+
+    static final String UPDATED_KEY = "updated";
+    static final String CHANGELOG_CREATED_KEY = "changelog.created";
+    static final String TEMP_FILE_SUFFIX = ".tmp";
+    static final long NONE = Long.MIN_VALUE;
+    static final long MINUTE_MILLIS = 60 * 1000;
+
+    /** Additional minutes of the restricted query to compensate clock differences to JIRA. */
+    static final int QUERY_OVERLAP_MINUTES = 15;
+
+    private static final Pattern ORDER_BY = Pattern.compile("order\\s+by\\b", Pattern.CASE_INSENSITIVE);
+
+    private long updated = NONE;
+    private long changelogCreated = NONE;
+
+    public HighWaterMark() {
+    }
+
+    /**
+     * Creates a copy of the given mark.
+     * @param mark the mark to copy. Must not be {@code null}.
+     */
+    public HighWaterMark(final HighWaterMark mark) {
+        Objects.requireNonNull(mark, "mark is null");
+        this.updated = mark.updated;
+        this.changelogCreated = mark.changelogCreated;
+    }
+
+    HighWaterMark(final long updated, final long changelogCreated) {
+        this.updated = updated;
+        this.changelogCreated = changelogCreated;
+    }
+
+    /**
+     * Reads the mark from the given state file.
+     * @param stateFile the state file. Must not be {@code null}.
+     * @return the mark or an empty Optional if the state file doesn't exist.
+     * @throws IOException if and only if the state file can't be read.
+     */
+    public static Optional<HighWaterMark> read(final Path stateFile) throws IOException {
+        Objects.requireNonNull(stateFile, "stateFile is null");
+        if (!Files.exists(stateFile)) {
+            return Optional.empty();
+        }
+        final Properties state = new Properties();
+        try (final InputStream in = Files.newInputStream(stateFile)) {
+            state.load(in);
+        }
+        try {
+            return Optional.of(load(state));
+        } catch (final NumberFormatException e) {
+            throw new IOException("Corrupt state file " + stateFile + ": " + e.getMessage(), e);
+        }
+    }
+
+    static HighWaterMark load(final Properties state) {
+        assert state != null;
+        return new HighWaterMark(parseMillis(state, UPDATED_KEY), parseMillis(state, CHANGELOG_CREATED_KEY));
+    }
+
+    /**
+     * Writes the mark to the given state file. The state file is replaced
+     * only after the mark is written completely.
+     * @param stateFile the state file. Must not be {@code null}.
+     * @throws IOException if and only if the state file can't be written.
+     */
+    public void write(final Path stateFile) throws IOException {
+        Objects.requireNonNull(stateFile, "stateFile is null");
+        final Properties state = new Properties();
+        store(state);
+        final Path temp = stateFile.resolveSibling(stateFile.getFileName() + TEMP_FILE_SUFFIX);
+        try (final OutputStream out = Files.newOutputStream(temp)) {
+            state.store(out, "jan incremental export state");
+        }
+        IssueCache.moveReplacing(temp, stateFile);
+    }
+
+    void store(final Properties state) {
+        assert state != null;
+        if (this.updated != NONE) {
+            state.setProperty(UPDATED_KEY, String.valueOf(this.updated));
+        }
+        if (this.changelogCreated != NONE) {
+            state.setProperty(CHANGELOG_CREATED_KEY, String.valueOf(this.changelogCreated));
+        }
+    }
+
+    /**
+     * Raises the mark to the <tt>updated</tt> value and the changelog
+     * <tt>created</tt> values of the given issue.
+     * @param issue the exported issue. Must not be {@code null}.
+     */
+    public void observe(final Issue issue) {
+        Objects.requireNonNull(issue, "issue is null");
+        final DateTime issueUpdated = issue.getUpdateDate();
+        if (issueUpdated != null) {
+            this.updated = Math.max(this.updated, issueUpdated.getMillis());
+        }
+        final Iterable<ChangelogGroup> changelog = issue.getChangelog();
+        if (changelog != null) {
+            for (final ChangelogGroup group : changelog) {
+                final DateTime created = group.getCreated();
+                if (created != null) {
+                    this.changelogCreated = Math.max(this.changelogCreated, created.getMillis());
+                }
+            }
+        }
+    }
+
+    /**
+     * @param dateTime the date time to check. Can be {@code null}.
+     * @return {@code true} if the date time is after the mark. {@code null} is never newer.
+     */
+    public boolean isNewer(final DateTime dateTime) {
+        return dateTime != null && dateTime.getMillis() > getMillis();
+    }
+
+    /**
+     * @param zone the zone of the returned date time. Must not be {@code null}.
+     * @return the mark as date time in the given zone.
+     */
+    public DateTime toDateTime(final DateTimeZone zone) {
+        Objects.requireNonNull(zone, "zone is null");
+        return new DateTime(getMillis(), zone);
+    }
+
+    public boolean isEmpty() {
+        return getMillis() == NONE;
+    }
+
+    /** @return the newer of the <tt>updated</tt> and changelog <tt>created</tt> values. */
+    public long getMillis() {
+        return Math.max(this.updated, this.changelogCreated);
+    }
+
+    /**
+     * Restricts the query to issues updated since the mark. An <tt>ORDER BY</tt>
+     * clause of the query is kept.
+     * @param jql the query to restrict. Must not be {@code null}.
+     * @param nowMillis the current time.
+     * @return the restricted query or the query itself if the mark is empty.
+     */
+    public String restrictQuery(final String jql, final long nowMillis) {
+        Objects.requireNonNull(jql, "jql is null");
+        if (isEmpty()) {
+            return jql;
+        }
+        final long elapsedMinutes = Math.max(0, nowMillis - getMillis() + MINUTE_MILLIS - 1) / MINUTE_MILLIS;
+        return restrictQueryToMinutes(jql, elapsedMinutes + QUERY_OVERLAP_MINUTES);
+    }
+
+    static String restrictQueryToMinutes(final String jql, final long minutes) {
+        assert jql != null;
+        final int orderBy = findOrderBy(jql);
+        final String filter = (orderBy < 0 ? jql : jql.substring(0, orderBy)).trim();
+        final String order = orderBy < 0 ? "" : " " + jql.substring(orderBy).trim();
+        final String clause = UPDATED_KEY + " >= \"-" + minutes + "m\"";
+        return (filter.isEmpty() ? clause : "(" + filter + ") AND " + clause) + order;
+    }
+
+    /** @return the index of the <tt>ORDER BY</tt> keywords outside of quoted values or -1. */
+    static int findOrderBy(final String jql) {
+        assert jql != null;
+        final Matcher matcher = ORDER_BY.matcher(jql);
+        char quote = 0;
+        for (int idx = 0; idx < jql.length(); idx++) {
+            final char c = jql.charAt(idx);
+            if (quote != 0) {
+                if (c == '\\') {
+                    idx++;
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if ((idx == 0 || !Character.isLetterOrDigit(jql.charAt(idx - 1)))
+                       && matcher.region(idx, jql.length()).lookingAt()) {
+                return idx;
+            }
+        }
+        return -1;
+    }
+
+    static long parseMillis(final Properties state, final String key) {
+        assert state != null;
+        final String value = state.getProperty(key);
+        return value == null ? NONE : Long.parseLong(value.trim());
+    }
+
+    @Override
+    public String toString() {
+        return "HighWaterMark{" + "updated=" + updated + ", changelogCreated=" + changelogCreated + '}';
+    }
+}
@@ -0,0 +1,247 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.fetch;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import com.atlassian.jira.rest.client.internal.json.IssueJsonParser;
+import com.atlassian.jira.rest.client.internal.json.JsonObjectParser;
+import de.speexx.jira.jan.JiraAnalyzeException;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+import org.joda.time.DateTime;
+
+/**
+ * Local persistent cache for the JSON of issues. An entry is identified
+ * by the issue key and valid as long as the <tt>updated</tt> value of the
+ * issue doesn't change.
+ * <p>Each issue is stored in a single file below a directory for the project
+ * key. The file starts with a small binary header containing the
+ * <tt>updated</tt> value and the fields and expands of the request the issue
+ * was fetched with. The header is followed by the GZIP compressed JSON of
+ * the issue. A lookup reads only the header if the entry is outdated.</p>
+ */
+public final class IssueCache {
+
+    static final int MAGIC = 0x4A414E43;
+    static final int FORMAT_VERSION = 1;
+    static final String FILE_SUFFIX = ".issue";
+    static final String TEMP_FILE_SUFFIX = ".tmp";
+    static final String LIST_DELIMITER = ",";
+    static final int BUFFER_SIZE = 8 * 1024;
+
+    private final Path directory;
+    private final JsonObjectParser<Issue> issueParser;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Opens the cache in the given directory. The directory is created if
+     * not available.
+     * @param directory the cache directory. Must not be {@code null}.
+     * @throws IOException if and only if the directory can't be created.
+     */
+    public IssueCache(final Path directory) throws IOException {
+        this(directory, new IssueJsonParser());
+    }
+
+    IssueCache(final Path directory, final JsonObjectParser<Issue> issueParser) throws IOException {
+        this.directory = Files.createDirectories(Objects.requireNonNull(directory, "directory is null"));
+        this.issueParser = Objects.requireNonNull(issueParser, "issueParser is null");
+    }
+
+    /**
+     * Returns the cached issue if the cached entry has the same <tt>updated</tt>
+     * value and was fetched with at least the given fields and expands.
+     * Unreadable entries are handled like missing entries.
+     * @param key the issue key. Must not be {@code null}.
+     * @param updated the current <tt>updated</tt> value of the issue. Must not be {@code null}.
+     * @param fields the required fields. Must not be {@code null}.
+     * @param expand the required expands. Must not be {@code null}.
+     * @return the cached issue or an empty Optional.
+     */
+    public Optional<Issue> get(final String key, final DateTime updated, final Set<String> fields, final Set<String> expand) {
+        Objects.requireNonNull(key, "key is null");
+        Objects.requireNonNull(updated, "updated is null");
+        Objects.requireNonNull(fields, "fields is null");
+        Objects.requireNonNull(expand, "expand is null");
+
+        final Optional<JSONObject> issueJson = readIssueJson(entryPath(key), updated.getMillis(), fields, expand);
+        if (issueJson.isPresent()) {
+            try {
+                final Issue issue = this.issueParser.parse(issueJson.get());
+                this.hits.incrementAndGet();
+                return Optional.of(issue);
+            } catch (final JSONException | RuntimeException e) {
+                // Unparseable entry. Fetched again and overwritten.
+            }
+        }
+        this.misses.incrementAndGet();
+        return Optional.empty();
+    }
+
+    /**
+     * Stores the JSON of an issue.
+     * @param key the issue key. Must not be {@code null}.
+     * @param updated the <tt>updated</tt> value of the issue. Must not be {@code null}.
+     * @param fields the fields the issue was fetched with. Must not be {@code null}.
+     * @param expand the expands the issue was fetched with. Must not be {@code null}.
+     * @param issueJson the JSON of the issue. Must not be {@code null}.
+     * @throws JiraAnalyzeException if and only if the entry can't be written.
+     */
+    public void put(final String key, final DateTime updated, final Set<String> fields, final Set<String> expand, final JSONObject issueJson) {
+        Objects.requireNonNull(key, "key is null");
+        Objects.requireNonNull(updated, "updated is null");
+        Objects.requireNonNull(fields, "fields is null");
+        Objects.requireNonNull(expand, "expand is null");
+        Objects.requireNonNull(issueJson, "issueJson is null");
+
+        final Path entry = entryPath(key);
+        try {
+            Files.createDirectories(entry.getParent());
+            final Path temp = entry.resolveSibling(entry.getFileName() + TEMP_FILE_SUFFIX);
+            try (final OutputStream out = Files.newOutputStream(temp)) {
+                writeEntry(out, updated.getMillis(), fields, expand, issueJson);
+            }
+            moveReplacing(temp, entry);
+        } catch (final IOException e) {
+            throw new JiraAnalyzeException(e);
+        }
+    }
+
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    public Path getDirectory() {
+        return this.directory;
+    }
+
+    Optional<JSONObject> readIssueJson(final Path entry, final long updated, final Set<String> fields, final Set<String> expand) {
+        assert entry != null;
+        try (final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || in.readLong() != updated) {
+                return Optional.empty();
+            }
+            final Set<String> cachedFields = splitList(in.readUTF());
+            final Set<String> cachedExpand = splitList(in.readUTF());
+            if (!isFieldSuperset(cachedFields, fields) || !cachedExpand.containsAll(expand)) {
+                return Optional.empty();
+            }
+            return Optional.of(new JSONObject(readCompressed(in)));
+        } catch (final IOException | JSONException e) {
+            // Missing or unreadable entry
+            return Optional.empty();
+        }
+    }
+
+    static void writeEntry(final OutputStream target, final long updated, final Set<String> fields, final Set<String> expand, final JSONObject issueJson) throws IOException {
+        assert target != null;
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(target, BUFFER_SIZE));
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(updated);
+        out.writeUTF(joinList(fields));
+        out.writeUTF(joinList(expand));
+        final GZIPOutputStream compressed = new GZIPOutputStream(out, BUFFER_SIZE);
+        compressed.write(issueJson.toString().getBytes(StandardCharsets.UTF_8));
+        compressed.finish();
+        out.flush();
+    }
+
+    static String readCompressed(final InputStream in) throws IOException {
+        assert in != null;
+        final GZIPInputStream compressed = new GZIPInputStream(in, BUFFER_SIZE);
+        final ByteArrayOutputStream json = new ByteArrayOutputStream(BUFFER_SIZE);
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = compressed.read(buffer)) != -1) {
+            json.write(buffer, 0, read);
+        }
+        return new String(json.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    static boolean isFieldSuperset(final Set<String> cachedFields, final Set<String> fields) {
+        return cachedFields.contains(ExpandingSearchRestClient.FIELDS_ALL) || cachedFields.containsAll(fields);
+    }
+
+    static String joinList(final Set<String> values) {
+        return String.join(LIST_DELIMITER, new TreeSet<>(values));
+    }
+
+    static Set<String> splitList(final String values) {
+        if (values.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return new HashSet<>(Arrays.asList(values.split(LIST_DELIMITER)));
+    }
+
+    static void moveReplacing(final Path source, final Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    Path entryPath(final String key) {
+        assert key != null;
+        final String fileName = toFileName(key);
+        final int projectDelimiter = fileName.lastIndexOf('-');
+        final String project = projectDelimiter > 0 ? fileName.substring(0, projectDelimiter) : "_";
+        return this.directory.resolve(project).resolve(fileName + FILE_SUFFIX);
+    }
+
+    static String toFileName(final String key) {
+        if (key.isEmpty()) {
+            throw new IllegalArgumentException("Issue key is empty");
+        }
+        return key.replaceAll("[^A-Za-z0-9_\\-]", "_");
+    }
+
+    @Override
+    public String toString() {
+        return "IssueCache{" + "directory=" + directory + ", hits=" + hits + ", misses=" + misses + '}';
+    }
+}
@@ -0,0 +1,320 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.fetch;
+
+import com.atlassian.jira.rest.client.api.RestClientException;
+import com.atlassian.util.concurrent.Promise;
+import de.speexx.jira.jan.JiraAnalyzeException;
+import de.speexx.jira.jan.service.stats.RunStatistics;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Admits the requests against JIRA. All requests of a run pass the same
+ * governor. The count of concurrent requests adapts to the state of JIRA
+ * with an additive increase and a multiplicative decrease (AIMD):
+ * <ul>
+ *   <li>Each fast response increases the limit by <tt>1 / limit</tt>,
+ *       i.e. by about one request per round trip.</li>
+ *   <li>A response much slower than the fastest recent responses and a
+ *       failed connection decreases the limit by 10%.</li>
+ *   <li>A throttled response (HTTP 429 or 503) halves the limit and pauses
+ *       all new requests for the <tt>Retry-After</tt> time of the response,
+ *       or one second without such a header.</li>
+ * </ul>
+ * <p>A token bucket optionally caps the requests per second.</p>
+ */
+public final class RequestGovernor {
+
+    static final int HTTP_TOO_MANY_REQUESTS = 429;
+    static final int HTTP_SERVICE_UNAVAILABLE = 503;
+    static final String RETRY_AFTER_HEADER = "Retry-After";
+
+    static final double LATENCY_BACKOFF_RATIO = 0.9;
+    static final double THROTTLE_BACKOFF_RATIO = 0.5;
+    static final double LATENCY_TOLERANCE = 2.0;
+    static final double BASELINE_DRIFT = 0.01;
+    static final long DEFAULT_RETRY_AFTER_MILLIS = 1000;
+    static final long MAX_RETRY_AFTER_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    /** The outcome of a request for the adaption of the limit. */
+    enum Outcome {
+        /** The request was answered. */
+        ANSWERED,
+        /** JIRA throttled the request. */
+        THROTTLED,
+        /** No answer, e.g. a timeout or a lost connection. */
+        DROPPED,
+        /** Cancelled by the caller. Not a signal of the state of JIRA. */
+        CANCELLED
+    }
+
+    private final int maxConcurrency;
+    private final double maxRequestsPerSecond;
+    private final RunStatistics statistics;
+    private final LongSupplier nanoClock;
+
+    private double limit;
+    private int inFlight;
+    private long baselineNanos;
+    private long pausedUntilNanos;
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * @param maxConcurrency the upper bound of concurrent requests, e.g. the
+     *                       size of the connection pool. Must be greater than 0.
+     * @param initialConcurrency the count of concurrent requests at the start.
+     *                           Bounded to 1 and <em>maxConcurrency</em>.
+     * @param maxRequestsPerSecond the maximum rate of requests. 0 for no limit.
+     *                             Must not be negative.
+     * @param statistics counts the throttled requests. Must not be {@code null}.
+     * @throws IllegalArgumentException if and only if a value is out of range.
+     */
+    public RequestGovernor(final int maxConcurrency,
+                           final int initialConcurrency,
+                           final double maxRequestsPerSecond,
+                           final RunStatistics statistics) {
+        this(maxConcurrency, initialConcurrency, maxRequestsPerSecond, statistics, System::nanoTime);
+    }
+
+    RequestGovernor(final int maxConcurrency,
+                    final int initialConcurrency,
+                    final double maxRequestsPerSecond,
+                    final RunStatistics statistics,
+                    final LongSupplier nanoClock) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Maximum concurrency must be greater than 0: " + maxConcurrency);
+        }
+        if (maxRequestsPerSecond < 0 || Double.isNaN(maxRequestsPerSecond)) {
+            throw new IllegalArgumentException("Maximum requests per second must not be negative: " + maxRequestsPerSecond);
+        }
+        this.maxConcurrency = maxConcurrency;
+        this.maxRequestsPerSecond = maxRequestsPerSecond;
+        this.statistics = Objects.requireNonNull(statistics, "statistics is null");
+        this.nanoClock = Objects.requireNonNull(nanoClock, "nanoClock is null");
+        this.limit = Math.max(1, Math.min(maxConcurrency, initialConcurrency));
+        this.tokens = getBucketSize();
+        this.lastRefillNanos = nanoClock.getAsLong();
+        this.pausedUntilNanos = this.lastRefillNanos;
+    }
+
+    /** @return a governor which admits all requests without delay. */
+    public static RequestGovernor unlimited() {
+        return new RequestGovernor(Integer.MAX_VALUE, Integer.MAX_VALUE, 0, new RunStatistics());
+    }
+
+    /**
+     * Starts a request after it is admitted. Blocks the calling thread
+     * until the request is admitted.
+     * @param request starts the request. Must not be {@code null}.
+     * @return the promise of the request.
+     * @throws JiraAnalyzeException if the calling thread is interrupted while waiting.
+     */
+    public <T> Promise<T> submit(final Supplier<Promise<T>> request) {
+        Objects.requireNonNull(request, "request is null");
+        acquire();
+        final long start = this.nanoClock.getAsLong();
+        final Promise<T> promise;
+        try {
+            promise = request.get();
+        } catch (final RuntimeException e) {
+            release(start, Outcome.CANCELLED);
+            throw e;
+        }
+        return promise.done(result -> release(start, Outcome.ANSWERED))
+                      .fail(failure -> release(start, outcomeOf(failure)));
+    }
+
+    /**
+     * Pauses all new requests for the time requested by JIRA.
+     * @param retryAfter the value of the <tt>Retry-After</tt> header. Either
+     *                   seconds or an HTTP date. May be {@code null}.
+     */
+    public synchronized void retryAfter(final String retryAfter) {
+        final long pauseNanos = TimeUnit.MILLISECONDS.toNanos(parseRetryAfterMillis(retryAfter, System.currentTimeMillis()));
+        final long until = this.nanoClock.getAsLong() + pauseNanos;
+        if (until - this.pausedUntilNanos > 0) {
+            this.pausedUntilNanos = until;
+        }
+    }
+
+    synchronized void acquire() {
+        try {
+            while (true) {
+                final long now = this.nanoClock.getAsLong();
+                final long waitNanos = admit(now);
+                if (waitNanos == 0) {
+                    return;
+                }
+                if (waitNanos < 0) {
+                    wait();
+                } else {
+                    TimeUnit.NANOSECONDS.timedWait(this, waitNanos);
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JiraAnalyzeException(e);
+        }
+    }
+
+    /**
+     * Admits a request if possible.
+     * @return 0 if the request is admitted, the nanoseconds to wait before
+     *         the next try or -1 if a running request must finish first.
+     */
+    long admit(final long now) {
+        assert Thread.holdsLock(this);
+        if (this.pausedUntilNanos - now > 0) {
+            return this.pausedUntilNanos - now;
+        }
+        if (this.inFlight >= getLimit()) {
+            return -1;
+        }
+        final long tokenWaitNanos = takeToken(now);
+        if (tokenWaitNanos == 0) {
+            this.inFlight++;
+        }
+        return tokenWaitNanos;
+    }
+
+    /** @return 0 if a token is taken or the nanoseconds until the next token. */
+    long takeToken(final long now) {
+        assert Thread.holdsLock(this);
+        if (this.maxRequestsPerSecond == 0) {
+            return 0;
+        }
+        this.tokens = Math.min(getBucketSize(), this.tokens + (now - this.lastRefillNanos) * this.maxRequestsPerSecond / NANOS_PER_SECOND);
+        this.lastRefillNanos = now;
+        if (this.tokens >= 1) {
+            this.tokens--;
+            return 0;
+        }
+        return Math.max(1, (long) Math.ceil((1 - this.tokens) * NANOS_PER_SECOND / this.maxRequestsPerSecond));
+    }
+
+    synchronized void release(final long startNanos, final Outcome outcome) {
+        assert outcome != null;
+        final long now = this.nanoClock.getAsLong();
+        this.inFlight = Math.max(0, this.inFlight - 1);
+        adapt(now - startNanos, outcome, now);
+        notifyAll();
+    }
+
+    void adapt(final long latencyNanos, final Outcome outcome, final long now) {
+        assert Thread.holdsLock(this);
+        switch (outcome) {
+            case THROTTLED:
+                this.statistics.addThrottled();
+                this.limit = Math.max(1, this.limit * THROTTLE_BACKOFF_RATIO);
+                final long until = now + TimeUnit.MILLISECONDS.toNanos(DEFAULT_RETRY_AFTER_MILLIS);
+                if (until - this.pausedUntilNanos > 0) {
+                    this.pausedUntilNanos = until;
+                }
+                break;
+            case DROPPED:
+                this.limit = Math.max(1, this.limit * LATENCY_BACKOFF_RATIO);
+                break;
+            case ANSWERED:
+                if (this.baselineNanos == 0 || latencyNanos < this.baselineNanos) {
+                    this.baselineNanos = Math.max(1, latencyNanos);
+                } else {
+                    this.baselineNanos += (long) ((latencyNanos - this.baselineNanos) * BASELINE_DRIFT);
+                }
+                if (latencyNanos > this.baselineNanos * LATENCY_TOLERANCE) {
+                    this.limit = Math.max(1, this.limit * LATENCY_BACKOFF_RATIO);
+                } else {
+                    this.limit = Math.min(this.maxConcurrency, this.limit + 1 / this.limit);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    static Outcome outcomeOf(final Throwable failure) {
+        if (failure instanceof CancellationException) {
+            return Outcome.CANCELLED;
+        }
+        if (failure instanceof RestClientException) {
+            final RestClientException restFailure = (RestClientException) failure;
+            if (restFailure.getStatusCode().isPresent()) {
+                return isThrottled(restFailure.getStatusCode().get()) ? Outcome.THROTTLED : Outcome.ANSWERED;
+            }
+        }
+        return Outcome.DROPPED;
+    }
+
+    /** @return {@code true} if JIRA asks to slow down with the HTTP status. */
+    public static boolean isThrottled(final int statusCode) {
+        return statusCode == HTTP_TOO_MANY_REQUESTS || statusCode == HTTP_SERVICE_UNAVAILABLE;
+    }
+
+    static long parseRetryAfterMillis(final String retryAfter, final long nowMillis) {
+        if (retryAfter == null || retryAfter.trim().isEmpty()) {
+            return DEFAULT_RETRY_AFTER_MILLIS;
+        }
+        final String value = retryAfter.trim();
+        long millis;
+        try {
+            millis = TimeUnit.SECONDS.toMillis(Long.parseLong(value));
+        } catch (final NumberFormatException e) {
+            try {
+                millis = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli() - nowMillis;
+            } catch (final DateTimeParseException ex) {
+                millis = DEFAULT_RETRY_AFTER_MILLIS;
+            }
+        }
+        return Math.max(0, Math.min(MAX_RETRY_AFTER_MILLIS, millis));
+    }
+
+    double getBucketSize() {
+        return Math.max(1, this.maxRequestsPerSecond);
+    }
+
+    /** @return the current count of admitted concurrent requests. At least 1. */
+    public synchronized int getLimit() {
+        return (int) this.limit;
+    }
+
+    public int getMaxConcurrency() {
+        return this.maxConcurrency;
+    }
+
+    public double getMaxRequestsPerSecond() {
+        return this.maxRequestsPerSecond;
+    }
+
+    synchronized int getInFlight() {
+        return this.inFlight;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "RequestGovernor{" + "limit=" + limit + ", maxConcurrency=" + maxConcurrency
+                + ", maxRequestsPerSecond=" + maxRequestsPerSecond + ", inFlight=" + inFlight + '}';
+    }
+}
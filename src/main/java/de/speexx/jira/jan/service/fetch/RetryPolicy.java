@@ -0,0 +1,170 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.fetch;
+
+import com.atlassian.jira.rest.client.api.RestClientException;
+import com.atlassian.util.concurrent.Promise;
+import de.speexx.jira.jan.JiraAnalyzeException;
+import de.speexx.jira.jan.service.stats.RunStatistics;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Retries requests failed with a transient failure. A failure is transient
+ * if JIRA throttled the request or a gateway failed (HTTP 429, 502, 503
+ * and 504) or if the connection failed. The delay before a retry grows
+ * exponentially with the count of attempts and has a random jitter.
+ */
+public final class RetryPolicy {
+
+    static final Set<Integer> TRANSIENT_STATUS_CODES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(429, 502, 503, 504)));
+    static final long MAX_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    static final int MAX_CAUSE_DEPTH = 10;
+
+    /** Waits between two attempts. */
+    @FunctionalInterface
+    interface Sleeper {
+        void sleep(long millis) throws InterruptedException;
+    }
+
+    private final int maxRetries;
+    private final long baseDelayMillis;
+    private final RunStatistics statistics;
+    private final Sleeper sleeper;
+    private final Random random;
+
+    /**
+     * @param maxRetries the maximum count of retries of a request. Must not be negative.
+     * @param baseDelayMillis the delay before the first retry. Must not be negative.
+     * @param statistics counts the retries. Must not be {@code null}.
+     * @throws IllegalArgumentException if and only if a value is out of range.
+     */
+    public RetryPolicy(final int maxRetries, final long baseDelayMillis, final RunStatistics statistics) {
+        this(maxRetries, baseDelayMillis, statistics, TimeUnit.MILLISECONDS::sleep, new Random());
+    }
+
+    RetryPolicy(final int maxRetries,
+                final long baseDelayMillis,
+                final RunStatistics statistics,
+                final Sleeper sleeper,
+                final Random random) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("Maximum retries must not be negative: " + maxRetries);
+        }
+        if (baseDelayMillis < 0) {
+            throw new IllegalArgumentException("Base delay must not be negative: " + baseDelayMillis);
+        }
+        this.maxRetries = maxRetries;
+        this.baseDelayMillis = baseDelayMillis;
+        this.statistics = Objects.requireNonNull(statistics, "statistics is null");
+        this.sleeper = Objects.requireNonNull(sleeper, "sleeper is null");
+        this.random = Objects.requireNonNull(random, "random is null");
+    }
+
+    /** @return a policy which never retries. */
+    public static RetryPolicy none() {
+        return new RetryPolicy(0, 0, new RunStatistics());
+    }
+
+    /**
+     * Starts a request and waits for the result. Retries the request on a
+     * transient failure.
+     * @param request starts the request. Must not be {@code null}.
+     * @return the result of the request.
+     * @throws RuntimeException the failure of the last attempt.
+     */
+    public <T> T call(final Supplier<Promise<T>> request) {
+        Objects.requireNonNull(request, "request is null");
+        return claim(request.get(), request);
+    }
+
+    /**
+     * Waits for the result of a running request. Retries the request on a
+     * transient failure.
+     * @param running the running request. Must not be {@code null}.
+     * @param retry starts the request again. Must not be {@code null}.
+     * @return the result of the request.
+     * @throws RuntimeException the failure of the last attempt.
+     */
+    public <T> T claim(final Promise<T> running, final Supplier<Promise<T>> retry) {
+        Objects.requireNonNull(running, "running is null");
+        Objects.requireNonNull(retry, "retry is null");
+        Promise<T> attempt = running;
+        for (int retries = 0; ; retries++) {
+            try {
+                return attempt.claim();
+            } catch (final RuntimeException e) {
+                if (retries >= this.maxRetries || !isTransient(e)) {
+                    throw e;
+                }
+                pause(retries);
+                this.statistics.addRetry();
+                attempt = retry.get();
+            }
+        }
+    }
+
+    void pause(final int retries) {
+        try {
+            this.sleeper.sleep(delayMillis(retries));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JiraAnalyzeException(e);
+        }
+    }
+
+    /** @return the delay before the retry after <em>retries</em> previous retries. */
+    long delayMillis(final int retries) {
+        final long delay = Math.min(MAX_DELAY_MILLIS, this.baseDelayMillis << Math.min(retries, 20));
+        final long halfDelay = delay / 2;
+        synchronized (this.random) {
+            return halfDelay + (long) (this.random.nextDouble() * (delay - halfDelay));
+        }
+    }
+
+    static boolean isTransient(final Throwable failure) {
+        Throwable current = failure;
+        for (int depth = 0; current != null && depth < MAX_CAUSE_DEPTH; depth++) {
+            if (current instanceof RestClientException && ((RestClientException) current).getStatusCode().isPresent()) {
+                return TRANSIENT_STATUS_CODES.contains(((RestClientException) current).getStatusCode().get());
+            }
+            if (current instanceof IOException || current instanceof TimeoutException) {
+                return true;
+            }
+            current = current.getCause();
+        }
+        return false;
+    }
+
+    public int getMaxRetries() {
+        return this.maxRetries;
+    }
+
+    @Override
+    public String toString() {
+        return "RetryPolicy{" + "maxRetries=" + maxRetries + ", baseDelayMillis=" + baseDelayMillis + '}';
+    }
+}
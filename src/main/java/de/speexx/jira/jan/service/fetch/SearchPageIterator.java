@@ -0,0 +1,190 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.fetch;
+
+import com.atlassian.util.concurrent.Promise;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Iterates over the pages of a search. While the caller processes a page the
+ * requests for up to <em>prefetch depth</em> following pages are already
+ * running. Because the pages are only requested if the caller pulls the next
+ * page, at most <em>prefetch depth + 1</em> pages are held in memory.
+ * <p>The total count of issues and the page size granted by JIRA are taken
+ * from the first page. JIRA may grant a smaller page size than requested.</p>
+ * <p>A page request failed with a transient failure is repeated according
+ * to the {@link RetryPolicy}.</p>
+ */
+public final class SearchPageIterator implements Iterator<ExpandedSearchResult> {
+
+    /** Starts the request for a single page of a search. */
+    @FunctionalInterface
+    public interface PageLoader {
+        Promise<ExpandedSearchResult> load(int startAt, int maxResults);
+    }
+
+    private final PageLoader pageLoader;
+    private final int prefetchDepth;
+    private final RetryPolicy retryPolicy;
+    private final Deque<PendingPage> pending = new ArrayDeque<>();
+    private final int firstStartAt;
+    private int pageSize;
+    private int nextStartAt;
+    private int total = -1;
+
+    /**
+     * Creates the iterator and starts the request for the first page.
+     * @param pageLoader starts the request for a page. Must not be {@code null}.
+     * @param pageSize the requested count of issues per page. Must be greater than 0.
+     * @param prefetchDepth the count of pages requested ahead of the page
+     *                      the caller processes. Must not be negative.
+     * @throws NullPointerException if and only if <em>pageLoader</em> is {@code null}.
+     * @throws IllegalArgumentException if and only if <em>pageSize</em> or
+     *                                  <em>prefetchDepth</em> is out of range.
+     */
+    public SearchPageIterator(final PageLoader pageLoader, final int pageSize, final int prefetchDepth) {
+        this(pageLoader, pageSize, prefetchDepth, 0, RetryPolicy.none());
+    }
+
+    /**
+     * Creates the iterator and starts the request for the first page.
+     * @param pageLoader starts the request for a page. Must not be {@code null}.
+     * @param pageSize the requested count of issues per page. Must be greater than 0.
+     * @param prefetchDepth the count of pages requested ahead of the page
+     *                      the caller processes. Must not be negative.
+     * @param firstStartAt the index of the first issue of the first page. Must not be negative.
+     * @param retryPolicy repeats failed page requests. Must not be {@code null}.
+     * @throws NullPointerException if and only if <em>pageLoader</em> or
+     *                              <em>retryPolicy</em> is {@code null}.
+     * @throws IllegalArgumentException if and only if <em>pageSize</em>,
+     *                                  <em>prefetchDepth</em> or <em>firstStartAt</em> is out of range.
+     */
+    public SearchPageIterator(final PageLoader pageLoader,
+                              final int pageSize,
+                              final int prefetchDepth,
+                              final int firstStartAt,
+                              final RetryPolicy retryPolicy) {
+        this.pageLoader = Objects.requireNonNull(pageLoader, "pageLoader is null");
+        this.retryPolicy = Objects.requireNonNull(retryPolicy, "retryPolicy is null");
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be greater than 0: " + pageSize);
+        }
+        if (prefetchDepth < 0) {
+            throw new IllegalArgumentException("Prefetch depth must not be negative: " + prefetchDepth);
+        }
+        if (firstStartAt < 0) {
+            throw new IllegalArgumentException("First start index must not be negative: " + firstStartAt);
+        }
+        this.pageSize = pageSize;
+        this.prefetchDepth = prefetchDepth;
+        this.firstStartAt = firstStartAt;
+        this.nextStartAt = firstStartAt;
+        requestPage();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !this.pending.isEmpty() || hasUnrequestedPage();
+    }
+
+    @Override
+    public ExpandedSearchResult next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more search result pages");
+        }
+        if (this.pending.isEmpty()) {
+            requestNextPage();
+        }
+        final PendingPage next = this.pending.removeFirst();
+        final ExpandedSearchResult page = this.retryPolicy.claim(next.result, () -> this.pageLoader.load(next.startAt, next.maxResults));
+        if (this.total == -1) {
+            adjustToFirstPage(page);
+        }
+        if (!page.getIssues().iterator().hasNext()) {
+            // The result shrunk while paging. Following pages would be empty too.
+            cancelPending();
+        } else {
+            prefetch();
+        }
+        return page;
+    }
+
+    /**
+     * @return the total count of issues of the search or {@code -1} if the
+     *         first page was not handed out yet.
+     */
+    public int getTotal() {
+        return this.total;
+    }
+
+    public int getPrefetchDepth() {
+        return this.prefetchDepth;
+    }
+
+    void adjustToFirstPage(final ExpandedSearchResult firstPage) {
+        assert firstPage != null;
+        this.total = firstPage.getTotal();
+        final int grantedPageSize = firstPage.getSearchResult().getMaxResults();
+        if (grantedPageSize > 0 && grantedPageSize < this.pageSize) {
+            this.pageSize = grantedPageSize;
+            this.nextStartAt = this.firstStartAt + grantedPageSize;
+        }
+    }
+
+    void prefetch() {
+        while (this.pending.size() < this.prefetchDepth && hasUnrequestedPage()) {
+            requestNextPage();
+        }
+    }
+
+    void requestNextPage() {
+        assert hasUnrequestedPage();
+        requestPage();
+    }
+
+    void requestPage() {
+        this.pending.addLast(new PendingPage(this.nextStartAt, this.pageSize, this.pageLoader.load(this.nextStartAt, this.pageSize)));
+        this.nextStartAt += this.pageSize;
+    }
+
+    boolean hasUnrequestedPage() {
+        return this.total != -1 && this.nextStartAt < this.total;
+    }
+
+    void cancelPending() {
+        this.pending.forEach(page -> page.result.cancel(true));
+        this.pending.clear();
+        this.total = Math.min(this.total, this.nextStartAt);
+    }
+
+    static final class PendingPage {
+        final int startAt;
+        final int maxResults;
+        final Promise<ExpandedSearchResult> result;
+
+        PendingPage(final int startAt, final int maxResults, final Promise<ExpandedSearchResult> result) {
+            this.startAt = startAt;
+            this.maxResults = maxResults;
+            this.result = result;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.fetch;
+
+import com.atlassian.event.api.EventPublisher;
+import com.atlassian.httpclient.api.HttpClient;
+import com.atlassian.httpclient.api.factory.HttpClientOptions;
+import com.atlassian.httpclient.apache.httpcomponents.DefaultHttpClientFactory;
+import com.atlassian.jira.rest.client.api.AuthenticationHandler;
+import com.atlassian.jira.rest.client.internal.async.AtlassianHttpClientDecorator;
+import com.atlassian.jira.rest.client.internal.async.DisposableHttpClient;
+import com.atlassian.sal.api.ApplicationProperties;
+import com.atlassian.sal.api.UrlMode;
+import com.atlassian.sal.api.executor.ThreadLocalContextManager;
+import java.io.File;
+import java.net.URI;
+import java.util.Date;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates the HTTP client for all JIRA requests of a run. Unlike the
+ * <tt>AsynchronousHttpClientFactory</tt> of the JIRA REST client the
+ * connection pool and the timeouts are configurable.
+ */
+public final class SharedHttpClientFactory {
+
+    static final String DISPLAY_NAME = "jan";
+    static final String THREAD_PREFIX = "jan-http";
+
+    /**
+     * Creates the options for the HTTP client.
+     * @param maxConnections maximum count of open connections to JIRA. Must be greater than 0.
+     * @param connectTimeoutSeconds timeout for establishing a connection. Must be greater than 0.
+     * @param socketTimeoutSeconds timeout for waiting on data of a response. Must be greater than 0.
+     * @param connectionTtlSeconds total lifetime of a pooled connection, busy or idle. A connection
+     *                             is closed and replaced after this time. Must be greater than 0.
+     * @return the options.
+     * @throws IllegalArgumentException if and only if a value is out of range.
+     */
+    public static HttpClientOptions createOptions(final int maxConnections,
+                                                  final int connectTimeoutSeconds,
+                                                  final int socketTimeoutSeconds,
+                                                  final int connectionTtlSeconds) {
+        if (maxConnections <= 0) {
+            throw new IllegalArgumentException("Maximum connections must be greater than 0: " + maxConnections);
+        }
+        if (connectTimeoutSeconds <= 0 || socketTimeoutSeconds <= 0) {
+            throw new IllegalArgumentException("Timeouts must be greater than 0: " + connectTimeoutSeconds + "/" + socketTimeoutSeconds);
+        }
+        if (connectionTtlSeconds <= 0) {
+            throw new IllegalArgumentException("Connection time to live must be greater than 0: " + connectionTtlSeconds);
+        }
+        final HttpClientOptions options = new HttpClientOptions();
+        options.setMaxTotalConnections(maxConnections);
+        options.setMaxConnectionsPerHost(maxConnections);
+        options.setMaxCallbackThreadPoolSize(maxConnections);
+        options.setConnectionTimeout(connectTimeoutSeconds, TimeUnit.SECONDS);
+        options.setSocketTimeout(socketTimeoutSeconds, TimeUnit.SECONDS);
+        options.setConnectionPoolTimeToLive(connectionTtlSeconds, TimeUnit.SECONDS);
+        options.setThreadPrefix(THREAD_PREFIX);
+        options.setIgnoreCookies(true);
+        return options;
+    }
+
+    /**
+     * Creates a new HTTP client. Destroying the client releases the connection pool.
+     * @param serverUri the URI of the JIRA server. Must not be {@code null}.
+     * @param authenticationHandler the authentication for all requests. Must not be {@code null}.
+     * @param options the options of the client. Must not be {@code null}.
+     * @return the client. The caller is responsible for destroying the client.
+     */
+    @SuppressWarnings("unchecked")
+    public DisposableHttpClient createClient(final URI serverUri,
+                                             final AuthenticationHandler authenticationHandler,
+                                             final HttpClientOptions options) {
+        Objects.requireNonNull(serverUri, "serverUri is null");
+        Objects.requireNonNull(authenticationHandler, "authenticationHandler is null");
+        Objects.requireNonNull(options, "options is null");
+
+        final DefaultHttpClientFactory factory = new DefaultHttpClientFactory(
+                new NoOpEventPublisher(), new JanApplicationProperties(serverUri), new NoOpThreadLocalContextManager());
+        final HttpClient httpClient = factory.create(options);
+
+        return new AtlassianHttpClientDecorator(httpClient, authenticationHandler) {
+            @Override
+            public void destroy() throws Exception {
+                factory.dispose(httpClient);
+            }
+        };
+    }
+
+    static final class NoOpEventPublisher implements EventPublisher {
+        @Override
+        public void publish(final Object event) {
+        }
+
+        @Override
+        public void register(final Object listener) {
+        }
+
+        @Override
+        public void unregister(final Object listener) {
+        }
+
+        @Override
+        public void unregisterAll() {
+        }
+    }
+
+    static final class NoOpThreadLocalContextManager implements ThreadLocalContextManager<Object> {
+        @Override
+        public Object getThreadLocalContext() {
+            return null;
+        }
+
+        @Override
+        public void setThreadLocalContext(final Object context) {
+        }
+
+        @Override
+        public void clearThreadLocalContext() {
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    static final class JanApplicationProperties implements ApplicationProperties {
+
+        private final String baseUrl;
+
+        JanApplicationProperties(final URI serverUri) {
+            assert serverUri != null;
+            this.baseUrl = serverUri.getPath();
+        }
+
+        @Override
+        public String getBaseUrl() {
+            return this.baseUrl;
+        }
+
+        @Override
+        public String getBaseUrl(final UrlMode urlMode) {
+            return this.baseUrl;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return DISPLAY_NAME;
+        }
+
+        @Override
+        public String getPlatformId() {
+            return ApplicationProperties.PLATFORM_JIRA;
+        }
+
+        @Override
+        public String getVersion() {
+            final String version = SharedHttpClientFactory.class.getPackage().getImplementationVersion();
+            return version != null ? version : "0";
+        }
+
+        /** @return the epoch. The build date is not known. */
+        @Override
+        public Date getBuildDate() {
+            return new Date(0L);
+        }
+
+        @Override
+        public String getBuildNumber() {
+            return "0";
+        }
+
+        @Override
+        public File getHomeDirectory() {
+            return new File(".");
+        }
+
+        /** @return always {@code null}. No application properties are defined. */
+        @Override
+        public String getPropertyValue(final String key) {
+            return null;
+        }
+    }
+}
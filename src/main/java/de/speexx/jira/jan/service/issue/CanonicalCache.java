@@ -0,0 +1,160 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.issue;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Thread-safe cache of canonical instances. A lookup probes the cache with a
+ * hash and a key of the caller's choice, so no instance has to be created to
+ * find an already cached one. Lookups don't lock. Adding a missing instance
+ * locks the cache.
+ * <p>The count of cached instances can be bounded. If the cache is full,
+ * a missing instance is created but not cached.</p>
+ * @param <T> the type of the cached instances
+ */
+final class CanonicalCache<T> {
+
+    static final int UNBOUNDED = Integer.MAX_VALUE;
+    static final int INITIAL_CAPACITY = 64;
+
+    private final int maxSize;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private volatile AtomicReferenceArray<Node<T>> table = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+    private int size;
+
+    /**
+     * @param maxSize the maximum count of cached instances.
+     *                {@link #UNBOUNDED} for no limit.
+     */
+    CanonicalCache(final int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize must not be negative: " + maxSize);
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the cached instance matching the key or caches a new instance.
+     * The functions should be stateless to keep the lookup free of allocations.
+     * @param hash the hash of the key. Equal keys must have equal hashes.
+     * @param key the key of the instance.
+     * @param matcher tests whether a cached instance matches the key.
+     * @param factory creates a new instance for the key on a miss. The
+     *                created instance must match the key and is cached with
+     *                the given hash.
+     * @return the canonical instance for the key.
+     */
+    <K> T get(final int hash, final K key, final BiPredicate<T, K> matcher, final Function<K, T> factory) {
+        final int spread = spread(hash);
+        final T cached = find(this.table, spread, key, matcher);
+        if (cached != null) {
+            this.hits.increment();
+            return cached;
+        }
+        return add(spread, key, matcher, factory);
+    }
+
+    /**
+     * Returns the cached instance matching the key without adding a new instance.
+     * @return the cached instance or {@code null} if not cached.
+     */
+    <K> T find(final int hash, final K key, final BiPredicate<T, K> matcher) {
+        return find(this.table, spread(hash), key, matcher);
+    }
+
+    private synchronized <K> T add(final int hash, final K key, final BiPredicate<T, K> matcher, final Function<K, T> factory) {
+        final T cached = find(this.table, hash, key, matcher);
+        if (cached != null) {
+            this.hits.increment();
+            return cached;
+        }
+        this.misses.increment();
+        final T value = factory.apply(key);
+        if (this.size < this.maxSize) {
+            AtomicReferenceArray<Node<T>> current = this.table;
+            if (this.size >= current.length() - (current.length() >>> 2)) {
+                current = resize(current);
+                this.table = current;
+            }
+            final int idx = hash & (current.length() - 1);
+            current.set(idx, new Node<>(hash, value, current.get(idx)));
+            this.size++;
+        }
+        return value;
+    }
+
+    /** @return the count of the cached instances. */
+    synchronized int size() {
+        return this.size;
+    }
+
+    long getHits() {
+        return this.hits.sum();
+    }
+
+    long getMisses() {
+        return this.misses.sum();
+    }
+
+    static int spread(final int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    static <T, K> T find(final AtomicReferenceArray<Node<T>> table, final int hash, final K key, final BiPredicate<T, K> matcher) {
+        for (Node<T> node = table.get(hash & (table.length() - 1)); node != null; node = node.next) {
+            if (node.hash == hash && matcher.test(node.value, key)) {
+                return node.value;
+            }
+        }
+        return null;
+    }
+
+    static <T> AtomicReferenceArray<Node<T>> resize(final AtomicReferenceArray<Node<T>> table) {
+        final AtomicReferenceArray<Node<T>> resized = new AtomicReferenceArray<>(table.length() * 2);
+        final int mask = resized.length() - 1;
+        for (int idx = 0; idx < table.length(); idx++) {
+            for (Node<T> node = table.get(idx); node != null; node = node.next) {
+                final int target = node.hash & mask;
+                resized.set(target, new Node<>(node.hash, node.value, resized.get(target)));
+            }
+        }
+        return resized;
+    }
+
+    @Override
+    public String toString() {
+        return "CanonicalCache{" + "size=" + size() + ", maxSize=" + maxSize + ", hits=" + getHits() + ", misses=" + getMisses() + '}';
+    }
+
+    static final class Node<T> {
+        final int hash;
+        final T value;
+        final Node<T> next;
+
+        Node(final int hash, final T value, final Node<T> next) {
+            this.hash = hash;
+            this.value = value;
+            this.next = next;
+        }
+    }
+}
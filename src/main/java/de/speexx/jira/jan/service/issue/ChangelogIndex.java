@@ -0,0 +1,275 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.issue;
+
+import com.atlassian.jira.rest.client.api.domain.ChangelogGroup;
+import com.atlassian.jira.rest.client.api.domain.ChangelogItem;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import org.joda.time.DateTime;
+
+/**
+ * Time ordered timelines of the changes of selected fields of one issue.
+ * The index is created in a single pass over the changelog of the issue by
+ * {@link Fields#index(Iterable, Function)}. Consumers read the timeline of a
+ * field instead of walking the changelog again.
+ * <p>The changes of a timeline are ordered by the creation time of their
+ * changelog entry. Changes of the same time keep the changelog order.</p>
+ */
+public final class ChangelogIndex {
+
+    private static final Comparator<Change> BY_CREATED = Comparator.comparing(Change::getCreated);
+
+    private final Fields fields;
+    private final List<List<Change>> timelines;
+
+    ChangelogIndex(final Fields fields, final List<List<Change>> timelines) {
+        assert fields != null;
+        assert timelines != null && timelines.size() == fields.size();
+        this.fields = fields;
+        this.timelines = timelines;
+    }
+
+    /** @return the indexed fields. Never {@code null}. */
+    public Fields getFields() {
+        return this.fields;
+    }
+
+    /**
+     * Returns the timeline of the given field.
+     * @param fieldName the field name. Must not be {@code null}.
+     * @return the changes of the field. Empty if the field has no changes or
+     *         is not indexed. Never {@code null}.
+     */
+    public List<Change> getTimeline(final FieldName fieldName) {
+        Objects.requireNonNull(fieldName, "fieldName is null");
+        final int idx = this.fields.indexOf(fieldName);
+        return idx < 0 ? Collections.emptyList() : getTimeline(idx);
+    }
+
+    /**
+     * Returns the timeline of the field at the given position of the
+     * {@link #getFields() indexed fields}.
+     * @param idx the position of the field.
+     * @return the changes of the field. Never {@code null}.
+     * @throws IndexOutOfBoundsException if <em>idx</em> is not a position of an indexed field.
+     */
+    public List<Change> getTimeline(final int idx) {
+        final List<Change> timeline = this.timelines.get(idx);
+        return timeline == null ? Collections.emptyList() : Collections.unmodifiableList(timeline);
+    }
+
+    @Override
+    public String toString() {
+        return "ChangelogIndex{" + "fields=" + fields + ", timelines=" + timelines + '}';
+    }
+
+    /**
+     * The field names to index, compiled once for all issues of a run. A
+     * changelog item is matched to its field by a case insensitive hash of
+     * the field name without creating a new {@link FieldName}.
+     * <p>The implementation is immutable.</p>
+     */
+    public static final class Fields {
+
+        private final FieldName[] requested;
+        private final FieldName[] fieldNames;
+        private final int[] hashes;
+
+        private Fields(final FieldName[] requested, final FieldName[] fieldNames) {
+            this.requested = requested;
+            this.fieldNames = fieldNames;
+            this.hashes = new int[fieldNames.length];
+            for (int idx = 0; idx < fieldNames.length; idx++) {
+                this.hashes[idx] = FieldPathExtractor.caseInsensitiveHash(fieldNames[idx].asString());
+            }
+        }
+
+        /**
+         * Compiles the given field names. Duplicates are indexed once.
+         * @param fieldNames the field names to index. Must not be {@code null}.
+         * @return the compiled field names.
+         */
+        public static Fields of(final Collection<FieldName> fieldNames) {
+            Objects.requireNonNull(fieldNames, "fieldNames is null");
+            final Collection<FieldName> unique = new LinkedHashSet<>(fieldNames);
+            return new Fields(fieldNames.toArray(new FieldName[fieldNames.size()]),
+                              unique.toArray(new FieldName[unique.size()]));
+        }
+
+        /**
+         * Indexes the changes of the compiled fields in the given changelog.
+         * @param changelog the changelog of an issue. Must not be {@code null}.
+         * @param timeConverter converts the creation time of a changelog entry.
+         *                      Called only for entries with changes of an indexed field.
+         *                      Must not be {@code null}.
+         * @return the index. Never {@code null}.
+         */
+        public ChangelogIndex index(final Iterable<ChangelogGroup> changelog, final Function<DateTime, LocalDateTime> timeConverter) {
+            Objects.requireNonNull(changelog, "changelog is null");
+            Objects.requireNonNull(timeConverter, "timeConverter is null");
+
+            final List<List<Change>> timelines = new ArrayList<>(Collections.nCopies(this.fieldNames.length, null));
+            if (this.fieldNames.length == 0) {
+                return new ChangelogIndex(this, timelines);
+            }
+            final boolean[] unordered = new boolean[this.fieldNames.length];
+            for (final ChangelogGroup group : changelog) {
+                LocalDateTime created = null;
+                for (final ChangelogItem item : group.getItems()) {
+                    final int idx = indexOf(item.getField());
+                    if (idx < 0) {
+                        continue;
+                    }
+                    if (created == null) {
+                        created = timeConverter.apply(group.getCreated());
+                    }
+                    List<Change> timeline = timelines.get(idx);
+                    if (timeline == null) {
+                        timeline = new ArrayList<>();
+                        timelines.set(idx, timeline);
+                    } else if (created.isBefore(timeline.get(timeline.size() - 1).getCreated())) {
+                        unordered[idx] = true;
+                    }
+                    timeline.add(new Change(item, created));
+                }
+            }
+            for (int idx = 0; idx < unordered.length; idx++) {
+                if (unordered[idx]) {
+                    timelines.get(idx).sort(BY_CREATED);
+                }
+            }
+            return new ChangelogIndex(this, timelines);
+        }
+
+        /** @return the count of the compiled field names. */
+        public int size() {
+            return this.fieldNames.length;
+        }
+
+        /**
+         * @param idx the position of the field name.
+         * @return the field name at the given position.
+         */
+        public FieldName getFieldName(final int idx) {
+            return this.fieldNames[idx];
+        }
+
+        int indexOf(final FieldName fieldName) {
+            assert fieldName != null;
+            for (int idx = 0; idx < this.fieldNames.length; idx++) {
+                if (this.fieldNames[idx].equals(fieldName)) {
+                    return idx;
+                }
+            }
+            return -1;
+        }
+
+        int indexOf(final String field) {
+            if (field == null) {
+                return -1;
+            }
+            final int hash = FieldPathExtractor.caseInsensitiveHash(field);
+            for (int idx = 0; idx < this.hashes.length; idx++) {
+                if (this.hashes[idx] == hash && this.fieldNames[idx].asString().equalsIgnoreCase(field)) {
+                    return idx;
+                }
+            }
+            return -1;
+        }
+
+        boolean isCompiledFor(final Collection<FieldName> fieldNames) {
+            assert fieldNames != null;
+            if (fieldNames.size() != this.requested.length) {
+                return false;
+            }
+            int idx = 0;
+            for (final FieldName fieldName : fieldNames) {
+                if (!this.requested[idx++].equals(fieldName)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "Fields{" + "fieldNames=" + Arrays.toString(fieldNames) + '}';
+        }
+    }
+
+    /**
+     * A change of a field in the changelog.
+     * <p>The implementation is immutable.</p>
+     */
+    public static final class Change {
+
+        private final String from;
+        private final String fromString;
+        private final String to;
+        private final String toString;
+        private final LocalDateTime created;
+
+        Change(final ChangelogItem item, final LocalDateTime created) {
+            assert item != null;
+            this.from = item.getFrom();
+            this.fromString = item.getFromString();
+            this.to = item.getTo();
+            this.toString = item.getToString();
+            this.created = Objects.requireNonNull(created, "created is null");
+        }
+
+        /** @return the id of the value before the change. Can be {@code null}. */
+        public String getFrom() {
+            return this.from;
+        }
+
+        /** @return the value before the change. Can be {@code null}. */
+        public String getFromString() {
+            return this.fromString;
+        }
+
+        /** @return the id of the value after the change. Can be {@code null}. */
+        public String getTo() {
+            return this.to;
+        }
+
+        /** @return the value after the change. Can be {@code null}. */
+        public String getToString() {
+            return this.toString;
+        }
+
+        /** @return the creation time of the changelog entry of the change. Never {@code null}. */
+        public LocalDateTime getCreated() {
+            return this.created;
+        }
+
+        @Override
+        public String toString() {
+            return "Change{" + "from=" + fromString + ", at=" + created + ", to=" + toString + '}';
+        }
+    }
+}
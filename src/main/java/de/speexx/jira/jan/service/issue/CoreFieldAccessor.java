@@ -0,0 +1,97 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.issue;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import de.speexx.jira.jan.JiraAnalyzeException;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Reads the value of a core field from an issue. The getter of the issue is
+ * compiled once with {@link LambdaMetafactory} into a direct call and fused
+ * with the {@link ValueFetcher} of the field. Reading a value neither uses
+ * reflection nor allocates an {@link java.util.Optional}.
+ */
+final class CoreFieldAccessor {
+
+    private final Function<Issue, Object> getter;
+    private final ValueFetcher valueFetcher;
+
+    /**
+     * @param getter reads the raw value from the issue. Must not be {@code null}.
+     * @param valueFetcher converts the raw value. Must not be {@code null}.
+     */
+    CoreFieldAccessor(final Function<Issue, Object> getter, final ValueFetcher valueFetcher) {
+        this.getter = Objects.requireNonNull(getter, "getter is null");
+        this.valueFetcher = Objects.requireNonNull(valueFetcher, "valueFetcher is null");
+    }
+
+    /**
+     * @param issue the issue to read the value from. Must not be {@code null}.
+     * @return the converted value or {@code null} if the issue has no value.
+     * @throws UnsupportedSourceTypeException if and only if the value fetcher
+     *                                        doesn't support the raw value.
+     */
+    Object fetch(final Issue issue) {
+        final Object source = this.getter.apply(issue);
+        return source == null ? null : this.valueFetcher.fetchValue(source);
+    }
+
+    /**
+     * Compiles the given public no-argument method into a function.
+     * @param getter the method. Must not be {@code null}.
+     * @return a function calling the method directly.
+     * @throws JiraAnalyzeException if and only if the method can't be compiled.
+     */
+    @SuppressWarnings("unchecked")
+    static Function<Issue, Object> compileGetter(final Method getter) {
+        Objects.requireNonNull(getter, "getter is null");
+        if (getter.getParameterCount() != 0) {
+            throw new JiraAnalyzeException("Getter must not have parameters: " + getter);
+        }
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.lookup();
+            final MethodHandle handle = lookup.unreflect(getter);
+            final CallSite site = LambdaMetafactory.metafactory(lookup,
+                                                                "apply",
+                                                                MethodType.methodType(Function.class),
+                                                                MethodType.methodType(Object.class, Object.class),
+                                                                handle,
+                                                                handle.type().wrap());
+            return (Function<Issue, Object>) site.getTarget().invoke();
+        } catch (final Exception e) {
+            throw new JiraAnalyzeException("Unable to compile getter " + getter, e);
+        } catch (final Error e) {
+            throw e;
+        } catch (final Throwable t) {
+            throw new AssertionError(t);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CoreFieldAccessor{" + "valueFetcher=" + valueFetcher + '}';
+    }
+}
@@ -39,11 +39,16 @@ class DateTimeValueFetcher implements ValueFetcher {
      */
     @Override
     public Optional<Object> getValue(final Object dataSource) {
+        return Optional.ofNullable(fetchValue(dataSource));
+    }
+
+    @Override
+    public Object fetchValue(final Object dataSource) {
         if (dataSource == null) {
-            return Optional.empty();
+            return null;
         }
         if (dataSource instanceof DateTime) {
-            return Optional.ofNullable(TIME_CONVERTER.jodaDateTimeToJava8LocalDateTime(((DateTime) dataSource)));
+            return TIME_CONVERTER.jodaDateTimeToJava8LocalDateTime(((DateTime) dataSource));
         }
         throw new UnsupportedSourceTypeException("Value type " + dataSource.getClass() + " not supported by " + this.getClass().getName());
     }
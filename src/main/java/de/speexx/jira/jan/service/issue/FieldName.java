@@ -81,6 +81,6 @@ public final class FieldName {
     
     static String adjustFieldName(final String name) {
         assert !Objects.isNull(name);
-        return name.toLowerCase(Locale.ENGLISH).intern();
+        return name.toLowerCase(Locale.ENGLISH);
     }
 }
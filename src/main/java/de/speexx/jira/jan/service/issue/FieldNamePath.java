@@ -97,6 +97,20 @@ public final class FieldNamePath implements Iterable<FieldName> {
         return this.pathElements.get(0);
     }
 
+    boolean hasPathElements(final FieldName[] elements) {
+        assert elements != null;
+        final int length = elements.length;
+        if (length != this.pathElements.size()) {
+            return false;
+        }
+        for (int idx = 0; idx < length; idx++) {
+            if (!this.pathElements.get(idx).equals(elements[idx])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Returns the count of path elements.
      * @return the count of path elements.
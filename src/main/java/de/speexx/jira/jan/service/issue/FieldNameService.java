@@ -17,17 +17,23 @@
  */
 package de.speexx.jira.jan.service.issue;
 
-import java.util.Map;
+import java.util.Arrays;
 import java.util.Objects;
-import java.util.WeakHashMap;
 
 /**
  * Simple service to create {@link FieldName} and {@link FieldNamePath} instances.
+ * The created instances are canonical for equal names and paths up to
+ * {@value #MAX_CACHED_FIELD_NAMES} names and {@value #MAX_CACHED_FIELD_NAME_PATHS}
+ * paths. The service is thread-safe. A lookup of an already created instance
+ * doesn't lock and doesn't create a new instance.
  */
 public final class FieldNameService {
 
-    private static final Map<String, FieldName> FIELDNAME_CACHE = new WeakHashMap<>();
-    private static final Map<FieldNamePath, FieldNamePath> FIELDNAMEPATH_CACHE = new WeakHashMap<>();
+    static final int MAX_CACHED_FIELD_NAMES = 16_384;
+    static final int MAX_CACHED_FIELD_NAME_PATHS = 16_384;
+
+    private static final CanonicalCache<FieldName> FIELDNAME_CACHE = new CanonicalCache<>(MAX_CACHED_FIELD_NAMES);
+    private static final CanonicalCache<FieldNamePath> FIELDNAMEPATH_CACHE = new CanonicalCache<>(MAX_CACHED_FIELD_NAME_PATHS);
     
     /**
      * Returns an instance of a {@code FieldNamePath} based on the given parameter.
@@ -38,13 +44,11 @@ public final class FieldNameService {
      *                                   {@code null} element or the array is empty.
      */
     public FieldNamePath createFieldNamePath(final FieldName... pathElements) {
-        final FieldNamePath path = new FieldNamePath(pathElements);
-        final FieldNamePath old = FIELDNAMEPATH_CACHE.get(path);
-        if (old != null) {
-            return old;
-        }
-        FIELDNAMEPATH_CACHE.put(path, path);
-        return path;
+        Objects.requireNonNull(pathElements, "pathElements is null");
+        return FIELDNAMEPATH_CACHE.get(Arrays.hashCode(pathElements),
+                                       pathElements,
+                                       FieldNamePath::hasPathElements,
+                                       elements -> new FieldNamePath(elements.clone()));
     }
 
     /**
@@ -54,13 +58,54 @@ public final class FieldNameService {
      * @throws NullPointerException if and only if <em>name</em> is {@code null}
      */
     public FieldName createFieldName(final String name) {
-        final String adjusted = FieldName.adjustFieldName(Objects.requireNonNull(name, "fieldname is null"));
-        final FieldName fieldName = FIELDNAME_CACHE.get(adjusted);
-        if (fieldName == null) {
-            final FieldName newFieldName = new FieldName(name);
-            FIELDNAME_CACHE.putIfAbsent(adjusted, newFieldName);
-            return newFieldName;
+        Objects.requireNonNull(name, "fieldname is null");
+        if (isAscii(name)) {
+            // An ASCII name lowercases char by char. The hash and the match equal those of the adjusted name.
+            return FIELDNAME_CACHE.get(FieldPathExtractor.caseInsensitiveHash(name),
+                                       name,
+                                       (fieldName, key) -> isAdjustedAsciiName(fieldName.asString(), key),
+                                       FieldName::new);
+        }
+        final String adjusted = FieldName.adjustFieldName(name);
+        return FIELDNAME_CACHE.get(FieldPathExtractor.caseInsensitiveHash(adjusted),
+                                   adjusted,
+                                   (fieldName, key) -> fieldName.asString().equals(key),
+                                   FieldName::new);
+    }
+
+    /** @return the count of lookups answered by an already created instance. */
+    public long getCacheHits() {
+        return FIELDNAME_CACHE.getHits() + FIELDNAMEPATH_CACHE.getHits();
+    }
+
+    /** @return the count of lookups which created a new instance. */
+    public long getCacheMisses() {
+        return FIELDNAME_CACHE.getMisses() + FIELDNAMEPATH_CACHE.getMisses();
+    }
+
+    static boolean isAdjustedAsciiName(final String adjusted, final String asciiName) {
+        assert adjusted != null;
+        assert asciiName != null;
+        final int length = asciiName.length();
+        if (adjusted.length() != length) {
+            return false;
+        }
+        for (int idx = 0; idx < length; idx++) {
+            if (adjusted.charAt(idx) != Character.toLowerCase(asciiName.charAt(idx))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean isAscii(final String name) {
+        assert name != null;
+        final int length = name.length();
+        for (int idx = 0; idx < length; idx++) {
+            if (name.charAt(idx) >= 0x80) {
+                return false;
+            }
         }
-        return fieldName;
+        return true;
     }
 }
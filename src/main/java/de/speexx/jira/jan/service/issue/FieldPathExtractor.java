@@ -0,0 +1,241 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.issue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONObject;
+
+/**
+ * Extracts the values of all requested {@link FieldNamePath}s from the
+ * issue fields. The paths are compiled once into a prefix trie. The value of
+ * an issue field is walked once for all paths with the same root. The keys of
+ * the trie are normalized at compile time. Key lookups compare case
+ * insensitive without creating new {@link FieldName}s.
+ * <p>A path element addresses a key of a JSON object. A JSON array doesn't
+ * consume a path element. The path continues in the first element of the
+ * array. If a path reaches a scalar value before its end, the scalar value is
+ * the value of the path.</p>
+ */
+final class FieldPathExtractor {
+
+    private final Node root = new Node(null, null);
+    private final FieldNameService fieldNameService;
+
+    private FieldPathExtractor(final FieldNameService fieldNameService) {
+        this.fieldNameService = fieldNameService;
+    }
+
+    /**
+     * Compiles the given paths.
+     * @param paths the requested paths. Must not be {@code null}.
+     * @param fieldNameService creates the paths of the trie nodes. Must not be {@code null}.
+     * @return the extractor of the paths.
+     */
+    static FieldPathExtractor compile(final Collection<FieldNamePath> paths, final FieldNameService fieldNameService) {
+        Objects.requireNonNull(paths, "paths is null");
+        final FieldPathExtractor extractor = new FieldPathExtractor(Objects.requireNonNull(fieldNameService, "fieldNameService is null"));
+        paths.forEach(extractor::add);
+        extractor.root.seal();
+        return extractor;
+    }
+
+    void add(final FieldNamePath path) {
+        assert path != null;
+        Node node = this.root;
+        for (final FieldName element : path) {
+            node = node.addChild(element, this.fieldNameService);
+        }
+        node.paths.add(path);
+    }
+
+    /**
+     * Extracts the values of the requested paths of an issue field. The root
+     * element of a path matches the name or the id of the field. The value of
+     * a scalar field is added with the requested root path, by name and by id.
+     * @param id the id of the issue field. Can be {@code null}.
+     * @param name the name of the issue field. Can be {@code null}.
+     * @param value the value of the issue field. Can be {@code null}.
+     * @param issueData gets the extracted values. Must not be {@code null}.
+     */
+    void extract(final String id, final String name, final Object value, final IssueData issueData) {
+        final Node byName = this.root.child(name);
+        final Node byId = this.root.child(id);
+        if (byName == null && byId == null) {
+            return;
+        }
+        final boolean scalar = !(value instanceof JSONObject) && !(value instanceof JSONArray);
+        if (byName != null) {
+            extract(byName, scalar, value, issueData);
+        }
+        if (byId != null && byId != byName) {
+            extract(byId, scalar, value, issueData);
+        }
+    }
+
+    static void extract(final Node root, final boolean scalar, final Object value, final IssueData issueData) {
+        if (scalar) {
+            issueData.addCurrentFieldData(root.namePath, value);
+        } else {
+            walkChildren(root, value, issueData);
+        }
+    }
+
+    /** @return {@code true} if no path is requested. */
+    boolean isEmpty() {
+        return this.root.children.length == 0;
+    }
+
+    static void walk(final Node node, final Object value, final IssueData issueData) {
+        assert node != null;
+        if (value instanceof JSONObject || value instanceof JSONArray) {
+            walkChildren(node, value, issueData);
+        } else {
+            for (final FieldNamePath path : node.subtreePaths) {
+                issueData.addCurrentFieldData(path, value);
+            }
+        }
+    }
+
+    static void walkChildren(final Node node, final Object value, final IssueData issueData) {
+        final JSONObject json = firstObject(value);
+        if (json == null) {
+            return;
+        }
+        for (final Node child : node.children) {
+            final Object childValue = child.lookup(json);
+            if (childValue != null) {
+                walk(child, childValue, issueData);
+            }
+        }
+    }
+
+    /** @return the object itself or the first element of an array if it is an object. */
+    static JSONObject firstObject(final Object value) {
+        if (value instanceof JSONObject) {
+            return (JSONObject) value;
+        }
+        if (value instanceof JSONArray && ((JSONArray) value).length() > 0) {
+            final Object first = ((JSONArray) value).opt(0);
+            return first instanceof JSONObject ? (JSONObject) first : null;
+        }
+        return null;
+    }
+
+    /** Case insensitive hash. Equal to {@code toLowerCase().hashCode()} for most keys. */
+    static int caseInsensitiveHash(final String key) {
+        int hash = 0;
+        final int length = key.length();
+        for (int idx = 0; idx < length; idx++) {
+            hash = 31 * hash + Character.toLowerCase(key.charAt(idx));
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "FieldPathExtractor{" + "roots=" + this.root.children.length + '}';
+    }
+
+    static final class Node {
+
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        final String key;
+        final int keyHash;
+        final FieldNamePath namePath;
+        final List<FieldNamePath> paths = new ArrayList<>(1);
+        private final List<Node> childList = new ArrayList<>();
+        Node[] children = NO_CHILDREN;
+        FieldNamePath[] subtreePaths;
+
+        /**
+         * The key spelling of the last looked up JSON object. Racy by intent:
+         * every value is a valid hint and a stale hint only costs a scan.
+         */
+        private String hint;
+
+        Node(final String key, final FieldNamePath namePath) {
+            this.key = key;
+            this.keyHash = key == null ? 0 : caseInsensitiveHash(key);
+            this.namePath = namePath;
+            this.hint = key;
+        }
+
+        Node addChild(final FieldName element, final FieldNameService fieldNameService) {
+            final String elementKey = element.asString();
+            for (final Node child : this.childList) {
+                if (child.key.equals(elementKey)) {
+                    return child;
+                }
+            }
+            final Node child = new Node(elementKey, fieldNameService.createFieldNamePath(element));
+            this.childList.add(child);
+            return child;
+        }
+
+        /** Freezes the children into arrays and collects the paths of the subtree. */
+        List<FieldNamePath> seal() {
+            this.children = this.childList.toArray(new Node[this.childList.size()]);
+            final List<FieldNamePath> collected = new ArrayList<>(this.paths);
+            for (final Node child : this.children) {
+                collected.addAll(child.seal());
+            }
+            this.subtreePaths = collected.toArray(new FieldNamePath[collected.size()]);
+            return collected;
+        }
+
+        boolean matches(final String candidate) {
+            return candidate.length() == this.key.length()
+                    && this.keyHash == caseInsensitiveHash(candidate)
+                    && this.key.equalsIgnoreCase(candidate);
+        }
+
+        Node child(final String candidate) {
+            if (candidate == null) {
+                return null;
+            }
+            for (final Node child : this.children) {
+                if (child.matches(candidate)) {
+                    return child;
+                }
+            }
+            return null;
+        }
+
+        Object lookup(final JSONObject json) {
+            final Object hinted = json.opt(this.hint);
+            if (hinted != null) {
+                return hinted;
+            }
+            final Iterator<?> keys = json.keys();
+            while (keys.hasNext()) {
+                final Object candidate = keys.next();
+                if (candidate instanceof String && matches((String) candidate)) {
+                    this.hint = (String) candidate;
+                    return json.opt((String) candidate);
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.issue;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Columnar storage of the changes of one historical field in insertion order.
+ * A change is stored as the change date in epoch seconds and nanos of UTC and
+ * as the codes of the from and to values in the value dictionary of the
+ * owning {@link IssueData}. The code {@value #NULL_CODE} stands for {@code null}.
+ * <p>Duplicate changes are rejected. Small timelines are scanned, larger
+ * timelines use an open addressing hash table of the rows.</p>
+ */
+final class HistoricalTimeline {
+
+    static final int NULL_CODE = -1;
+
+    static final int INITIAL_CAPACITY = 4;
+    static final int SCAN_LIMIT = 8;
+
+    private long[] seconds = new long[INITIAL_CAPACITY];
+    private int[] nanos = new int[INITIAL_CAPACITY];
+    private int[] fromCodes = new int[INITIAL_CAPACITY];
+    private int[] toCodes = new int[INITIAL_CAPACITY];
+    private int size;
+
+    /** Row index + 1 of the rows by hash. 0 for an empty slot. {@code null} while scanning. */
+    private int[] slots;
+
+    /**
+     * Adds the change if not already available.
+     * @return {@code true} if the change is added.
+     */
+    boolean add(final LocalDateTime changeDate, final int fromCode, final int toCode) {
+        assert changeDate != null;
+        final long second = changeDate.toEpochSecond(ZoneOffset.UTC);
+        final int nano = changeDate.getNano();
+        if (indexOf(second, nano, fromCode, toCode) >= 0) {
+            return false;
+        }
+        if (this.size == this.seconds.length) {
+            final int capacity = this.size * 2;
+            this.seconds = Arrays.copyOf(this.seconds, capacity);
+            this.nanos = Arrays.copyOf(this.nanos, capacity);
+            this.fromCodes = Arrays.copyOf(this.fromCodes, capacity);
+            this.toCodes = Arrays.copyOf(this.toCodes, capacity);
+        }
+        final int row = this.size++;
+        this.seconds[row] = second;
+        this.nanos[row] = nano;
+        this.fromCodes[row] = fromCode;
+        this.toCodes[row] = toCode;
+
+        if (this.slots != null && this.size * 2 <= this.slots.length) {
+            insert(this.slots, row);
+        } else if (this.size > SCAN_LIMIT) {
+            rehash();
+        }
+        return true;
+    }
+
+    boolean contains(final LocalDateTime changeDate, final int fromCode, final int toCode) {
+        assert changeDate != null;
+        return indexOf(changeDate.toEpochSecond(ZoneOffset.UTC), changeDate.getNano(), fromCode, toCode) >= 0;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    LocalDateTime getChangeDate(final int row) {
+        assert row >= 0 && row < this.size;
+        return LocalDateTime.ofEpochSecond(this.seconds[row], this.nanos[row], ZoneOffset.UTC);
+    }
+
+    int getFromCode(final int row) {
+        assert row >= 0 && row < this.size;
+        return this.fromCodes[row];
+    }
+
+    int getToCode(final int row) {
+        assert row >= 0 && row < this.size;
+        return this.toCodes[row];
+    }
+
+    int indexOf(final long second, final int nano, final int fromCode, final int toCode) {
+        if (this.slots == null) {
+            for (int row = 0; row < this.size; row++) {
+                if (matches(row, second, nano, fromCode, toCode)) {
+                    return row;
+                }
+            }
+            return -1;
+        }
+        final int mask = this.slots.length - 1;
+        for (int slot = hash(second, nano, fromCode, toCode) & mask; this.slots[slot] != 0; slot = (slot + 1) & mask) {
+            final int row = this.slots[slot] - 1;
+            if (matches(row, second, nano, fromCode, toCode)) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    private boolean matches(final int row, final long second, final int nano, final int fromCode, final int toCode) {
+        return this.seconds[row] == second
+                && this.nanos[row] == nano
+                && this.fromCodes[row] == fromCode
+                && this.toCodes[row] == toCode;
+    }
+
+    private void rehash() {
+        final int[] newSlots = new int[Integer.highestOneBit(this.size * 2 - 1) << 1];
+        for (int row = 0; row < this.size; row++) {
+            insert(newSlots, row);
+        }
+        this.slots = newSlots;
+    }
+
+    private void insert(final int[] table, final int row) {
+        final int mask = table.length - 1;
+        int slot = hash(this.seconds[row], this.nanos[row], this.fromCodes[row], this.toCodes[row]) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = row + 1;
+    }
+
+    static int hash(final long second, final int nano, final int fromCode, final int toCode) {
+        int hash = Long.hashCode(second);
+        hash = 31 * hash + nano;
+        hash = 31 * hash + fromCode;
+        hash = 31 * hash + toCode;
+        return hash ^ (hash >>> 16);
+    }
+
+    @Override
+    public String toString() {
+        return "HistoricalTimeline{" + "size=" + size + '}';
+    }
+}
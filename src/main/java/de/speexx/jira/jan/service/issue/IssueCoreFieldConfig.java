@@ -80,6 +80,21 @@ public final class IssueCoreFieldConfig {
         return Optional.of(entry.getIssueFieldGetterMethod());
     }
     
+    /**
+     * Returns the id of the field in the JIRA REST API. The id is required to
+     * restrict the fields of a search.
+     * @param fieldName the name of the core field
+     * @return the JIRA field id or an empty Optional if the field is unknown or
+     *         always part of an issue (like the issue key)
+     */
+    public Optional<String> getJiraFieldId(final FieldName fieldName) {
+        final IssueCoreFieldDescriptionEntry entry = fetchIssueFieldDescriptionEntry(fieldName);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        return entry.getJiraFieldId();
+    }
+
     Optional<ValueFetcher> getValueFetcher(final FieldName fieldName) {
         final IssueCoreFieldDescriptionEntry entry = fetchIssueFieldDescriptionEntry(fieldName);
         if (entry == null) {
@@ -88,6 +103,12 @@ public final class IssueCoreFieldConfig {
         return Optional.of(entry.getValueFetcher());
     }
     
+    /** @return the compiled accessor of the core field or {@code null} if the field is unknown. */
+    CoreFieldAccessor getAccessor(final FieldName fieldName) {
+        final IssueCoreFieldDescriptionEntry entry = fetchIssueFieldDescriptionEntry(fieldName);
+        return entry == null ? null : entry.getAccessor();
+    }
+
     IssueCoreFieldDescriptionEntry fetchIssueFieldDescriptionEntry(final FieldName fieldName) {
         return this.config.get(fieldName);
     }
@@ -104,12 +125,23 @@ public final class IssueCoreFieldConfig {
         final Method fieldNameMethod;
         final boolean ignore;
         final ValueFetcher valueFetcher;
+        final String jiraFieldId;
+        final CoreFieldAccessor accessor;
 
         public IssueCoreFieldDescriptionEntry(final FieldName fieldName,
                                               final Set<FieldName> fieldNameAliases,
                                               final Method fieldNameMethod,
                                               final boolean ignore,
                                               final Class<?> cast) {
+            this(fieldName, fieldNameAliases, fieldNameMethod, ignore, cast, null);
+        }
+
+        public IssueCoreFieldDescriptionEntry(final FieldName fieldName,
+                                              final Set<FieldName> fieldNameAliases,
+                                              final Method fieldNameMethod,
+                                              final boolean ignore,
+                                              final Class<?> cast,
+                                              final String jiraFieldId) {
             if (fieldName == null) {throw new IllegalArgumentException("Fieldname is null");}
             this.fieldName = fieldName;
             if (fieldNameAliases == null) {
@@ -126,6 +158,8 @@ public final class IssueCoreFieldConfig {
             } catch (final InstantiationException | IllegalAccessException ex) {
                 throw new JiraAnalyzeException(ex);
             }
+            this.jiraFieldId = jiraFieldId == null || jiraFieldId.trim().isEmpty() ? null : jiraFieldId.trim();
+            this.accessor = new CoreFieldAccessor(CoreFieldAccessor.compileGetter(fieldNameMethod), this.valueFetcher);
         }
 
         public FieldName getFieldName() {
@@ -147,6 +181,14 @@ public final class IssueCoreFieldConfig {
         ValueFetcher getValueFetcher() {
             return this.valueFetcher;
         }
+
+        CoreFieldAccessor getAccessor() {
+            return this.accessor;
+        }
+
+        public Optional<String> getJiraFieldId() {
+            return Optional.ofNullable(this.jiraFieldId);
+        }
         
         public Set<FieldName> getAllFieldNames() {
             final Set<FieldName> names = new HashSet<>(getFieldNameAliases());
@@ -156,7 +198,7 @@ public final class IssueCoreFieldConfig {
 
         @Override
         public String toString() {
-            return "IssueFieldDescriptionEntry{" + "fieldName=" + fieldName + ", fieldNameAliases=" + fieldNameAliases + ", fieldNameMethod=" + fieldNameMethod + ", ignore=" + ignore + ", valueFetcher=" + valueFetcher + '}';
+            return "IssueFieldDescriptionEntry{" + "fieldName=" + fieldName + ", fieldNameAliases=" + fieldNameAliases + ", fieldNameMethod=" + fieldNameMethod + ", ignore=" + ignore + ", valueFetcher=" + valueFetcher + ", jiraFieldId=" + jiraFieldId + '}';
         }
     }
 }
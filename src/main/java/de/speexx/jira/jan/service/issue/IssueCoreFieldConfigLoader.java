@@ -43,6 +43,7 @@ class IssueCoreFieldConfigLoader {
     private final static String ISSUE_METHOD_HEADER = "issue-method";
     private final static String IGNORE_HEADER = "ignore";
     private final static String VALUE_FETCHER_TYPE_HEADER = "value-fetcher-type";
+    private final static String JIRA_FIELD_ID_HEADER = "jira-field-id";
     
     private final static String KEY_ALIAS_DELIMITER = ",";
 
@@ -81,12 +82,14 @@ class IssueCoreFieldConfigLoader {
             final Method fieldGetter = createFieldGetterMethod(record);
             final boolean ignore = fetchIgnore(record);
             final Set<FieldName> aliases = fetchAliasses(record);
+            final String jiraFieldId = fetchJiraFieldId(record);
 
             return new IssueCoreFieldDescriptionEntry(this.fieldNameService.createFieldName(fieldName), 
                                                       aliases,
                                                       fieldGetter,
                                                       ignore,
-                                                      valueFetcherType);
+                                                      valueFetcherType,
+                                                      jiraFieldId);
 
         } catch (final ClassNotFoundException | NoSuchMethodException e) {
             throw new JiraAnalyzeException(e);
@@ -109,6 +112,15 @@ class IssueCoreFieldConfigLoader {
         return new HashSet<>(Arrays.asList(fieldNameAliases));
     }
     
+    String fetchJiraFieldId(final CSVRecord record) {
+        assert record != null;
+
+        if (!record.isMapped(JIRA_FIELD_ID_HEADER)) {
+            return null;
+        }
+        return record.get(JIRA_FIELD_ID_HEADER);
+    }
+
     boolean fetchIgnore(final CSVRecord record) {
         assert record != null;
 
@@ -18,6 +18,7 @@
 package de.speexx.jira.jan.service.issue;
 
 import java.time.LocalDateTime;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -25,6 +26,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.RandomAccess;
 
 /**
  * Container class for all relavant fetched information from a JIRA issue.
@@ -40,7 +42,9 @@ public final class IssueData {
     }
     
     private final Map<FieldNamePath, Object> currentFieldData = new HashMap<>();
-    private final Map<FieldName, List<HistoricalDataEntry>> historicalFieldData = new HashMap<>();
+    private final Map<FieldName, HistoricalTimeline> historicalFieldData = new HashMap<>();
+    private final List<String> historicalValues = new ArrayList<>();
+    private final Map<String, Integer> historicalValueCodes = new HashMap<>();
 
     /**
      * Adds the given issue field value to the list of current 
@@ -60,8 +64,6 @@ public final class IssueData {
                                                    + " not of type " + LocalDateTime.class);
             }
             this.currentFieldData.put(currentFieldPath, currentValue);
-        } else if (currentValue instanceof String) {
-            this.currentFieldData.put(currentFieldPath, ((String) currentValue).intern());
         } else {
             this.currentFieldData.put(currentFieldPath, currentValue);
         }
@@ -76,18 +78,34 @@ public final class IssueData {
      * @throws NullPointerException if and only if <em>currentFieldPath</em> is {@code null}.
      */
     public void addHistoricalDataEntry(final FieldName historicalFieldName, final HistoricalDataEntry historicalEntry) {
-        assert !Objects.isNull(historicalFieldData);
         Objects.requireNonNull(historicalFieldName, "historicalFieldName is null");
 
-        if (historicalEntry != null && !isAvailabilityInHistoricalData(historicalFieldName, historicalEntry)) {
-            List<HistoricalDataEntry> entries = this.historicalFieldData.get(historicalFieldName);
-            if (entries == null) {
-                entries = new ArrayList<>();
-                this.historicalFieldData.put(historicalFieldName, entries);
-            }
+        if (historicalEntry != null) {
+            addHistoricalData(historicalFieldName, historicalEntry.getFrom(), historicalEntry.getChangeDate(), historicalEntry.getTo());
+        }
+    }
 
-            entries.add(historicalEntry);
+    /**
+     * Adds a new historical field value for a <em>historicalFieldName</em>
+     * without creating a {@link HistoricalDataEntry}. A change with same state
+     * is added only once.
+     * @param historicalFieldName the field name of the current value. Must not be {@code null}.
+     * @param from the value before the change. Can be {@code null}.
+     * @param at the date of the change. Must not be {@code null}.
+     * @param to the value after the change. Can be {@code null}.
+     * @throws NullPointerException if <em>historicalFieldName</em> or <em>at</em> is {@code null}.
+     */
+    public void addHistoricalData(final FieldName historicalFieldName, final String from, final LocalDateTime at, final String to) {
+        assert !Objects.isNull(historicalFieldData);
+        Objects.requireNonNull(historicalFieldName, "historicalFieldName is null");
+        Objects.requireNonNull(at, "Changedate is null");
+
+        HistoricalTimeline timeline = this.historicalFieldData.get(historicalFieldName);
+        if (timeline == null) {
+            timeline = new HistoricalTimeline();
+            this.historicalFieldData.put(historicalFieldName, timeline);
         }
+        timeline.add(at, encodeHistoricalValue(from), encodeHistoricalValue(to));
     }
     
     boolean isAvailabilityInHistoricalData(final FieldName historicalFieldName, final HistoricalDataEntry historicalEntry) {
@@ -95,13 +113,38 @@ public final class IssueData {
         assert !Objects.isNull(historicalEntry);
         assert !Objects.isNull(this.historicalFieldData);
         
-        final List<HistoricalDataEntry> historicalData = this.getHistoricalIssueData(historicalFieldName);
-        if (historicalData == null) {
+        final HistoricalTimeline timeline = this.historicalFieldData.get(historicalFieldName);
+        if (timeline == null) {
             return false;
         }
-        return historicalData.contains(historicalEntry);
+        final Integer fromCode = codeOfHistoricalValue(historicalEntry.getFrom());
+        final Integer toCode = codeOfHistoricalValue(historicalEntry.getTo());
+        return fromCode != null && toCode != null && timeline.contains(historicalEntry.getChangeDate(), fromCode, toCode);
     }
-    
+
+    int encodeHistoricalValue(final String value) {
+        if (value == null) {
+            return HistoricalTimeline.NULL_CODE;
+        }
+        final Integer code = this.historicalValueCodes.get(value);
+        if (code != null) {
+            return code;
+        }
+        final int newCode = this.historicalValues.size();
+        this.historicalValues.add(value);
+        this.historicalValueCodes.put(value, newCode);
+        return newCode;
+    }
+
+    /** @return the code of the value or {@code null} if the value is unknown. */
+    Integer codeOfHistoricalValue(final String value) {
+        return value == null ? Integer.valueOf(HistoricalTimeline.NULL_CODE) : this.historicalValueCodes.get(value);
+    }
+
+    String decodeHistoricalValue(final int code) {
+        return code == HistoricalTimeline.NULL_CODE ? null : this.historicalValues.get(code);
+    }
+
     public Optional<LocalDateTime> getCreatedDate() {
         assert this.currentFieldData != null;
         return Optional.ofNullable((LocalDateTime) this.currentFieldData.get(CREATEDDATE_FIELDNAME_PATH));
@@ -117,18 +160,52 @@ public final class IssueData {
         return this.historicalFieldData.size();
     }
 
+    /**
+     * Returns the historical field values of the given field name in order of
+     * their addition. The list is an unmodifiable view of the columnar
+     * storage. The entries are created on access.
+     * @param fieldName the field name of the historical values.
+     * @return the historical field values. Never {@code null}.
+     */
     public List<HistoricalDataEntry> getHistoricalIssueData(final FieldName fieldName) {
         assert this.historicalFieldData != null;
-        final List<HistoricalDataEntry> retval = this.historicalFieldData.get(fieldName);
-        if (retval == null) {
+        final HistoricalTimeline timeline = this.historicalFieldData.get(fieldName);
+        if (timeline == null) {
             return Collections.emptyList();
         }
-        return Collections.unmodifiableList(retval);
+        return new HistoricalDataView(timeline);
     }
 
     @Override
     public String toString() {
-        return "IssueData{" + "currentFieldData=" + currentFieldData + ", historyFieldData=" + historicalFieldData + '}';
+        final Map<FieldName, List<HistoricalDataEntry>> historyFieldData = new HashMap<>();
+        this.historicalFieldData.forEach((fieldName, timeline) -> historyFieldData.put(fieldName, new HistoricalDataView(timeline)));
+        return "IssueData{" + "currentFieldData=" + currentFieldData + ", historyFieldData=" + historyFieldData + '}';
+    }
+
+    final class HistoricalDataView extends AbstractList<HistoricalDataEntry> implements RandomAccess {
+
+        private final HistoricalTimeline timeline;
+
+        HistoricalDataView(final HistoricalTimeline timeline) {
+            assert timeline != null;
+            this.timeline = timeline;
+        }
+
+        @Override
+        public HistoricalDataEntry get(final int index) {
+            if (index < 0 || index >= this.timeline.size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.timeline.size());
+            }
+            return new HistoricalDataEntry(decodeHistoricalValue(this.timeline.getFromCode(index)),
+                                           this.timeline.getChangeDate(index),
+                                           decodeHistoricalValue(this.timeline.getToCode(index)));
+        }
+
+        @Override
+        public int size() {
+            return this.timeline.size();
+        }
     }
 
     public final static class HistoricalDataEntry {
@@ -137,9 +214,9 @@ public final class IssueData {
         private final LocalDateTime changeDate;
 
         public HistoricalDataEntry(final String from, final LocalDateTime at, final String to) {
-            this.from = from != null ? from.intern() : null;
+            this.from = from;
             this.changeDate = Objects.requireNonNull(at, "Changedate is null");
-            this.to = to != null ? to.intern() : null;
+            this.to = to;
         }
 
         public String getFrom() {
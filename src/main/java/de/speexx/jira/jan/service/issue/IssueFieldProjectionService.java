@@ -0,0 +1,105 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.issue;
+
+import com.atlassian.jira.rest.client.api.domain.Field;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import javax.inject.Inject;
+
+/**
+ * Translates the field names given by the user into the JIRA field ids
+ * of a search request. Requesting only the required fields reduces the
+ * size of the response for issues with a lot of custom fields.
+ */
+public final class IssueFieldProjectionService {
+
+    /** Fields required to parse a JIRA issue. These fields are always requested. */
+    public static final Set<String> REQUIRED_FIELD_IDS = Collections.unmodifiableSet(new LinkedHashSet<>(
+            Arrays.asList("summary", "issuetype", "created", "updated", "project", "status")));
+
+    @Inject @FieldConfig
+    private IssueCoreFieldConfig fieldConfig;
+
+    /**
+     * Resolves the JIRA field ids for the root elements of the given paths.
+     * Core fields are resolved by the field configuration. All other fields
+     * are resolved by the id or the name of the fields known by JIRA.
+     * @param currentFieldNames the paths of the current fields. Must not be {@code null}.
+     * @param jiraFields supplies the fields known by JIRA. Only called if
+     *                   at least one field is not a core field. Must not be {@code null}.
+     * @return the field ids including the {@link #REQUIRED_FIELD_IDS required field ids}
+     *         or an empty Optional if at least one field is unknown. In that case
+     *         all fields must be requested.
+     */
+    public Optional<Set<String>> resolveFieldIds(final Collection<FieldNamePath> currentFieldNames,
+                                                 final Supplier<Iterable<Field>> jiraFields) {
+        Objects.requireNonNull(currentFieldNames, "currentFieldNames is null");
+        Objects.requireNonNull(jiraFields, "jiraFields is null");
+
+        final Set<String> fieldIds = new LinkedHashSet<>(REQUIRED_FIELD_IDS);
+        final Set<FieldName> unresolved = new LinkedHashSet<>();
+        currentFieldNames.stream().map(FieldNamePath::getRootElement).forEach(root -> {
+            if (this.fieldConfig.contains(root)) {
+                this.fieldConfig.getJiraFieldId(root).ifPresent(fieldIds::add);
+            } else {
+                unresolved.add(root);
+            }
+        });
+
+        if (!unresolved.isEmpty()) {
+            final Iterable<Field> fields = jiraFields.get();
+            for (final FieldName root : unresolved) {
+                if (!addMatchingFieldIds(root, fields, fieldIds)) {
+                    return Optional.empty();
+                }
+            }
+        }
+        return Optional.of(Collections.unmodifiableSet(fieldIds));
+    }
+
+    boolean addMatchingFieldIds(final FieldName root, final Iterable<Field> fields, final Set<String> fieldIds) {
+        assert root != null;
+        assert fields != null;
+        assert fieldIds != null;
+
+        boolean found = false;
+        for (final Field field : fields) {
+            if (matches(root, field.getId()) || matches(root, field.getName())) {
+                fieldIds.add(field.getId());
+                found = true;
+            }
+        }
+        return found;
+    }
+
+    static boolean matches(final FieldName fieldName, final String jiraName) {
+        return jiraName != null && !jiraName.trim().isEmpty() && fieldName.equals(new FieldName(jiraName));
+    }
+
+    @Override
+    public String toString() {
+        return "IssueFieldProjectionService{" + "fieldConfig=" + fieldConfig + '}';
+    }
+}
@@ -18,20 +18,14 @@
 package de.speexx.jira.jan.service.issue;
 
 import com.atlassian.jira.rest.client.api.domain.ChangelogGroup;
-import com.atlassian.jira.rest.client.api.domain.ChangelogItem;
 import com.atlassian.jira.rest.client.api.domain.Issue;
-import de.speexx.jira.jan.JiraAnalyzeException;
+import com.atlassian.jira.rest.client.api.domain.IssueField;
 import de.speexx.jira.jan.service.time.TimeConverterService;
-import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.atomic.AtomicReference;
 import javax.inject.Inject;
-import org.codehaus.jettison.json.JSONArray;
-import org.codehaus.jettison.json.JSONException;
-import org.codehaus.jettison.json.JSONObject;
 
 public final class IssueFieldService {
     
@@ -44,6 +38,9 @@ public final class IssueFieldService {
     @Inject @FieldConfig
     private IssueCoreFieldConfig fieldConfig;
 
+    private volatile CurrentFieldPlan currentFieldPlan;
+    private volatile ChangelogIndex.Fields changelogFields;
+
     public IssueData fetchHistoricalIssueData(final Issue issue,
                                               final IssueData issueData,
                                               final Collection<FieldName> historyFieldNames) {
@@ -51,21 +48,54 @@ public final class IssueFieldService {
         Objects.requireNonNull(issueData, "IssueData is null");
         Objects.requireNonNull(historyFieldNames, "FieldNames is null");
 
-        for (final ChangelogGroup changeLog : issue.getChangelog()) {
-            for (final ChangelogItem cli : changeLog.getItems()) {
-                final FieldName field = new FieldName(cli.getField());
-                if (historyFieldNames.contains(field)) {
-                    final IssueData.HistoricalDataEntry changeEntry = 
-                            new IssueData.HistoricalDataEntry(cli.getFromString(),
-                                                          this.timeConverter.jodaDateTimeToJava8LocalDateTime(changeLog.getCreated()),
-                                                          cli.getToString());
-                    issueData.addHistoricalDataEntry(field, changeEntry);
-                }
+        final Iterable<ChangelogGroup> changelog = issue.getChangelog();
+        if (changelog == null) {
+            // Changelog not expanded
+            return issueData;
+        }
+        return fetchHistoricalIssueData(indexChangelog(changelog, historyFieldNames), issueData);
+    }
+
+    /**
+     * Adds the changes of all fields of the given index as historical data.
+     * @param index the indexed changelog of an issue. Must not be {@code null}.
+     * @param issueData the container for the historical data. Must not be {@code null}.
+     * @return <em>issueData</em>
+     */
+    public IssueData fetchHistoricalIssueData(final ChangelogIndex index, final IssueData issueData) {
+        Objects.requireNonNull(index, "ChangelogIndex is null");
+        Objects.requireNonNull(issueData, "IssueData is null");
+
+        final ChangelogIndex.Fields fields = index.getFields();
+        for (int idx = 0; idx < fields.size(); idx++) {
+            final FieldName field = fields.getFieldName(idx);
+            for (final ChangelogIndex.Change change : index.getTimeline(idx)) {
+                issueData.addHistoricalData(field, change.getFromString(), change.getCreated(), change.getToString());
             }
         }
         return issueData;
     }
-    
+
+    /**
+     * Indexes the changes of the given fields in a single pass over the changelog.
+     * The compiled fields of the last call are reused as long as the field names
+     * don't change.
+     * @param changelog the changelog of an issue. Must not be {@code null}.
+     * @param fieldNames the fields to index. Must not be {@code null}.
+     * @return the index. Never {@code null}.
+     */
+    public ChangelogIndex indexChangelog(final Iterable<ChangelogGroup> changelog, final Collection<FieldName> fieldNames) {
+        Objects.requireNonNull(changelog, "Changelog is null");
+        Objects.requireNonNull(fieldNames, "FieldNames is null");
+
+        ChangelogIndex.Fields fields = this.changelogFields;
+        if (fields == null || !fields.isCompiledFor(fieldNames)) {
+            fields = ChangelogIndex.Fields.of(fieldNames);
+            this.changelogFields = fields;
+        }
+        return fields.index(changelog, this.timeConverter::jodaDateTimeToJava8LocalDateTime);
+    }
+
     public IssueData fetchCurrentIssueData(final Issue issue,
                                            final IssueData issueData,
                                            final Collection<FieldNamePath> currentFieldNames) {
@@ -74,136 +104,107 @@ public final class IssueFieldService {
         Objects.requireNonNull(issueData, "IssueData is null");
         Objects.requireNonNull(currentFieldNames, "FieldNames is null");
         
-        final AtomicReference<FieldNamePath> pathRef = new AtomicReference();
-        currentFieldNames.stream()
-                         .filter(path -> path.length() == 1)
-                         .peek(path -> pathRef.set(path))
-                         .map(path -> path.iterator().next())
-                         .forEach(fieldName -> {
-                             this.fieldConfig.getIssueGetter(fieldName).ifPresent(getter -> {
-                                 try {
-                                     final Object source = getter.invoke(issue);
-                                     if (source != null) {
-                                         this.fieldConfig.getValueFetcher(fieldName).ifPresent(fetcher -> {
-                                             fetcher.getValue(source).ifPresent(value -> {
-                                                 issueData.addCurrentFieldData(pathRef.get(), value);
-                                             });
-                                         });
-                                     }
-                                 } catch (final IllegalAccessException
-                                              | IllegalArgumentException 
-                                              | InvocationTargetException ex) {
-                                     throw new JiraAnalyzeException(ex);
-                                 }
-                             });
-                         });
+        final CurrentFieldPlan plan = currentFieldPlan(currentFieldNames);
+        final FieldNamePath[] paths = plan.paths;
+        final CoreFieldAccessor[] accessors = plan.accessors;
+        for (int idx = 0; idx < accessors.length; idx++) {
+            final Object value = accessors[idx].fetch(issue);
+            if (value != null) {
+                issueData.addCurrentFieldData(paths[idx], value);
+            }
+        }
         return fetchCurrentDataFromIssueFields(issue, issueData, currentFieldNames);
     }
 
+    /**
+     * Returns the compiled current field names. The plan of the last call is
+     * reused as long as the field names don't change.
+     */
+    CurrentFieldPlan currentFieldPlan(final Collection<FieldNamePath> currentFieldNames) {
+        assert currentFieldNames != null;
+        final CurrentFieldPlan plan = this.currentFieldPlan;
+        if (plan != null && plan.isCompiledFor(currentFieldNames)) {
+            return plan;
+        }
+        final CurrentFieldPlan compiled = CurrentFieldPlan.compile(currentFieldNames, this.fieldConfig, this.fieldNameService);
+        this.currentFieldPlan = compiled;
+        return compiled;
+    }
+
     IssueData fetchCurrentDataFromIssueFields(final Issue issue,
                                               final IssueData issueData,
                                               final Collection<FieldNamePath> currentFieldNames) {
         assert issue != null;
         assert issueData != null;
         assert currentFieldNames != null;
-        
-        final Map<FieldName, FieldNamePath> byRoot = new HashMap<>();
-        currentFieldNames.forEach(fieldNamePath -> byRoot.putIfAbsent(fieldNamePath.getRootElement(), fieldNamePath));
-
-        issue.getFields().forEach(issueField -> {
-            final FieldName id = new FieldName(issueField.getId());
-            final FieldName name = new FieldName(issueField.getName());
-            if (byRoot.containsKey(name) || byRoot.containsKey(id)) {
-                final Object value = issueField.getValue();
-                if (!(value instanceof JSONArray) && !(value instanceof JSONObject)) {
-                    issueData.addCurrentFieldData(this.fieldNameService.createFieldNamePath(name), value);
-                } else {
-                    final FieldNamePath original = fetchFieldNamePath(byRoot, id, name);
-                    if (original != null) {
-                        final FieldNamePath withoutRoot = original.getPathWithoutRoot();
-                        if (withoutRoot.length() == 0) {
-                            return;
-                        }
-                        if (value instanceof JSONObject) {
-                            final JSONObject obj = (JSONObject) value;
-                            final Object objValue = fetchFromJsonObject(withoutRoot, obj);
-                            issueData.addCurrentFieldData(original, objValue);
-                        } else {
-                            assert value instanceof JSONArray;
-                            final JSONArray obj = (JSONArray) value;
-                            final Object objValue = fetchFromJsonArray(withoutRoot, obj);
-                            issueData.addCurrentFieldData(original, objValue);
-                        }
-                    } else {
-                        issueData.addCurrentFieldData(this.fieldNameService.createFieldNamePath(name), value);
-                    }
-                }
-            }
-        });
 
+        final FieldPathExtractor extractor = currentFieldPlan(currentFieldNames).extractor;
+        if (extractor.isEmpty()) {
+            return issueData;
+        }
+        for (final IssueField issueField : issue.getFields()) {
+            extractor.extract(issueField.getId(), issueField.getName(), issueField.getValue(), issueData);
+        }
         return issueData;
     }
 
-    Object fetchFromJsonObject(final FieldNamePath withoutRoot, final JSONObject json) {
-        assert json != null;
-        assert withoutRoot != null;
-        if (withoutRoot.length() == 0) {
-            // Later: try to fetch most relevant value. (e.g. by name 'id' or 'name' or 'value'
-            return null;
+    /**
+     * The requested current field names compiled for the extraction: the core
+     * fields in output order with their accessors and the extractor of the
+     * issue field paths.
+     */
+    static final class CurrentFieldPlan {
+
+        final FieldNamePath[] fieldNames;
+        final FieldNamePath[] paths;
+        final CoreFieldAccessor[] accessors;
+        final FieldPathExtractor extractor;
+
+        CurrentFieldPlan(final FieldNamePath[] fieldNames,
+                         final FieldNamePath[] paths,
+                         final CoreFieldAccessor[] accessors,
+                         final FieldPathExtractor extractor) {
+            assert paths.length == accessors.length;
+            this.fieldNames = fieldNames;
+            this.paths = paths;
+            this.accessors = accessors;
+            this.extractor = extractor;
         }
 
-        final FieldName fieldName = withoutRoot.iterator().next();
-        assert fieldName != null;
-        
-        final JSONArray names = json.names();
-        final int namesSize = names.length();
-        for (int idx = 0; idx < namesSize; idx++) {
-            try {
-                final String name = names.getString(idx);
-                if (name != null && new FieldName(name).equals(fieldName)) {
-                    final Object o = json.get(name);
-                    if (!(o instanceof JSONArray) && !(o instanceof JSONObject)) {
-                        // Later: try to check type. E.g if is String try to parse Datetime.
-                        return o;
-                    }
-                    final FieldNamePath wRoot = withoutRoot.getPathWithoutRoot();
-                    if (o instanceof JSONObject) {
-                        return fetchFromJsonObject(wRoot, (JSONObject) o);
+        static CurrentFieldPlan compile(final Collection<FieldNamePath> currentFieldNames,
+                                        final IssueCoreFieldConfig fieldConfig,
+                                        final FieldNameService fieldNameService) {
+            assert currentFieldNames != null;
+            assert fieldConfig != null;
+            final List<FieldNamePath> paths = new ArrayList<>();
+            final List<CoreFieldAccessor> accessors = new ArrayList<>();
+            for (final FieldNamePath path : currentFieldNames) {
+                if (path.length() == 1) {
+                    final CoreFieldAccessor accessor = fieldConfig.getAccessor(path.getRootElement());
+                    if (accessor != null) {
+                        paths.add(path);
+                        accessors.add(accessor);
                     }
-                    return fetchFromJsonArray(wRoot, (JSONArray) o);
                 }
-            } catch (final JSONException ex) {
-                return null;
             }
+            return new CurrentFieldPlan(currentFieldNames.toArray(new FieldNamePath[currentFieldNames.size()]),
+                                        paths.toArray(new FieldNamePath[paths.size()]),
+                                        accessors.toArray(new CoreFieldAccessor[accessors.size()]),
+                                        FieldPathExtractor.compile(currentFieldNames, fieldNameService));
         }
-        
-        return null;
-    }
 
-    Object fetchFromJsonArray(final FieldNamePath withoutRoot, final JSONArray json) {
-        assert json != null;
-        if (json.length() > 0) {
-            try {
-                final Object o = json.get(0);
-                if (o instanceof JSONObject) {
-                    return fetchFromJsonObject(withoutRoot, (JSONObject) o);
+        boolean isCompiledFor(final Collection<FieldNamePath> currentFieldNames) {
+            if (currentFieldNames.size() != this.fieldNames.length) {
+                return false;
+            }
+            int idx = 0;
+            for (final FieldNamePath path : currentFieldNames) {
+                if (!this.fieldNames[idx++].equals(path)) {
+                    return false;
                 }
-                return null;
-            } catch (final JSONException ex) {
-                return null;
             }
-
-        }
-        return null;
-    }
-    
-    FieldNamePath fetchFieldNamePath(final Map<FieldName, FieldNamePath> byRoot, final FieldName id, final FieldName name) {
-        assert byRoot != null;
-        final FieldNamePath original = byRoot.get(name);
-        if (name == null) {
-            return byRoot.get(id);
+            return true;
         }
-        return original;
     }
 
     @Override
@@ -24,11 +24,16 @@ class NamedEntityValueFetcher implements ValueFetcher {
 
     @Override
     public Optional<Object> getValue(final Object dataSource) {
+        return Optional.ofNullable(fetchValue(dataSource));
+    }
+
+    @Override
+    public Object fetchValue(final Object dataSource) {
         if (dataSource == null) {
-            return Optional.empty();
+            return null;
         }
         if (dataSource instanceof NamedEntity) {
-            return Optional.ofNullable(((NamedEntity) dataSource).getName());
+            return ((NamedEntity) dataSource).getName();
         }
         throw new UnsupportedSourceTypeException("Value type " + dataSource.getClass() + " not supported by " + this.getClass().getName());
     }
@@ -23,6 +23,11 @@ class ReturnValueFetcher implements ValueFetcher {
 
     @Override
     public Optional<Object> getValue(final Object dataSource) {
-        return Optional.ofNullable(dataSource);
+        return Optional.ofNullable(fetchValue(dataSource));
+    }
+
+    @Override
+    public Object fetchValue(final Object dataSource) {
+        return dataSource;
     }
 }
@@ -22,4 +22,13 @@ import java.util.Optional;
 interface ValueFetcher {
     
     Optional<Object> getValue(final Object dataSource) throws UnsupportedSourceTypeException;
+
+    /**
+     * Like {@link #getValue(Object)} without wrapping the value.
+     * @param dataSource can be {@code null}.
+     * @return the value or {@code null}.
+     */
+    default Object fetchValue(final Object dataSource) throws UnsupportedSourceTypeException {
+        return getValue(dataSource).orElse(null);
+    }
 }
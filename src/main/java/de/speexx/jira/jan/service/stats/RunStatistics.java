@@ -0,0 +1,200 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.stats;
+
+import com.atlassian.util.concurrent.Promise;
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Collects the latencies of the phases of a run and counts the received
+ * bytes, the retries, the throttled requests and the cache usage. All methods are thread-safe.
+ */
+public final class RunStatistics {
+
+    /** The phases of a run with a latency histogram. */
+    public enum Phase {
+        /** A search request from the start until the page is parsed. */
+        SEARCH("search"),
+        /** A single issue request. */
+        ISSUE("issue"),
+        /** The extraction of the output data from an issue. */
+        EXTRACT("extract"),
+        /** Writing the output data of an issue. */
+        WRITE("write");
+
+        private final String label;
+
+        Phase(final String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return this.label;
+        }
+    }
+
+    static final double NANOS_PER_MILLI = 1_000_000d;
+    static final String SUMMARY_FORMAT = "%-8s %9s %10s %10s %10s %10s%n";
+    static final String SUMMARY_ROW_FORMAT = "%-8s %9d %10.2f %10.2f %10.2f %10.2f%n";
+
+    private final Map<Phase, LatencyHistogram> histograms = new EnumMap<>(Phase.class);
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
+    public RunStatistics() {
+        for (final Phase phase : Phase.values()) {
+            this.histograms.put(phase, new LatencyHistogram());
+        }
+    }
+
+    /**
+     * Records the latency of a phase.
+     * @param phase the phase. Must not be {@code null}.
+     * @param startNanos the start of the phase as returned by {@link System#nanoTime()}.
+     */
+    public void record(final Phase phase, final long startNanos) {
+        getHistogram(phase).record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Runs and records a phase.
+     * @param phase the phase. Must not be {@code null}.
+     * @param action the action of the phase. Must not be {@code null}.
+     * @return the result of <em>action</em>.
+     */
+    public <T> T call(final Phase phase, final Supplier<T> action) {
+        Objects.requireNonNull(action, "action is null");
+        final long start = System.nanoTime();
+        try {
+            return action.get();
+        } finally {
+            record(phase, start);
+        }
+    }
+
+    /**
+     * Runs and records a phase.
+     * @param phase the phase. Must not be {@code null}.
+     * @param action the action of the phase. Must not be {@code null}.
+     */
+    public void run(final Phase phase, final Runnable action) {
+        Objects.requireNonNull(action, "action is null");
+        final long start = System.nanoTime();
+        try {
+            action.run();
+        } finally {
+            record(phase, start);
+        }
+    }
+
+    /**
+     * Records the latency of a running request at its completion. The
+     * latency is measured from this call, which should be right after the
+     * start of the request.
+     * @param phase the phase. Must not be {@code null}.
+     * @param request the promise of the request. Must not be {@code null}.
+     * @return the promise of the request.
+     */
+    public <T> Promise<T> request(final Phase phase, final Promise<T> request) {
+        Objects.requireNonNull(phase, "phase is null");
+        Objects.requireNonNull(request, "request is null");
+        final long start = System.nanoTime();
+        return request.done(result -> record(phase, start))
+                      .fail(failure -> record(phase, start));
+    }
+
+    public LatencyHistogram getHistogram(final Phase phase) {
+        return this.histograms.get(Objects.requireNonNull(phase, "phase is null"));
+    }
+
+    public void addBytesReceived(final long bytes) {
+        this.bytesReceived.add(bytes);
+    }
+
+    public long getBytesReceived() {
+        return this.bytesReceived.sum();
+    }
+
+    public void addRetry() {
+        this.retries.increment();
+    }
+
+    public long getRetries() {
+        return this.retries.sum();
+    }
+
+    public void addThrottled() {
+        this.throttled.increment();
+    }
+
+    public long getThrottled() {
+        return this.throttled.sum();
+    }
+
+    public void addCacheUsage(final long hits, final long misses) {
+        this.cacheHits.add(hits);
+        this.cacheMisses.add(misses);
+    }
+
+    public long getCacheHits() {
+        return this.cacheHits.sum();
+    }
+
+    public long getCacheMisses() {
+        return this.cacheMisses.sum();
+    }
+
+    /**
+     * Prints the p50, p90, p99 and maximum latency of each phase in
+     * milliseconds and the counters.
+     * @param out the target of the summary. Must not be {@code null}.
+     */
+    public void printSummary(final PrintStream out) {
+        Objects.requireNonNull(out, "out is null");
+        out.format(SUMMARY_FORMAT, "phase", "count", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        for (final Phase phase : Phase.values()) {
+            final LatencyHistogram histogram = getHistogram(phase);
+            out.format(SUMMARY_ROW_FORMAT, phase.getLabel(), histogram.getCount(),
+                       toMillis(histogram.getValueAtPercentile(50)),
+                       toMillis(histogram.getValueAtPercentile(90)),
+                       toMillis(histogram.getValueAtPercentile(99)),
+                       toMillis(histogram.getMax()));
+        }
+        out.format("bytes received: %d - retries: %d - cache hits: %d - cache misses: %d - throttled: %d%n",
+                   getBytesReceived(), getRetries(), getCacheHits(), getCacheMisses(), getThrottled());
+        out.flush();
+    }
+
+    static double toMillis(final long nanos) {
+        return nanos / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public String toString() {
+        return "RunStatistics{" + "histograms=" + histograms + ", bytesReceived=" + bytesReceived
+                + ", retries=" + retries + ", throttled=" + throttled + ", cacheHits=" + cacheHits + ", cacheMisses=" + cacheMisses + '}';
+    }
+}
@@ -0,0 +1,63 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.symbol;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Maps repeated values of a run like status names, users, issue types or
+ * priorities to a canonical instance.
+ * <p>A symbol table replaces {@link String#intern()}. It lives as long as the
+ * run and doesn't grow the string table of the JVM. The table has no bound,
+ * so only values of low cardinality must be added. Free text like summaries,
+ * descriptions or historical field values is not a symbol. All methods are
+ * thread-safe. Lookups of known values don't lock.</p>
+ */
+public final class SymbolTable {
+
+    private final ConcurrentMap<String, String> symbols = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the canonical instance of the given value.
+     * @param value the value. Can be {@code null}.
+     * @return the canonical instance equal to <em>value</em> or {@code null}
+     *         if <em>value</em> is {@code null}.
+     */
+    public String canonical(final String value) {
+        if (value == null) {
+            return null;
+        }
+        final String known = this.symbols.get(value);
+        if (known != null) {
+            return known;
+        }
+        final String added = this.symbols.putIfAbsent(value, value);
+        return added != null ? added : value;
+    }
+
+    /** @return the count of the known values. */
+    public int size() {
+        return this.symbols.size();
+    }
+
+    @Override
+    public String toString() {
+        return "SymbolTable{" + "size=" + size() + '}';
+    }
+}
@@ -0,0 +1,207 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.app;
+
+import de.speexx.jira.jan.service.fetch.Checkpoint;
+import de.speexx.jira.jan.service.fetch.FakeJiraServer;
+import de.speexx.jira.jan.service.fetch.HighWaterMark;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javax.enterprise.inject.se.SeContainer;
+import javax.enterprise.inject.se.SeContainerInitializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * End-to-end throughput of the exporting commands against a {@link FakeJiraServer}.
+ * Runs with <tt>mvn verify</tt> and prints issues per second and the
+ * 99th percentile of the search page response time.
+ */
+public class ExportThroughputIT {
+
+    static final int ISSUES = 2_000;
+    static final int CHANGELOG_ITEMS = 20;
+    static final int CUSTOM_FIELDS = 30;
+    static final int LATENCY_MILLIS = 20;
+    static final int RESUME_INDEX = 1_000;
+    static final String RECORD_SEPARATOR = "\r\n";
+
+    private Path output;
+
+    @BeforeEach
+    public void createOutput() throws IOException {
+        this.output = Files.createTempFile("jan-throughput", ".csv");
+    }
+
+    @AfterEach
+    public void deleteOutput() throws IOException {
+        Files.deleteIfExists(this.output);
+    }
+
+    @Test
+    public void issuequery() throws Exception {
+        try (final FakeJiraServer server = createServer()) {
+            final long start = System.nanoTime();
+            run(server, "issuequery", "-q", "project = " + FakeJiraServer.PROJECT_KEY,
+                        "--history", "status", "--current", "summary",
+                        "--output", this.output.toString());
+            report("issuequery", server, start);
+
+            assertEquals(ISSUES + 1, countLines());
+            assertEquals(0, server.getIssueRequests());
+        }
+    }
+
+    @Test
+    public void issuequery_with_compression() throws Exception {
+        try (final FakeJiraServer server = createServer()) {
+            run(server, "issuequery", "-q", "project = " + FakeJiraServer.PROJECT_KEY,
+                        "--history", "status", "--current", "summary",
+                        "--output", this.output.toString());
+            final byte[] expected = Files.readAllBytes(this.output);
+            assertEquals(0, server.getGzipResponses());
+
+            final long start = System.nanoTime();
+            run(server, "--compression", "issuequery", "-q", "project = " + FakeJiraServer.PROJECT_KEY,
+                        "--history", "status", "--current", "summary",
+                        "--output", this.output.toString());
+            report("issuequery (compression)", server, start);
+
+            assertArrayEquals(expected, Files.readAllBytes(this.output));
+            assertTrue(server.getGzipResponses() > 0);
+        }
+    }
+
+    @Test
+    public void issuequery_with_truncated_changelogs() throws Exception {
+        try (final FakeJiraServer server = createServer()) {
+            server.setSearchChangelogLimit(CHANGELOG_ITEMS / 2);
+            final long start = System.nanoTime();
+            run(server, "issuequery", "-q", "project = " + FakeJiraServer.PROJECT_KEY,
+                        "--history", "status", "--output", this.output.toString());
+            report("issuequery (truncated changelogs)", server, start);
+
+            assertEquals(ISSUES + 1, countLines());
+            assertEquals(ISSUES, server.getIssueRequests());
+        }
+    }
+
+    @Test
+    public void transitions() throws Exception {
+        try (final FakeJiraServer server = createServer()) {
+            final long start = System.nanoTime();
+            run(server, "transitions", "-q", "project = " + FakeJiraServer.PROJECT_KEY,
+                        "--output", this.output.toString());
+            report("transitions", server, start);
+
+            assertTrue(countLines() > ISSUES);
+        }
+    }
+
+    @Test
+    public void transitions_with_transient_failures() throws Exception {
+        try (final FakeJiraServer server = createServer()) {
+            server.setErrorRate(0.2);
+            final long start = System.nanoTime();
+            run(server, "transitions", "-q", "project = " + FakeJiraServer.PROJECT_KEY,
+                        "--output", this.output.toString());
+            report("transitions (transient failures)", server, start);
+
+            assertTrue(countLines() > ISSUES);
+        }
+    }
+
+    @Test
+    public void transitions_resumed() throws Exception {
+        final Path checkpointFile = Files.createTempFile("jan-checkpoint", ".properties");
+        try (final FakeJiraServer server = createServer()) {
+            run(server, "transitions", "-q", "project = " + FakeJiraServer.PROJECT_KEY,
+                        "--output", this.output.toString());
+            final byte[] expected = Files.readAllBytes(this.output);
+
+            final String resumeKey = FakeJiraServer.key(RESUME_INDEX) + ",";
+            final String complete = new String(expected, StandardCharsets.UTF_8);
+            final int offset = complete.indexOf(RECORD_SEPARATOR + resumeKey) + RECORD_SEPARATOR.length();
+            final String interrupted = complete.substring(0, offset) + resumeKey + "Bug,20";
+            Files.write(this.output, interrupted.getBytes(StandardCharsets.UTF_8));
+            new Checkpoint("project = " + FakeJiraServer.PROJECT_KEY, new HighWaterMark(),
+                           RESUME_INDEX, FakeJiraServer.key(RESUME_INDEX - 1),
+                           complete.substring(0, offset).getBytes(StandardCharsets.UTF_8).length, RESUME_INDEX, new HighWaterMark())
+                    .write(checkpointFile);
+
+            run(server, "transitions", "-q", "project = " + FakeJiraServer.PROJECT_KEY,
+                        "--output", this.output.toString(), "--checkpoint", checkpointFile.toString(), "--resume");
+
+            assertArrayEquals(expected, Files.readAllBytes(this.output));
+            assertFalse(Files.exists(checkpointFile));
+        } finally {
+            Files.deleteIfExists(checkpointFile);
+        }
+    }
+
+    @Test
+    public void failing_server() throws Exception {
+        try (final FakeJiraServer server = createServer()) {
+            server.setErrorRate(1);
+            assertThrows(RuntimeException.class,
+                         () -> run(server, "--retries", "0",
+                                           "issuequery", "-q", "project = " + FakeJiraServer.PROJECT_KEY,
+                                           "--output", this.output.toString()));
+        }
+    }
+
+    int countLines() throws IOException {
+        return Files.readAllLines(this.output, StandardCharsets.UTF_8).size();
+    }
+
+    static FakeJiraServer createServer() throws IOException {
+        final FakeJiraServer server = new FakeJiraServer(ISSUES, CHANGELOG_ITEMS, CUSTOM_FIELDS);
+        server.setLatencyMillis(LATENCY_MILLIS);
+        return server.start();
+    }
+
+    static void run(final FakeJiraServer server, final String... commandArgs) {
+        final String[] args = new String[commandArgs.length + 6];
+        args[0] = "--jira";
+        args[1] = server.getUri().toString();
+        args[2] = "--user";
+        args[3] = "user";
+        args[4] = "--password";
+        args[5] = "password";
+        System.arraycopy(commandArgs, 0, args, 6, commandArgs.length);
+
+        try (final SeContainer container = SeContainerInitializer.newInstance().initialize()) {
+            container.select(Application.class).get().run(args);
+        }
+    }
+
+    static void report(final String name, final FakeJiraServer server, final long start) {
+        final double seconds = (System.nanoTime() - start) / 1_000_000_000d;
+        System.out.printf("%s: %d issues in %.2f s - %.1f issues/s - search p99 %.1f ms - %d search and %d issue requests%n",
+                          name, server.getIssueCount(), seconds, server.getIssueCount() / seconds,
+                          server.getSearchMillisAtPercentile(99), server.getSearchRequests(), server.getIssueRequests());
+    }
+}
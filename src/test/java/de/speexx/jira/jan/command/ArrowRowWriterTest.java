@@ -0,0 +1,141 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.command;
+
+import de.speexx.jira.jan.command.ArrowRowWriter.Column;
+import de.speexx.jira.jan.command.ArrowRowWriter.ColumnType;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.TimeStampMilliVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ArrowRowWriterTest {
+
+    static final List<Column> COLUMNS = Arrays.asList(new Column("key", ColumnType.STRING),
+                                                      new Column("status", ColumnType.DICTIONARY),
+                                                      new Column("at", ColumnType.TIMESTAMP),
+                                                      new Column("duration", ColumnType.INT64));
+
+    @Test
+    public void typed_columns_round_trip() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (final ArrowRowWriter writer = new ArrowRowWriter(COLUMNS, out, 10)) {
+            writer.append("A-1").append("Open").append(LocalDateTime.of(2016, 12, 1, 18, 12, 45, 432_000_000)).append(60_000);
+            writer.endRow();
+            writer.append("A-2").append((CharSequence) null).append((LocalDateTime) null).append(-1);
+            writer.endRow();
+        }
+
+        try (final BufferAllocator allocator = new RootAllocator(Long.MAX_VALUE);
+             final ArrowStreamReader reader = new ArrowStreamReader(new ByteArrayInputStream(out.toByteArray()), allocator)) {
+            final VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            assertTrue(reader.loadNextBatch());
+            assertEquals(2, root.getRowCount());
+
+            assertEquals("A-1", string((VarCharVector) root.getVector("key"), 0));
+            final IntVector status = (IntVector) root.getVector("status");
+            final VarCharVector statusValues = (VarCharVector) reader.lookup(status.getField().getDictionary().getId()).getVector();
+            assertEquals("Open", string(statusValues, status.get(0)));
+            assertTrue(status.isNull(1));
+            assertEquals(1480615965432L, ((TimeStampMilliVector) root.getVector("at")).get(0));
+            assertTrue(root.getVector("at").isNull(1));
+            assertEquals(-1, ((BigIntVector) root.getVector("duration")).get(1));
+            assertFalse(reader.loadNextBatch());
+        }
+    }
+
+    @Test
+    public void dictionary_grows_between_batches() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (final ArrowRowWriter writer = new ArrowRowWriter(COLUMNS, out, 1)) {
+            writer.append("A-1").append("Open").appendNull().append(0);
+            writer.endRow();
+            writer.append("A-1").append("Done").appendNull().append(0);
+            writer.endRow();
+        }
+
+        try (final BufferAllocator allocator = new RootAllocator(Long.MAX_VALUE);
+             final ArrowStreamReader reader = new ArrowStreamReader(new ByteArrayInputStream(out.toByteArray()), allocator)) {
+            final VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            assertTrue(reader.loadNextBatch());
+            assertTrue(reader.loadNextBatch());
+            final IntVector status = (IntVector) root.getVector("status");
+            final VarCharVector statusValues = (VarCharVector) reader.lookup(status.getField().getDictionary().getId()).getVector();
+            assertEquals("Done", string(statusValues, status.get(0)));
+        }
+    }
+
+    @Test
+    public void wrong_column_type() throws IOException {
+        try (final ArrowRowWriter writer = new ArrowRowWriter(COLUMNS, new ByteArrayOutputStream(), 10)) {
+            writer.append("A-1");
+            final Throwable exception = assertThrows(IllegalStateException.class, () -> writer.append(1));
+            assertEquals("Column 1 is of type DICTIONARY not INT64", exception.getMessage());
+            writer.append("Open").appendNull().append(0);
+            writer.endRow();
+        }
+    }
+
+    @Test
+    public void incomplete_row() throws IOException {
+        try (final ArrowRowWriter writer = new ArrowRowWriter(COLUMNS, new ByteArrayOutputStream(), 10)) {
+            writer.append("A-1");
+            final Throwable exception = assertThrows(IllegalStateException.class, writer::endRow);
+            assertEquals("Row has 1 of 4 cells", exception.getMessage());
+            writer.appendNull().appendNull().appendNull();
+            writer.endRow();
+        }
+    }
+
+    @Test
+    public void full_batch_is_written() throws IOException {
+        try (final ArrowRowWriter writer = new ArrowRowWriter(COLUMNS, new ByteArrayOutputStream(), 2)) {
+            for (int i = 0; i < 3; i++) {
+                writer.append("A-" + i).append("Open").appendNull().append(i);
+                writer.endRow();
+            }
+            assertEquals(1, writer.getRowCount());
+        }
+    }
+
+    @Test
+    public void epoch_millis_keep_wall_clock_time() {
+        assertEquals(0, ArrowRowWriter.toEpochMillis(LocalDateTime.of(1970, 1, 1, 0, 0)));
+        assertEquals(1480615965432L, ArrowRowWriter.toEpochMillis(LocalDateTime.of(2016, 12, 1, 18, 12, 45, 432_000_000)));
+    }
+
+    static String string(final VarCharVector vector, final int index) {
+        return new String(vector.get(index), StandardCharsets.UTF_8);
+    }
+}
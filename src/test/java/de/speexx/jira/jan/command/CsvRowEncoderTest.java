@@ -0,0 +1,97 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.command;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class CsvRowEncoderTest {
+
+    @Test
+    public void rfc4180_escaping() throws IOException {
+        final CsvRowEncoder encoder = new CsvRowEncoder();
+        encoder.append("plain").append("a,b").append("say \"hi\"").append("two\r\nlines").append((CharSequence) null);
+
+        assertEquals("plain,\"a,b\",\"say \"\"hi\"\"\",\"two\r\nlines\",\r\n", write(encoder));
+    }
+
+    @Test
+    public void numbers() throws IOException {
+        final CsvRowEncoder encoder = new CsvRowEncoder();
+        encoder.append(0).append(120_000).append(-42).append(Long.MIN_VALUE).append(Long.MAX_VALUE);
+
+        assertEquals("0,120000,-42,-9223372036854775808,9223372036854775807\r\n", write(encoder));
+    }
+
+    @Test
+    public void date_times_as_iso_date_time() throws IOException {
+        final CsvRowEncoder encoder = new CsvRowEncoder();
+        encoder.append(LocalDateTime.of(2016, 12, 1, 18, 12, 45, 432_000_000))
+               .append(LocalDateTime.of(2016, 1, 2, 3, 4))
+               .append(LocalDateTime.of(2016, 1, 2, 3, 4, 5, 1))
+               .append(LocalDateTime.of(12016, 1, 2, 3, 4, 5));
+
+        assertEquals("2016-12-01T18:12:45.432,2016-01-02T03:04:00,2016-01-02T03:04:05.000000001,+12016-01-02T03:04:05\r\n", write(encoder));
+    }
+
+    @Test
+    public void reused_cells() throws IOException {
+        final CsvRowEncoder prefix = new CsvRowEncoder();
+        prefix.append("A-1").append("Bug");
+        final CsvRowEncoder row = new CsvRowEncoder();
+        final StringWriter out = new StringWriter();
+
+        row.appendCells(prefix).append("Open").appendEmpty(2);
+        row.writeRow(out);
+        row.appendEmpty(1).appendCells(prefix).append("Done");
+        row.writeRow(out);
+
+        assertEquals("A-1,Bug,Open,,\r\n,A-1,Bug,Done\r\n", out.toString());
+        assertEquals(2, prefix.getCellCount());
+    }
+
+    @Test
+    public void single_empty_cell() throws IOException {
+        final CsvRowEncoder encoder = new CsvRowEncoder();
+        encoder.append("");
+
+        assertEquals("\"\"\r\n", write(encoder));
+    }
+
+    @Test
+    public void grows_beyond_initial_capacity() throws IOException {
+        final CsvRowEncoder encoder = new CsvRowEncoder();
+        final StringBuilder expected = new StringBuilder();
+        for (int idx = 0; idx < CsvRowEncoder.INITIAL_CAPACITY; idx++) {
+            encoder.append("\"" + idx);
+            expected.append(idx == 0 ? "" : ",").append("\"\"\"").append(idx).append('"');
+        }
+
+        assertEquals(expected + "\r\n", write(encoder));
+    }
+
+    static String write(final CsvRowEncoder encoder) throws IOException {
+        final StringWriter out = new StringWriter();
+        encoder.writeRow(out);
+        assertEquals(0, encoder.getCellCount());
+        return out.toString();
+    }
+}
@@ -0,0 +1,47 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.command;
+
+import com.beust.jcommander.ParameterException;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+public class FormatParameterValidatorTest {
+
+    @Test
+    public void test_validate_unknown_parameter_value() {
+        final Throwable exception = assertThrows(ParameterException.class, () -> {
+            new FormatParameterValidator().validate("--format", "parquet");
+        });
+        assertEquals("Illegal format parameter value: parquet", exception.getMessage());
+    }
+
+    @Test
+    public void test_validate_known_parameter_values() {
+        new FormatParameterValidator().validate("--format", OutputParameters.FORMAT_VALUE_CSV);
+        new FormatParameterValidator().validate("--format", "ARROW");
+    }
+
+    @Test
+    public void test_convert() {
+        assertEquals(OutputFormat.ARROW, new FormatParameterValidator().convert(OutputParameters.FORMAT_VALUE_ARROW));
+        assertEquals(OutputFormat.CSV, new FormatParameterValidator().convert(OutputParameters.FORMAT_VALUE_CSV));
+        assertEquals(OutputFormat.CSV, new FormatParameterValidator().convert("something"));
+    }
+}
@@ -0,0 +1,85 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.command;
+
+import com.beust.jcommander.JCommander;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OutputParametersTest {
+
+    @Test
+    public void truncate() throws IOException {
+        final Path file = Files.createTempFile("jan-output", ".csv");
+        try {
+            Files.write(file, "a,b\r\nc,d\r\n".getBytes(StandardCharsets.UTF_8));
+            final OutputParameters output = parse(file);
+
+            output.truncate(5);
+
+            assertEquals("a,b\r\n", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+            assertThrows(IOException.class, () -> output.truncate(6));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void truncate_missing_output() throws IOException {
+        final Path file = Files.createTempFile("jan-output", ".csv");
+        Files.delete(file);
+        final OutputParameters output = parse(file);
+
+        output.truncate(0);
+        final Throwable exception = assertThrows(IOException.class, () -> output.truncate(5));
+
+        assertTrue(exception.getMessage().contains("doesn't exist"));
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    public void closeOnFailure() {
+        final AtomicInteger closed = new AtomicInteger();
+        final Closeable output = closed::incrementAndGet;
+        final Closeable failing = () -> {
+            throw new IOException("close failed");
+        };
+        final IOException failure = new IOException("open failed");
+
+        OutputParameters.closeOnFailure(failure, output, null, failing, output);
+
+        assertEquals(2, closed.get());
+        assertEquals(1, failure.getSuppressed().length);
+        assertEquals("close failed", failure.getSuppressed()[0].getMessage());
+    }
+
+    static OutputParameters parse(final Path file) {
+        final OutputParameters output = new OutputParameters();
+        new JCommander(output).parse("--output", file.toString());
+        return output;
+    }
+}
@@ -0,0 +1,53 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.command.issuefieldanalyzer;
+
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class IssueFieldAnalyzerTest {
+
+    @Test
+    public void encode_nested_field_value() throws JSONException {
+        final JSONObject value = new JSONObject().put("name", "Open")
+                                                 .put("ids", new JSONArray().put(1));
+        final JsonLineEncoder encoder = new JsonLineEncoder().beginObject();
+        new IssueFieldAnalyzer().encodeFieldValue(encoder, value);
+        encoder.endObject();
+
+        final String object = "org.codehaus.jettison.json.JSONObject";
+        final String array = "org.codehaus.jettison.json.JSONArray";
+        final String name = "{\"name\":\"name\",\"valuetype\":\"java.lang.String\"}";
+        final String ids = "{\"name\":\"ids\",\"valuetype\":\"" + array + "\",\"fields\":[{\"valuetype\":\"java.lang.Integer\"}]}";
+        final String actual = encoder.toString();
+        final boolean nameFirst = actual.indexOf("\"name\":\"name\"") < actual.indexOf("\"name\":\"ids\"");
+        assertEquals("{\"valuetype\":\"" + object + "\",\"fields\":[" + (nameFirst ? name + "," + ids : ids + "," + name) + "]}", actual);
+    }
+
+    @Test
+    public void encode_missing_field_value() throws JSONException {
+        final JsonLineEncoder encoder = new JsonLineEncoder().beginObject();
+        new IssueFieldAnalyzer().encodeFieldValue(encoder, null);
+        encoder.endObject();
+
+        assertEquals("{\"valuetype\":\"unknown\"}", encoder.toString());
+    }
+}
@@ -0,0 +1,84 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.command.issuefieldanalyzer;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class JsonLineEncoderTest {
+
+    @Test
+    public void compact_nested_value() throws IOException {
+        final JsonLineEncoder encoder = new JsonLineEncoder();
+        encoder.beginObject()
+               .name("a").value("x")
+               .name("b").value(42)
+               .name("c").beginArray().value(true).value((String) null).beginObject().endObject().endArray()
+               .name("d").beginArray().endArray()
+               .endObject();
+
+        final StringWriter out = new StringWriter();
+        encoder.writeLine(out);
+        assertEquals("{\"a\":\"x\",\"b\":42,\"c\":[true,null,{}],\"d\":[]}\n", out.toString());
+    }
+
+    @Test
+    public void escaping() {
+        final JsonLineEncoder encoder = new JsonLineEncoder();
+        encoder.value("say \"hi\"\\\r\n\t\u0001\u00e4");
+
+        assertEquals("\"say \\\"hi\\\"\\\\\\r\\n\\t\\u0001\u00e4\"", encoder.toString());
+    }
+
+    @Test
+    public void buffer_is_reused_for_next_line() throws IOException {
+        final JsonLineEncoder encoder = new JsonLineEncoder();
+        final StringWriter out = new StringWriter();
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            encoder.beginObject().name("key").value("A-" + i).endObject();
+            encoder.writeLine(out);
+            expected.append("{\"key\":\"A-").append(i).append("\"}\n");
+        }
+        assertEquals(expected.toString(), out.toString());
+    }
+
+    @Test
+    public void incomplete_value() {
+        final JsonLineEncoder encoder = new JsonLineEncoder();
+        encoder.beginObject().name("a");
+
+        final Throwable exception = assertThrows(IllegalStateException.class, () -> encoder.writeLine(new StringWriter()));
+        assertEquals("No complete JSON value encoded", exception.getMessage());
+    }
+
+    @Test
+    public void reset_discards_value() throws IOException {
+        final JsonLineEncoder encoder = new JsonLineEncoder();
+        encoder.beginObject().name("a").beginArray();
+        encoder.reset();
+        encoder.beginArray().endArray();
+
+        final StringWriter out = new StringWriter();
+        encoder.writeLine(out);
+        assertEquals("[]\n", out.toString());
+    }
+}
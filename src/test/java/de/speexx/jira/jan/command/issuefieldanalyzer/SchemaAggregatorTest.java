@@ -0,0 +1,110 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.command.issuefieldanalyzer;
+
+import com.atlassian.jira.rest.client.api.domain.BasicProject;
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import com.atlassian.jira.rest.client.api.domain.IssueField;
+import com.atlassian.jira.rest.client.api.domain.IssueType;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URI;
+import java.util.Arrays;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SchemaAggregatorTest {
+
+    @Test
+    public void merge_fields_of_issues() throws JSONException, IOException {
+        final SchemaAggregator aggregator = new SchemaAggregator();
+        aggregator.add(createIssue("Bug", new IssueField("summary", "Summary", null, "first"),
+                                          new IssueField("labels", "Labels", null, new JSONArray().put("a").put("b"))));
+        aggregator.add(createIssue("Bug", new IssueField("summary", "Summary", null, null),
+                                          new IssueField("labels", "Labels", null, new JSONArray().put(1))));
+
+        final StringWriter out = new StringWriter();
+        aggregator.write(out, new JsonLineEncoder());
+
+        assertEquals("{\"project\":\"Test\",\"type\":\"Bug\",\"issues\":2,\"fields\":["
+                   + "{\"id\":\"summary\",\"name\":\"Summary\",\"count\":2,\"nulls\":1,\"nullable\":true,\"valuetype\":{\"java.lang.String\":1}},"
+                   + "{\"id\":\"labels\",\"name\":\"Labels\",\"count\":2,\"nulls\":0,\"nullable\":false,\"valuetype\":{\"org.codehaus.jettison.json.JSONArray\":2},"
+                   + "\"items\":{\"count\":3,\"nulls\":0,\"nullable\":false,\"valuetype\":{\"java.lang.String\":2,\"java.lang.Integer\":1}}}"
+                   + "]}\n", out.toString());
+    }
+
+    @Test
+    public void one_schema_per_issue_type() throws JSONException, IOException {
+        final SchemaAggregator aggregator = new SchemaAggregator();
+        aggregator.add(createIssue("Bug", new IssueField("summary", "Summary", null, "first")));
+        aggregator.add(createIssue("Task", new IssueField("summary", "Summary", null, "second")));
+
+        final StringWriter out = new StringWriter();
+        aggregator.write(out, new JsonLineEncoder());
+
+        final String[] lines = out.toString().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"type\":\"Bug\""));
+        assertTrue(lines[1].contains("\"type\":\"Task\""));
+    }
+
+    @Test
+    public void unreadable_issue_leaves_schema_unchanged() throws JSONException, IOException {
+        final SchemaAggregator aggregator = new SchemaAggregator();
+        aggregator.add(createIssue("Bug", new IssueField("summary", "Summary", null, "first")));
+        assertThrows(JSONException.class, () -> aggregator.add(createIssue("Bug",
+                new IssueField("summary", "Summary", null, "second"),
+                new IssueField("labels", "Labels", null, new JSONArray().put("a").put((Object) null)))));
+        assertThrows(JSONException.class, () -> aggregator.add(createIssue("Task",
+                new IssueField("labels", "Labels", null, new JSONArray().put((Object) null)))));
+
+        final StringWriter out = new StringWriter();
+        aggregator.write(out, new JsonLineEncoder());
+
+        assertEquals("{\"project\":\"Test\",\"type\":\"Bug\",\"issues\":1,\"fields\":["
+                   + "{\"id\":\"summary\",\"name\":\"Summary\",\"count\":1,\"nulls\":0,\"nullable\":false,\"valuetype\":{\"java.lang.String\":1}}"
+                   + "]}\n", out.toString());
+        assertEquals(2, aggregator.getNodeCount());
+    }
+
+    @Test
+    public void nodes_independent_of_issue_count() throws JSONException {
+        final SchemaAggregator aggregator = new SchemaAggregator();
+        for (int i = 0; i < 1_000; i++) {
+            final JSONObject status = new JSONObject().put("name", "Open").put("id", i);
+            aggregator.add(createIssue("Bug", new IssueField("status", "Status", null, status),
+                                              new IssueField("labels", "Labels", null, new JSONArray().put("a").put("b"))));
+        }
+        // root, status, status.name, status.id, labels, labels items
+        assertEquals(6, aggregator.getNodeCount());
+    }
+
+    static Issue createIssue(final String type, final IssueField... fields) {
+        return new Issue("Summary", URI.create("http://example.com/issue/T-1"), "T-1", 1L,
+                new BasicProject(URI.create("http://example.com/project"), "TEST", 2L, "Test"),
+                new IssueType(URI.create("http://example.com/issuetype"), 3L, type, false, type, URI.create("http://example.com/icon")),
+                null, null, null, null, null, null, null, new DateTime(1L), new DateTime(1L), null, null, null, null, null,
+                Arrays.asList(fields), null, null, null, null, null, null, null, null, null, null, null);
+    }
+}
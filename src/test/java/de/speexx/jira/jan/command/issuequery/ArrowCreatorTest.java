@@ -0,0 +1,73 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.command.issuequery;
+
+import de.speexx.jira.jan.command.ArrowRowWriter.Column;
+import de.speexx.jira.jan.command.ArrowRowWriter.ColumnType;
+import de.speexx.jira.jan.service.issue.FieldName;
+import de.speexx.jira.jan.service.issue.FieldNamePath;
+import de.speexx.jira.jan.service.issue.FieldNameService;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ArrowCreatorTest {
+
+    private final FieldNameService fieldNameService = new FieldNameService();
+    private final FieldNamePath key = this.fieldNameService.createFieldNamePath(this.fieldNameService.createFieldName("key"));
+    private final FieldNamePath created = this.fieldNameService.createFieldNamePath(this.fieldNameService.createFieldName("createdDate"));
+
+    @Test
+    public void test_dictionary_values_for_status_like_fields() {
+        final List<FieldName> history = Arrays.asList(this.fieldNameService.createFieldName("Status"),
+                                                      this.fieldNameService.createFieldName("priority"));
+        final List<Column> columns = ArrowCreator.changeColumns(history);
+
+        assertEquals(6, columns.size());
+        assertEquals(ColumnType.DICTIONARY, columns.get(1).getType());
+        assertEquals(ColumnType.DICTIONARY, columns.get(2).getType());
+        assertEquals(ColumnType.DICTIONARY, columns.get(3).getType());
+        assertEquals(ColumnType.TIMESTAMP, columns.get(4).getType());
+        assertEquals(ColumnType.INT64, columns.get(5).getType());
+    }
+
+    @Test
+    public void test_string_values_for_other_fields() {
+        final List<FieldName> history = Arrays.asList(this.fieldNameService.createFieldName("status"),
+                                                      this.fieldNameService.createFieldName("summary"));
+        final List<Column> columns = ArrowCreator.changeColumns(history);
+
+        assertEquals(ColumnType.STRING, columns.get(2).getType());
+        assertEquals(ColumnType.STRING, columns.get(3).getType());
+    }
+
+    @Test
+    public void test_attribute_columns() {
+        final FieldNamePath summary = this.fieldNameService.createFieldNamePath(this.fieldNameService.createFieldName("summary"));
+        final List<Column> columns = ArrowCreator.attributeColumns(Arrays.asList(this.key, this.created, summary), this.created);
+
+        assertEquals("key", columns.get(0).getName());
+        assertEquals(ColumnType.STRING, columns.get(0).getType());
+        assertEquals("createddate", columns.get(1).getName());
+        assertEquals(ColumnType.TIMESTAMP, columns.get(1).getType());
+        assertEquals(ColumnType.STRING, columns.get(2).getType());
+        assertEquals(Collections.emptyList(), ArrowCreator.attributeColumns(Collections.<FieldNamePath>emptyList(), this.created));
+    }
+}
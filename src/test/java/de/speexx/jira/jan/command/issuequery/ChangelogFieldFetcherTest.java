@@ -0,0 +1,37 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.command.issuequery;
+
+import com.beust.jcommander.JCommander;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ChangelogFieldFetcherTest {
+
+    @Test
+    public void test_narrow_append_without_attributes_file() throws IOException {
+        final ChangelogFieldFetcher fetcher = new ChangelogFieldFetcher();
+        new JCommander(fetcher).parse("-q", "project = JAN", "--layout", "narrow");
+
+        assertTrue(fetcher.isAttributesHeaderRequired(true));
+        assertTrue(fetcher.isAttributesHeaderRequired(false));
+        assertNull(fetcher.newAttributesWriter(true));
+    }
+}
@@ -0,0 +1,182 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.command.issuequery;
+
+import de.speexx.jira.jan.service.issue.FieldName;
+import de.speexx.jira.jan.service.issue.FieldNamePath;
+import de.speexx.jira.jan.service.issue.FieldNameService;
+import de.speexx.jira.jan.service.issue.IssueData;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CsvCreatorTest {
+
+    private final FieldNameService fieldNameService = new FieldNameService();
+    private final FieldNamePath key = this.fieldNameService.createFieldNamePath(this.fieldNameService.createFieldName("key"));
+    private final FieldNamePath created = this.fieldNameService.createFieldNamePath(this.fieldNameService.createFieldName("createdDate"));
+
+    @Test
+    public void test_header_once_for_all_issues() throws IOException {
+        final StringWriter out = new StringWriter();
+        final CsvCreator creator = new CsvCreator();
+        creator.open(out, 0);
+
+        final AtomicBoolean header = new AtomicBoolean(true);
+        final List<FieldNamePath> current = Arrays.asList(this.key, this.created);
+        creator.printIssueData(createIssueData("A-1"), Collections.<FieldName>emptyList(), current, TemporalChangeOutput.DURATION, header);
+        creator.printIssueData(createIssueData("A-2"), Collections.<FieldName>emptyList(), current, TemporalChangeOutput.DURATION, header);
+        creator.flush();
+
+        assertEquals("key,createddate\r\nA-1,2016-12-01T18:12:45.432\r\nA-2,2016-12-01T18:12:45.432\r\n", out.toString());
+    }
+
+    @Test
+    public void test_sink_closes_writers() throws IOException {
+        final AtomicInteger closes = new AtomicInteger();
+        final StringWriter out = new StringWriter() {
+            @Override
+            public void close() throws IOException {
+                closes.incrementAndGet();
+                super.close();
+            }
+        };
+        final CsvCreator creator = new CsvCreator();
+        creator.open(out, 0);
+        creator.setOutputOptions(TemporalChangeOutput.DURATION, true);
+
+        try (final IssueDataSink sink = creator) {
+            final List<FieldNamePath> current = Arrays.asList(this.key, this.created);
+            sink.printIssueData(createIssueData("A-1"), Collections.<FieldName>emptyList(), current, null);
+            sink.printIssueData(createIssueData("A-2"), Collections.<FieldName>emptyList(), current, null);
+        }
+
+        assertEquals("key,createddate\r\nA-1,2016-12-01T18:12:45.432\r\nA-2,2016-12-01T18:12:45.432\r\n", out.toString());
+        assertEquals(1, closes.get());
+        creator.close();
+        assertEquals(1, closes.get());
+    }
+
+    @Test
+    public void test_flush_interval() throws IOException {
+        final AtomicInteger flushes = new AtomicInteger();
+        final StringWriter out = new StringWriter() {
+            @Override
+            public void flush() {
+                flushes.incrementAndGet();
+            }
+        };
+        final CsvCreator creator = new CsvCreator();
+        creator.open(out, 2);
+
+        final AtomicBoolean header = new AtomicBoolean(false);
+        final List<FieldNamePath> current = Arrays.asList(this.key, this.created);
+        for (int i = 0; i < 5; i++) {
+            creator.printIssueData(createIssueData("A-" + i), Collections.<FieldName>emptyList(), current, TemporalChangeOutput.NONE, header);
+        }
+
+        assertEquals(2, flushes.get());
+    }
+
+    @Test
+    public void test_changed_after() throws IOException {
+        final StringWriter out = new StringWriter();
+        final CsvCreator creator = new CsvCreator();
+        creator.open(out, 0);
+
+        final FieldName status = this.fieldNameService.createFieldName("status");
+        final IssueData data = createIssueData("A-1");
+        data.addHistoricalDataEntry(status, new IssueData.HistoricalDataEntry("Open", LocalDateTime.of(2016, 12, 1, 18, 13, 45, 432_000_000), "In Progress"));
+        data.addHistoricalDataEntry(status, new IssueData.HistoricalDataEntry("In Progress", LocalDateTime.of(2016, 12, 1, 18, 15, 45, 432_000_000), "Done"));
+
+        final List<FieldNamePath> current = Arrays.asList(this.key);
+        final AtomicBoolean header = new AtomicBoolean(false);
+        final LocalDateTime changedAfter = LocalDateTime.of(2016, 12, 1, 18, 14);
+        creator.printIssueData(data, Collections.singletonList(status), current, TemporalChangeOutput.DURATION, header, changedAfter);
+        creator.printIssueData(createIssueData("A-2"), Collections.singletonList(status), current, TemporalChangeOutput.DURATION, header, changedAfter);
+        creator.flush();
+
+        assertEquals("A-1,In Progress,120000,Done\r\n", out.toString());
+    }
+
+    @Test
+    public void test_narrow_layout_one_row_per_change() throws IOException {
+        final StringWriter out = new StringWriter();
+        final StringWriter attributes = new StringWriter();
+        final CsvCreator creator = new CsvCreator();
+        creator.openNarrow(out, this.key, attributes, true, 0);
+
+        final FieldName status = this.fieldNameService.createFieldName("status");
+        final IssueData data = createIssueData("A-1");
+        data.addHistoricalDataEntry(status, new IssueData.HistoricalDataEntry("Open", LocalDateTime.of(2016, 12, 1, 18, 13, 45, 432_000_000), "In Progress"));
+        data.addHistoricalDataEntry(status, new IssueData.HistoricalDataEntry("In Progress", LocalDateTime.of(2016, 12, 1, 18, 15, 45, 432_000_000), "Done"));
+
+        final List<FieldNamePath> current = Arrays.asList(this.key, this.created);
+        final AtomicBoolean header = new AtomicBoolean(true);
+        creator.printIssueData(data, Collections.singletonList(status), current, TemporalChangeOutput.NONE, header);
+        creator.printIssueData(createIssueData("A-2"), Collections.singletonList(status), current, TemporalChangeOutput.NONE, header);
+        creator.flush();
+
+        assertEquals("key,field,from,to,at,duration\r\n"
+                   + "A-1,status,Open,In Progress,2016-12-01T18:13:45.432,60000\r\n"
+                   + "A-1,status,In Progress,Done,2016-12-01T18:15:45.432,120000\r\n", out.toString());
+        assertEquals("key,createddate\r\nA-1,2016-12-01T18:12:45.432\r\nA-2,2016-12-01T18:12:45.432\r\n", attributes.toString());
+    }
+
+    @Test
+    public void test_narrow_layout_without_attributes() throws IOException {
+        final StringWriter out = new StringWriter();
+        final CsvCreator creator = new CsvCreator();
+        creator.openNarrow(out, this.key, null, true, 0);
+
+        final FieldName status = this.fieldNameService.createFieldName("status");
+        final IssueData data = createIssueData("A-1");
+        data.addHistoricalDataEntry(status, new IssueData.HistoricalDataEntry("Open", LocalDateTime.of(2016, 12, 1, 18, 13, 45, 432_000_000), "In Progress"));
+
+        final AtomicBoolean header = new AtomicBoolean(false);
+        final LocalDateTime changedAfter = LocalDateTime.of(2016, 12, 1, 18, 14);
+        creator.printIssueData(data, Collections.singletonList(status), Arrays.asList(this.key), TemporalChangeOutput.NONE, header, changedAfter);
+        creator.flush();
+
+        assertEquals("", out.toString());
+    }
+
+    @Test
+    public void test_not_opened() {
+        final Throwable exception = assertThrows(IllegalStateException.class, () -> {
+            new CsvCreator().printIssueData(createIssueData("A-1"), Collections.<FieldName>emptyList(),
+                                            Arrays.asList(this.key), TemporalChangeOutput.NONE, new AtomicBoolean(false));
+        });
+        assertEquals("CsvCreator not opened", exception.getMessage());
+    }
+
+    IssueData createIssueData(final String issueKey) {
+        final IssueData data = new IssueData();
+        data.addCurrentFieldData(this.key, issueKey);
+        data.addCurrentFieldData(this.created, LocalDateTime.of(2016, 12, 1, 18, 12, 45, 432_000_000));
+        return data;
+    }
+}
@@ -0,0 +1,47 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.command.issuequery;
+
+import com.beust.jcommander.ParameterException;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+public class LayoutParameterValidatorTest {
+
+    @Test
+    public void test_validate_unknown_parameter_value() {
+        final Throwable exception = assertThrows(ParameterException.class, () -> {
+            new LayoutParameterValidator().validate("--layout", "long");
+        });
+        assertEquals("Illegal layout parameter value: long", exception.getMessage());
+    }
+
+    @Test
+    public void test_validate_known_parameter_values() {
+        new LayoutParameterValidator().validate("--layout", ChangelogFieldFetcher.LAYOUT_VALUE_WIDE);
+        new LayoutParameterValidator().validate("--layout", "NARROW");
+    }
+
+    @Test
+    public void test_convert() {
+        assertEquals(OutputLayout.NARROW, new LayoutParameterValidator().convert(ChangelogFieldFetcher.LAYOUT_VALUE_NARROW));
+        assertEquals(OutputLayout.WIDE, new LayoutParameterValidator().convert(ChangelogFieldFetcher.LAYOUT_VALUE_WIDE));
+        assertEquals(OutputLayout.WIDE, new LayoutParameterValidator().convert("something"));
+    }
+}
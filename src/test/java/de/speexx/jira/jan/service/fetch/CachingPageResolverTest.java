@@ -0,0 +1,180 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.fetch;
+
+import com.atlassian.jira.rest.client.api.domain.BasicProject;
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import com.atlassian.jira.rest.client.api.domain.IssueType;
+import com.atlassian.jira.rest.client.api.domain.SearchResult;
+import com.atlassian.jira.rest.client.api.domain.Status;
+import com.atlassian.util.concurrent.Promise;
+import com.atlassian.util.concurrent.Promises;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CachingPageResolverTest {
+
+    private static final Set<String> FIELDS = Collections.singleton("summary");
+    private static final Set<String> EXPAND = Collections.singleton("changelog");
+
+    private Path directory;
+    private IssueCache cache;
+    private final List<String> searches = new ArrayList<>();
+    private final Map<String, Long> jiraUpdated = new HashMap<>();
+    private final Set<String> truncatedInJira = new HashSet<>();
+
+    @Test
+    public void first_run_fetches_all_issues() {
+        this.jiraUpdated.put("TEST-1", 1000L);
+        this.jiraUpdated.put("TEST-2", 1000L);
+        final CachingPageResolver resolver = new CachingPageResolver(this.cache, this::search, FIELDS, EXPAND);
+
+        final ExpandedSearchResult resolved = resolver.resolve(createPage("TEST-1", "TEST-2"));
+
+        assertEquals(Arrays.asList("TEST-1", "TEST-2"), keys(resolved));
+        assertEquals(Collections.singletonList("key in (\"TEST-1\",\"TEST-2\")"), this.searches);
+        assertEquals(0, this.cache.getHits());
+    }
+
+    @Test
+    public void second_run_fetches_only_updated_issues() {
+        this.jiraUpdated.put("TEST-1", 1000L);
+        this.jiraUpdated.put("TEST-2", 1000L);
+        this.jiraUpdated.put("TEST-3", 1000L);
+        new CachingPageResolver(this.cache, this::search, FIELDS, EXPAND).resolve(createPage("TEST-1", "TEST-2", "TEST-3"));
+        this.searches.clear();
+
+        this.jiraUpdated.put("TEST-2", 2000L);
+        final CachingPageResolver resolver = new CachingPageResolver(this.cache, this::search, FIELDS, EXPAND);
+        final ExpandedSearchResult resolved = resolver.resolve(createPage("TEST-1", "TEST-2", "TEST-3"));
+
+        assertEquals(Arrays.asList("TEST-1", "TEST-2", "TEST-3"), keys(resolved));
+        assertEquals(Collections.singletonList("key in (\"TEST-2\")"), this.searches);
+        assertEquals(2, this.cache.getHits());
+    }
+
+    @Test
+    public void truncated_changelog_is_not_cached() {
+        this.jiraUpdated.put("TEST-1", 1000L);
+        this.truncatedInJira.add("TEST-1");
+        final CachingPageResolver resolver = new CachingPageResolver(this.cache, this::search, FIELDS, EXPAND);
+
+        final ExpandedSearchResult resolved = resolver.resolve(createPage("TEST-1"));
+        assertTrue(resolved.isChangelogTruncated(resolved.getIssues().iterator().next()));
+
+        resolver.resolve(createPage("TEST-1"));
+        assertEquals(2, this.searches.size());
+    }
+
+    @Test
+    public void deleted_issue_is_skipped() {
+        this.jiraUpdated.put("TEST-1", 1000L);
+        final CachingPageResolver resolver = new CachingPageResolver(this.cache, this::search, FIELDS, EXPAND);
+
+        final ExpandedSearchResult resolved = resolver.resolve(createPage("TEST-1", "TEST-2"));
+
+        assertEquals(Collections.singletonList("TEST-1"), keys(resolved));
+        assertFalse(resolved.getIssueJson(resolved.getIssues().iterator().next()).isPresent());
+    }
+
+    @Test
+    public void createKeyJql() {
+        assertEquals("key in (\"A-1\",\"B-2\")", CachingPageResolver.createKeyJql(Arrays.asList("A-1", "B-2")));
+    }
+
+    ExpandedSearchResult createPage(final String... keys) {
+        final List<Issue> issues = new ArrayList<>();
+        for (final String key : keys) {
+            issues.add(createIssue(key, this.jiraUpdated.getOrDefault(key, 0L)));
+        }
+        return new ExpandedSearchResult(new SearchResult(0, 100, issues.size(), issues), Collections.emptySet());
+    }
+
+    Promise<ExpandedSearchResult> search(final String jql, final int maxResults, final int startAt) {
+        this.searches.add(jql);
+        final List<Issue> issues = new ArrayList<>();
+        final Map<String, JSONObject> json = new HashMap<>();
+        for (final Map.Entry<String, Long> entry : this.jiraUpdated.entrySet()) {
+            if (jql.contains('"' + entry.getKey() + '"')) {
+                issues.add(createIssue(entry.getKey(), entry.getValue()));
+                json.put(entry.getKey(), createIssueJson(entry.getKey(), entry.getValue()));
+            }
+        }
+        return Promises.promise(new ExpandedSearchResult(new SearchResult(startAt, maxResults, issues.size(), issues), this.truncatedInJira, json));
+    }
+
+    static List<String> keys(final ExpandedSearchResult result) {
+        final List<String> keys = new ArrayList<>();
+        result.getIssues().forEach(issue -> keys.add(issue.getKey()));
+        return keys;
+    }
+
+    static Issue createIssue(final String key, final long updated) {
+        return new Issue("Summary", URI.create("http://example.com/issue/" + key), key, 1L,
+                new BasicProject(URI.create("http://example.com/project"), "TEST", 2L, "Test"),
+                new IssueType(URI.create("http://example.com/issuetype"), 3L, "Bug", false, "Bug", URI.create("http://example.com/icon")),
+                new Status(URI.create("http://example.com/status"), 4L, "Open", "Open", URI.create("http://example.com/icon")),
+                null, null, null, null, null, null, new DateTime(1L), new DateTime(updated), null, null, null, null, null,
+                null, null, null, null, null, null, null, null, null, null, null, null);
+    }
+
+    static JSONObject createIssueJson(final String key, final long updated) {
+        try {
+            final JSONObject issue = new JSONObject();
+            issue.put("key", key);
+            issue.put("updated", updated);
+            return issue;
+        } catch (final JSONException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @BeforeEach
+    public void createCache() throws IOException {
+        this.directory = Files.createTempDirectory("jan-cache");
+        this.cache = new IssueCache(this.directory, json -> createIssue(json.getString("key"), json.getLong("updated")));
+    }
+
+    @AfterEach
+    public void deleteCache() throws IOException {
+        try (final Stream<Path> paths = Files.walk(this.directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
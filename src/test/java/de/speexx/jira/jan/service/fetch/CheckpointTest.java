@@ -0,0 +1,152 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.fetch;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import com.atlassian.jira.rest.client.api.domain.SearchResult;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CheckpointTest {
+
+    @Test
+    public void afterPage() {
+        final List<Issue> issues = ConcurrentIssueFetcherTest.createIssues(10);
+        final ExpandedSearchResult page = new ExpandedSearchResult(new SearchResult(20, 10, 100, issues), Collections.emptySet());
+
+        final Checkpoint checkpoint = Checkpoint.afterPage("a = b", new HighWaterMark(), page, 1234L, 30, new HighWaterMark(2000L, 1000L));
+
+        assertEquals(30, checkpoint.getStartAt());
+        assertEquals("TEST-9", checkpoint.getLastKey().get());
+        assertEquals(1234L, checkpoint.getOffset());
+        assertEquals(30, checkpoint.getCount());
+        assertEquals(2000L, checkpoint.getSeen().getMillis());
+    }
+
+    @Test
+    public void afterPage_empty_page() {
+        final ExpandedSearchResult page = new ExpandedSearchResult(new SearchResult(0, 10, 0, Collections.emptyList()), Collections.emptySet());
+
+        final Checkpoint checkpoint = Checkpoint.afterPage("a = b", new HighWaterMark(), page, 0L, 0, new HighWaterMark());
+
+        assertEquals(0, checkpoint.getStartAt());
+        assertFalse(checkpoint.getLastKey().isPresent());
+        assertEquals(0, checkpoint.getResumeStartAt());
+    }
+
+    @Test
+    public void write_and_read() throws IOException {
+        final Path checkpointFile = Files.createTempFile("jan-checkpoint", ".properties");
+        try {
+            new Checkpoint("a = b", new HighWaterMark(), 30, "TEST-29", 1234L, 30, new HighWaterMark(2000L, 1000L)).write(checkpointFile);
+
+            final Optional<Checkpoint> checkpoint = Checkpoint.read(checkpointFile);
+            assertTrue(checkpoint.isPresent());
+            assertEquals("a = b", checkpoint.get().getJql());
+            assertEquals("a = b", checkpoint.get().getQuery(System.currentTimeMillis()));
+            assertTrue(checkpoint.get().getSince().isEmpty());
+            assertEquals(30, checkpoint.get().getStartAt());
+            assertEquals("TEST-29", checkpoint.get().getLastKey().get());
+            assertEquals(1234L, checkpoint.get().getOffset());
+            assertEquals(30, checkpoint.get().getCount());
+            assertEquals(2000L, checkpoint.get().getSeen().getMillis());
+        } finally {
+            Files.deleteIfExists(checkpointFile);
+        }
+    }
+
+    @Test
+    public void resume_incremental_query_after_clock_moved() throws IOException {
+        final HighWaterMark since = new HighWaterMark(10 * HighWaterMark.MINUTE_MILLIS, HighWaterMark.NONE);
+        final long started = 14 * HighWaterMark.MINUTE_MILLIS;
+        final long resumed = started + 120 * HighWaterMark.MINUTE_MILLIS;
+        final Path checkpointFile = Files.createTempFile("jan-checkpoint", ".properties");
+        try {
+            final Checkpoint written = new Checkpoint("a = b", since, 30, "TEST-29", 1234L, 30, since);
+            assertEquals("(a = b) AND updated >= \"-" + (4 + HighWaterMark.QUERY_OVERLAP_MINUTES) + "m\"", written.getQuery(started));
+            written.write(checkpointFile);
+
+            final Checkpoint checkpoint = Checkpoint.read(checkpointFile).get();
+
+            assertEquals(since.getMillis(), checkpoint.getSince().getMillis());
+            assertEquals("(a = b) AND updated >= \"-" + (124 + HighWaterMark.QUERY_OVERLAP_MINUTES) + "m\"", checkpoint.getQuery(resumed));
+        } finally {
+            Files.deleteIfExists(checkpointFile);
+        }
+    }
+
+    @Test
+    public void read_without_checkpoint_file() throws IOException {
+        final Path checkpointFile = Files.createTempFile("jan-checkpoint", ".properties");
+        Files.delete(checkpointFile);
+
+        assertFalse(Checkpoint.read(checkpointFile).isPresent());
+    }
+
+    @Test
+    public void read_corrupt_checkpoint_file() throws IOException {
+        final Path checkpointFile = Files.createTempFile("jan-checkpoint", ".properties");
+        try {
+            Files.write(checkpointFile, "jql=a\nstartAt=x\n".getBytes(StandardCharsets.ISO_8859_1));
+
+            final Throwable exception = assertThrows(IOException.class, () -> Checkpoint.read(checkpointFile));
+            assertTrue(exception.getMessage().startsWith("Corrupt checkpoint file"));
+        } finally {
+            Files.deleteIfExists(checkpointFile);
+        }
+    }
+
+    @Test
+    public void skipProcessed_unchanged_result() {
+        final Checkpoint checkpoint = new Checkpoint("a", new HighWaterMark(), 5, "TEST-4", 0L, 5, new HighWaterMark());
+        assertEquals(4, checkpoint.getResumeStartAt());
+
+        final List<Issue> issues = checkpoint.skipProcessed(ConcurrentIssueFetcherTest.createIssues(10).subList(4, 10));
+
+        assertEquals(5, issues.size());
+        assertEquals("TEST-5", issues.get(0).getKey());
+    }
+
+    @Test
+    public void skipProcessed_changed_result() {
+        final Checkpoint checkpoint = new Checkpoint("a", new HighWaterMark(), 5, "TEST-4", 0L, 5, new HighWaterMark());
+
+        final List<Issue> issues = checkpoint.skipProcessed(ConcurrentIssueFetcherTest.createIssues(10).subList(3, 10));
+
+        assertEquals(7, issues.size());
+        assertEquals("TEST-3", issues.get(0).getKey());
+    }
+
+    @Test
+    public void negative_offset() {
+        final Throwable exception = assertThrows(IllegalArgumentException.class, () -> {
+            new Checkpoint("a", new HighWaterMark(), 0, null, -1L, 0, new HighWaterMark());
+        });
+        assertEquals("Offset must not be negative: -1", exception.getMessage());
+    }
+}
@@ -0,0 +1,97 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.fetch;
+
+import com.atlassian.jira.rest.client.api.domain.BasicProject;
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import com.atlassian.jira.rest.client.api.domain.IssueType;
+import com.atlassian.jira.rest.client.api.domain.Status;
+import com.atlassian.util.concurrent.Promises;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConcurrentIssueFetcherTest {
+
+    @Test
+    public void fetch_keeps_search_result_order() {
+        final List<Issue> searchResult = createIssues(10);
+        final List<String> keys = new ArrayList<>();
+
+        final int count = new ConcurrentIssueFetcher(issue -> Promises.promise(issue), 3).fetch(searchResult, issue -> keys.add(issue.getKey()));
+
+        assertEquals(10, count);
+        for (int i = 0; i < 10; i++) {
+            assertEquals("TEST-" + i, keys.get(i));
+        }
+    }
+
+    @Test
+    public void fetch_limits_requests_in_flight() {
+        final List<Issue> searchResult = createIssues(10);
+        final AtomicInteger started = new AtomicInteger();
+        final AtomicInteger consumed = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+
+        new ConcurrentIssueFetcher(issue -> {
+            final int inFlight = started.incrementAndGet() - consumed.get();
+            maxInFlight.set(Math.max(maxInFlight.get(), inFlight));
+            return Promises.promise(issue);
+        }, 4).fetch(searchResult, issue -> consumed.incrementAndGet());
+
+        assertEquals(4, maxInFlight.get());
+        assertEquals(10, consumed.get());
+    }
+
+    @Test
+    public void fetch_with_empty_search_result() {
+        final int count = new ConcurrentIssueFetcher(issue -> Promises.promise(issue), 2).fetch(new ArrayList<>(), issue -> {});
+        assertEquals(0, count);
+    }
+
+    @Test
+    public void parallelism_less_than_one() {
+        final Throwable exception = assertThrows(IllegalArgumentException.class, () -> {
+            new ConcurrentIssueFetcher(issue -> Promises.promise(issue), 0);
+        });
+        assertTrue(exception.getMessage().startsWith("Parallelism must be greater than 0"));
+    }
+
+    static List<Issue> createIssues(final int count) {
+        final List<Issue> issues = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            issues.add(createIssue("TEST-" + i));
+        }
+        return issues;
+    }
+
+    static Issue createIssue(final String key) {
+        return new Issue("Summary", URI.create("http://example.com/issue/" + key), key, 1L,
+                new BasicProject(URI.create("http://example.com/project"), "TEST", 2L, "Test"),
+                new IssueType(URI.create("http://example.com/issuetype"), 3L, "Bug", false, "Bug", URI.create("http://example.com/icon")),
+                new Status(URI.create("http://example.com/status"), 4L, "Open", "Open", URI.create("http://example.com/icon")),
+                null, null, null, null, null, null, new DateTime(1L), new DateTime(2L), null, null, null, null, null,
+                null, null, null, null, null, null, null, null, null, null, null, null);
+    }
+}
@@ -0,0 +1,126 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.fetch;
+
+import de.speexx.jira.jan.service.stats.RunStatistics;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ExpandingSearchRestClientTest {
+
+    @Test
+    public void createSearchUri() {
+        assertEquals(URI.create("https://example.com/jira/rest/api/latest/search"),
+                     ExpandingSearchRestClient.createSearchUri(URI.create("https://example.com/jira")));
+    }
+
+    @Test
+    public void createSearchUri_with_trailing_slash() {
+        assertEquals(URI.create("https://example.com/rest/api/latest/search"),
+                     ExpandingSearchRestClient.createSearchUri(URI.create("https://example.com/")));
+    }
+
+    @Test
+    public void findTruncatedChangelogs() throws JSONException {
+        final JSONArray issues = new JSONArray();
+        issues.put(createIssue("TEST-1", 2, 2));
+        issues.put(createIssue("TEST-2", 100, 150));
+        issues.put(new JSONObject().put("key", "TEST-3"));
+        final JSONObject searchResult = new JSONObject().put("issues", issues);
+
+        final Set<String> truncated = ExpandingSearchRestClient.findTruncatedChangelogs(searchResult);
+
+        assertEquals(1, truncated.size());
+        assertTrue(truncated.contains("TEST-2"));
+    }
+
+    @Test
+    public void findTruncatedChangelogs_without_issues() {
+        assertTrue(ExpandingSearchRestClient.findTruncatedChangelogs(new JSONObject()).isEmpty());
+    }
+
+    @Test
+    public void isChangelogTruncated_without_total() throws JSONException {
+        final JSONObject issue = createIssue("TEST-1", 2, 2);
+        issue.getJSONObject("changelog").remove("total");
+        assertFalse(ExpandingSearchRestClient.isChangelogTruncated(issue));
+    }
+
+    @Test
+    public void readGzipEntity() throws IOException {
+        final String entity = "{\"issues\":[],\"summary\":\"\u00e4\u20ac\"}";
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (final OutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(entity.getBytes(StandardCharsets.UTF_8));
+        }
+        final RunStatistics statistics = new RunStatistics();
+
+        assertEquals(entity, ExpandingSearchRestClient.readGzipEntity(new ByteArrayInputStream(compressed.toByteArray()), statistics));
+        assertEquals(compressed.size(), statistics.getBytesReceived());
+    }
+
+    @Test
+    public void readGzipEntity_not_compressed() {
+        final byte[] entity = "{}".getBytes(StandardCharsets.UTF_8);
+        assertThrows(IOException.class,
+                     () -> ExpandingSearchRestClient.readGzipEntity(new ByteArrayInputStream(entity), new RunStatistics()));
+    }
+
+    @Test
+    public void isGzipEncoded() {
+        assertTrue(ExpandingSearchRestClient.isGzipEncoded("gzip"));
+        assertTrue(ExpandingSearchRestClient.isGzipEncoded(" GZIP "));
+        assertFalse(ExpandingSearchRestClient.isGzipEncoded("identity"));
+        assertFalse(ExpandingSearchRestClient.isGzipEncoded(null));
+    }
+
+    @Test
+    public void utf8Length() {
+        assertEquals(0, ExpandingSearchRestClient.utf8Length(null));
+        assertEquals(3, ExpandingSearchRestClient.utf8Length("abc"));
+        assertEquals(2, ExpandingSearchRestClient.utf8Length("\u00e4"));
+        assertEquals(3, ExpandingSearchRestClient.utf8Length("\u20ac"));
+        assertEquals(4, ExpandingSearchRestClient.utf8Length("\ud83d\ude00"));
+    }
+
+    static JSONObject createIssue(final String key, final int histories, final int total) throws JSONException {
+        final JSONArray historyEntries = new JSONArray();
+        for (int i = 0; i < histories; i++) {
+            historyEntries.put(new JSONObject().put("id", String.valueOf(i)));
+        }
+        final JSONObject changelog = new JSONObject().put("startAt", 0)
+                                                     .put("maxResults", histories)
+                                                     .put("total", total)
+                                                     .put("histories", historyEntries);
+        return new JSONObject().put("key", key).put("changelog", changelog);
+    }
+}
@@ -0,0 +1,607 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.fetch;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+
+/**
+ * In-process stand-in for the JIRA REST API. The server serves a synthetic
+ * project with the <tt>search</tt>, <tt>issue/{key}</tt> and <tt>field</tt>
+ * resources. A JQL query is only evaluated for <tt>key in (...)</tt>.
+ * All other queries return all issues of the project.
+ * <p>Latency and failing requests can be injected to measure the fetch
+ * path of the commands under realistic conditions.</p>
+ */
+public final class FakeJiraServer implements Closeable {
+
+    public static final String PROJECT_KEY = "LOAD";
+
+    static final String API_PATH = "/rest/api/latest/";
+    static final String SEARCH_PATH = API_PATH + "search";
+    static final String ISSUE_PATH = API_PATH + "issue/";
+    static final String FIELD_PATH = API_PATH + "field";
+
+    static final int DEFAULT_SEARCH_CHANGELOG_LIMIT = 100;
+    static final int MAX_RESULTS_LIMIT = 1000;
+    static final int SERVER_THREADS = 64;
+    static final int HTTP_OK = 200;
+    static final int HTTP_NOT_FOUND = 404;
+    static final int HTTP_SERVER_ERROR = 500;
+    static final int HTTP_UNAVAILABLE = 503;
+
+    static final long CREATED_MILLIS = 1_480_000_000_000L;
+    static final long MINUTE_MILLIS = 60 * 1000;
+    static final long HOUR_MILLIS = 60 * MINUTE_MILLIS;
+    static final int CUSTOM_FIELD_ID_OFFSET = 10_000;
+    static final String[] STATUS_NAMES = {"Open", "In Progress", "Review", "Resolved", "Reopened", "Closed"};
+    static final String[] CHANGELOG_FIELDS = {"status", "assignee", "priority", "description"};
+    static final String[] SYSTEM_FIELDS = {"summary", "issuetype", "project", "status", "priority", "resolution",
+                                           "created", "updated", "reporter", "assignee", "labels", "description"};
+
+    static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSZ").withZone(ZoneOffset.UTC);
+    static final Pattern KEY_IN = Pattern.compile("key\\s+in\\s*\\(([^)]*)\\)", Pattern.CASE_INSENSITIVE);
+
+    private final int issueCount;
+    private final int changelogItems;
+    private final int customFieldCount;
+    private int latencyMillis;
+    private double errorRate;
+    private int searchChangelogLimit = DEFAULT_SEARCH_CHANGELOG_LIMIT;
+    private Random random = new Random(42);
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private URI uri;
+
+    private final AtomicInteger searchRequests = new AtomicInteger();
+    private final AtomicInteger issueRequests = new AtomicInteger();
+    private final AtomicInteger failedRequests = new AtomicInteger();
+    private final AtomicInteger gzipResponses = new AtomicInteger();
+    private final List<Long> searchNanos = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * @param issueCount the count of issues of the project.
+     * @param changelogItems the count of changelog items of each issue.
+     * @param customFieldCount the count of custom fields of each issue.
+     */
+    public FakeJiraServer(final int issueCount, final int changelogItems, final int customFieldCount) {
+        if (issueCount < 0 || changelogItems < 0 || customFieldCount < 0) {
+            throw new IllegalArgumentException("Sizes must not be negative: " + issueCount + "/" + changelogItems + "/" + customFieldCount);
+        }
+        this.issueCount = issueCount;
+        this.changelogItems = changelogItems;
+        this.customFieldCount = customFieldCount;
+    }
+
+    /** @param latencyMillis the delay of each response. */
+    public void setLatencyMillis(final int latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    /** @param errorRate the probability between 0 and 1 a request fails with HTTP 503. */
+    public void setErrorRate(final double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    /** @param searchChangelogLimit the maximum count of histories of an issue in a search result. */
+    public void setSearchChangelogLimit(final int searchChangelogLimit) {
+        this.searchChangelogLimit = searchChangelogLimit;
+    }
+
+    /** @param seed the seed for the injected errors. */
+    public void setSeed(final long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Starts the server on a free port of the loopback interface.
+     * @return this server.
+     * @throws IOException if and only if the server can't be started.
+     */
+    public FakeJiraServer start() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.executor = Executors.newFixedThreadPool(SERVER_THREADS);
+        this.server.setExecutor(this.executor);
+        this.server.createContext("/", this::handle);
+        this.server.start();
+        this.uri = URI.create("http://" + this.server.getAddress().getHostString() + ":" + this.server.getAddress().getPort());
+        return this;
+    }
+
+    @Override
+    public void close() {
+        if (this.server != null) {
+            this.server.stop(0);
+            this.executor.shutdownNow();
+        }
+    }
+
+    public URI getUri() {
+        return this.uri;
+    }
+
+    public int getIssueCount() {
+        return this.issueCount;
+    }
+
+    public int getSearchRequests() {
+        return this.searchRequests.get();
+    }
+
+    public int getIssueRequests() {
+        return this.issueRequests.get();
+    }
+
+    public int getFailedRequests() {
+        return this.failedRequests.get();
+    }
+
+    /** @return the count of GZIP encoded search responses. */
+    public int getGzipResponses() {
+        return this.gzipResponses.get();
+    }
+
+    /**
+     * @param percentile the percentile between 0 and 100.
+     * @return the response time of the search requests at the percentile in milliseconds.
+     *         0 if no search request was answered.
+     */
+    public double getSearchMillisAtPercentile(final double percentile) {
+        final List<Long> sorted;
+        synchronized (this.searchNanos) {
+            sorted = new ArrayList<>(this.searchNanos);
+        }
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        Collections.sort(sorted);
+        final int index = (int) Math.ceil(percentile / 100 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(sorted.size() - 1, index))) / 1_000_000d;
+    }
+
+    public static String key(final int index) {
+        return PROJECT_KEY + "-" + (index + 1);
+    }
+
+    void handle(final HttpExchange exchange) throws IOException {
+        final long start = System.nanoTime();
+        try {
+            delay();
+            if (isFailing()) {
+                this.failedRequests.incrementAndGet();
+                respond(exchange, HTTP_UNAVAILABLE, createError("Service unavailable"));
+                return;
+            }
+            final String path = exchange.getRequestURI().getPath();
+            if (SEARCH_PATH.equals(path)) {
+                this.searchRequests.incrementAndGet();
+                final JSONObject result = search(readSearchRequest(exchange));
+                this.searchNanos.add(System.nanoTime() - start);
+                if (acceptsGzip(exchange)) {
+                    this.gzipResponses.incrementAndGet();
+                    respondGzip(exchange, HTTP_OK, result);
+                } else {
+                    respond(exchange, HTTP_OK, result);
+                }
+            } else if (path.startsWith(ISSUE_PATH)) {
+                this.issueRequests.incrementAndGet();
+                final int index = indexOf(path.substring(ISSUE_PATH.length()));
+                if (index < 0) {
+                    respond(exchange, HTTP_NOT_FOUND, createError("Issue does not exist"));
+                } else {
+                    final Set<String> expand = splitList(queryParameters(exchange).get("expand"));
+                    respond(exchange, HTTP_OK, createIssue(index, Collections.emptySet(), expand, Integer.MAX_VALUE, true));
+                }
+            } else if (FIELD_PATH.equals(path)) {
+                respond(exchange, HTTP_OK, createFieldList());
+            } else {
+                respond(exchange, HTTP_NOT_FOUND, createError("Unknown resource " + path));
+            }
+        } catch (final JSONException | RuntimeException e) {
+            respond(exchange, HTTP_SERVER_ERROR, "{\"errorMessages\":[\"" + e.getClass().getSimpleName() + "\"],\"errors\":{}}");
+        }
+    }
+
+    void delay() {
+        if (this.latencyMillis > 0) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(this.latencyMillis);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    boolean isFailing() {
+        if (this.errorRate <= 0) {
+            return false;
+        }
+        synchronized (this) {
+            return this.random.nextDouble() < this.errorRate;
+        }
+    }
+
+    JSONObject readSearchRequest(final HttpExchange exchange) throws IOException, JSONException {
+        if ("POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+            return new JSONObject(readBody(exchange));
+        }
+        final Map<String, String> parameters = queryParameters(exchange);
+        final JSONObject request = new JSONObject();
+        request.put("jql", parameters.getOrDefault("jql", ""));
+        request.put("startAt", Integer.parseInt(parameters.getOrDefault("startAt", "0")));
+        request.put("maxResults", Integer.parseInt(parameters.getOrDefault("maxResults", "50")));
+        request.put("fields", new JSONArray(splitList(parameters.get("fields"))));
+        request.put("expand", new JSONArray(splitList(parameters.get("expand"))));
+        return request;
+    }
+
+    /**
+     * Answers a search request.
+     * @param request the search request in the format of a JIRA search POST body.
+     * @return the search result.
+     */
+    JSONObject search(final JSONObject request) throws JSONException {
+        final List<Integer> matching = findIssues(request.optString("jql", ""));
+        final int startAt = Math.max(0, request.optInt("startAt", 0));
+        final int maxResults = Math.min(MAX_RESULTS_LIMIT, Math.max(0, request.optInt("maxResults", 50)));
+        final Set<String> fields = toSet(request.optJSONArray("fields"));
+        final Set<String> expand = toSet(request.optJSONArray("expand"));
+
+        final JSONArray issues = new JSONArray();
+        for (int idx = startAt; idx < Math.min(matching.size(), startAt + maxResults); idx++) {
+            issues.put(createIssue(matching.get(idx), fields, expand, this.searchChangelogLimit, false));
+        }
+
+        final JSONObject result = new JSONObject();
+        result.put("expand", "names,schema");
+        result.put("startAt", startAt);
+        result.put("maxResults", maxResults);
+        result.put("total", matching.size());
+        result.put("issues", issues);
+        addNamesAndSchema(result, expand);
+        return result;
+    }
+
+    List<Integer> findIssues(final String jql) {
+        final Matcher keyIn = KEY_IN.matcher(jql);
+        final List<Integer> matching = new ArrayList<>();
+        if (keyIn.find()) {
+            for (final String key : keyIn.group(1).split(",")) {
+                final int index = indexOf(key.trim().replace("\"", "").replace("'", ""));
+                if (index >= 0) {
+                    matching.add(index);
+                }
+            }
+        } else {
+            for (int idx = 0; idx < this.issueCount; idx++) {
+                matching.add(idx);
+            }
+        }
+        return matching;
+    }
+
+    int indexOf(final String key) {
+        final String prefix = PROJECT_KEY + "-";
+        if (!key.startsWith(prefix)) {
+            return -1;
+        }
+        try {
+            final int index = Integer.parseInt(key.substring(prefix.length())) - 1;
+            return index >= 0 && index < this.issueCount ? index : -1;
+        } catch (final NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    JSONObject createIssue(final int index,
+                           final Set<String> requestedFields,
+                           final Set<String> expand,
+                           final int changelogLimit,
+                           final boolean withNames) throws JSONException {
+        final String key = key(index);
+        final String id = String.valueOf(CUSTOM_FIELD_ID_OFFSET + index);
+        final JSONObject issue = new JSONObject();
+        issue.put("expand", "renderedFields,names,schema,operations,editmeta,changelog,versionedRepresentations");
+        issue.put("id", id);
+        issue.put("self", this.uri + ISSUE_PATH + id);
+        issue.put("key", key);
+
+        final JSONObject fields = new JSONObject();
+        final long created = CREATED_MILLIS + index * MINUTE_MILLIS;
+        putField(fields, requestedFields, "summary", "Summary of " + key);
+        putField(fields, requestedFields, "issuetype", createNamed("issuetype", index % 3 == 0 ? 1 : 3, index % 3 == 0 ? "Bug" : "Task")
+                                                                .put("subtask", false)
+                                                                .put("iconUrl", this.uri + "/images/icons/issuetype.png"));
+        putField(fields, requestedFields, "project", new JSONObject().put("self", this.uri + API_PATH + "project/1")
+                                                                    .put("id", "1")
+                                                                    .put("key", PROJECT_KEY)
+                                                                    .put("name", "Load Test"));
+        putField(fields, requestedFields, "status", createNamed("status", 6, statusName(this.changelogItems))
+                                                             .put("iconUrl", this.uri + "/images/icons/status.png"));
+        putField(fields, requestedFields, "priority", createNamed("priority", 3, "Major"));
+        putField(fields, requestedFields, "resolution", index % 2 == 0 ? createNamed("resolution", 1, "Fixed") : JSONObject.NULL);
+        putField(fields, requestedFields, "created", formatDate(created));
+        putField(fields, requestedFields, "updated", formatDate(created + this.changelogItems * HOUR_MILLIS));
+        putField(fields, requestedFields, "reporter", createUser("reporter"));
+        putField(fields, requestedFields, "assignee", createUser("user" + (index % 10)));
+        putField(fields, requestedFields, "labels", new JSONArray(Arrays.asList("load", "test")));
+        putField(fields, requestedFields, "description", "Description of " + key);
+        for (int idx = 0; idx < this.customFieldCount; idx++) {
+            putField(fields, requestedFields, customFieldId(idx), createCustomFieldValue(idx, index));
+        }
+        issue.put("fields", fields);
+
+        if (expand.contains("changelog")) {
+            issue.put("changelog", createChangelog(created, changelogLimit));
+        }
+        if (withNames && expand.contains("names")) {
+            addNamesAndSchema(issue, expand);
+        }
+        return issue;
+    }
+
+    void putField(final JSONObject fields, final Set<String> requestedFields, final String id, final Object value) throws JSONException {
+        if (requestedFields.isEmpty() || requestedFields.contains("*all") || requestedFields.contains(id)) {
+            fields.put(id, value);
+        }
+    }
+
+    JSONObject createChangelog(final long created, final int changelogLimit) throws JSONException {
+        final JSONArray histories = new JSONArray();
+        final int count = Math.min(changelogLimit, this.changelogItems);
+        for (int idx = 0; idx < count; idx++) {
+            final String field = CHANGELOG_FIELDS[idx % CHANGELOG_FIELDS.length];
+            final JSONObject item = new JSONObject();
+            item.put("field", field);
+            item.put("fieldtype", "jira");
+            item.put("from", String.valueOf(idx));
+            item.put("fromString", "status".equals(field) ? statusName(idx) : "old " + field);
+            item.put("to", String.valueOf(idx + 1));
+            item.put("toString", "status".equals(field) ? statusName(idx + 1) : "new " + field);
+
+            final JSONObject history = new JSONObject();
+            history.put("id", String.valueOf(idx + 1));
+            history.put("author", createUser("user" + (idx % 10)));
+            history.put("created", formatDate(created + (idx + 1) * HOUR_MILLIS));
+            history.put("items", new JSONArray().put(item));
+            histories.put(history);
+        }
+        final JSONObject changelog = new JSONObject();
+        changelog.put("startAt", 0);
+        changelog.put("maxResults", count);
+        changelog.put("total", this.changelogItems);
+        changelog.put("histories", histories);
+        return changelog;
+    }
+
+    void addNamesAndSchema(final JSONObject json, final Set<String> expand) throws JSONException {
+        if (expand.contains("names")) {
+            final JSONObject names = new JSONObject();
+            for (final String id : SYSTEM_FIELDS) {
+                names.put(id, Character.toUpperCase(id.charAt(0)) + id.substring(1));
+            }
+            for (int idx = 0; idx < this.customFieldCount; idx++) {
+                names.put(customFieldId(idx), customFieldName(idx));
+            }
+            json.put("names", names);
+        }
+        if (expand.contains("schema")) {
+            final JSONObject schema = new JSONObject();
+            for (final String id : SYSTEM_FIELDS) {
+                schema.put(id, new JSONObject().put("type", "string").put("system", id));
+            }
+            for (int idx = 0; idx < this.customFieldCount; idx++) {
+                schema.put(customFieldId(idx), createCustomFieldSchema(idx));
+            }
+            json.put("schema", schema);
+        }
+    }
+
+    JSONArray createFieldList() throws JSONException {
+        final JSONArray fields = new JSONArray();
+        for (final String id : SYSTEM_FIELDS) {
+            fields.put(createField(id, Character.toUpperCase(id.charAt(0)) + id.substring(1), false,
+                                   new JSONObject().put("type", "string").put("system", id)));
+        }
+        for (int idx = 0; idx < this.customFieldCount; idx++) {
+            fields.put(createField(customFieldId(idx), customFieldName(idx), true, createCustomFieldSchema(idx)));
+        }
+        return fields;
+    }
+
+    JSONObject createField(final String id, final String name, final boolean custom, final JSONObject schema) throws JSONException {
+        final JSONObject field = new JSONObject();
+        field.put("id", id);
+        field.put("name", name);
+        field.put("custom", custom);
+        field.put("orderable", true);
+        field.put("navigable", true);
+        field.put("searchable", true);
+        field.put("clauseNames", new JSONArray().put(id));
+        field.put("schema", schema);
+        return field;
+    }
+
+    Object createCustomFieldValue(final int fieldIndex, final int issueIndex) throws JSONException {
+        switch (fieldIndex % 3) {
+            case 0: return "Value " + fieldIndex + "-" + issueIndex;
+            case 1: return (double) issueIndex;
+            default: return new JSONObject().put("self", this.uri + API_PATH + "customFieldOption/" + fieldIndex)
+                                            .put("value", "Option " + (issueIndex % 5))
+                                            .put("id", String.valueOf(issueIndex % 5));
+        }
+    }
+
+    JSONObject createCustomFieldSchema(final int fieldIndex) throws JSONException {
+        final String type = fieldIndex % 3 == 0 ? "string" : fieldIndex % 3 == 1 ? "number" : "option";
+        return new JSONObject().put("type", type)
+                               .put("custom", "com.atlassian.jira.plugin.system.customfieldtypes:" + type)
+                               .put("customId", CUSTOM_FIELD_ID_OFFSET + fieldIndex);
+    }
+
+    JSONObject createNamed(final String resource, final int id, final String name) throws JSONException {
+        return new JSONObject().put("self", this.uri + API_PATH + resource + "/" + id)
+                               .put("id", String.valueOf(id))
+                               .put("name", name)
+                               .put("description", name);
+    }
+
+    JSONObject createUser(final String name) throws JSONException {
+        final JSONObject avatarUrls = new JSONObject();
+        for (final String size : Arrays.asList("16x16", "24x24", "32x32", "48x48")) {
+            avatarUrls.put(size, this.uri + "/secure/useravatar?size=" + size);
+        }
+        return new JSONObject().put("self", this.uri + API_PATH + "user?username=" + name)
+                               .put("name", name)
+                               .put("key", name)
+                               .put("emailAddress", name + "@example.com")
+                               .put("avatarUrls", avatarUrls)
+                               .put("displayName", name)
+                               .put("active", true)
+                               .put("timeZone", "UTC");
+    }
+
+    static String createError(final String message) {
+        return "{\"errorMessages\":[\"" + message + "\"],\"errors\":{}}";
+    }
+
+    static String customFieldId(final int fieldIndex) {
+        return "customfield_" + (CUSTOM_FIELD_ID_OFFSET + fieldIndex);
+    }
+
+    static String customFieldName(final int fieldIndex) {
+        return "Custom " + fieldIndex;
+    }
+
+    static String statusName(final int index) {
+        return STATUS_NAMES[index % STATUS_NAMES.length];
+    }
+
+    static String formatDate(final long millis) {
+        return DATE_FORMAT.format(Instant.ofEpochMilli(millis));
+    }
+
+    static Set<String> toSet(final JSONArray array) {
+        final Set<String> values = new HashSet<>();
+        if (array != null) {
+            for (int idx = 0; idx < array.length(); idx++) {
+                values.add(array.optString(idx));
+            }
+        }
+        return values;
+    }
+
+    static Set<String> splitList(final String list) {
+        if (list == null || list.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return new HashSet<>(Arrays.asList(list.split(",")));
+    }
+
+    static Map<String, String> queryParameters(final HttpExchange exchange) throws UnsupportedEncodingException {
+        final Map<String, String> parameters = new HashMap<>();
+        final String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (final String parameter : query.split("&")) {
+                final int delimiter = parameter.indexOf('=');
+                if (delimiter > 0) {
+                    parameters.put(URLDecoder.decode(parameter.substring(0, delimiter), "UTF-8"),
+                                   URLDecoder.decode(parameter.substring(delimiter + 1), "UTF-8"));
+                }
+            }
+        }
+        return parameters;
+    }
+
+    static String readBody(final HttpExchange exchange) throws IOException {
+        try (final InputStream in = exchange.getRequestBody()) {
+            final ByteArrayOutputStream body = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                body.write(buffer, 0, read);
+            }
+            return new String(body.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    static boolean acceptsGzip(final HttpExchange exchange) {
+        final String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        return acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+    }
+
+    static void respondGzip(final HttpExchange exchange, final int status, final Object json) throws IOException {
+        Objects.requireNonNull(json, "json is null");
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (final OutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(json.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        final byte[] body = compressed.toByteArray();
+        exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+        exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        exchange.sendResponseHeaders(status, body.length);
+        try (final OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    static void respond(final HttpExchange exchange, final int status, final Object json) throws IOException {
+        Objects.requireNonNull(json, "json is null");
+        final byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (final OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.fetch;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FakeJiraServerTest {
+
+    @Test
+    public void search_pages() throws Exception {
+        try (final FakeJiraServer server = new FakeJiraServer(250, 3, 2).start()) {
+            final JSONObject page = search(server, "project = LOAD", 200, 100);
+
+            assertEquals(250, page.getInt("total"));
+            final JSONArray issues = page.getJSONArray("issues");
+            assertEquals(50, issues.length());
+            assertEquals("LOAD-201", issues.getJSONObject(0).getString("key"));
+            assertEquals(1, server.getSearchRequests());
+        }
+    }
+
+    @Test
+    public void search_restricted_fields_and_names() throws Exception {
+        try (final FakeJiraServer server = new FakeJiraServer(1, 3, 2).start()) {
+            final JSONObject page = search(server, "project = LOAD", 0, 10);
+
+            final JSONObject fields = page.getJSONArray("issues").getJSONObject(0).getJSONObject("fields");
+            assertTrue(fields.has("summary"));
+            assertTrue(fields.has("customfield_10001"));
+            assertFalse(fields.has("description"));
+            assertEquals("Custom 1", page.getJSONObject("names").getString("customfield_10001"));
+        }
+    }
+
+    @Test
+    public void search_key_in() throws Exception {
+        try (final FakeJiraServer server = new FakeJiraServer(10, 0, 0).start()) {
+            final JSONObject page = search(server, "key in (\"LOAD-3\", \"LOAD-7\", \"LOAD-99\")", 0, 100);
+
+            assertEquals(2, page.getInt("total"));
+            assertEquals("LOAD-7", page.getJSONArray("issues").getJSONObject(1).getString("key"));
+        }
+    }
+
+    @Test
+    public void search_truncates_changelog() throws Exception {
+        try (final FakeJiraServer server = new FakeJiraServer(1, 150, 0).start()) {
+            final JSONObject issue = search(server, "project = LOAD", 0, 1).getJSONArray("issues").getJSONObject(0);
+
+            assertTrue(ExpandingSearchRestClient.isChangelogTruncated(issue));
+            assertEquals(100, issue.getJSONObject("changelog").getJSONArray("histories").length());
+        }
+    }
+
+    @Test
+    public void issue_with_full_changelog() throws Exception {
+        try (final FakeJiraServer server = new FakeJiraServer(1, 150, 0).start()) {
+            final JSONObject issue = new JSONObject(get(server, "issue/LOAD-1?expand=names,changelog", 200));
+
+            assertEquals(150, issue.getJSONObject("changelog").getJSONArray("histories").length());
+            assertNotNull(issue.getJSONObject("names"));
+            assertEquals(1, server.getIssueRequests());
+        }
+    }
+
+    @Test
+    public void unknown_issue() throws Exception {
+        try (final FakeJiraServer server = new FakeJiraServer(1, 0, 0).start()) {
+            get(server, "issue/LOAD-2", 404);
+        }
+    }
+
+    @Test
+    public void field_list() throws Exception {
+        try (final FakeJiraServer server = new FakeJiraServer(1, 0, 3).start()) {
+            final JSONArray fields = new JSONArray(get(server, "field", 200));
+
+            assertEquals(FakeJiraServer.SYSTEM_FIELDS.length + 3, fields.length());
+        }
+    }
+
+    @Test
+    public void injected_errors() throws Exception {
+        try (final FakeJiraServer server = new FakeJiraServer(1, 0, 0).start()) {
+            server.setErrorRate(1);
+            get(server, "field", 503);
+
+            assertEquals(1, server.getFailedRequests());
+        }
+    }
+
+    @Test
+    public void search_percentile() throws Exception {
+        try (final FakeJiraServer server = new FakeJiraServer(1, 0, 0).start()) {
+            assertEquals(0, server.getSearchMillisAtPercentile(99));
+            server.setLatencyMillis(20);
+            search(server, "project = LOAD", 0, 1);
+
+            assertTrue(server.getSearchMillisAtPercentile(99) >= 20);
+        }
+    }
+
+    static JSONObject search(final FakeJiraServer server, final String jql, final int startAt, final int maxResults) throws Exception {
+        final JSONObject request = new JSONObject();
+        request.put("jql", jql);
+        request.put("startAt", startAt);
+        request.put("maxResults", maxResults);
+        request.put("fields", new JSONArray().put("summary").put("customfield_10001"));
+        request.put("expand", new JSONArray().put("names").put("changelog"));
+
+        final HttpURLConnection connection = open(server, "search");
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        try (final OutputStream out = connection.getOutputStream()) {
+            out.write(request.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals(200, connection.getResponseCode());
+        return new JSONObject(read(connection.getInputStream()));
+    }
+
+    static String get(final FakeJiraServer server, final String resource, final int expectedStatus) throws IOException {
+        final HttpURLConnection connection = open(server, resource);
+        assertEquals(expectedStatus, connection.getResponseCode());
+        return read(expectedStatus < 400 ? connection.getInputStream() : connection.getErrorStream());
+    }
+
+    static HttpURLConnection open(final FakeJiraServer server, final String resource) throws IOException {
+        return (HttpURLConnection) new URL(server.getUri() + FakeJiraServer.API_PATH + resource).openConnection();
+    }
+
+    static String read(final InputStream stream) throws IOException {
+        try (final InputStream in = stream) {
+            final ByteArrayOutputStream content = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                content.write(buffer, 0, read);
+            }
+            return new String(content.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
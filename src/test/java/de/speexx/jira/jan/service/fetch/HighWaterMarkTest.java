@@ -0,0 +1,104 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.fetch;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HighWaterMarkTest {
+
+    @Test
+    public void restrictQuery_without_order_by() {
+        assertEquals("(project = TEST) AND updated >= \"-20m\"", HighWaterMark.restrictQueryToMinutes("project = TEST", 20));
+    }
+
+    @Test
+    public void restrictQuery_with_order_by() {
+        assertEquals("(project = TEST) AND updated >= \"-20m\" ORDER BY key DESC",
+                     HighWaterMark.restrictQueryToMinutes("project = TEST ORDER BY key DESC", 20));
+        assertEquals("(project = TEST) AND updated >= \"-20m\" order  by key",
+                     HighWaterMark.restrictQueryToMinutes("project = TEST order  by key", 20));
+    }
+
+    @Test
+    public void restrictQuery_only_order_by() {
+        assertEquals("updated >= \"-20m\" ORDER BY key", HighWaterMark.restrictQueryToMinutes("ORDER BY key", 20));
+    }
+
+    @Test
+    public void restrictQuery_order_by_in_value() {
+        assertEquals("(summary ~ \"order by\" OR summary ~ 'Order By') AND updated >= \"-20m\"",
+                     HighWaterMark.restrictQueryToMinutes("summary ~ \"order by\" OR summary ~ 'Order By'", 20));
+        assertEquals(-1, HighWaterMark.findOrderBy("reorder by = 1"));
+    }
+
+    @Test
+    public void restrictQuery_with_elapsed_time() {
+        final HighWaterMark mark = new HighWaterMark(10 * HighWaterMark.MINUTE_MILLIS, HighWaterMark.NONE);
+        final long now = 14 * HighWaterMark.MINUTE_MILLIS + 1;
+        assertEquals("(a = b) AND updated >= \"-" + (5 + HighWaterMark.QUERY_OVERLAP_MINUTES) + "m\"", mark.restrictQuery("a = b", now));
+    }
+
+    @Test
+    public void restrictQuery_empty_mark() {
+        assertEquals("a = b", new HighWaterMark().restrictQuery("a = b", 1000L));
+    }
+
+    @Test
+    public void observe() {
+        final HighWaterMark mark = new HighWaterMark();
+        assertTrue(mark.isEmpty());
+
+        mark.observe(CachingPageResolverTest.createIssue("TEST-1", 2000L));
+        mark.observe(CachingPageResolverTest.createIssue("TEST-2", 1000L));
+
+        assertEquals(2000L, mark.getMillis());
+        assertTrue(mark.isNewer(new DateTime(2001L)));
+        assertFalse(mark.isNewer(new DateTime(2000L)));
+        assertFalse(mark.isNewer(null));
+    }
+
+    @Test
+    public void write_and_read() throws IOException {
+        final Path stateFile = Files.createTempFile("jan-state", ".properties");
+        try {
+            new HighWaterMark(2000L, 1000L).write(stateFile);
+
+            final Optional<HighWaterMark> mark = HighWaterMark.read(stateFile);
+            assertTrue(mark.isPresent());
+            assertEquals(2000L, mark.get().getMillis());
+        } finally {
+            Files.deleteIfExists(stateFile);
+        }
+    }
+
+    @Test
+    public void read_without_state_file() throws IOException {
+        final Path stateFile = Files.createTempFile("jan-state", ".properties");
+        Files.delete(stateFile);
+
+        assertFalse(HighWaterMark.read(stateFile).isPresent());
+    }
+}
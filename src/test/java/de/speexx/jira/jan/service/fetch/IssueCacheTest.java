@@ -0,0 +1,127 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.fetch;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IssueCacheTest {
+
+    private static final Set<String> FIELDS = new HashSet<>(Arrays.asList("summary", "status"));
+    private static final Set<String> EXPAND = Collections.singleton("changelog");
+
+    private Path directory;
+    private IssueCache cache;
+
+    @Test
+    public void get_after_put() throws JSONException {
+        this.cache.put("TEST-1", new DateTime(1000L), FIELDS, EXPAND, createIssueJson("TEST-1"));
+
+        final Optional<Issue> issue = this.cache.get("TEST-1", new DateTime(1000L), FIELDS, EXPAND);
+
+        assertTrue(issue.isPresent());
+        assertEquals("TEST-1", issue.get().getKey());
+        assertEquals(1, this.cache.getHits());
+        assertEquals(0, this.cache.getMisses());
+        assertTrue(Files.exists(this.directory.resolve("TEST").resolve("TEST-1" + IssueCache.FILE_SUFFIX)));
+    }
+
+    @Test
+    public void get_without_entry() {
+        assertFalse(this.cache.get("TEST-1", new DateTime(1000L), FIELDS, EXPAND).isPresent());
+        assertEquals(1, this.cache.getMisses());
+    }
+
+    @Test
+    public void get_updated_issue() throws JSONException {
+        this.cache.put("TEST-1", new DateTime(1000L), FIELDS, EXPAND, createIssueJson("TEST-1"));
+
+        assertFalse(this.cache.get("TEST-1", new DateTime(2000L), FIELDS, EXPAND).isPresent());
+    }
+
+    @Test
+    public void get_with_other_fields_and_expands() throws JSONException {
+        this.cache.put("TEST-1", new DateTime(1000L), FIELDS, EXPAND, createIssueJson("TEST-1"));
+
+        assertTrue(this.cache.get("TEST-1", new DateTime(1000L), Collections.singleton("status"), Collections.emptySet()).isPresent());
+        assertFalse(this.cache.get("TEST-1", new DateTime(1000L), Collections.singleton("priority"), EXPAND).isPresent());
+        assertFalse(this.cache.get("TEST-1", new DateTime(1000L), FIELDS, Collections.singleton("names")).isPresent());
+    }
+
+    @Test
+    public void get_with_all_fields_cached() throws JSONException {
+        this.cache.put("TEST-1", new DateTime(1000L), Collections.singleton(ExpandingSearchRestClient.FIELDS_ALL), EXPAND, createIssueJson("TEST-1"));
+
+        assertTrue(this.cache.get("TEST-1", new DateTime(1000L), FIELDS, EXPAND).isPresent());
+    }
+
+    @Test
+    public void get_corrupt_entry() throws IOException {
+        final Path entry = this.directory.resolve("TEST").resolve("TEST-1" + IssueCache.FILE_SUFFIX);
+        Files.createDirectories(entry.getParent());
+        Files.write(entry, new byte[] {1, 2, 3});
+
+        assertFalse(this.cache.get("TEST-1", new DateTime(1000L), FIELDS, EXPAND).isPresent());
+    }
+
+    @Test
+    public void toFileName() {
+        assertEquals("TEST-1", IssueCache.toFileName("TEST-1"));
+        assertEquals("___-1", IssueCache.toFileName("../-1"));
+    }
+
+    static JSONObject createIssueJson(final String key) throws JSONException {
+        final JSONObject fields = new JSONObject();
+        fields.put("summary", "Summary");
+        final JSONObject issue = new JSONObject();
+        issue.put("key", key);
+        issue.put("fields", fields);
+        return issue;
+    }
+
+    @BeforeEach
+    public void createCache() throws IOException {
+        this.directory = Files.createTempDirectory("jan-cache");
+        this.cache = new IssueCache(this.directory, json -> ConcurrentIssueFetcherTest.createIssue(json.getString("key")));
+    }
+
+    @AfterEach
+    public void deleteCache() throws IOException {
+        try (final Stream<Path> paths = Files.walk(this.directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
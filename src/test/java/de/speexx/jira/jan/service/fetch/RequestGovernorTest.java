@@ -0,0 +1,172 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.fetch;
+
+import com.atlassian.util.concurrent.Promises;
+import de.speexx.jira.jan.service.fetch.RequestGovernor.Outcome;
+import de.speexx.jira.jan.service.stats.RunStatistics;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RequestGovernorTest {
+
+    static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AtomicLong clock = new AtomicLong(1_000_000 * MILLIS);
+    private final RunStatistics statistics = new RunStatistics();
+
+    @Test
+    public void limit_bounded_by_max_concurrency() {
+        assertEquals(4, new RequestGovernor(4, 10, 0, this.statistics).getLimit());
+        assertEquals(1, new RequestGovernor(4, 0, 0, this.statistics).getLimit());
+    }
+
+    @Test
+    public void additive_increase() {
+        final RequestGovernor governor = new RequestGovernor(10, 2, 0, this.statistics, this.clock::get);
+        synchronized (governor) {
+            for (int idx = 0; idx < 4; idx++) {
+                governor.adapt(100 * MILLIS, Outcome.ANSWERED, this.clock.get());
+            }
+        }
+        assertEquals(3, governor.getLimit());
+    }
+
+    @Test
+    public void decrease_on_slow_response() {
+        final RequestGovernor governor = new RequestGovernor(100, 50, 0, this.statistics, this.clock::get);
+        synchronized (governor) {
+            governor.adapt(100 * MILLIS, Outcome.ANSWERED, this.clock.get());
+            governor.adapt(500 * MILLIS, Outcome.ANSWERED, this.clock.get());
+        }
+        assertEquals(45, governor.getLimit());
+    }
+
+    @Test
+    public void throttled_halves_and_pauses() {
+        final RequestGovernor governor = new RequestGovernor(100, 40, 0, this.statistics, this.clock::get);
+        synchronized (governor) {
+            governor.adapt(10 * MILLIS, Outcome.THROTTLED, this.clock.get());
+            assertEquals(20, governor.getLimit());
+            assertEquals(RequestGovernor.DEFAULT_RETRY_AFTER_MILLIS * MILLIS, governor.admit(this.clock.get()));
+
+            this.clock.addAndGet(RequestGovernor.DEFAULT_RETRY_AFTER_MILLIS * MILLIS);
+            assertEquals(0, governor.admit(this.clock.get()));
+        }
+        assertEquals(1, this.statistics.getThrottled());
+    }
+
+    @Test
+    public void retryAfter_extends_pause() {
+        final RequestGovernor governor = new RequestGovernor(100, 40, 0, this.statistics, this.clock::get);
+        governor.retryAfter("30");
+        synchronized (governor) {
+            assertEquals(30_000 * MILLIS, governor.admit(this.clock.get()));
+        }
+    }
+
+    @Test
+    public void dropped_and_cancelled() {
+        final RequestGovernor governor = new RequestGovernor(100, 50, 0, this.statistics, this.clock::get);
+        synchronized (governor) {
+            governor.adapt(10 * MILLIS, Outcome.CANCELLED, this.clock.get());
+            assertEquals(50, governor.getLimit());
+            governor.adapt(10 * MILLIS, Outcome.DROPPED, this.clock.get());
+            assertEquals(45, governor.getLimit());
+        }
+    }
+
+    @Test
+    public void admit_up_to_limit() {
+        final RequestGovernor governor = new RequestGovernor(2, 2, 0, this.statistics, this.clock::get);
+        synchronized (governor) {
+            assertEquals(0, governor.admit(this.clock.get()));
+            assertEquals(0, governor.admit(this.clock.get()));
+            assertEquals(-1, governor.admit(this.clock.get()));
+        }
+        governor.release(this.clock.get(), Outcome.CANCELLED);
+        synchronized (governor) {
+            assertEquals(0, governor.admit(this.clock.get()));
+        }
+    }
+
+    @Test
+    public void token_bucket() {
+        final RequestGovernor governor = new RequestGovernor(100, 100, 2, this.statistics, this.clock::get);
+        synchronized (governor) {
+            assertEquals(0, governor.takeToken(this.clock.get()));
+            assertEquals(0, governor.takeToken(this.clock.get()));
+            assertEquals(500 * MILLIS, governor.takeToken(this.clock.get()));
+
+            this.clock.addAndGet(500 * MILLIS);
+            assertEquals(0, governor.takeToken(this.clock.get()));
+        }
+    }
+
+    @Test
+    public void submit_releases() {
+        final RequestGovernor governor = new RequestGovernor(1, 1, 0, this.statistics);
+        assertEquals("A", governor.submit(() -> Promises.promise("A")).claim());
+        assertEquals("B", governor.submit(() -> Promises.promise("B")).claim());
+        assertEquals(0, governor.getInFlight());
+    }
+
+    @Test
+    public void submit_failing_start_releases() {
+        final RequestGovernor governor = new RequestGovernor(1, 1, 0, this.statistics);
+        assertThrows(IllegalStateException.class, () -> governor.submit(() -> {
+            throw new IllegalStateException();
+        }));
+        assertEquals(0, governor.getInFlight());
+    }
+
+    @Test
+    public void outcomeOf() {
+        assertEquals(Outcome.CANCELLED, RequestGovernor.outcomeOf(new CancellationException()));
+        assertEquals(Outcome.DROPPED, RequestGovernor.outcomeOf(new IllegalStateException()));
+    }
+
+    @Test
+    public void isThrottled() {
+        assertTrue(RequestGovernor.isThrottled(429));
+        assertTrue(RequestGovernor.isThrottled(503));
+        assertEquals(false, RequestGovernor.isThrottled(500));
+    }
+
+    @Test
+    public void parseRetryAfterMillis() {
+        final long now = 1_500_000_000_000L;
+        assertEquals(RequestGovernor.DEFAULT_RETRY_AFTER_MILLIS, RequestGovernor.parseRetryAfterMillis(null, now));
+        assertEquals(RequestGovernor.DEFAULT_RETRY_AFTER_MILLIS, RequestGovernor.parseRetryAfterMillis("soon", now));
+        assertEquals(5_000, RequestGovernor.parseRetryAfterMillis(" 5 ", now));
+        assertEquals(RequestGovernor.MAX_RETRY_AFTER_MILLIS, RequestGovernor.parseRetryAfterMillis("86400", now));
+        assertEquals(0, RequestGovernor.parseRetryAfterMillis("-1", now));
+        assertEquals(20_000, RequestGovernor.parseRetryAfterMillis("Fri, 14 Jul 2017 02:40:20 GMT", now));
+    }
+
+    @Test
+    public void invalid_arguments() {
+        assertThrows(IllegalArgumentException.class, () -> new RequestGovernor(0, 1, 0, this.statistics));
+        assertThrows(IllegalArgumentException.class, () -> new RequestGovernor(1, 1, -1, this.statistics));
+    }
+}
@@ -0,0 +1,130 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.fetch;
+
+import com.atlassian.jira.rest.client.api.RestClientException;
+import com.atlassian.util.concurrent.Promise;
+import com.atlassian.util.concurrent.Promises;
+import de.speexx.jira.jan.service.stats.RunStatistics;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RetryPolicyTest {
+
+    @Test
+    public void retries_transient_failure() {
+        final RunStatistics statistics = new RunStatistics();
+        final List<Long> delays = new ArrayList<>();
+        final RetryPolicy policy = new RetryPolicy(3, 100, statistics, delays::add, new Random(1));
+
+        assertEquals("result", policy.call(failing(2, "result")));
+        assertEquals(2, delays.size());
+        assertEquals(2, statistics.getRetries());
+    }
+
+    @Test
+    public void gives_up_after_max_retries() {
+        final AtomicInteger attempts = new AtomicInteger();
+        final RetryPolicy policy = new RetryPolicy(2, 0, new RunStatistics(), millis -> {}, new Random(1));
+
+        final RestClientException exception = assertThrows(RestClientException.class, () -> policy.call(() -> {
+            attempts.incrementAndGet();
+            return Promises.<String>rejected(unavailable());
+        }));
+        assertEquals(503, (int) exception.getStatusCode().get());
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    public void permanent_failure_is_not_retried() {
+        final AtomicInteger attempts = new AtomicInteger();
+        final RetryPolicy policy = new RetryPolicy(2, 0, new RunStatistics(), millis -> {}, new Random(1));
+        final RestClientException failure = new RestClientException(Collections.emptyList(), 400);
+
+        assertSame(failure, assertThrows(RestClientException.class, () -> policy.call(() -> {
+            attempts.incrementAndGet();
+            return Promises.<String>rejected(failure);
+        })));
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    public void claim_retries_with_retry_request() {
+        final RetryPolicy policy = new RetryPolicy(1, 0, new RunStatistics(), millis -> {}, new Random(1));
+        assertEquals("retried", policy.claim(Promises.<String>rejected(unavailable()), () -> Promises.promise("retried")));
+    }
+
+    @Test
+    public void none_never_retries() {
+        assertEquals(0, RetryPolicy.none().getMaxRetries());
+        assertThrows(RestClientException.class, () -> RetryPolicy.none().call(failing(1, "result")));
+    }
+
+    @Test
+    public void isTransient() {
+        assertTrue(RetryPolicy.isTransient(new RestClientException(Collections.emptyList(), 429)));
+        assertTrue(RetryPolicy.isTransient(new RestClientException(Collections.emptyList(), 502)));
+        assertTrue(RetryPolicy.isTransient(unavailable()));
+        assertTrue(RetryPolicy.isTransient(new RestClientException(Collections.emptyList(), 504)));
+        assertTrue(RetryPolicy.isTransient(new RestClientException(new IOException("connection reset"))));
+        assertFalse(RetryPolicy.isTransient(new RestClientException(Collections.emptyList(), 404)));
+        assertFalse(RetryPolicy.isTransient(new IllegalStateException()));
+    }
+
+    @Test
+    public void delay_grows_exponentially() {
+        final RetryPolicy policy = new RetryPolicy(10, 100, new RunStatistics(), millis -> {}, new Random(1));
+        for (int retries = 0; retries < 5; retries++) {
+            final long delay = policy.delayMillis(retries);
+            final long maxDelay = 100L << retries;
+            assertTrue(delay >= maxDelay / 2 && delay <= maxDelay, "delay " + delay + " for retry " + retries);
+        }
+    }
+
+    @Test
+    public void delay_is_capped() {
+        final RetryPolicy policy = new RetryPolicy(100, 1000, new RunStatistics(), millis -> {}, new Random(1));
+        assertTrue(policy.delayMillis(60) <= RetryPolicy.MAX_DELAY_MILLIS);
+    }
+
+    @Test
+    public void negative_max_retries() {
+        final Throwable exception = assertThrows(IllegalArgumentException.class, () -> new RetryPolicy(-1, 0, new RunStatistics()));
+        assertEquals("Maximum retries must not be negative: -1", exception.getMessage());
+    }
+
+    static RestClientException unavailable() {
+        return new RestClientException(Collections.emptyList(), 503);
+    }
+
+    static <T> Supplier<Promise<T>> failing(final int failures, final T result) {
+        final AtomicInteger attempts = new AtomicInteger();
+        return () -> attempts.getAndIncrement() < failures ? Promises.<T>rejected(unavailable()) : Promises.promise(result);
+    }
+}
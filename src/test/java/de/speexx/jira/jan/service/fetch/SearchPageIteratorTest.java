@@ -0,0 +1,195 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.fetch;
+
+import com.atlassian.jira.rest.client.api.RestClientException;
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import com.atlassian.jira.rest.client.api.domain.SearchResult;
+import com.atlassian.util.concurrent.Promise;
+import com.atlassian.util.concurrent.Promises;
+import de.speexx.jira.jan.service.stats.RunStatistics;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SearchPageIteratorTest {
+
+    @Test
+    public void pages_in_search_order() {
+        final FakeSearch search = new FakeSearch(25, 100);
+        final SearchPageIterator pages = new SearchPageIterator(search, 10, 2);
+
+        final List<Integer> startIndices = new ArrayList<>();
+        int count = 0;
+        while (pages.hasNext()) {
+            final ExpandedSearchResult page = pages.next();
+            startIndices.add(page.getSearchResult().getStartIndex());
+            for (final Issue issue : page.getIssues()) {
+                count++;
+            }
+        }
+
+        assertEquals(25, count);
+        assertEquals(25, pages.getTotal());
+        assertEquals(3, startIndices.size());
+        assertEquals(0, (int) startIndices.get(0));
+        assertEquals(10, (int) startIndices.get(1));
+        assertEquals(20, (int) startIndices.get(2));
+        assertEquals(3, search.requestedStartIndices.size());
+    }
+
+    @Test
+    public void prefetch_is_bounded_by_depth() {
+        final FakeSearch search = new FakeSearch(100, 100);
+        final SearchPageIterator pages = new SearchPageIterator(search, 10, 3);
+        assertEquals(1, search.requestedStartIndices.size());
+
+        pages.next();
+        assertEquals(1 + 3, search.requestedStartIndices.size());
+
+        pages.next();
+        assertEquals(2 + 3, search.requestedStartIndices.size());
+    }
+
+    @Test
+    public void without_prefetch() {
+        final FakeSearch search = new FakeSearch(30, 100);
+        final SearchPageIterator pages = new SearchPageIterator(search, 10, 0);
+
+        pages.next();
+        assertEquals(1, search.requestedStartIndices.size());
+        assertTrue(pages.hasNext());
+        pages.next();
+        assertEquals(2, search.requestedStartIndices.size());
+        pages.next();
+        assertFalse(pages.hasNext());
+    }
+
+    @Test
+    public void page_size_granted_by_jira() {
+        final FakeSearch search = new FakeSearch(25, 5);
+        final SearchPageIterator pages = new SearchPageIterator(search, 10, 1);
+
+        int count = 0;
+        while (pages.hasNext()) {
+            for (final Issue issue : pages.next().getIssues()) {
+                count++;
+            }
+        }
+
+        assertEquals(25, count);
+        assertEquals(5, (int) search.requestedStartIndices.get(1));
+    }
+
+    @Test
+    public void empty_result() {
+        final FakeSearch search = new FakeSearch(0, 100);
+        final SearchPageIterator pages = new SearchPageIterator(search, 10, 2);
+
+        assertTrue(pages.hasNext());
+        assertFalse(pages.next().getIssues().iterator().hasNext());
+        assertFalse(pages.hasNext());
+        assertThrows(NoSuchElementException.class, () -> pages.next());
+    }
+
+    @Test
+    public void page_size_less_than_one() {
+        final Throwable exception = assertThrows(IllegalArgumentException.class, () -> {
+            new SearchPageIterator(new FakeSearch(0, 100), 0, 2);
+        });
+        assertTrue(exception.getMessage().startsWith("Page size must be greater than 0"));
+    }
+
+    @Test
+    public void negative_prefetch_depth() {
+        final Throwable exception = assertThrows(IllegalArgumentException.class, () -> {
+            new SearchPageIterator(new FakeSearch(0, 100), 10, -1);
+        });
+        assertTrue(exception.getMessage().startsWith("Prefetch depth must not be negative"));
+    }
+
+    @Test
+    public void starts_at_first_start_index() {
+        final FakeSearch search = new FakeSearch(25, 100);
+        final SearchPageIterator pages = new SearchPageIterator(search, 10, 2, 12, RetryPolicy.none());
+
+        int count = 0;
+        while (pages.hasNext()) {
+            for (final Issue issue : pages.next().getIssues()) {
+                count++;
+            }
+        }
+
+        assertEquals(13, count);
+        assertEquals(12, (int) search.requestedStartIndices.get(0));
+        assertEquals(22, (int) search.requestedStartIndices.get(1));
+    }
+
+    @Test
+    public void retries_failed_page() {
+        final FakeSearch search = new FakeSearch(25, 100);
+        search.failures = 2;
+        final RetryPolicy retryPolicy = new RetryPolicy(2, 0, new RunStatistics());
+        final SearchPageIterator pages = new SearchPageIterator(search, 10, 0, 0, retryPolicy);
+
+        assertEquals(0, pages.next().getSearchResult().getStartIndex());
+        assertEquals(3, search.requestedStartIndices.size());
+        assertEquals(0, (int) search.requestedStartIndices.get(2));
+    }
+
+    @Test
+    public void negative_first_start_index() {
+        final Throwable exception = assertThrows(IllegalArgumentException.class, () -> {
+            new SearchPageIterator(new FakeSearch(0, 100), 10, 2, -1, RetryPolicy.none());
+        });
+        assertTrue(exception.getMessage().startsWith("First start index must not be negative"));
+    }
+
+    static final class FakeSearch implements SearchPageIterator.PageLoader {
+        final int total;
+        final int maxPageSize;
+        final List<Integer> requestedStartIndices = new ArrayList<>();
+        int failures;
+
+        FakeSearch(final int total, final int maxPageSize) {
+            this.total = total;
+            this.maxPageSize = maxPageSize;
+        }
+
+        @Override
+        public Promise<ExpandedSearchResult> load(final int startAt, final int maxResults) {
+            this.requestedStartIndices.add(startAt);
+            if (this.failures > 0) {
+                this.failures--;
+                return Promises.rejected(new RestClientException(Collections.emptyList(), 503));
+            }
+            final int pageSize = Math.min(maxResults, this.maxPageSize);
+            final List<Issue> issues = new ArrayList<>();
+            for (int i = startAt; i < Math.min(startAt + pageSize, this.total); i++) {
+                issues.add(ConcurrentIssueFetcherTest.createIssue("TEST-" + i));
+            }
+            return Promises.promise(new ExpandedSearchResult(new SearchResult(startAt, pageSize, this.total, issues), Collections.emptySet()));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.fetch;
+
+import java.net.URI;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SharedHttpClientFactoryTest {
+
+    @Test
+    public void createOptions() {
+        assertNotNull(SharedHttpClientFactory.createOptions(20, 10, 60, 900));
+    }
+
+    @Test
+    public void createOptions_without_connections() {
+        final Throwable exception = assertThrows(IllegalArgumentException.class, () -> {
+            SharedHttpClientFactory.createOptions(0, 10, 60, 60);
+        });
+        assertEquals("Maximum connections must be greater than 0: 0", exception.getMessage());
+    }
+
+    @Test
+    public void createOptions_without_timeout() {
+        assertThrows(IllegalArgumentException.class, () -> SharedHttpClientFactory.createOptions(20, 0, 60, 60));
+        assertThrows(IllegalArgumentException.class, () -> SharedHttpClientFactory.createOptions(20, 10, 0, 60));
+    }
+
+    @Test
+    public void createOptions_without_connection_ttl() {
+        assertThrows(IllegalArgumentException.class, () -> SharedHttpClientFactory.createOptions(20, 10, 60, 0));
+        assertThrows(IllegalArgumentException.class, () -> SharedHttpClientFactory.createOptions(20, 10, 60, -1));
+    }
+
+    @Test
+    public void applicationProperties() {
+        final SharedHttpClientFactory.JanApplicationProperties properties
+                = new SharedHttpClientFactory.JanApplicationProperties(URI.create("https://jira.example.com/jira"));
+        assertEquals("/jira", properties.getBaseUrl());
+        assertEquals(0L, properties.getBuildDate().getTime());
+        assertNull(properties.getPropertyValue("any.key"));
+    }
+}
@@ -0,0 +1,104 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.issue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class CanonicalCacheTest {
+
+    private static final BiPredicate<String, String> EQUALS = String::equals;
+    private static final Function<String, String> COPY = String::new;
+
+    @Test
+    public void canonical_instance_with_hits_and_misses() {
+        final CanonicalCache<String> cache = new CanonicalCache<>(CanonicalCache.UNBOUNDED);
+        final String first = cache.get("abc".hashCode(), "abc", EQUALS, COPY);
+
+        assertSame(first, cache.get("abc".hashCode(), "abc", EQUALS, COPY));
+        assertSame(first, cache.find("abc".hashCode(), "abc", EQUALS));
+        assertNull(cache.find("xyz".hashCode(), "xyz", EQUALS));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void bounded() {
+        final CanonicalCache<String> cache = new CanonicalCache<>(1);
+        cache.get("a".hashCode(), "a", EQUALS, COPY);
+        final String uncached = cache.get("b".hashCode(), "b", EQUALS, COPY);
+
+        assertEquals(1, cache.size());
+        assertNotSame(uncached, cache.get("b".hashCode(), "b", EQUALS, COPY));
+    }
+
+    @Test
+    public void resized_with_colliding_hashes() {
+        final CanonicalCache<String> cache = new CanonicalCache<>(CanonicalCache.UNBOUNDED);
+        final List<String> values = new ArrayList<>();
+        for (int idx = 0; idx < CanonicalCache.INITIAL_CAPACITY * 4; idx++) {
+            values.add(cache.get(idx % 7, "value " + idx, EQUALS, COPY));
+        }
+        for (int idx = 0; idx < values.size(); idx++) {
+            assertSame(values.get(idx), cache.get(idx % 7, "value " + idx, EQUALS, COPY));
+        }
+        assertEquals(values.size(), cache.size());
+    }
+
+    @Test
+    public void concurrent_lookups_share_one_instance() throws Exception {
+        final CanonicalCache<String> cache = new CanonicalCache<>(CanonicalCache.UNBOUNDED);
+        final int count = 1_000;
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<List<String>>> futures = new ArrayList<>();
+            for (int task = 0; task < 4; task++) {
+                futures.add(executor.submit(() -> {
+                    final List<String> values = new ArrayList<>();
+                    for (int idx = 0; idx < count; idx++) {
+                        final String key = "value " + idx;
+                        values.add(cache.get(key.hashCode(), key, EQUALS, COPY));
+                    }
+                    return values;
+                }));
+            }
+            final List<String> expected = futures.get(0).get(10, TimeUnit.SECONDS);
+            for (final Future<List<String>> future : futures) {
+                final List<String> values = future.get(10, TimeUnit.SECONDS);
+                for (int idx = 0; idx < count; idx++) {
+                    assertSame(expected.get(idx), values.get(idx));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(count, cache.getMisses());
+        assertEquals(count, cache.size());
+    }
+}
@@ -0,0 +1,113 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.issue;
+
+import com.atlassian.jira.rest.client.api.domain.ChangelogGroup;
+import com.atlassian.jira.rest.client.api.domain.ChangelogItem;
+import com.atlassian.jira.rest.client.api.domain.FieldType;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ChangelogIndexTest {
+
+    private static final FieldNameService FIELD_NAME_SERVICE = new FieldNameService();
+    private static final FieldName STATUS = FIELD_NAME_SERVICE.createFieldName("status");
+    private static final FieldName ASSIGNEE = FIELD_NAME_SERVICE.createFieldName("assignee");
+    private static final Function<DateTime, LocalDateTime> UTC =
+            dt -> LocalDateTime.ofEpochSecond(dt.getMillis() / 1000, 0, ZoneOffset.UTC);
+
+    @Test
+    public void timelines_per_field() {
+        final ChangelogIndex index = ChangelogIndex.Fields.of(Arrays.asList(STATUS, ASSIGNEE)).index(Arrays.asList(
+                group(1, item("status", "Open", "In Progress"), item("assignee", null, "jane")),
+                group(2, item("Status", "In Progress", "Done"), item("labels", null, "x"))), UTC);
+
+        assertEquals(Arrays.asList("In Progress", "Done"), toStrings(index.getTimeline(STATUS)));
+        assertEquals(Collections.singletonList("jane"), toStrings(index.getTimeline(ASSIGNEE)));
+        assertEquals("In Progress", index.getTimeline(STATUS).get(1).getFromString());
+        assertEquals(at(2), index.getTimeline(STATUS).get(1).getCreated());
+    }
+
+    @Test
+    public void time_ordered() {
+        final ChangelogIndex index = ChangelogIndex.Fields.of(Collections.singletonList(STATUS)).index(Arrays.asList(
+                group(3, item("status", "In Progress", "Done")),
+                group(1, item("status", "Open", "In Progress")),
+                group(3, item("status", "Done", "Closed"))), UTC);
+
+        assertEquals(Arrays.asList("In Progress", "Done", "Closed"), toStrings(index.getTimeline(STATUS)));
+    }
+
+    @Test
+    public void field_without_changes() {
+        final ChangelogIndex index = ChangelogIndex.Fields.of(Collections.singletonList(STATUS)).index(Collections.singletonList(
+                group(1, item("assignee", null, "jane"))), UTC);
+
+        assertTrue(index.getTimeline(STATUS).isEmpty());
+        assertTrue(index.getTimeline(ASSIGNEE).isEmpty());
+    }
+
+    @Test
+    public void time_converted_once_per_matching_group() {
+        final AtomicInteger conversions = new AtomicInteger();
+        ChangelogIndex.Fields.of(Collections.singletonList(STATUS)).index(Arrays.asList(
+                group(1, item("status", "Open", "In Progress"), item("status", "In Progress", "Done")),
+                group(2, item("assignee", null, "jane"))), dt -> {
+                    conversions.incrementAndGet();
+                    return UTC.apply(dt);
+                });
+
+        assertEquals(1, conversions.get());
+    }
+
+    @Test
+    public void duplicate_fields_indexed_once() {
+        final ChangelogIndex.Fields fields = ChangelogIndex.Fields.of(Arrays.asList(STATUS, STATUS));
+
+        assertEquals(1, fields.size());
+        assertSame(STATUS, fields.getFieldName(0));
+        assertTrue(fields.isCompiledFor(Arrays.asList(STATUS, STATUS)));
+    }
+
+    static List<String> toStrings(final List<ChangelogIndex.Change> timeline) {
+        return timeline.stream().map(ChangelogIndex.Change::getToString).collect(Collectors.toList());
+    }
+
+    static LocalDateTime at(final int minute) {
+        return UTC.apply(new DateTime(minute * 60_000L));
+    }
+
+    static ChangelogGroup group(final int minute, final ChangelogItem... items) {
+        return new ChangelogGroup(null, new DateTime(minute * 60_000L), Arrays.asList(items));
+    }
+
+    static ChangelogItem item(final String field, final String from, final String to) {
+        return new ChangelogItem(FieldType.JIRA, field, null, from, null, to);
+    }
+}
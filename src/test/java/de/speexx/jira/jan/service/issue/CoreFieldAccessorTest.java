@@ -0,0 +1,71 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.issue;
+
+import com.atlassian.jira.rest.client.api.domain.BasicProject;
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import com.atlassian.jira.rest.client.api.domain.IssueType;
+import com.atlassian.jira.rest.client.api.domain.Status;
+import de.speexx.jira.jan.JiraAnalyzeException;
+import java.net.URI;
+import java.util.function.Function;
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CoreFieldAccessorTest {
+
+    @Test
+    public void compileGetter() throws Exception {
+        final Function<Issue, Object> getter = CoreFieldAccessor.compileGetter(Issue.class.getMethod("getKey"));
+        assertEquals("TEST-1", getter.apply(createIssue("TEST-1")));
+    }
+
+    @Test
+    public void compileGetter_with_parameter() throws Exception {
+        final Throwable exception = assertThrows(JiraAnalyzeException.class, () -> {
+            CoreFieldAccessor.compileGetter(String.class.getMethod("charAt", int.class));
+        });
+        assertEquals("Getter must not have parameters: public char java.lang.String.charAt(int)", exception.getMessage());
+    }
+
+    @Test
+    public void fetch_named_entity() throws Exception {
+        final CoreFieldAccessor accessor = new CoreFieldAccessor(CoreFieldAccessor.compileGetter(Issue.class.getMethod("getIssueType")),
+                                                                 new NamedEntityValueFetcher());
+        assertEquals("Bug", accessor.fetch(createIssue("TEST-1")));
+    }
+
+    @Test
+    public void fetch_without_value() throws Exception {
+        final CoreFieldAccessor accessor = new CoreFieldAccessor(CoreFieldAccessor.compileGetter(Issue.class.getMethod("getResolution")),
+                                                                 new NamedEntityValueFetcher());
+        assertNull(accessor.fetch(createIssue("TEST-1")));
+    }
+
+    static Issue createIssue(final String key) {
+        return new Issue("Summary", URI.create("http://example.com/issue/" + key), key, 1L,
+                new BasicProject(URI.create("http://example.com/project"), "TEST", 2L, "Test"),
+                new IssueType(URI.create("http://example.com/issuetype"), 3L, "Bug", false, "Bug", URI.create("http://example.com/icon")),
+                new Status(URI.create("http://example.com/status"), 4L, "Open", "Open", URI.create("http://example.com/icon")),
+                null, null, null, null, null, null, new DateTime(1L), new DateTime(2L), null, null, null, null, null,
+                null, null, null, null, null, null, null, null, null, null, null, null);
+    }
+}
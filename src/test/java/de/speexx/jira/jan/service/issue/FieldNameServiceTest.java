@@ -51,4 +51,41 @@ public class FieldNameServiceTest {
         final FieldNamePath fieldNamePath = new FieldNameService().createFieldNamePath(name);
         assertSame(fieldNamePath, service.createFieldNamePath(service.createFieldName("once")));
     }
+
+    @Test
+    public void test_createFieldName_case_insensitive_for_cache() {
+        final FieldNameService service = new FieldNameService();
+        final FieldName fieldName = service.createFieldName("Mixed Case");
+
+        assertSame(fieldName, service.createFieldName("mixed case"));
+        assertSame(fieldName, service.createFieldName("MIXED CASE"));
+    }
+
+    @Test
+    public void test_createFieldName_non_ascii_for_cache() {
+        final FieldNameService service = new FieldNameService();
+        final FieldName fieldName = service.createFieldName("Gr\u00f6\u00dfe");
+
+        assertEquals("gr\u00f6\u00dfe", fieldName.asString());
+        assertSame(fieldName, service.createFieldName("GR\u00d6\u00dfE"));
+    }
+
+    @Test
+    public void test_createFieldNamePath_not_backed_by_argument() {
+        final FieldNameService service = new FieldNameService();
+        final FieldName[] elements = {service.createFieldName("backed"), service.createFieldName("path")};
+        final FieldNamePath path = service.createFieldNamePath(elements);
+        elements[1] = service.createFieldName("other");
+
+        assertEquals("backed::path", path.asString());
+        assertSame(path, service.createFieldNamePath(service.createFieldName("backed"), service.createFieldName("path")));
+    }
+
+    @Test
+    public void test_createFieldNamePath_with_null_element() {
+        final FieldNameService service = new FieldNameService();
+        assertThrows(IllegalArgumentException.class, () -> {
+            service.createFieldNamePath(service.createFieldName("null"), null);
+        });
+    }
 }
@@ -0,0 +1,146 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.issue;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FieldPathExtractorTest {
+
+    @Test
+    public void all_paths_of_a_field() throws Exception {
+        final FieldPathExtractor extractor = compile("reporter::displayname", "reporter::avatarurls::48x48", "reporter::emailaddress");
+        final JSONObject reporter = new JSONObject("{\"displayName\":\"Jane\",\"avatarUrls\":{\"48x48\":\"http://a/48\"}}");
+
+        final IssueData issueData = new IssueData();
+        extractor.extract("reporter", "Reporter", reporter, issueData);
+
+        assertEquals("Jane", issueData.getCurrentIssueData(path("reporter::displayname")));
+        assertEquals("http://a/48", issueData.getCurrentIssueData(path("reporter::avatarurls::48x48")));
+        assertNull(issueData.getCurrentIssueData(path("reporter::emailaddress")));
+    }
+
+    @Test
+    public void case_insensitive_keys() throws Exception {
+        final FieldPathExtractor extractor = compile("reporter::displayname");
+
+        final IssueData first = new IssueData();
+        extractor.extract("reporter", "Reporter", new JSONObject("{\"DisplayName\":\"Jane\"}"), first);
+        final IssueData second = new IssueData();
+        extractor.extract("reporter", "Reporter", new JSONObject("{\"displayname\":\"John\"}"), second);
+
+        assertEquals("Jane", first.getCurrentIssueData(path("reporter::displayname")));
+        assertEquals("John", second.getCurrentIssueData(path("reporter::displayname")));
+    }
+
+    @Test
+    public void first_array_element() throws Exception {
+        final FieldPathExtractor extractor = compile("components::name");
+        final JSONArray components = new JSONArray("[{\"name\":\"A\"},{\"name\":\"B\"}]");
+
+        final IssueData issueData = new IssueData();
+        extractor.extract("components", "Component/s", components, issueData);
+
+        assertEquals("A", issueData.getCurrentIssueData(path("components::name")));
+    }
+
+    @Test
+    public void scalar_before_end_of_path() throws Exception {
+        final FieldPathExtractor extractor = compile("reporter::displayname::first");
+
+        final IssueData issueData = new IssueData();
+        extractor.extract("reporter", "Reporter", new JSONObject("{\"displayName\":\"Jane\"}"), issueData);
+
+        assertEquals("Jane", issueData.getCurrentIssueData(path("reporter::displayname::first")));
+    }
+
+    @Test
+    public void scalar_field_by_name() {
+        final FieldPathExtractor extractor = compile("Story Points");
+
+        final IssueData issueData = new IssueData();
+        extractor.extract("customfield_10002", "Story Points", 5.0d, issueData);
+
+        assertEquals(5.0d, issueData.getCurrentIssueData(path("story points")));
+    }
+
+    @Test
+    public void scalar_field_by_id() {
+        final FieldPathExtractor extractor = compile("customfield_10010");
+
+        final IssueData issueData = new IssueData();
+        extractor.extract("customfield_10010", "Story Points", 8.0d, issueData);
+
+        assertEquals(8.0d, issueData.getCurrentIssueData(path("customfield_10010")));
+        assertNull(issueData.getCurrentIssueData(path("story points")));
+    }
+
+    @Test
+    public void field_by_id() throws Exception {
+        final FieldPathExtractor extractor = compile("customfield_10000::value", "team::id");
+
+        final IssueData issueData = new IssueData();
+        extractor.extract("customfield_10000", "Team", new JSONObject("{\"value\":\"Blue\",\"id\":\"7\"}"), issueData);
+
+        assertEquals("Blue", issueData.getCurrentIssueData(path("customfield_10000::value")));
+        assertEquals("7", issueData.getCurrentIssueData(path("team::id")));
+    }
+
+    @Test
+    public void root_path_of_complex_field() throws Exception {
+        final FieldPathExtractor extractor = compile("reporter");
+
+        final IssueData issueData = new IssueData();
+        extractor.extract("reporter", "Reporter", new JSONObject("{\"displayName\":\"Jane\"}"), issueData);
+
+        assertNull(issueData.getCurrentIssueData(path("reporter")));
+    }
+
+    @Test
+    public void unknown_field() throws Exception {
+        final FieldPathExtractor extractor = compile("reporter::displayname");
+        assertFalse(extractor.isEmpty());
+
+        final IssueData issueData = new IssueData();
+        extractor.extract("assignee", "Assignee", new JSONObject("{\"displayName\":\"Jane\"}"), issueData);
+
+        assertNull(issueData.getCurrentIssueData(path("reporter::displayname")));
+        assertTrue(compile().isEmpty());
+    }
+
+    @Test
+    public void caseInsensitiveHash() {
+        assertEquals("displayname".hashCode(), FieldPathExtractor.caseInsensitiveHash("displayName"));
+    }
+
+    static FieldPathExtractor compile(final String... paths) {
+        return FieldPathExtractor.compile(Arrays.stream(paths).map(FieldPathExtractorTest::path).collect(Collectors.toList()),
+                                          new FieldNameService());
+    }
+
+    static FieldNamePath path(final String path) {
+        return new FieldNamePath(Arrays.stream(path.split(FieldNamePath.DELIMITER)).map(FieldName::new).toArray(FieldName[]::new));
+    }
+}
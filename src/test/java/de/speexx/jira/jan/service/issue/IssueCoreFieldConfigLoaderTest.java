@@ -43,6 +43,10 @@ public class IssueCoreFieldConfigLoaderTest {
 
         assertTrue(config.isIgnorable(new FieldName("key")).get());
         assertFalse(config.isIgnorable(new FieldName("summary")).get());
+
+        assertEquals("created", config.getJiraFieldId(new FieldName("createdDate")).get());
+        assertEquals("issuetype", config.getJiraFieldId(new FieldName("type")).get());
+        assertFalse(config.getJiraFieldId(new FieldName("key")).isPresent());
     }
 
     @Test
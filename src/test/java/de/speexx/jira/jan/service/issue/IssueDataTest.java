@@ -56,6 +56,19 @@ public class IssueDataTest {
         assertSame(simpleValue, data.getCurrentIssueData(FIELDNAME_PATH_SIMPLE));
     }
 
+    @Test
+    public void test_addCurrentFieldData_keeps_free_text_instance() {
+        final IssueData first = new IssueData();
+        final IssueData second = new IssueData();
+        final String firstValue = new String("free text");
+        final String secondValue = new String("free text");
+        first.addCurrentFieldData(FIELDNAME_PATH_SIMPLE, firstValue);
+        second.addCurrentFieldData(FIELDNAME_PATH_SIMPLE, secondValue);
+
+        assertSame(firstValue, first.getCurrentIssueData(FIELDNAME_PATH_SIMPLE));
+        assertSame(secondValue, second.getCurrentIssueData(FIELDNAME_PATH_SIMPLE));
+    }
+
     @Test
     public void test_simple_addCurrentFieldData_twice_with_different_LocalDateTime_instances() {
         final IssueData data = new IssueData();
@@ -100,7 +113,7 @@ public class IssueDataTest {
         final IssueData.HistoricalDataEntry entry = new IssueData.HistoricalDataEntry("from", LocalDateTime.now(), "to");
         data.addHistoricalDataEntry(FIELDNAME_SIMPLE, entry);
 
-        assertSame(entry, data.getHistoricalIssueData(FIELDNAME_SIMPLE).get(0));
+        assertEquals(entry, data.getHistoricalIssueData(FIELDNAME_SIMPLE).get(0));
     }
 
     @Test
@@ -113,7 +126,7 @@ public class IssueDataTest {
         data.addHistoricalDataEntry(FIELDNAME_SIMPLE, entrySecond);
 
         assertTrue(1 == data.getHistoricalIssueData(FIELDNAME_SIMPLE).size());
-        assertSame(entryFirst, data.getHistoricalIssueData(FIELDNAME_SIMPLE).get(0));
+        assertEquals(entryFirst, data.getHistoricalIssueData(FIELDNAME_SIMPLE).get(0));
     }
 
     @Test
@@ -149,4 +162,30 @@ public class IssueDataTest {
         assertTrue(2 == data.getHistoricalCount());
     }
 
+    @Test
+    public void test_addHistoricalData_many_changes_with_duplicates() {
+        final IssueData data = new IssueData();
+        final LocalDateTime start = of(2016, Month.DECEMBER, 24, 12, 13, 14, 123_456_789);
+        for (int round = 0; round < 2; round++) {
+            for (int idx = 0; idx < 100; idx++) {
+                data.addHistoricalData(FIELDNAME_SIMPLE, idx == 0 ? null : "s" + (idx - 1), start.plusMinutes(idx), "s" + idx);
+            }
+        }
+
+        assertEquals(100, data.getHistoricalIssueData(FIELDNAME_SIMPLE).size());
+        assertEquals(new IssueData.HistoricalDataEntry(null, start, "s0"), data.getHistoricalIssueData(FIELDNAME_SIMPLE).get(0));
+        assertEquals(new IssueData.HistoricalDataEntry("s98", start.plusMinutes(99), "s99"), data.getHistoricalIssueData(FIELDNAME_SIMPLE).get(99));
+        assertTrue(data.isAvailabilityInHistoricalData(FIELDNAME_SIMPLE, new IssueData.HistoricalDataEntry("s41", start.plusMinutes(42), "s42")));
+        assertFalse(data.isAvailabilityInHistoricalData(FIELDNAME_SIMPLE, new IssueData.HistoricalDataEntry("s42", start.plusMinutes(42), "s41")));
+        assertFalse(data.isAvailabilityInHistoricalData(FIELDNAME_SIMPLE, new IssueData.HistoricalDataEntry("unknown", start, "s0")));
+    }
+
+    @Test
+    public void test_getHistoricalIssueData_is_unmodifiable() {
+        final IssueData data = new IssueData();
+        data.addHistoricalData(FIELDNAME_SIMPLE, "from", now(), "to");
+
+        assertThrows(UnsupportedOperationException.class, () -> data.getHistoricalIssueData(FIELDNAME_SIMPLE).remove(0));
+    }
+
 }
@@ -0,0 +1,105 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.issue;
+
+import com.atlassian.jira.rest.client.api.domain.Field;
+import com.atlassian.jira.rest.client.api.domain.FieldType;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
+import javax.enterprise.inject.se.SeContainer;
+import javax.enterprise.inject.se.SeContainerInitializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class IssueFieldProjectionServiceTest {
+
+    private SeContainer seContainer;
+    private IssueFieldProjectionService projectionService;
+    private FieldNameService fieldNameService;
+
+    @Test
+    public void test_core_fields_without_jira_fields() {
+        final Optional<Set<String>> fieldIds = this.projectionService.resolveFieldIds(
+                Arrays.asList(path("key"), path("createdDate"), path("updateDate"), path("Reporter")),
+                () -> fail("JIRA fields requested for core fields"));
+
+        assertTrue(fieldIds.isPresent());
+        assertTrue(fieldIds.get().containsAll(IssueFieldProjectionService.REQUIRED_FIELD_IDS));
+        assertTrue(fieldIds.get().contains("updated"));
+        assertTrue(fieldIds.get().contains("reporter"));
+        assertFalse(fieldIds.get().contains("key"));
+        assertEquals(IssueFieldProjectionService.REQUIRED_FIELD_IDS.size() + 2, fieldIds.get().size());
+    }
+
+    @Test
+    public void test_custom_fields_by_id_and_name() {
+        final Iterable<Field> jiraFields = Arrays.asList(
+                field("customfield_10010", "Story Points"),
+                field("customfield_10020", "Sprint"),
+                field("labels", "Labels"));
+
+        final Optional<Set<String>> fieldIds = this.projectionService.resolveFieldIds(
+                Arrays.asList(path("story points"), path("customfield_10020::name"), path("status")), () -> jiraFields);
+
+        assertTrue(fieldIds.isPresent());
+        assertTrue(fieldIds.get().contains("customfield_10010"));
+        assertTrue(fieldIds.get().contains("customfield_10020"));
+        assertTrue(fieldIds.get().contains("status"));
+        assertFalse(fieldIds.get().contains("labels"));
+    }
+
+    @Test
+    public void test_unknown_field() {
+        final Optional<Set<String>> fieldIds = this.projectionService.resolveFieldIds(
+                Arrays.asList(path("summary"), path("unknown")), () -> Collections.singletonList(field("labels", "Labels")));
+
+        assertFalse(fieldIds.isPresent());
+    }
+
+    FieldNamePath path(final String path) {
+        final FieldName[] names = Arrays.stream(path.split(FieldNamePath.DELIMITER))
+                                        .map(name -> this.fieldNameService.createFieldName(name))
+                                        .toArray(FieldName[]::new);
+        return this.fieldNameService.createFieldNamePath(names);
+    }
+
+    static Field field(final String id, final String name) {
+        final FieldType type = id.startsWith("customfield_") ? FieldType.CUSTOM : FieldType.JIRA;
+        return new Field(id, name, type, true, true, true, null);
+    }
+
+    @BeforeEach
+    public void setupCdi() {
+        final SeContainerInitializer initializer = SeContainerInitializer.newInstance();
+        this.seContainer = initializer.initialize();
+        this.projectionService = this.seContainer.select(IssueFieldProjectionService.class).get();
+        this.fieldNameService = this.seContainer.select(FieldNameService.class).get();
+    }
+
+    @AfterEach
+    public void teardownCdi() {
+        this.seContainer.close();
+    }
+}
@@ -0,0 +1,66 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.stats;
+
+import com.atlassian.util.concurrent.Promises;
+import de.speexx.jira.jan.service.stats.RunStatistics.Phase;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RunStatisticsTest {
+
+    @Test
+    public void call_and_run() {
+        final RunStatistics statistics = new RunStatistics();
+        assertEquals("value", statistics.call(Phase.EXTRACT, () -> "value"));
+        statistics.run(Phase.WRITE, () -> {});
+        statistics.run(Phase.WRITE, () -> {});
+
+        assertEquals(1, statistics.getHistogram(Phase.EXTRACT).getCount());
+        assertEquals(2, statistics.getHistogram(Phase.WRITE).getCount());
+        assertEquals(0, statistics.getHistogram(Phase.SEARCH).getCount());
+    }
+
+    @Test
+    public void request() {
+        final RunStatistics statistics = new RunStatistics();
+        assertEquals("issue", statistics.request(Phase.ISSUE, Promises.promise("issue")).claim());
+        assertEquals(1, statistics.getHistogram(Phase.ISSUE).getCount());
+    }
+
+    @Test
+    public void printSummary() {
+        final RunStatistics statistics = new RunStatistics();
+        statistics.record(Phase.SEARCH, System.nanoTime());
+        statistics.addBytesReceived(1024);
+        statistics.addRetry();
+        statistics.addCacheUsage(3, 4);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        statistics.printSummary(new PrintStream(out, true));
+        final String summary = new String(out.toByteArray(), StandardCharsets.UTF_8);
+
+        assertTrue(summary.contains("p99 ms"), summary);
+        assertTrue(summary.contains("search"), summary);
+        assertTrue(summary.contains("bytes received: 1024 - retries: 1 - cache hits: 3 - cache misses: 4"), summary);
+    }
+}
@@ -0,0 +1,72 @@
+/* A tool to extract transition information from JIRA for analyzis (jan).
+ *
+ * Copyright (C) 2016 Sascha Kohlmann
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.speexx.jira.jan.service.symbol;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class SymbolTableTest {
+
+    @Test
+    public void canonical_instance() {
+        final SymbolTable symbols = new SymbolTable();
+        final String first = new String("In Progress");
+
+        assertSame(first, symbols.canonical(first));
+        assertSame(first, symbols.canonical(new String("In Progress")));
+        assertNull(symbols.canonical(null));
+        assertEquals(1, symbols.size());
+    }
+
+    @Test
+    public void concurrent_additions() throws Exception {
+        final SymbolTable symbols = new SymbolTable();
+        final int count = 320;
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<List<String>>> futures = new ArrayList<>();
+            for (int task = 0; task < 4; task++) {
+                futures.add(executor.submit(() -> {
+                    final List<String> canonicals = new ArrayList<>();
+                    for (int idx = 0; idx < count; idx++) {
+                        canonicals.add(symbols.canonical(new String("value " + idx)));
+                    }
+                    return canonicals;
+                }));
+            }
+            final List<String> expected = futures.get(0).get(10, TimeUnit.SECONDS);
+            for (final Future<List<String>> future : futures) {
+                final List<String> canonicals = future.get(10, TimeUnit.SECONDS);
+                for (int idx = 0; idx < count; idx++) {
+                    assertSame(expected.get(idx), canonicals.get(idx));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(count, symbols.size());
+    }
+}